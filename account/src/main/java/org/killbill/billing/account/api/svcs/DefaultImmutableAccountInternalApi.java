@@ -39,6 +39,7 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.IDBI;
 
@@ -55,9 +56,10 @@ public class DefaultImmutableAccountInternalApi implements ImmutableAccountInter
     public DefaultImmutableAccountInternalApi(final IDBI dbi,
                                               final Clock clock,
                                               final NonEntityDao nonEntityDao,
-                                              final CacheControllerDispatcher cacheControllerDispatcher) {
+                                              final CacheControllerDispatcher cacheControllerDispatcher,
+                                              final LatencyHistograms latencyHistograms) {
         // This API will directly issue queries instead of relying on the DAO (introduced to avoid Guice circular dependencies with InternalCallContextFactory)
-        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, null);
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, null, latencyHistograms);
         this.nonEntityDao = nonEntityDao;
         this.accountCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_IMMUTABLE);
         this.recordIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID);
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.audit;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.callcontext.TenantContext;
+
+// Bulk counterpart of AuditUserApi, e.g. for listings: same (public) contexts, but a fixed number of queries for several accounts
+public interface AuditBulkUserApi {
+
+    /**
+     * Return the audit logs of several accounts, using a fixed number of queries
+     *
+     * @param accountIds the account ids
+     * @param auditLevel the audit level
+     * @param context    the tenant context
+     * @return mapping account id -> audit logs (unknown accounts are omitted)
+     */
+    public Map<UUID, AccountAuditLogs> getAccountsAuditLogs(Collection<UUID> accountIds, AuditLevel auditLevel, TenantContext context);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
+
+// Bulk counterpart of InvoiceUserApi, e.g. for listings and billing run archives: same (public) contexts, but set-based queries
+public interface InvoiceBulkUserApi {
+
+    /**
+     * Retrieve a page of invoices (shallow, i.e. without items nor payments) across all accounts of the tenant
+     *
+     * @param offset            the offset of the first result, or the record_id cursor in keyset mode
+     * @param limit             the maximum number of results to retrieve
+     * @param paginationOptions the pagination mode
+     * @param context           the tenant context
+     * @return the list of invoices for that tenant
+     */
+    public Pagination<Invoice> getInvoices(Long offset, Long limit, PaginationOptions paginationOptions, TenantContext context);
+
+    /**
+     * Retrieve the balances of several accounts at once (e.g. for a page of accounts)
+     *
+     * @param accountIds account ids
+     * @param context    the tenant context
+     * @return the balance for each account id
+     */
+    public Map<UUID, BigDecimal> getAccountsBalance(Collection<UUID> accountIds, TenantContext context);
+
+    /**
+     * Retrieve the CBA of several accounts at once (e.g. for a page of accounts)
+     *
+     * @param accountIds account ids
+     * @param context    the tenant context
+     * @return the CBA for each account id
+     */
+    public Map<UUID, BigDecimal> getAccountsCBA(Collection<UUID> accountIds, TenantContext context);
+
+    /**
+     * Render several invoices as HTML, in parallel, and stream them to the consumer as they are rendered
+     *
+     * @param invoiceIds invoice ids (invoices not belonging to the tenant are skipped)
+     * @param consumer   the consumer of the rendered invoices
+     * @param context    the tenant context
+     * @throws InvoiceApiException if an invoice or its account can't be retrieved
+     * @throws IOException         if an invoice can't be rendered or consumed
+     */
+    public void renderInvoicesAsHTML(Iterable<UUID> invoiceIds, InvoiceHtmlConsumer consumer, TenantContext context) throws InvoiceApiException, IOException;
+
+    /**
+     * Render the committed invoices of the tenant by invoice date (e.g. to archive a billing run) as HTML, in parallel, and stream them to the consumer
+     *
+     * @param startDate first invoice date (inclusive)
+     * @param endDate   last invoice date (inclusive)
+     * @param consumer  the consumer of the rendered invoices
+     * @param context   the tenant context
+     * @throws InvoiceApiException if an invoice or its account can't be retrieved
+     * @throws IOException         if an invoice can't be rendered or consumed
+     */
+    public void renderInvoicesAsHTML(LocalDate startDate, LocalDate endDate, InvoiceHtmlConsumer consumer, TenantContext context) throws InvoiceApiException, IOException;
+}
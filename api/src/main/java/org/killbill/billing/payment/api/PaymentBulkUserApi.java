@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
+
+// Bulk counterpart of PaymentApi, e.g. for listings: same (public) contexts, but with explicit pagination options
+public interface PaymentBulkUserApi {
+
+    /**
+     * Retrieve a page of payments across all accounts of the tenant
+     *
+     * @param offset            the offset of the first result, or the record_id cursor in keyset mode
+     * @param limit             the maximum number of results to retrieve
+     * @param withPluginInfo    whether to fetch the underlying plugin information
+     * @param withAttempts      whether to fetch the payment attempts
+     * @param paginationOptions the pagination mode
+     * @param properties        custom plugin properties
+     * @param context           the tenant context
+     * @return the list of payments for that tenant
+     */
+    public Pagination<Payment> getPayments(Long offset, Long limit, boolean withPluginInfo, boolean withAttempts, PaginationOptions paginationOptions, Iterable<PluginProperty> properties, TenantContext context);
+
+    /**
+     * Retrieve a page of payments for a given plugin (keyset pagination isn't supported)
+     *
+     * @param offset            the offset of the first result
+     * @param limit             the maximum number of results to retrieve
+     * @param pluginName        the payment plugin name
+     * @param withPluginInfo    whether to fetch the underlying plugin information
+     * @param withAttempts      whether to fetch the payment attempts
+     * @param paginationOptions the pagination mode
+     * @param properties        custom plugin properties
+     * @param context           the tenant context
+     * @return the list of payments for that tenant and plugin
+     * @throws PaymentApiException if the plugin isn't registered (when fetching the plugin information)
+     */
+    public Pagination<Payment> getPayments(Long offset, Long limit, String pluginName, boolean withPluginInfo, boolean withAttempts, PaginationOptions paginationOptions, Iterable<PluginProperty> properties, TenantContext context) throws PaymentApiException;
+}
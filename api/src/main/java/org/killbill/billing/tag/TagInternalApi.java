@@ -16,6 +16,7 @@
 
 package org.killbill.billing.tag;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -43,6 +44,16 @@ public interface TagInternalApi {
 
     public List<Tag> getTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
+    /**
+     * Return the (non deleted) tags of a given object type for several accounts
+     *
+     * @param objectType       the object type
+     * @param accountRecordIds the account record ids
+     * @param context          the tenant context (the account record id isn't used)
+     * @return tags for all these accounts
+     */
+    public List<Tag> getTagsForAccountRecordIds(ObjectType objectType, Collection<Long> accountRecordIds, InternalTenantContext context);
+
     public void addTag(final UUID objectId, final ObjectType objectType, UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
 
     public void removeTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
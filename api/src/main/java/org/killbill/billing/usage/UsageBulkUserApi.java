@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.util.callcontext.CallContext;
+
+// Bulk counterpart of UsageUserApi#recordRolledUpUsage, for records spanning many subscriptions and accounts
+public interface UsageBulkUserApi {
+
+    /**
+     * Record the usage of several subscriptions atomically: either all the records are recorded, or none
+     *
+     * @param records the usage records
+     * @param context the call context
+     * @throws UsageApiException if a subscription doesn't exist or if a tracking id has already been recorded for the subscription (or is repeated in the records)
+     */
+    public void recordRolledUpUsage(Iterable<SubscriptionUsageRecord> records, CallContext context) throws UsageApiException;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity;
+
+//
+// Pagination options which aren't part of the public API signatures (e.g. InvoiceUserApi#getInvoices(offset, limit, context)):
+// see InvoiceBulkUserApi#getInvoices and PaymentBulkUserApi#getPayments, which pass them down to the DAO.
+//
+public final class PaginationOptions {
+
+    // Offset pagination, with the records counts
+    public static final PaginationOptions DEFAULT = new PaginationOptions(false, true);
+
+    private final boolean keyset;
+    private final boolean withTotals;
+
+    public PaginationOptions(final boolean keyset, final boolean withTotals) {
+        this.keyset = keyset;
+        this.withTotals = withTotals;
+    }
+
+    // When true, the offset is a record_id cursor (exclusive) instead of a number of records to skip:
+    // the database can seek directly to the page instead of scanning all previous records
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    // When false, the count queries are skipped (totalNbRecords and maxNbRecords are unknown)
+    public boolean isWithTotals() {
+        return withTotals;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("PaginationOptions{");
+        sb.append("keyset=").append(keyset);
+        sb.append(", withTotals=").append(withTotals);
+        sb.append('}');
+        return sb.toString();
+    }
+}
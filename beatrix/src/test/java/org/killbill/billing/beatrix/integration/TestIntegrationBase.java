@@ -979,11 +979,31 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             return defaultInvoiceConfig.getMaxRawUsagePreviousPeriod();
         }
 
+        @Override
+        public TimeSpan getMaxInvoiceLimit() {
+            return defaultInvoiceConfig.getMaxInvoiceLimit();
+        }
+
+        @Override
+        public TimeSpan getMaxInvoiceLimit(final InternalTenantContext tenantContext) {
+            return defaultInvoiceConfig.getMaxInvoiceLimit();
+        }
+
         @Override
         public int getMaxGlobalLockRetries() {
             return defaultInvoiceConfig.getMaxGlobalLockRetries();
         }
 
+        @Override
+        public boolean isAccountBalanceLedgerEnabled() {
+            return defaultInvoiceConfig.isAccountBalanceLedgerEnabled();
+        }
+
+        @Override
+        public int getHtmlRenderingThreads() {
+            return defaultInvoiceConfig.getHtmlRenderingThreads();
+        }
+
         @Override
         public boolean isEmailNotificationsEnabled() {
             return defaultInvoiceConfig.isEmailNotificationsEnabled();
@@ -429,7 +429,11 @@ public class VersionedCatalog extends ValidatingConfig<VersionedCatalog> impleme
 
     @Override
     public ValidationErrors validate(final VersionedCatalog catalog, final ValidationErrors errors) {
-
+        //
+        // Each StandaloneCatalog has already been validated on its own when it was loaded (XMLLoader#getObjectFromStream),
+        // and its validation doesn't depend on the other versions: we only check the consistency across versions here
+        // (parsed versions are cached and shared, see VersionedCatalogLoader)
+        //
         final Set<Date> effectiveDates = new TreeSet<Date>();
 
         for (final StandaloneCatalog c : versions) {
@@ -447,7 +451,6 @@ public class VersionedCatalog extends ValidatingConfig<VersionedCatalog> impleme
                 errors.add(new ValidationError(String.format("Catalog recurringBillingMode '%s' is not consistent across versions ", c.getCatalogName()),
                                                c.getCatalogURI(), VersionedCatalog.class, ""));
             }
-            errors.addAll(c.validate(c, errors));
         }
         return errors;
     }
@@ -52,6 +52,7 @@ import org.killbill.clock.Clock;
 import org.killbill.xmlloader.ValidationErrors;
 import org.killbill.xmlloader.ValidationException;
 import org.killbill.xmlloader.XMLLoader;
+import org.killbill.xmlloader.XMLWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -205,12 +206,23 @@ public class  DefaultCatalogUserApi implements CatalogUserApi {
         final VersionedCatalog versionedCatalog = (VersionedCatalog) catalogService.getCurrentCatalog(false, false, internalTenantContext);
         if (versionedCatalog != null && !versionedCatalog.getVersions().isEmpty()) {
             final StandaloneCatalog standaloneCatalogWithPriceOverride = versionedCatalog.getVersions().get(versionedCatalog.getVersions().size() - 1);
-            return standaloneCatalogWithPriceOverride;
+            // The cached versions are shared (see VersionedCatalogLoader) while CatalogUpdater modifies its catalog in place: work on a copy
+            return copyOf(standaloneCatalogWithPriceOverride);
         } else {
             return null;
         }
     }
 
+    private StandaloneCatalog copyOf(final StandaloneCatalog standaloneCatalog) throws CatalogApiException {
+        try {
+            final String catalogXML = XMLWriter.writeXML(standaloneCatalog, StandaloneCatalog.class);
+            final InputStream stream = new ByteArrayInputStream(catalogXML.getBytes());
+            return XMLLoader.getObjectFromStream(new URI("dummy"), stream, StandaloneCatalog.class);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private InternalTenantContext createInternalTenantContext(final TenantContext tenantContext) {
         // Only tenantRecordId will be populated -- this is important to always create the (ehcache) key the same way
         return internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext);
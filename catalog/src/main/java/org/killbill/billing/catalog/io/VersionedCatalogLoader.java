@@ -27,6 +27,8 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.transform.TransformerException;
@@ -48,6 +50,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
 
@@ -58,9 +65,17 @@ public class VersionedCatalogLoader implements CatalogLoader {
     private static final Object PROTOCOL_FOR_FILE = "file";
     private static final String XML_EXTENSION = ".xml";
 
+    private static final int MAX_CACHED_VERSIONS = 500;
+
     private final Clock clock;
     private final PriceOverride priceOverride;
     private final InternalCallContextFactory internalCallContextFactory;
+    // Parsed and validated tenant catalog versions, keyed by a hash of their XML, so that a new upload only parses the new version.
+    // Versions are shared across tenants and VersionedCatalog instances (each tenant gets its own StandaloneCatalogWithPriceOverride
+    // wrapper), and must not be modified
+    private final Cache<HashCode, StandaloneCatalog> parsedVersions = CacheBuilder.newBuilder()
+                                                                                  .maximumSize(MAX_CACHED_VERSIONS)
+                                                                                  .build();
 
     @Inject
     public VersionedCatalogLoader(final Clock clock, final PriceOverride priceOverride, final InternalCallContextFactory internalCallContextFactory) {
@@ -121,13 +136,12 @@ public class VersionedCatalogLoader implements CatalogLoader {
         try {
             uri = new URI("/tenantCatalog");
             for (final String cur : catalogXMLs) {
-                final InputStream curCatalogStream = new ByteArrayInputStream(cur.getBytes());
-                final StandaloneCatalog catalog = XMLLoader.getObjectFromStream(uri, curCatalogStream, StandaloneCatalog.class);
+                final StandaloneCatalog catalog = getParsedVersion(uri, cur);
                 if (!filterTemplateCatalog || !catalog.isTemplateCatalog()) {
                     result.add(new StandaloneCatalogWithPriceOverride(catalog, priceOverride, tenantRecordId, internalCallContextFactory));
                 }
             }
-            // Perform initialization and validation for VersionedCatalog
+            // Perform initialization and validation for VersionedCatalog (consistency across versions only)
             XMLLoader.initializeAndValidate(uri, result);
             return result;
         } catch (final ValidationException e) {
@@ -154,6 +168,37 @@ public class VersionedCatalogLoader implements CatalogLoader {
         }
     }
 
+    private StandaloneCatalog getParsedVersion(final URI uri, final String catalogXML) throws ValidationException, JAXBException, IOException, TransformerException, SAXException, InvalidConfigException {
+        final HashCode catalogXMLHash = Hashing.sha256().hashString(catalogXML, Charsets.UTF_8);
+        try {
+            return parsedVersions.get(catalogXMLHash, new Callable<StandaloneCatalog>() {
+                @Override
+                public StandaloneCatalog call() throws Exception {
+                    // Will throw if bad XML or catalog validation fails (the version isn't cached then)
+                    final InputStream curCatalogStream = new ByteArrayInputStream(catalogXML.getBytes());
+                    return XMLLoader.getObjectFromStream(uri, curCatalogStream, StandaloneCatalog.class);
+                }
+            });
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            } else if (cause instanceof JAXBException) {
+                throw (JAXBException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof TransformerException) {
+                throw (TransformerException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof InvalidConfigException) {
+                throw (InvalidConfigException) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
     protected List<URI> findXmlReferences(final String directoryContents, final URL url) throws URISyntaxException {
         if (url.getProtocol().equals(PROTOCOL_FOR_FILE)) {
             return findXmlFileReferences(directoryContents, url);
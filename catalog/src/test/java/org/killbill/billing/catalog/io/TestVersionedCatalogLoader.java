@@ -37,10 +37,13 @@ import org.killbill.billing.catalog.StandaloneCatalogWithPriceOverride;
 import org.killbill.billing.catalog.VersionedCatalog;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.InvalidConfigException;
+import org.killbill.billing.catalog.api.Plan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 
@@ -167,4 +170,37 @@ public class TestVersionedCatalogLoader extends CatalogTestSuiteNoDB {
         final VersionedCatalog c = loader.loadDefaultCatalog(destinationFile.toURI().toString());
         Assert.assertEquals(c.getCatalogName(), "SpyCarBasic");
     }
+
+    @Test(groups = "fast")
+    public void testLoadTenantCatalogReusesParsedVersions() throws Exception {
+        final String v1 = Resources.toString(Resources.getResource("versionedCatalog/WeaponsHireSmall-1.xml"), Charsets.UTF_8);
+        final String v2 = Resources.toString(Resources.getResource("versionedCatalog/WeaponsHireSmall-2.xml"), Charsets.UTF_8);
+        final String v3 = Resources.toString(Resources.getResource("versionedCatalog/WeaponsHireSmall-3.xml"), Charsets.UTF_8);
+
+        final VersionedCatalog c1 = loader.load(ImmutableList.<String>of(v1, v2), false, 1L);
+        Assert.assertEquals(c1.getVersions().size(), 2);
+
+        // New version uploaded
+        final VersionedCatalog c2 = loader.load(ImmutableList.<String>of(v1, v2, v3), false, 1L);
+        Assert.assertEquals(c2.getVersions().size(), 3);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertSame(getFirstPlan(c2.getVersions().get(i)), getFirstPlan(c1.getVersions().get(i)));
+        }
+
+        // Same catalog, other tenant
+        final VersionedCatalog c3 = loader.load(ImmutableList.<String>of(v1, v2, v3), false, 2L);
+        Assert.assertEquals(((StandaloneCatalogWithPriceOverride) c3.getVersions().get(2)).getTenantRecordId(), (Long) 2L);
+        Assert.assertSame(getFirstPlan(c3.getVersions().get(2)), getFirstPlan(c2.getVersions().get(2)));
+    }
+
+    @Test(groups = "fast", expectedExceptions = CatalogApiException.class)
+    public void testLoadTenantCatalogWithDuplicateVersion() throws Exception {
+        final String v1 = Resources.toString(Resources.getResource("versionedCatalog/WeaponsHireSmall-1.xml"), Charsets.UTF_8);
+        // Both versions are valid on their own, but have the same effective date
+        loader.load(ImmutableList.<String>of(v1, v1), false, 1L);
+    }
+
+    private Plan getFirstPlan(final StandaloneCatalog catalog) {
+        return catalog.getCurrentPlans().iterator().next();
+    }
 }
@@ -22,7 +22,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -32,6 +31,7 @@ import java.util.UUID;
 
 import javax.annotation.Nullable;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.catalog.api.Plan;
@@ -47,10 +47,13 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 
 // Given an event stream (across one or multiple entitlements), insert the blocking events at the right place
 public class BlockingStateOrdering extends EntitlementOrderingBase {
@@ -84,98 +87,52 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         final SupportForOlderVersionThan_0_17_X backwardCompatibleContext = new SupportForOlderVersionThan_0_17_X(inputAndOutputResult, blockingStates);
 
         // Trust the incoming ordering here: blocking states were sorted using ProxyBlockingStateDao#sortedCopy
+        final EventStreamSweep sweep = new EventStreamSweep(allEntitlementUUIDs, inputAndOutputResult, backwardCompatibleContext);
         for (final BlockingState currentBlockingState : blockingStates) {
-            final List<SubscriptionEvent> outputNewEvents = new ArrayList<SubscriptionEvent>();
-            final int index = insertFromBlockingEvent(allEntitlementUUIDs, currentBlockingState, inputAndOutputResult, backwardCompatibleContext, internalTenantContext, outputNewEvents);
-            insertAfterIndex(inputAndOutputResult, outputNewEvents, index);
+            sweep.insertFromBlockingEvent(currentBlockingState, internalTenantContext);
         }
+        sweep.copyTo(inputAndOutputResult);
+
         backwardCompatibleContext.addMissing_START_ENTITLEMENT(inputAndOutputResult, internalTenantContext);
     }
 
-    // Returns the index and the newEvents generated from the incoming blocking state event. Those new events will all be created for the same effectiveDate and should be ordered.
-    private int insertFromBlockingEvent(final Collection<UUID> allEntitlementUUIDs, final BlockingState currentBlockingState, final List<SubscriptionEvent> inputExistingEvents, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext, final InternalTenantContext internalTenantContext, final Collection<SubscriptionEvent> outputNewEvents) {
-        // Keep the current state per entitlement
-        final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
-        for (final UUID cur : allEntitlementUUIDs) {
-            targetStates.put(cur, new TargetState());
+    private boolean shouldInsertAfter(final BlockingState currentBlockingState, final DefaultSubscriptionEvent cur) {
+        final int compEffectiveDate = currentBlockingState.getEffectiveDate().compareTo(cur.getEffectiveDateTime());
+        if (compEffectiveDate < 0) {
+            return false;
+        } else if (compEffectiveDate == 0) {
+            return compareBlockingStateWithNextSubscriptionEvent(currentBlockingState, cur) > 0;
+        } else {
+            return true;
         }
+    }
 
-        //
-        // Find out where to insert next event, and calculate current state for each entitlement at the position where we stop.
-        //
-        int index = -1;
-        final Iterator<SubscriptionEvent> it = inputExistingEvents.iterator();
-        // Where we need to insert in that stream
-        DefaultSubscriptionEvent curInsertion = null;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) it.next();
-            final int compEffectiveDate = currentBlockingState.getEffectiveDate().compareTo(cur.getEffectiveDateTime());
-
-            final boolean shouldContinue;
-            switch (compEffectiveDate) {
-                case -1:
-                    shouldContinue = false;
-                    break;
-                case 0:
-                    shouldContinue = compareBlockingStateWithNextSubscriptionEvent(currentBlockingState, cur) > 0;
-                    break;
-                case 1:
-                    shouldContinue = true;
-                    break;
-                default:
-                    // Make compiler happy
-                    throw new IllegalStateException("Cannot reach statement");
-            }
-            if (!shouldContinue) {
+    private static void updateTargetState(final TargetState curTargetState, final SubscriptionEvent cur, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext) {
+        switch (cur.getSubscriptionEventType()) {
+            case START_ENTITLEMENT:
+                curTargetState.setEntitlementStarted();
                 break;
-            }
-            index++;
-
-            final TargetState curTargetState = targetStates.get(cur.getEntitlementId());
-            switch (cur.getSubscriptionEventType()) {
-                case START_ENTITLEMENT:
+            case STOP_ENTITLEMENT:
+                curTargetState.setEntitlementStopped();
+                break;
+            case START_BILLING:
+                // For older subscriptions we miss the START_ENTITLEMENT (the START_BILLING marks both start of billing and entitlement)
+                if (backwardCompatibleContext.isOlderEntitlement(cur.getEntitlementId())) {
                     curTargetState.setEntitlementStarted();
-                    break;
-                case STOP_ENTITLEMENT:
-                    curTargetState.setEntitlementStopped();
-                    break;
-                case START_BILLING:
-                    // For older subscriptions we miss the START_ENTITLEMENT (the START_BILLING marks both start of billing and entitlement)
-                    if (backwardCompatibleContext.isOlderEntitlement(cur.getEntitlementId())) {
-                        curTargetState.setEntitlementStarted();
-                    }
-                    curTargetState.setBillingStarted();
-                    break;
-                case PAUSE_BILLING:
-                case PAUSE_ENTITLEMENT:
-                case RESUME_ENTITLEMENT:
-                case RESUME_BILLING:
-                case SERVICE_STATE_CHANGE:
-                    curTargetState.addEntitlementEvent(cur);
-                    break;
-                case STOP_BILLING:
-                    curTargetState.setBillingStopped();
-                    break;
-            }
-            curInsertion = cur;
-        }
-
-        // Extract the list of targets based on the type of blocking state
-        final List<UUID> targetEntitlementIds = currentBlockingState.getType() == BlockingStateType.SUBSCRIPTION ? ImmutableList.<UUID>of(currentBlockingState.getBlockedId()) :
-                                                ImmutableList.<UUID>copyOf(allEntitlementUUIDs);
-
-        // For each target compute the new events that should be inserted in the stream
-        for (final UUID targetEntitlementId : targetEntitlementIds) {
-            final SubscriptionEvent[] prevNext = findPrevNext(inputExistingEvents, targetEntitlementId, curInsertion);
-            final TargetState curTargetState = targetStates.get(targetEntitlementId);
-
-            final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(currentBlockingState);
-            for (final SubscriptionEventType t : eventTypes) {
-                outputNewEvents.add(toSubscriptionEvent(prevNext[0], prevNext[1], targetEntitlementId, currentBlockingState, t, internalTenantContext));
-            }
+                }
+                curTargetState.setBillingStarted();
+                break;
+            case PAUSE_BILLING:
+            case PAUSE_ENTITLEMENT:
+            case RESUME_ENTITLEMENT:
+            case RESUME_BILLING:
+            case SERVICE_STATE_CHANGE:
+                curTargetState.addEntitlementEvent(cur);
+                break;
+            case STOP_BILLING:
+                curTargetState.setBillingStopped();
+                break;
         }
-
-        return index;
     }
 
     private int compareBlockingStateWithNextSubscriptionEvent(final BlockingState blockingState, final SubscriptionEvent next) {
@@ -243,41 +200,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         }
     }
 
-    // Extract prev and next events in the stream events for that particular target subscription from the insertionEvent
-    private SubscriptionEvent[] findPrevNext(final List<SubscriptionEvent> events, final UUID targetEntitlementId, final SubscriptionEvent insertionEvent) {
-        // Find prev/next event for the same entitlement
-        final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
-        if (insertionEvent == null) {
-            result[0] = null;
-            result[1] = !events.isEmpty() ? events.get(0) : null;
-            return result;
-        }
-
-        final Iterator<SubscriptionEvent> it = events.iterator();
-        DefaultSubscriptionEvent prev = null;
-        DefaultSubscriptionEvent next = null;
-        boolean foundCur = false;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent tmp = (DefaultSubscriptionEvent) it.next();
-            if (tmp.getEntitlementId().equals(targetEntitlementId)) {
-                if (!foundCur) {
-                    prev = tmp;
-                } else {
-                    next = tmp;
-                    break;
-                }
-            }
-            // Check both the id and the event type because of multiplexing
-            if (tmp.getId().equals(insertionEvent.getId()) &&
-                tmp.getSubscriptionEventType().equals(insertionEvent.getSubscriptionEventType())) {
-                foundCur = true;
-            }
-        }
-        result[0] = prev;
-        result[1] = next;
-        return result;
-    }
-
     private SubscriptionEvent toSubscriptionEvent(@Nullable final SubscriptionEvent prev, @Nullable final SubscriptionEvent next,
                                                   final UUID entitlementId, final BlockingState in, final SubscriptionEventType eventType,
                                                   final InternalTenantContext internalTenantContext) {
@@ -373,22 +295,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                                             internalTenantContext);
     }
 
-    private void insertAfterIndex(final LinkedList<SubscriptionEvent> original, final Collection<SubscriptionEvent> newEvents, final int index) {
-        final boolean firstPosition = (index == -1);
-        final boolean lastPosition = (index == original.size() - 1);
-        if (lastPosition || firstPosition) {
-            for (final SubscriptionEvent cur : newEvents) {
-                if (lastPosition) {
-                    original.addLast(cur);
-                } else {
-                    original.addFirst(cur);
-                }
-            }
-        } else {
-            original.addAll(index + 1, newEvents);
-        }
-    }
-
     //
     // Internal class to keep the state associated with each subscription
     //
@@ -409,6 +315,14 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
             this.perServiceBlockingState = new HashMap<String, BlockingState>();
         }
 
+        public TargetState(final TargetState other) {
+            this.isEntitlementStarted = other.isEntitlementStarted;
+            this.isEntitlementStopped = other.isEntitlementStopped;
+            this.isBillingStarted = other.isBillingStarted;
+            this.isBillingStopped = other.isBillingStopped;
+            this.perServiceBlockingState = new HashMap<String, BlockingState>(other.perServiceBlockingState);
+        }
+
         public void setEntitlementStarted() {
             isEntitlementStarted = true;
         }
@@ -521,6 +435,241 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         }
     }
 
+    //
+    // Single pass over the event stream, as the blocking states are sorted by effective date:
+    // - output: the events strictly before the last blocking state, with the state of each entitlement after them
+    // - group: the events which can still be before or after the next blocking states (same effective date)
+    // - input: the remaining events of the original stream
+    //
+    // Each blocking state is inserted at the same place, with the same prev/next events, as when scanning the whole stream from the start.
+    // When that isn't possible (blocking states not sorted), the sweep starts over.
+    //
+    private final class EventStreamSweep {
+
+        private final List<UUID> allEntitlementUUIDs;
+        private final SupportForOlderVersionThan_0_17_X backwardCompatibleContext;
+
+        private final List<SubscriptionEvent> output = new ArrayList<SubscriptionEvent>();
+        private final Map<UUID, TargetState> outputTargetStates = new HashMap<UUID, TargetState>();
+        // Positions in the output of the events per entitlement
+        private final Map<UUID, List<Integer>> outputPositions = new HashMap<UUID, List<Integer>>();
+        // Position in the output of the first event for a given id and event type (events are multiplexed)
+        private final Table<UUID, SubscriptionEventType, Integer> outputFirstPositions = HashBasedTable.<UUID, SubscriptionEventType, Integer>create();
+        private DateTime outputMaxEffectiveDate;
+
+        private final List<SubscriptionEvent> group = new ArrayList<SubscriptionEvent>();
+
+        private SubscriptionEvent[] input;
+        private int inputIndex;
+        // Index of the next input event for the same entitlement
+        private int[] inputNextIndexes;
+        // Index of the first remaining input event per entitlement
+        private final Map<UUID, Integer> inputFirstIndexes = new HashMap<UUID, Integer>();
+
+        private EventStreamSweep(final List<UUID> allEntitlementUUIDs, final List<SubscriptionEvent> events, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext) {
+            this.allEntitlementUUIDs = allEntitlementUUIDs;
+            this.backwardCompatibleContext = backwardCompatibleContext;
+            reset(events);
+        }
+
+        public void insertFromBlockingEvent(final BlockingState currentBlockingState, final InternalTenantContext internalTenantContext) {
+            final DateTime effectiveDate = currentBlockingState.getEffectiveDate();
+            if (outputMaxEffectiveDate != null && effectiveDate.compareTo(outputMaxEffectiveDate) <= 0) {
+                // Not sorted: the blocking state may need to go before events already in the output
+                reset(toList());
+            }
+
+            // Events on or before the blocking state are candidates, the first one after it is where the scan stops
+            while (inputIndex < input.length && ((DefaultSubscriptionEvent) input[inputIndex]).getEffectiveDateTime().compareTo(effectiveDate) <= 0) {
+                final SubscriptionEvent cur = input[inputIndex];
+                inputFirstIndexes.put(cur.getEntitlementId(), inputNextIndexes[inputIndex]);
+                group.add(cur);
+                inputIndex++;
+            }
+            // Events strictly before the blocking state will be before all the next ones as well
+            int nbEventsBefore = 0;
+            while (nbEventsBefore < group.size() && ((DefaultSubscriptionEvent) group.get(nbEventsBefore)).getEffectiveDateTime().compareTo(effectiveDate) < 0) {
+                addToOutput(group.get(nbEventsBefore));
+                nbEventsBefore++;
+            }
+            group.subList(0, nbEventsBefore).clear();
+
+            //
+            // Find out where to insert next event, and calculate current state for each entitlement at the position where we stop.
+            //
+            final Map<UUID, TargetState> groupTargetStates = new HashMap<UUID, TargetState>();
+            int insertionIndex = 0;
+            while (insertionIndex < group.size()) {
+                final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) group.get(insertionIndex);
+                if (!shouldInsertAfter(currentBlockingState, cur)) {
+                    break;
+                }
+
+                TargetState curTargetState = groupTargetStates.get(cur.getEntitlementId());
+                if (curTargetState == null) {
+                    curTargetState = new TargetState(outputTargetStates.get(cur.getEntitlementId()));
+                    groupTargetStates.put(cur.getEntitlementId(), curTargetState);
+                }
+                updateTargetState(curTargetState, cur, backwardCompatibleContext);
+                insertionIndex++;
+            }
+
+            // Where we need to insert in that stream
+            final SubscriptionEvent curInsertion = insertionIndex > 0 ? group.get(insertionIndex - 1) : (output.isEmpty() ? null : output.get(output.size() - 1));
+
+            // Prev and next events per entitlement, from the first event matching the insertion event (check both the id and the event type because of multiplexing)
+            final Map<UUID, SubscriptionEvent> prevEvents = new HashMap<UUID, SubscriptionEvent>();
+            final Map<UUID, SubscriptionEvent> nextEvents = new HashMap<UUID, SubscriptionEvent>();
+            // Position of the matching event when it is in the output (e.g. the first copy of a multiplexed event), the last output position otherwise
+            int anchorPosition = output.size() - 1;
+            boolean anchorInOutput = false;
+            if (curInsertion != null) {
+                final Integer firstOutputPosition = outputFirstPositions.get(curInsertion.getId(), curInsertion.getSubscriptionEventType());
+                if (firstOutputPosition != null) {
+                    anchorPosition = firstOutputPosition;
+                    anchorInOutput = true;
+                }
+
+                boolean foundCur = anchorInOutput;
+                for (final SubscriptionEvent cur : group) {
+                    if (!foundCur) {
+                        prevEvents.put(cur.getEntitlementId(), cur);
+                    } else if (!nextEvents.containsKey(cur.getEntitlementId())) {
+                        nextEvents.put(cur.getEntitlementId(), cur);
+                    }
+                    if (cur.getId().equals(curInsertion.getId()) &&
+                        cur.getSubscriptionEventType().equals(curInsertion.getSubscriptionEventType())) {
+                        foundCur = true;
+                    }
+                }
+            }
+
+            // Extract the list of targets based on the type of blocking state
+            final List<UUID> targetEntitlementIds = currentBlockingState.getType() == BlockingStateType.SUBSCRIPTION ? ImmutableList.<UUID>of(currentBlockingState.getBlockedId()) :
+                                                    allEntitlementUUIDs;
+
+            // For each target compute the new events that should be inserted in the stream
+            final List<SubscriptionEvent> outputNewEvents = new ArrayList<SubscriptionEvent>();
+            for (final UUID targetEntitlementId : targetEntitlementIds) {
+                final SubscriptionEvent prev;
+                final SubscriptionEvent next;
+                if (curInsertion == null) {
+                    prev = null;
+                    next = getFirstEvent();
+                } else {
+                    prev = prevEvents.containsKey(targetEntitlementId) ? prevEvents.get(targetEntitlementId) : getOutputEventAtOrBefore(targetEntitlementId, anchorPosition);
+                    final SubscriptionEvent nextOutputEvent = anchorInOutput ? getOutputEventAfter(targetEntitlementId, anchorPosition) : null;
+                    if (nextOutputEvent != null) {
+                        next = nextOutputEvent;
+                    } else {
+                        next = nextEvents.containsKey(targetEntitlementId) ? nextEvents.get(targetEntitlementId) : getFirstInputEvent(targetEntitlementId);
+                    }
+                }
+
+                // The state is only updated from the inserted events, by the next blocking states
+                final TargetState groupTargetState = groupTargetStates.get(targetEntitlementId);
+                final TargetState curTargetState = new TargetState(groupTargetState != null ? groupTargetState : outputTargetStates.get(targetEntitlementId));
+
+                final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(currentBlockingState);
+                for (final SubscriptionEventType t : eventTypes) {
+                    outputNewEvents.add(toSubscriptionEvent(prev, next, targetEntitlementId, currentBlockingState, t, internalTenantContext));
+                }
+            }
+
+            if (curInsertion == null && getFirstEvent() != null) {
+                // Events inserted at the start of the stream are added first one by one
+                group.addAll(0, Lists.reverse(outputNewEvents));
+            } else {
+                group.addAll(insertionIndex, outputNewEvents);
+            }
+        }
+
+        public void copyTo(final List<SubscriptionEvent> result) {
+            final List<SubscriptionEvent> events = toList();
+            result.clear();
+            result.addAll(events);
+        }
+
+        private void reset(final List<SubscriptionEvent> events) {
+            output.clear();
+            outputTargetStates.clear();
+            for (final UUID cur : allEntitlementUUIDs) {
+                outputTargetStates.put(cur, new TargetState());
+            }
+            outputPositions.clear();
+            for (final UUID cur : allEntitlementUUIDs) {
+                outputPositions.put(cur, new ArrayList<Integer>());
+            }
+            outputFirstPositions.clear();
+            outputMaxEffectiveDate = null;
+
+            group.clear();
+
+            input = events.toArray(new SubscriptionEvent[events.size()]);
+            inputIndex = 0;
+            inputNextIndexes = new int[input.length];
+            inputFirstIndexes.clear();
+            for (int i = input.length - 1; i >= 0; i--) {
+                final Integer nextIndex = inputFirstIndexes.put(input[i].getEntitlementId(), i);
+                inputNextIndexes[i] = nextIndex != null ? nextIndex : -1;
+            }
+        }
+
+        private void addToOutput(final SubscriptionEvent cur) {
+            updateTargetState(outputTargetStates.get(cur.getEntitlementId()), cur, backwardCompatibleContext);
+            outputPositions.get(cur.getEntitlementId()).add(output.size());
+            if (!outputFirstPositions.contains(cur.getId(), cur.getSubscriptionEventType())) {
+                outputFirstPositions.put(cur.getId(), cur.getSubscriptionEventType(), output.size());
+            }
+            final DateTime effectiveDate = ((DefaultSubscriptionEvent) cur).getEffectiveDateTime();
+            if (outputMaxEffectiveDate == null || effectiveDate.compareTo(outputMaxEffectiveDate) > 0) {
+                outputMaxEffectiveDate = effectiveDate;
+            }
+            output.add(cur);
+        }
+
+        private SubscriptionEvent getFirstEvent() {
+            if (!output.isEmpty()) {
+                return output.get(0);
+            } else if (!group.isEmpty()) {
+                return group.get(0);
+            } else {
+                return inputIndex < input.length ? input[inputIndex] : null;
+            }
+        }
+
+        // Last output event for that entitlement, at or before the position
+        private SubscriptionEvent getOutputEventAtOrBefore(final UUID entitlementId, final int position) {
+            final List<Integer> positions = outputPositions.get(entitlementId);
+            final int index = Collections.binarySearch(positions, position);
+            final int lastIndex = index >= 0 ? index : -index - 2;
+            return lastIndex >= 0 ? output.get(positions.get(lastIndex)) : null;
+        }
+
+        // First output event for that entitlement, strictly after the position
+        private SubscriptionEvent getOutputEventAfter(final UUID entitlementId, final int position) {
+            final List<Integer> positions = outputPositions.get(entitlementId);
+            final int index = Collections.binarySearch(positions, position);
+            final int firstIndex = index >= 0 ? index + 1 : -index - 1;
+            return firstIndex < positions.size() ? output.get(positions.get(firstIndex)) : null;
+        }
+
+        private SubscriptionEvent getFirstInputEvent(final UUID entitlementId) {
+            final Integer index = inputFirstIndexes.get(entitlementId);
+            return index != null && index >= 0 ? input[index] : null;
+        }
+
+        private List<SubscriptionEvent> toList() {
+            final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>(output.size() + group.size() + input.length - inputIndex);
+            events.addAll(output);
+            events.addAll(group);
+            for (int i = inputIndex; i < input.length; i++) {
+                events.add(input[i]);
+            }
+            return events;
+        }
+    }
+
     private static boolean isStartEntitlement(final BlockingState blockingState) {
         return DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME.equals(blockingState.getService()) &&
                DefaultEntitlementApi.ENT_STATE_START.equals(blockingState.getStateName());
@@ -17,14 +17,23 @@
 
 package org.killbill.billing.entitlement.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.entitlement.DefaultEntitlementService;
 import org.killbill.billing.entitlement.EntitlementTestSuiteNoDB;
+import org.killbill.billing.entitlement.dao.ProxyBlockingStateDao;
 import org.killbill.billing.junction.DefaultBlockingState;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
 import org.mockito.Mockito;
@@ -332,6 +341,129 @@ public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
         Assert.assertEquals(allEvents.get(7).getSubscriptionEventType(), SubscriptionEventType.START_BILLING);
     }
 
+    @Test(groups = "fast")
+    public void testSameOrderingAsLegacyImplementation() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        final Random random = new Random(42);
+        final SubscriptionEventType[] eventTypes = {SubscriptionEventType.PHASE, SubscriptionEventType.CHANGE, SubscriptionEventType.STOP_BILLING};
+        final String[] services = {DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME, EntitlementOrderingBase.BILLING_SERVICE_NAME, "svc1", "svc2"};
+
+        for (int i = 0; i < 2000; i++) {
+            // Few distinct dates, to get many events and blocking states on the same date
+            final int nbDates = 1 + random.nextInt(6);
+
+            final List<UUID> subscriptionIds = new ArrayList<UUID>();
+            final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>();
+            final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+            final int nbSubscriptions = 1 + random.nextInt(3);
+            for (int j = 0; j < nbSubscriptions; j++) {
+                final UUID subscriptionId = UUID.randomUUID();
+                subscriptionIds.add(subscriptionId);
+
+                final DateTime startDate = now.plusDays(random.nextInt(nbDates));
+                events.add(createEvent(subscriptionId, SubscriptionEventType.START_BILLING, startDate, Mockito.mock(Plan.class)));
+                // Otherwise, the subscription was created before 0.17.x
+                if (random.nextInt(4) != 0) {
+                    blockingStates.add(createBlockingState(subscriptionId, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME, false, false, startDate));
+                }
+
+                final int nbEvents = random.nextInt(4);
+                for (int k = 0; k < nbEvents; k++) {
+                    events.add(createEvent(subscriptionId, eventTypes[random.nextInt(eventTypes.length)], startDate.plusDays(random.nextInt(nbDates)), Mockito.mock(Plan.class)));
+                }
+            }
+
+            final int nbBlockingStates = random.nextInt(12);
+            for (int j = 0; j < nbBlockingStates; j++) {
+                final BlockingStateType type = BlockingStateType.values()[random.nextInt(BlockingStateType.values().length)];
+                final UUID blockedId = type == BlockingStateType.SUBSCRIPTION ? subscriptionIds.get(random.nextInt(subscriptionIds.size())) : UUID.randomUUID();
+                final String service = services[random.nextInt(services.length)];
+                final String stateName = DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME.equals(service) && random.nextInt(3) == 0 ? DefaultEntitlementApi.ENT_STATE_CANCELLED : "state" + random.nextInt(3);
+                blockingStates.add(createBlockingState(blockedId, type, stateName, service, random.nextBoolean(), random.nextBoolean(), now.plusDays(random.nextInt(nbDates))));
+            }
+
+            // The input of BlockingStateOrdering is sorted (SubscriptionEventOrdering and ProxyBlockingStateDao#sortedCopy), but make sure the unsorted case is handled the same way
+            final boolean sorted = random.nextInt(10) != 0;
+            final List<BlockingState> orderedBlockingStates;
+            if (sorted) {
+                Collections.sort(events, new Comparator<SubscriptionEvent>() {
+                    @Override
+                    public int compare(final SubscriptionEvent o1, final SubscriptionEvent o2) {
+                        return ((DefaultSubscriptionEvent) o1).getEffectiveDateTime().compareTo(((DefaultSubscriptionEvent) o2).getEffectiveDateTime());
+                    }
+                });
+                orderedBlockingStates = ProxyBlockingStateDao.sortedCopy(blockingStates);
+            } else {
+                Collections.shuffle(events, random);
+                orderedBlockingStates = new ArrayList<BlockingState>(blockingStates);
+                Collections.shuffle(orderedBlockingStates, random);
+            }
+
+            final LinkedList<SubscriptionEvent> expectedEvents = new LinkedList<SubscriptionEvent>(events);
+            LegacyBlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), orderedBlockingStates, internalCallContext, expectedEvents);
+
+            final LinkedList<SubscriptionEvent> actualEvents = new LinkedList<SubscriptionEvent>(events);
+            BlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), orderedBlockingStates, internalCallContext, actualEvents);
+
+            Assert.assertEquals(actualEvents, expectedEvents, "Iteration " + i);
+        }
+    }
+
+    // Bundle and account blocking states generate one event per subscription, with the same id and type
+    @Test(groups = "fast")
+    public void testSameOrderingAsLegacyImplementationForBundleAndAccountStates() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        final Random random = new Random(42);
+        final BlockingStateType[] types = {BlockingStateType.SUBSCRIPTION_BUNDLE, BlockingStateType.ACCOUNT};
+
+        for (int i = 0; i < 500; i++) {
+            final List<UUID> subscriptionIds = new ArrayList<UUID>();
+            final List<SubscriptionEvent> events = new ArrayList<SubscriptionEvent>();
+            final Collection<BlockingState> blockingStates = new LinkedList<BlockingState>();
+            final int nbSubscriptions = 2 + random.nextInt(4);
+            for (int j = 0; j < nbSubscriptions; j++) {
+                final UUID subscriptionId = UUID.randomUUID();
+                subscriptionIds.add(subscriptionId);
+
+                final DateTime startDate = now.plusDays(random.nextInt(3));
+                events.add(createEvent(subscriptionId, SubscriptionEventType.START_BILLING, startDate, Mockito.mock(Plan.class)));
+                blockingStates.add(createBlockingState(subscriptionId, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME, false, false, startDate));
+                events.add(createEvent(subscriptionId, SubscriptionEventType.PHASE, startDate.plusDays(random.nextInt(20)), Mockito.mock(Plan.class)));
+            }
+
+            // Pause/resume cycles, some of them on the same date, interleaved with a few subscription blocking states
+            final UUID bundleId = UUID.randomUUID();
+            final UUID accountId = UUID.randomUUID();
+            final int nbCycles = 1 + random.nextInt(10);
+            for (int j = 0; j < nbCycles; j++) {
+                final BlockingStateType type = types[random.nextInt(types.length)];
+                final UUID blockedId = type == BlockingStateType.ACCOUNT ? accountId : bundleId;
+                final DateTime pauseDate = now.plusDays(2 * j + random.nextInt(2));
+                blockingStates.add(createBlockingState(blockedId, type, "PAUSE", "pause-service", random.nextBoolean(), true, pauseDate));
+                blockingStates.add(createBlockingState(blockedId, type, "RESUME", "pause-service", false, false, pauseDate.plusDays(random.nextInt(2))));
+                if (random.nextInt(3) == 0) {
+                    blockingStates.add(createBlockingState(subscriptionIds.get(random.nextInt(nbSubscriptions)), BlockingStateType.SUBSCRIPTION, "stuff", "svc1", random.nextBoolean(), random.nextBoolean(), pauseDate));
+                }
+            }
+
+            Collections.sort(events, new Comparator<SubscriptionEvent>() {
+                @Override
+                public int compare(final SubscriptionEvent o1, final SubscriptionEvent o2) {
+                    return ((DefaultSubscriptionEvent) o1).getEffectiveDateTime().compareTo(((DefaultSubscriptionEvent) o2).getEffectiveDateTime());
+                }
+            });
+            final List<BlockingState> orderedBlockingStates = ProxyBlockingStateDao.sortedCopy(blockingStates);
+
+            final LinkedList<SubscriptionEvent> expectedEvents = new LinkedList<SubscriptionEvent>(events);
+            LegacyBlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), orderedBlockingStates, internalCallContext, expectedEvents);
+
+            final LinkedList<SubscriptionEvent> actualEvents = new LinkedList<SubscriptionEvent>(events);
+            BlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), orderedBlockingStates, internalCallContext, actualEvents);
+
+            Assert.assertEquals(actualEvents, expectedEvents, "Iteration " + i);
+        }
+    }
+
     private BlockingState createBlockingState(final UUID blockedId,
                                               final BlockingStateType blockingStateType,
                                               final String stateName,
@@ -355,10 +487,15 @@ public class TestBlockingStateOrdering extends EntitlementTestSuiteNoDB {
 
     // Re-use SubscriptionEventOrdering method, as it's the input of BlockingStateOrdering
     private SubscriptionEvent createEvent(final UUID subscriptionId, final SubscriptionEventType type, final DateTime effectiveDate) {
+        return createEvent(subscriptionId, type, effectiveDate, null);
+    }
+
+    private SubscriptionEvent createEvent(final UUID subscriptionId, final SubscriptionEventType type, final DateTime effectiveDate, @Nullable final Plan nextPlan) {
         final SubscriptionBaseTransition subscriptionBaseTransition = Mockito.mock(SubscriptionBaseTransition.class);
         Mockito.when(subscriptionBaseTransition.getId()).thenReturn(UUID.randomUUID());
         Mockito.when(subscriptionBaseTransition.getSubscriptionId()).thenReturn(subscriptionId);
         Mockito.when(subscriptionBaseTransition.getEffectiveTransitionTime()).thenReturn(effectiveDate);
+        Mockito.when(subscriptionBaseTransition.getNextPlan()).thenReturn(nextPlan);
         return SubscriptionEventOrdering.toSubscriptionEvent(subscriptionBaseTransition, type, internalCallContext);
     }
 
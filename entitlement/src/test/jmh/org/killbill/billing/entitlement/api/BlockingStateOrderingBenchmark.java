@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.entitlement.DefaultEntitlementService;
+import org.killbill.billing.entitlement.dao.ProxyBlockingStateDao;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the former BlockingStateOrdering implementation (one scan of the event stream per blocking state) with the sweep implementation,
+ * for an account whose subscriptions have been paused and resumed many times, one by one (SUBSCRIPTION) or all together (SUBSCRIPTION_BUNDLE, ACCOUNT).
+ * <p/>
+ * To run: mvn -Pjmh -pl entitlement test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.entitlement.api.BlockingStateOrderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockingStateOrderingBenchmark {
+
+    @Param({"1", "10"})
+    public int nbSubscriptions;
+
+    @Param({"10", "100"})
+    public int nbPauseResumeCycles;
+
+    @Param({"SUBSCRIPTION", "SUBSCRIPTION_BUNDLE", "ACCOUNT"})
+    public BlockingStateType blockingStateType;
+
+    private InternalTenantContext internalTenantContext;
+    private long totalOrdering;
+    private List<UUID> subscriptionIds;
+    private List<SubscriptionEvent> events;
+    private Collection<BlockingState> blockingStates;
+
+    @Setup
+    public void setUp() {
+        final DateTime startDate = new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC);
+        internalTenantContext = new InternalTenantContext(1L, 1L, DateTimeZone.UTC, startDate);
+
+        subscriptionIds = new ArrayList<UUID>();
+        events = new ArrayList<SubscriptionEvent>();
+        final List<BlockingState> unsortedBlockingStates = new ArrayList<BlockingState>();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            subscriptionIds.add(subscriptionId);
+
+            unsortedBlockingStates.add(createBlockingState(subscriptionId, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, DefaultEntitlementService.ENTITLEMENT_SERVICE_NAME, false, startDate));
+            if (blockingStateType == BlockingStateType.SUBSCRIPTION) {
+                addPauseResumeCycles(subscriptionId, unsortedBlockingStates, startDate);
+            }
+        }
+        if (blockingStateType != BlockingStateType.SUBSCRIPTION) {
+            // Bundle or account id
+            addPauseResumeCycles(UUID.randomUUID(), unsortedBlockingStates, startDate);
+        }
+        blockingStates = ProxyBlockingStateDao.sortedCopy(unsortedBlockingStates);
+
+        // Sorted by effective date, as returned by SubscriptionEventOrdering
+        for (final UUID subscriptionId : subscriptionIds) {
+            events.add(createEvent(subscriptionId, SubscriptionEventType.START_BILLING, startDate));
+        }
+        for (final UUID subscriptionId : subscriptionIds) {
+            events.add(createEvent(subscriptionId, SubscriptionEventType.PHASE, startDate.plusDays(30)));
+        }
+    }
+
+    @Benchmark
+    public List<SubscriptionEvent> rescanPerBlockingState() {
+        final LinkedList<SubscriptionEvent> result = new LinkedList<SubscriptionEvent>(events);
+        LegacyBlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), blockingStates, internalTenantContext, result);
+        return result;
+    }
+
+    @Benchmark
+    public List<SubscriptionEvent> sweep() {
+        final LinkedList<SubscriptionEvent> result = new LinkedList<SubscriptionEvent>(events);
+        BlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(subscriptionIds), blockingStates, internalTenantContext, result);
+        return result;
+    }
+
+    private void addPauseResumeCycles(final UUID blockedId, final List<BlockingState> blockingStates, final DateTime startDate) {
+        for (int j = 0; j < nbPauseResumeCycles; j++) {
+            blockingStates.add(createBlockingState(blockedId, blockingStateType, "PAUSE", "pause-service", true, startDate.plusDays(31 + 2 * j)));
+            blockingStates.add(createBlockingState(blockedId, blockingStateType, "RESUME", "pause-service", false, startDate.plusDays(32 + 2 * j)));
+        }
+    }
+
+    private BlockingState createBlockingState(final UUID blockedId, final BlockingStateType type, final String stateName, final String service, final boolean block, final DateTime effectiveDate) {
+        return new DefaultBlockingState(UUID.randomUUID(),
+                                        blockedId,
+                                        type,
+                                        stateName,
+                                        service,
+                                        false,
+                                        block,
+                                        block,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        totalOrdering++);
+    }
+
+    private SubscriptionEvent createEvent(final UUID subscriptionId, final SubscriptionEventType type, final DateTime effectiveDate) {
+        return new DefaultSubscriptionEvent(UUID.randomUUID(),
+                                            subscriptionId,
+                                            effectiveDate,
+                                            type,
+                                            false,
+                                            false,
+                                            EntitlementOrderingBase.getServiceName(type),
+                                            type.toString(),
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            effectiveDate,
+                                            internalTenantContext);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BlockingStateOrderingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -70,6 +70,7 @@ import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDaoHelper;
 import org.killbill.billing.invoice.dao.InvoiceParentChildModelDao;
+import org.killbill.billing.invoice.generator.InvoiceDateUtils;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
 import org.killbill.billing.invoice.generator.InvoiceWithMetadata.SubscriptionFutureNotificationDates;
@@ -285,7 +286,7 @@ public class InvoiceDispatcher {
             // (Note that we can't return right away as we send a NullInvoice event)
             final List<Invoice> existingInvoices = billingEvents.isAccountAutoInvoiceOff() ?
                                                    ImmutableList.<Invoice>of() :
-                                                   ImmutableList.<Invoice>copyOf(Collections2.transform(invoiceDao.getInvoicesByAccount(context),
+                                                   ImmutableList.<Invoice>copyOf(Collections2.transform(getExistingInvoicesForInvoiceGeneration(context),
                                                                                                         new Function<InvoiceModelDao, Invoice>() {
                                                                                                             @Override
                                                                                                             public Invoice apply(final InvoiceModelDao input) {
@@ -378,6 +379,14 @@ public class InvoiceDispatcher {
         return result;
     }
 
+    private List<InvoiceModelDao> getExistingInvoicesForInvoiceGeneration(final InternalCallContext context) {
+        // Items prior to the cutoff date are considered settled and are ignored by the generator: don't bother loading them
+        final LocalDate cutoffDate = InvoiceDateUtils.getMaxInvoiceLimitCutoffDate(invoiceConfig.getMaxInvoiceLimit(context), clock.getUTCToday());
+        return cutoffDate != null ?
+               invoiceDao.getInvoicesByAccountForInvoiceGeneration(cutoffDate, context) :
+               invoiceDao.getInvoicesByAccount(context);
+    }
+
     private Invoice processDryRun_UPCOMING_INVOICE_Invoice(final UUID accountId, final List<LocalDate> allCandidateTargetDates, final BillingEventSet billingEvents, final List<Invoice> existingInvoices, final InternalCallContext context) throws InvoiceApiException {
         for (final LocalDate curTargetDate : allCandidateTargetDates) {
             final Invoice invoice = processAccountWithLockAndInputTargetDate(accountId, curTargetDate, billingEvents, existingInvoices, true, context);
@@ -17,10 +17,12 @@
 
 package org.killbill.billing.invoice;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.inject.Inject;
 
@@ -34,6 +36,8 @@ import org.killbill.billing.invoice.plugin.api.InvoicePluginApi;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.metrics.LatencyHistograms;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,10 +53,12 @@ public class InvoicePluginDispatcher {
                                                                                                                     InvoiceItemType.TAX);
 
     private final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry;
+    private final LatencyHistograms latencyHistograms;
 
     @Inject
-    public InvoicePluginDispatcher(final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry) {
+    public InvoicePluginDispatcher(final OSGIServiceRegistration<InvoicePluginApi> pluginRegistry, final LatencyHistograms latencyHistograms) {
         this.pluginRegistry = pluginRegistry;
+        this.latencyHistograms = latencyHistograms;
     }
 
     //
@@ -63,9 +69,16 @@ public class InvoicePluginDispatcher {
         // We clone the original invoice so plugins don't remove/add items
         final Invoice clonedInvoice = (Invoice) ((DefaultInvoice) originalInvoice).clone();
         final List<InvoiceItem> additionalInvoiceItems = new LinkedList<InvoiceItem>();
-        final List<InvoicePluginApi> invoicePlugins = getInvoicePlugins();
-        for (final InvoicePluginApi invoicePlugin : invoicePlugins) {
-            final List<InvoiceItem> items = invoicePlugin.getAdditionalInvoiceItems(clonedInvoice, isDryRun, ImmutableList.<PluginProperty>of(), callContext);
+        final Map<String, InvoicePluginApi> invoicePlugins = getInvoicePlugins();
+        for (final Entry<String, InvoicePluginApi> invoicePluginEntry : invoicePlugins.entrySet()) {
+            final InvoicePluginApi invoicePlugin = invoicePluginEntry.getValue();
+            final long startNanos = latencyHistograms.start();
+            final List<InvoiceItem> items;
+            try {
+                items = invoicePlugin.getAdditionalInvoiceItems(clonedInvoice, isDryRun, ImmutableList.<PluginProperty>of(), callContext);
+            } finally {
+                latencyHistograms.record(ProfilingFeatureType.PLUGIN, "invoice:" + invoicePluginEntry.getKey(), startNanos);
+            }
             if (items != null) {
                 for (final InvoiceItem item : items) {
                     validateInvoiceItemFromPlugin(item, invoicePlugin);
@@ -83,10 +96,10 @@ public class InvoicePluginDispatcher {
         }
     }
 
-    private List<InvoicePluginApi> getInvoicePlugins() {
-        final List<InvoicePluginApi> invoicePlugins = new ArrayList<InvoicePluginApi>();
+    private Map<String, InvoicePluginApi> getInvoicePlugins() {
+        final Map<String, InvoicePluginApi> invoicePlugins = new LinkedHashMap<String, InvoicePluginApi>();
         for (final String name : pluginRegistry.getAllServices()) {
-            invoicePlugins.add(pluginRegistry.getServiceForName(name));
+            invoicePlugins.put(name, pluginRegistry.getServiceForName(name));
         }
         return invoicePlugins;
     }
@@ -22,8 +22,11 @@ import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.events.ControlTagCreationInternalEvent;
 import org.killbill.billing.events.ControlTagDeletionInternalEvent;
+import org.killbill.billing.events.TagInternalEvent;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
@@ -40,12 +43,15 @@ public class InvoiceTagHandler {
     private static final Logger log = LoggerFactory.getLogger(InvoiceTagHandler.class);
 
     private final InvoiceDispatcher dispatcher;
+    private final InvoiceDao invoiceDao;
     private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public InvoiceTagHandler(final InvoiceDispatcher dispatcher,
+                             final InvoiceDao invoiceDao,
                              final InternalCallContextFactory internalCallContextFactory) {
         this.dispatcher = dispatcher;
+        this.invoiceDao = invoiceDao;
         this.internalCallContextFactory = internalCallContextFactory;
     }
 
@@ -59,6 +65,26 @@ public class InvoiceTagHandler {
         }
     }
 
+    @AllowConcurrentEvents
+    @Subscribe
+    public void process_WRITTEN_OFF_creation(final ControlTagCreationInternalEvent event) {
+        process_WRITTEN_OFF_change(event);
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void process_WRITTEN_OFF_removal(final ControlTagDeletionInternalEvent event) {
+        process_WRITTEN_OFF_change(event);
+    }
+
+    // Written off invoices aren't part of the account balance: the tag may have been set through the generic tag APIs
+    private void process_WRITTEN_OFF_change(final TagInternalEvent event) {
+        if (event.getTagDefinition().getName().equals(ControlTagType.WRITTEN_OFF.toString()) && event.getObjectType() == ObjectType.INVOICE) {
+            final InternalCallContext context = internalCallContextFactory.createInternalCallContext(event.getSearchKey2(), event.getSearchKey1(), "InvoiceTagHandler", CallOrigin.INTERNAL, UserType.SYSTEM, event.getUserToken());
+            invoiceDao.refreshAccountBalance(context);
+        }
+    }
+
     private void processUnpaid_AUTO_INVOICING_OFF_invoices(final UUID accountId, final InternalCallContext context) {
         try {
             dispatcher.processAccountFromNotificationOrBusEvent(accountId, null, null, context);
@@ -23,8 +23,12 @@ import org.killbill.bus.api.PersistentBus;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
+import org.killbill.billing.invoice.template.HtmlInvoiceBatchRenderer;
+import org.killbill.billing.invoice.template.InvoiceTemplateCacheInvalidationCallback;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.tenant.api.TenantInternalApi;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
 
@@ -38,15 +42,23 @@ public class DefaultInvoiceService implements InvoiceService {
     private final InvoiceTagHandler tagHandler;
     private final PersistentBus eventBus;
     private final ParentInvoiceCommitmentNotifier parentInvoiceNotifier;
+    private final TenantInternalApi tenantInternalApi;
+    private final InvoiceTemplateCacheInvalidationCallback templateCacheInvalidationCallback;
+    private final HtmlInvoiceBatchRenderer htmlInvoiceBatchRenderer;
 
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final PersistentBus eventBus,
-                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier) {
+                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier,
+                                 final TenantInternalApi tenantInternalApi, final InvoiceTemplateCacheInvalidationCallback templateCacheInvalidationCallback,
+                                 final HtmlInvoiceBatchRenderer htmlInvoiceBatchRenderer) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
         this.parentInvoiceNotifier = parentInvoiceNotifier;
+        this.tenantInternalApi = tenantInternalApi;
+        this.templateCacheInvalidationCallback = templateCacheInvalidationCallback;
+        this.htmlInvoiceBatchRenderer = htmlInvoiceBatchRenderer;
     }
 
     @Override
@@ -64,16 +76,21 @@ public class DefaultInvoiceService implements InvoiceService {
         }
         dateNotifier.initialize();
         parentInvoiceNotifier.initialize();
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_TEMPLATE, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_MP_TEMPLATE, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_TRANSLATION_, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.CATALOG_TRANSLATION_, templateCacheInvalidationCallback);
     }
 
     @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
     public void start() {
         dateNotifier.start();
         parentInvoiceNotifier.start();
+        htmlInvoiceBatchRenderer.start();
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
-    public void stop() throws NoSuchNotificationQueue {
+    public void stop() throws NoSuchNotificationQueue, InterruptedException {
         try {
             eventBus.unregister(invoiceListener);
             eventBus.unregister(tagHandler);
@@ -82,5 +99,6 @@ public class DefaultInvoiceService implements InvoiceService {
         }
         dateNotifier.stop();
         parentInvoiceNotifier.stop();
+        htmlInvoiceBatchRenderer.stop();
     }
 }
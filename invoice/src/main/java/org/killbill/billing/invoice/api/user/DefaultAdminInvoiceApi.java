@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api.user;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.invoice.api.AdminInvoiceApi;
+import org.killbill.billing.invoice.dao.InvoiceDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+
+public class DefaultAdminInvoiceApi implements AdminInvoiceApi {
+
+    private final InvoiceDao dao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultAdminInvoiceApi(final InvoiceDao dao, final InternalCallContextFactory internalCallContextFactory) {
+        this.dao = dao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public boolean verifyAccountBalance(final UUID accountId, final boolean repair, final CallContext context) {
+        return dao.verifyAccountBalance(repair, internalCallContextFactory.createInternalCallContext(accountId, context));
+    }
+}
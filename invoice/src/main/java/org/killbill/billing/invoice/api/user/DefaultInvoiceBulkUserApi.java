@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api.user;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceBulkUserApi;
+import org.killbill.billing.invoice.api.InvoiceHtmlConsumer;
+import org.killbill.billing.invoice.dao.InvoiceDao;
+import org.killbill.billing.invoice.dao.InvoiceModelDao;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.template.HtmlInvoiceBatchRenderer;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
+import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
+
+import com.google.common.base.Function;
+
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationNoException;
+
+public class DefaultInvoiceBulkUserApi implements InvoiceBulkUserApi {
+
+    private final InvoiceDao dao;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final HtmlInvoiceBatchRenderer htmlInvoiceBatchRenderer;
+
+    @Inject
+    public DefaultInvoiceBulkUserApi(final InvoiceDao dao,
+                                     final InternalCallContextFactory internalCallContextFactory,
+                                     final HtmlInvoiceBatchRenderer htmlInvoiceBatchRenderer) {
+        this.dao = dao;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.htmlInvoiceBatchRenderer = htmlInvoiceBatchRenderer;
+    }
+
+    @Override
+    public Pagination<Invoice> getInvoices(final Long offset, final Long limit, final PaginationOptions paginationOptions, final TenantContext context) {
+        return getEntityPaginationNoException(limit,
+                                              new SourcePaginationBuilder<InvoiceModelDao, InvoiceApiException>() {
+                                                  @Override
+                                                  public Pagination<InvoiceModelDao> build() {
+                                                      // See InvoiceUserApi#getInvoices
+                                                      return dao.get(offset, limit, paginationOptions, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context));
+                                                  }
+                                              },
+                                              new Function<InvoiceModelDao, Invoice>() {
+                                                  @Override
+                                                  public Invoice apply(final InvoiceModelDao invoiceModelDao) {
+                                                      return new DefaultInvoice(invoiceModelDao);
+                                                  }
+                                              }
+                                             );
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getAccountsBalance(final Collection<UUID> accountIds, final TenantContext tenantContext) {
+        final InternalTenantContext context = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext);
+        final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIds(accountIds, ObjectType.ACCOUNT, context);
+        return toAccountIds(accountRecordIds, dao.getAccountBalances(accountRecordIds.values(), context));
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getAccountsCBA(final Collection<UUID> accountIds, final TenantContext tenantContext) {
+        final InternalTenantContext context = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext);
+        final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIds(accountIds, ObjectType.ACCOUNT, context);
+        return toAccountIds(accountRecordIds, dao.getAccountCBAs(accountRecordIds.values(), context));
+    }
+
+    @Override
+    public void renderInvoicesAsHTML(final Iterable<UUID> invoiceIds, final InvoiceHtmlConsumer consumer, final TenantContext tenantContext) throws InvoiceApiException, IOException {
+        htmlInvoiceBatchRenderer.render(invoiceIds, consumer, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext));
+    }
+
+    @Override
+    public void renderInvoicesAsHTML(final LocalDate startDate, final LocalDate endDate, final InvoiceHtmlConsumer consumer, final TenantContext tenantContext) throws InvoiceApiException, IOException {
+        htmlInvoiceBatchRenderer.render(startDate, endDate, consumer, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext));
+    }
+
+    private static Map<UUID, BigDecimal> toAccountIds(final Map<UUID, Long> accountRecordIds, final Map<Long, BigDecimal> amountsByAccountRecordId) {
+        final Map<UUID, BigDecimal> result = new HashMap<UUID, BigDecimal>();
+        for (final Entry<UUID, Long> entry : accountRecordIds.entrySet()) {
+            result.put(entry.getKey(), amountsByAccountRecordId.get(entry.getValue()));
+        }
+        return result;
+    }
+}
@@ -225,6 +225,8 @@ public class DefaultInvoiceUserApi implements InvoiceUserApi {
         // Note: the tagApi is audited
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(invoiceId, ObjectType.INVOICE, context);
         tagApi.addTag(invoiceId, ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), internalContext);
+        // Written off invoices aren't part of the account balance
+        dao.refreshAccountBalance(internalContext);
 
         // Retrieve the invoice for the account id
         final Invoice invoice = new DefaultInvoice(dao.getById(invoiceId, internalContext));
@@ -237,6 +239,8 @@ public class DefaultInvoiceUserApi implements InvoiceUserApi {
         // Note: the tagApi is audited
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(invoiceId, ObjectType.INVOICE, context);
         tagApi.removeTag(invoiceId, ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), internalContext);
+        // Written off invoices aren't part of the account balance
+        dao.refreshAccountBalance(internalContext);
 
         // Retrieve the invoice for the account id
         final Invoice invoice = new DefaultInvoice(dao.getById(invoiceId, internalContext));
@@ -108,11 +108,35 @@ public class MultiTenantInvoiceConfig extends MultiTenantConfigBase implements I
         return getMaxRawUsagePreviousPeriod();
     }
 
+    @Override
+    public boolean isAccountBalanceLedgerEnabled() {
+        return staticConfig.isAccountBalanceLedgerEnabled();
+    }
+
+    @Override
+    public int getHtmlRenderingThreads() {
+        return staticConfig.getHtmlRenderingThreads();
+    }
+
     @Override
     public boolean isEmailNotificationsEnabled() {
         return staticConfig.isEmailNotificationsEnabled();
     }
 
+    @Override
+    public TimeSpan getMaxInvoiceLimit() {
+        return staticConfig.getMaxInvoiceLimit();
+    }
+
+    @Override
+    public TimeSpan getMaxInvoiceLimit(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getMaxInvoiceLimit", tenantContext);
+        if (result != null) {
+            return new TimeSpan(result);
+        }
+        return getMaxInvoiceLimit();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.tag.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Maintains the invoice_account_balances ledger: one row per account, with its balance and CBA.
+//
+// The row is recomputed in the transactions writing invoices, items and payments, so that balance reads don't
+// have to rebuild all the invoices of the account. The balance isn't additive (written off invoices and paid child invoices reset it),
+// hence the row is recomputed from the invoices rather than updated with deltas.
+//
+// When the ledger is disabled (the default), nothing is recomputed: the writes only drop the rows they would make stale,
+// so that re-enabling the ledger never serves an outdated balance.
+//
+public class AccountBalanceDao {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountBalanceDao.class);
+
+    private final InvoiceDaoHelper invoiceDaoHelper;
+    private final CBADao cbaDao;
+    private final InvoiceConfig invoiceConfig;
+
+    @Inject
+    public AccountBalanceDao(final InvoiceDaoHelper invoiceDaoHelper, final CBADao cbaDao, final InvoiceConfig invoiceConfig) {
+        this.invoiceDaoHelper = invoiceDaoHelper;
+        this.cbaDao = cbaDao;
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public boolean isEnabled() {
+        return invoiceConfig.isAccountBalanceLedgerEnabled();
+    }
+
+    // To be called last in the transaction, once all invoices, items and payments of the account have been written
+    public void refreshFromTransaction(final List<Tag> invoicesTags,
+                                       final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                       final InternalCallContext context) {
+        if (!isEnabled()) {
+            entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).deleteAccountBalanceLedgerWithChildren(context);
+            return;
+        }
+
+        final InvoiceAccountBalanceModelDao accountBalance = computeFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+        storeFromTransaction(accountBalance, entitySqlDaoWrapperFactory, context);
+        invalidateChildAccountsFromTransaction(entitySqlDaoWrapperFactory, context);
+    }
+
+    // Compare the ledger with the balance computed from the invoices, and repair it if requested: return true if the ledger was up-to-date
+    public boolean verifyFromTransaction(final boolean repair,
+                                         final List<Tag> invoicesTags,
+                                         final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                         final InternalCallContext context) {
+        final InvoiceAccountBalanceModelDao accountBalance = computeFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+        final InvoiceAccountBalanceModelDao storedAccountBalance = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getAccountBalanceLedger(context);
+
+        final boolean upToDate = storedAccountBalance != null &&
+                                 storedAccountBalance.getBalance().compareTo(accountBalance.getBalance()) == 0 &&
+                                 storedAccountBalance.getCba().compareTo(accountBalance.getCba()) == 0;
+        if (!upToDate) {
+            log.warn("Account balance ledger out of date for accountRecordId='{}': stored={}, computed={}, repair={}",
+                     context.getAccountRecordId(), storedAccountBalance, accountBalance, repair);
+            if (repair) {
+                storeFromTransaction(accountBalance, entitySqlDaoWrapperFactory, context);
+            }
+        }
+        return upToDate;
+    }
+
+    private InvoiceAccountBalanceModelDao computeFromTransaction(final List<Tag> invoicesTags,
+                                                                 final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                                 final InternalCallContext context) {
+        final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+        final BigDecimal cba = cbaDao.getAccountCBAFromTransaction(entitySqlDaoWrapperFactory, context);
+        return new InvoiceAccountBalanceModelDao(context.getAccountRecordId(), computeAccountBalance(invoices), cba);
+    }
+
+    private void storeFromTransaction(final InvoiceAccountBalanceModelDao accountBalance,
+                                      final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                      final InternalCallContext context) {
+        final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+        // Writes on a given account are serialized by the account lock
+        if (invoiceSqlDao.updateAccountBalanceLedger(accountBalance.getBalance(), accountBalance.getCba(), context) == 0) {
+            invoiceSqlDao.createAccountBalanceLedger(accountBalance.getBalance(), accountBalance.getCba(), context);
+        }
+    }
+
+    // The balance of child accounts depends on the parent invoices of this account: their rows are dropped,
+    // and their balance is computed from the invoices until their next refresh
+    public void invalidateChildAccountsFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+        final List<Long> childAccountRecordIds = invoiceSqlDao.getChildAccountRecordIds(context);
+        if (!childAccountRecordIds.isEmpty()) {
+            invoiceSqlDao.deleteAccountBalanceLedgers(childAccountRecordIds, context);
+        }
+    }
+
+    public static BigDecimal computeAccountBalance(final Iterable<InvoiceModelDao> invoices) {
+        BigDecimal cba = BigDecimal.ZERO;
+
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        for (final InvoiceModelDao cur : invoices) {
+
+            // Skip DRAFT invoices
+            if (cur.getStatus().equals(InvoiceStatus.DRAFT)) {
+                continue;
+            }
+
+            final boolean hasZeroParentBalance =
+                    cur.getParentInvoice() != null &&
+                    (cur.getParentInvoice().isWrittenOff() ||
+                     cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
+                     InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
+
+
+            // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
+            accountBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : accountBalance.add(InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur));
+            cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+        }
+        return accountBalance.subtract(cba);
+    }
+}
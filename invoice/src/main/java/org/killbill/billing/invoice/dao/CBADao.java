@@ -19,8 +19,11 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -54,6 +57,23 @@ public class CBADao {
         return invoiceItemSqlDao.getAccountCBA(context);
     }
 
+    // Bulk version of getAccountCBAFromTransaction: account record id -> CBA, for all the given accounts
+    public Map<Long, BigDecimal> getAccountsCBAFromTransaction(final Collection<Long> accountRecordIds, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final Map<Long, BigDecimal> result = new HashMap<Long, BigDecimal>();
+        for (final Long accountRecordId : accountRecordIds) {
+            result.put(accountRecordId, BigDecimal.ZERO);
+        }
+        if (accountRecordIds.isEmpty()) {
+            return result;
+        }
+
+        final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+        for (final InvoiceItemModelDao cbaItem : invoiceItemSqlDao.getCommittedCBAItemsByAccountRecordIds(accountRecordIds, context)) {
+            result.put(cbaItem.getAccountRecordId(), result.get(cbaItem.getAccountRecordId()).add(cbaItem.getAmount()));
+        }
+        return result;
+    }
+
     // We expect a clean up to date invoice, with all the items except the cba, that we will compute in that method
     public InvoiceItemModelDao computeCBAComplexity(final InvoiceModelDao invoice,
                                                     @Nullable final BigDecimal accountCBAOrNull,
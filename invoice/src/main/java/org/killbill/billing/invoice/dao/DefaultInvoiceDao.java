@@ -19,10 +19,12 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +73,7 @@ import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
@@ -114,6 +117,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     private final InternalCallContextFactory internalCallContextFactory;
     private final InvoiceDaoHelper invoiceDaoHelper;
     private final CBADao cbaDao;
+    private final AccountBalanceDao accountBalanceDao;
     private final InvoiceConfig invoiceConfig;
     private final Clock clock;
     private final CacheController<String, UUID> objectIdCacheController;
@@ -132,9 +136,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                              final InvoiceConfig invoiceConfig,
                              final InvoiceDaoHelper invoiceDaoHelper,
                              final CBADao cbaDao,
+                             final AccountBalanceDao accountBalanceDao,
                              final ParentInvoiceCommitmentPoster parentInvoiceCommitmentPoster,
-                             final InternalCallContextFactory internalCallContextFactory) {
-        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), InvoiceSqlDao.class);
+                             final InternalCallContextFactory internalCallContextFactory,
+                             final LatencyHistograms latencyHistograms) {
+        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms), InvoiceSqlDao.class);
         this.tagInternalApi = tagInternalApi;
         this.nextBillingDatePoster = nextBillingDatePoster;
         this.eventBus = eventBus;
@@ -142,6 +148,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         this.internalCallContextFactory = internalCallContextFactory;
         this.invoiceDaoHelper = invoiceDaoHelper;
         this.cbaDao = cbaDao;
+        this.accountBalanceDao = accountBalanceDao;
         this.clock = clock;
         this.objectIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
         this.nonEntityDao = nonEntityDao;
@@ -204,6 +211,43 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(final LocalDate cutoffDate, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
+            @Override
+            public List<InvoiceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+                final List<InvoiceItemModelDao> invoiceItems = invoiceItemSqlDao.getInvoiceItemsByAccountAfterCutoffDate(cutoffDate.toDate(), context);
+                if (invoiceItems.isEmpty()) {
+                    return ImmutableList.<InvoiceModelDao>of();
+                }
+
+                final Map<UUID, List<InvoiceItemModelDao>> invoiceItemsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
+                for (final InvoiceItemModelDao invoiceItem : invoiceItems) {
+                    if (invoiceItemsPerInvoiceId.get(invoiceItem.getInvoiceId()) == null) {
+                        invoiceItemsPerInvoiceId.put(invoiceItem.getInvoiceId(), new LinkedList<InvoiceItemModelDao>());
+                    }
+                    invoiceItemsPerInvoiceId.get(invoiceItem.getInvoiceId()).add(invoiceItem);
+                }
+
+                final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+                final List<String> invoiceIds = new ArrayList<String>(invoiceItemsPerInvoiceId.size());
+                for (final UUID invoiceId : invoiceItemsPerInvoiceId.keySet()) {
+                    invoiceIds.add(invoiceId.toString());
+                }
+
+                final List<InvoiceModelDao> invoices = new LinkedList<InvoiceModelDao>();
+                for (final InvoiceModelDao invoice : INVOICE_MODEL_DAO_ORDERING.sortedCopy(invoiceSqlDao.getByIds(invoiceIds, context))) {
+                    if (!invoice.isMigrated()) {
+                        invoice.addInvoiceItems(invoiceItemsPerInvoiceId.get(invoice.getId()));
+                        invoices.add(invoice);
+                    }
+                }
+                return invoices;
+            }
+        });
+    }
+
     private List<InvoiceModelDao> getAllNonMigratedInvoicesByAccountAfterDate(final InvoiceSqlDao invoiceSqlDao, final LocalDate fromDate, final InternalTenantContext context) {
         return ImmutableList.<InvoiceModelDao>copyOf(INVOICE_MODEL_DAO_ORDERING.sortedCopy(Iterables.<InvoiceModelDao>filter(invoiceSqlDao.getByAccountRecordId(context),
                                                                                                                              new Predicate<InvoiceModelDao>() {
@@ -332,12 +376,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
 
                     // Create the invoice items if needed (note: they may not necessarily belong to that invoice)
-                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceModelDao.getInvoiceItems()) {
-                        if (transInvoiceItemSqlDao.getById(invoiceItemModelDao.getId().toString(), context) == null) {
-                            createdInvoiceItems.add(createInvoiceItemFromTransaction(transInvoiceItemSqlDao, invoiceItemModelDao, context));
-
-                            adjustedInvoiceIds.add(invoiceItemModelDao.getInvoiceId());
-                        }
+                    final List<InvoiceItemModelDao> invoiceItemsToCreate = getInvoiceItemsToCreate(transInvoiceItemSqlDao, invoiceModelDao.getInvoiceItems(), context);
+                    createdInvoiceItems.addAll(createInvoiceItemsFromTransaction(transInvoiceItemSqlDao, invoiceItemsToCreate, context));
+                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemsToCreate) {
+                        adjustedInvoiceIds.add(invoiceItemModelDao.getInvoiceId());
                     }
 
                     final boolean wasInvoiceCreated = createdInvoiceIds.contains(invoiceModelDao.getId());
@@ -372,6 +414,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
                 }
 
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+
                 return createdInvoiceItems;
             }
         });
@@ -394,6 +438,16 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByInvoiceDate(final LocalDate fromInvoiceDate, final Long fromRecordId, final LocalDate endDate, final int limit, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
+            @Override
+            public List<InvoiceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoicesByInvoiceDateRange(fromInvoiceDate.toDate(), fromRecordId, endDate.toDate(), limit, context);
+            }
+        });
+    }
+
     @Override
     public Pagination<InvoiceModelDao> searchInvoices(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         Integer invoiceNumberParsed = null;
@@ -429,40 +483,73 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
+        if (invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            final InvoiceAccountBalanceModelDao accountBalance = getAccountBalanceLedger(context);
+            if (accountBalance != null) {
+                return accountBalance.getBalance();
+            }
+        }
+
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
-                BigDecimal cba = BigDecimal.ZERO;
-
-                BigDecimal accountBalance = BigDecimal.ZERO;
                 final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
-                for (final InvoiceModelDao cur : invoices) {
+                return AccountBalanceDao.computeAccountBalance(invoices);
+            }
+        });
+    }
 
-                    // Skip DRAFT invoices
-                    if (cur.getStatus().equals(InvoiceStatus.DRAFT)) {
-                        continue;
-                    }
+    @Override
+    public Map<Long, BigDecimal> getAccountBalances(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        if (accountRecordIds.isEmpty()) {
+            return ImmutableMap.<Long, BigDecimal>of();
+        }
+
+        final Map<Long, BigDecimal> result = new HashMap<Long, BigDecimal>();
+        final Collection<Long> accountRecordIdsToCompute = new HashSet<Long>(accountRecordIds);
+        if (invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            for (final InvoiceAccountBalanceModelDao accountBalance : getAccountBalanceLedgers(accountRecordIds, context)) {
+                result.put(accountBalance.getAccountRecordId(), accountBalance.getBalance());
+                accountRecordIdsToCompute.remove(accountBalance.getAccountRecordId());
+            }
+            if (accountRecordIdsToCompute.isEmpty()) {
+                return result;
+            }
+        }
 
-                    final boolean hasZeroParentBalance =
-                            cur.getParentInvoice() != null &&
-                            (cur.getParentInvoice().isWrittenOff() ||
-                             cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
-                             InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
+        final List<Tag> invoicesTags = tagInternalApi.getTagsForAccountRecordIds(ObjectType.INVOICE, accountRecordIdsToCompute, context);
 
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Map<Long, BigDecimal>>() {
+            @Override
+            public Map<Long, BigDecimal> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final Map<Long, List<InvoiceModelDao>> invoicesPerAccountRecordId = new HashMap<Long, List<InvoiceModelDao>>();
+                for (final Long accountRecordId : accountRecordIdsToCompute) {
+                    invoicesPerAccountRecordId.put(accountRecordId, new LinkedList<InvoiceModelDao>());
+                }
+                // Invoices are ordered by record id, as in the single account case
+                for (final InvoiceModelDao invoice : invoiceDaoHelper.getAllInvoicesByAccountRecordIdsFromTransaction(accountRecordIdsToCompute, invoicesTags, entitySqlDaoWrapperFactory, context)) {
+                    invoicesPerAccountRecordId.get(invoice.getAccountRecordId()).add(invoice);
+                }
 
-                    // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
-                    accountBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : accountBalance.add(InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur));
-                    cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+                for (final Long accountRecordId : invoicesPerAccountRecordId.keySet()) {
+                    result.put(accountRecordId, AccountBalanceDao.computeAccountBalance(invoicesPerAccountRecordId.get(accountRecordId)));
                 }
-                return accountBalance.subtract(cba);
+                return result;
             }
         });
     }
 
     @Override
     public BigDecimal getAccountCBA(final UUID accountId, final InternalTenantContext context) {
+        if (invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            final InvoiceAccountBalanceModelDao accountBalance = getAccountBalanceLedger(context);
+            if (accountBalance != null) {
+                return accountBalance.getCba();
+            }
+        }
+
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
@@ -471,6 +558,76 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public Map<Long, BigDecimal> getAccountCBAs(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        if (accountRecordIds.isEmpty()) {
+            return ImmutableMap.<Long, BigDecimal>of();
+        }
+
+        final Map<Long, BigDecimal> result = new HashMap<Long, BigDecimal>();
+        final Collection<Long> accountRecordIdsToCompute = new HashSet<Long>(accountRecordIds);
+        if (invoiceConfig.isAccountBalanceLedgerEnabled()) {
+            for (final InvoiceAccountBalanceModelDao accountBalance : getAccountBalanceLedgers(accountRecordIds, context)) {
+                result.put(accountBalance.getAccountRecordId(), accountBalance.getCba());
+                accountRecordIdsToCompute.remove(accountBalance.getAccountRecordId());
+            }
+            if (accountRecordIdsToCompute.isEmpty()) {
+                return result;
+            }
+        }
+
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Map<Long, BigDecimal>>() {
+            @Override
+            public Map<Long, BigDecimal> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                result.putAll(cbaDao.getAccountsCBAFromTransaction(accountRecordIdsToCompute, entitySqlDaoWrapperFactory, context));
+                return result;
+            }
+        });
+    }
+
+    private InvoiceAccountBalanceModelDao getAccountBalanceLedger(final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<InvoiceAccountBalanceModelDao>() {
+            @Override
+            public InvoiceAccountBalanceModelDao inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getAccountBalanceLedger(context);
+            }
+        });
+    }
+
+    private List<InvoiceAccountBalanceModelDao> getAccountBalanceLedgers(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceAccountBalanceModelDao>>() {
+            @Override
+            public List<InvoiceAccountBalanceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getAccountBalanceLedgers(accountRecordIds, context);
+            }
+        });
+    }
+
+    @Override
+    public void refreshAccountBalance(final InternalCallContext context) {
+        final List<Tag> invoicesTags = accountBalanceDao.isEnabled() ? getInvoicesTags(context) : ImmutableList.<Tag>of();
+
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public boolean verifyAccountBalance(final boolean repair, final InternalCallContext context) {
+        final List<Tag> invoicesTags = getInvoicesTags(context);
+
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Boolean>() {
+            @Override
+            public Boolean inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return accountBalanceDao.verifyFromTransaction(repair, invoicesTags, entitySqlDaoWrapperFactory, context);
+            }
+        });
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
         final List<Tag> invoicesTags = getInvoicesTags(context);
@@ -591,6 +748,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                 // The invoice object has been kept up-to-date
                 cbaDao.doCBAComplexityFromTransaction(invoice, invoicesTags, entitySqlDaoWrapperFactory, context);
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
 
                 if (isInvoiceAdjusted) {
                     notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, invoice.getId(), invoice.getAccountId(), context.getUserToken(), context);
@@ -649,6 +807,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargeBack.getId().toString(), context);
 
                 cbaDao.doCBAComplexityFromTransaction(payment.getInvoiceId(), invoicesTags, entitySqlDaoWrapperFactory, context);
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
 
                 notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, chargeBack, accountId, context.getUserToken(), context);
 
@@ -687,6 +846,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargebackReversed.getId().toString(), context);
 
                 cbaDao.doCBAComplexityFromTransaction(chargebackReversed.getInvoiceId(), invoicesTags, entitySqlDaoWrapperFactory, context);
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
 
                 notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, chargebackReversed, accountId, context.getUserToken(), context);
 
@@ -805,6 +965,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     }
 
     private void notifyOfPaymentCompletionInternal(final InvoicePaymentModelDao invoicePayment, final boolean completion, final InternalCallContext context) {
+        // Payment attempts are only part of the balance once completed
+        final boolean isBalanceUpdated = completion && invoicePayment.getPaymentId() != null;
+        final List<Tag> invoicesTags = isBalanceUpdated && accountBalanceDao.isEnabled() ? getInvoicesTags(context) : ImmutableList.<Tag>of();
+
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
@@ -844,6 +1008,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
                 }
 
+                if (isBalanceUpdated) {
+                    accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+                }
+
                 if (completion) {
                     final UUID accountId = nonEntityDao.retrieveIdFromObjectInTransaction(context.getAccountRecordId(), ObjectType.ACCOUNT, objectIdCacheController, entitySqlDaoWrapperFactory.getHandle());
                     notifyBusOfInvoicePayment(entitySqlDaoWrapperFactory, invoicePayment, accountId, context.getUserToken(), context);
@@ -961,6 +1129,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
                 }
 
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+
                 return null;
             }
         });
@@ -974,6 +1144,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 cbaDao.doCBAComplexityFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
                 return null;
             }
         });
@@ -1047,6 +1218,46 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         }
     }
 
+    private List<InvoiceItemModelDao> getInvoiceItemsToCreate(final InvoiceItemSqlDao invoiceItemSqlDao, final Iterable<InvoiceItemModelDao> invoiceItemModelDaos, final InternalCallContext context) {
+        final Map<String, InvoiceItemModelDao> invoiceItemsToCreate = new LinkedHashMap<String, InvoiceItemModelDao>();
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            if (!invoiceItemsToCreate.containsKey(invoiceItemModelDao.getId().toString())) {
+                invoiceItemsToCreate.put(invoiceItemModelDao.getId().toString(), invoiceItemModelDao);
+            }
+        }
+        if (invoiceItemsToCreate.isEmpty()) {
+            return ImmutableList.<InvoiceItemModelDao>of();
+        }
+
+        // PERF: check for existing items with a single query
+        for (final InvoiceItemModelDao existingInvoiceItem : invoiceItemSqlDao.getByIds(invoiceItemsToCreate.keySet(), context)) {
+            invoiceItemsToCreate.remove(existingInvoiceItem.getId().toString());
+        }
+        return ImmutableList.<InvoiceItemModelDao>copyOf(invoiceItemsToCreate.values());
+    }
+
+    private List<InvoiceItemModelDao> createInvoiceItemsFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final List<InvoiceItemModelDao> invoiceItemModelDaos, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
+        if (invoiceItemModelDaos.size() <= 1) {
+            final List<InvoiceItemModelDao> createdInvoiceItems = new LinkedList<InvoiceItemModelDao>();
+            for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+                createdInvoiceItems.add(createInvoiceItemFromTransaction(invoiceItemSqlDao, invoiceItemModelDao, context));
+            }
+            return createdInvoiceItems;
+        }
+
+        // Item adjustments can point to an item created earlier in the same batch
+        final Map<UUID, InvoiceItemModelDao> invoiceItemsInBatch = new HashMap<UUID, InvoiceItemModelDao>();
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            if (InvoiceItemType.ITEM_ADJ.equals(invoiceItemModelDao.getType())) {
+                validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, invoiceItemsInBatch, context);
+            }
+            invoiceItemsInBatch.put(invoiceItemModelDao.getId(), invoiceItemModelDao);
+        }
+
+        // PERF: batch insert. We have overridden the jDBI return type in EntitySqlDaoWrapperInvocationHandler to return the re-hydrated items
+        return (List<InvoiceItemModelDao>) invoiceItemSqlDao.create(invoiceItemModelDaos, context);
+    }
+
     private InvoiceItemModelDao createInvoiceItemFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
         // There is no efficient way to retrieve an invoice item given an ID today (and invoice plugins can put item adjustments
         // on a different invoice than the original item), so it's easier to do the check in the DAO rather than in the API layer
@@ -1059,10 +1270,16 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     }
 
     private void validateInvoiceItemToBeAdjusted(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws InvoiceApiException {
+        validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, ImmutableMap.<UUID, InvoiceItemModelDao>of(), context);
+    }
+
+    private void validateInvoiceItemToBeAdjusted(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final Map<UUID, InvoiceItemModelDao> invoiceItemsInBatch, final InternalCallContext context) throws InvoiceApiException {
         Preconditions.checkNotNull(invoiceItemModelDao.getLinkedItemId(), "LinkedItemId cannot be null for ITEM_ADJ item: " + invoiceItemModelDao);
         // Note: this assumes the linked item has already been created in or prior to the transaction, which should almost always be the case
         // (unless some whacky plugin creates an out-of-order item adjustment on a subsequent external charge)
-        final InvoiceItemModelDao invoiceItemToBeAdjusted = invoiceItemSqlDao.getById(invoiceItemModelDao.getLinkedItemId().toString(), context);
+        final InvoiceItemModelDao invoiceItemToBeAdjusted = invoiceItemsInBatch.containsKey(invoiceItemModelDao.getLinkedItemId()) ?
+                                                            invoiceItemsInBatch.get(invoiceItemModelDao.getLinkedItemId()) :
+                                                            invoiceItemSqlDao.getById(invoiceItemModelDao.getLinkedItemId().toString(), context);
         if (!INVOICE_ITEM_TYPES_ADJUSTABLE.contains(invoiceItemToBeAdjusted.getType())) {
             throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_ADJUSTMENT_ITEM_INVALID, invoiceItemToBeAdjusted.getId());
         }
@@ -1092,6 +1309,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 transactional.updateStatus(invoiceId.toString(), newStatus.toString(), context);
 
                 cbaDao.doCBAComplexityFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+                accountBalanceDao.refreshFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
 
                 if (InvoiceStatus.COMMITTED.equals(newStatus)) {
                     // notify invoice creation event
@@ -1131,6 +1349,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final InvoiceParentChildrenSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoiceParentChildrenSqlDao.class);
                 createAndRefresh(transactional, invoiceRelation, context);
+                // The child invoice is now paid through the parent invoice
+                accountBalanceDao.invalidateChildAccountsFromTransaction(entitySqlDaoWrapperFactory, context);
                 return null;
             }
         });
@@ -1179,6 +1399,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 }
 
                 transactional.updateAmount(invoiceItemId.toString(), amount, context);
+                // Only used on DRAFT parent invoices, which aren't part of the account balances: no need to refresh the ledger
                 return null;
             }
         });
@@ -1261,9 +1482,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                 // add CBA complexity and notify bus on child invoice creation
                 cbaDao.doCBAComplexityFromTransaction(childInvoice, childInvoicesTags, entitySqlDaoWrapperFactory, childAccountContext);
+                accountBalanceDao.refreshFromTransaction(childInvoicesTags, entitySqlDaoWrapperFactory, childAccountContext);
                 notifyBusOfInvoiceCreation(entitySqlDaoWrapperFactory, childInvoice, childAccountContext);
 
                 cbaDao.doCBAComplexityFromTransaction(parentInvoice, parentInvoicesTags, entitySqlDaoWrapperFactory, parentAccountContext);
+                accountBalanceDao.refreshFromTransaction(parentInvoicesTags, entitySqlDaoWrapperFactory, parentAccountContext);
                 notifyBusOfInvoiceCreation(entitySqlDaoWrapperFactory, parentInvoice, parentAccountContext);
 
                 return null;
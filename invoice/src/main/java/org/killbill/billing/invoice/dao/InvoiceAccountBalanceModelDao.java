@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+// Row of the invoice_account_balances ledger: balance and CBA of an account, as of the last invoice write on that account
+public class InvoiceAccountBalanceModelDao {
+
+    private final Long accountRecordId;
+    private final BigDecimal balance;
+    private final BigDecimal cba;
+
+    public InvoiceAccountBalanceModelDao(final Long accountRecordId, final BigDecimal balance, final BigDecimal cba) {
+        this.accountRecordId = accountRecordId;
+        this.balance = balance;
+        this.cba = cba;
+    }
+
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public BigDecimal getCba() {
+        return cba;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoiceAccountBalanceModelDao{");
+        sb.append("accountRecordId=").append(accountRecordId);
+        sb.append(", balance=").append(balance);
+        sb.append(", cba=").append(cba);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public static class InvoiceAccountBalanceModelDaoMapper implements ResultSetMapper<InvoiceAccountBalanceModelDao> {
+
+        @Override
+        public InvoiceAccountBalanceModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            return new InvoiceAccountBalanceModelDao(r.getLong("account_record_id"), r.getBigDecimal("balance"), r.getBigDecimal("cba"));
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -54,8 +55,16 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     List<InvoiceModelDao> getInvoicesByAccount(LocalDate fromDate, InternalTenantContext context);
 
+    // Only returns (non migrated) invoices with items after the cutoff date: note that such invoices are only populated with those items
+    // (and the items linked to them), which is what invoice generation needs
+    List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(LocalDate cutoffDate, InternalTenantContext context);
+
     List<InvoiceModelDao> getInvoicesBySubscription(UUID subscriptionId, InternalTenantContext context);
 
+    // Page (by invoice date and record id, after fromInvoiceDate and fromRecordId) of the committed (non migrated) invoices of the tenant with an invoice date up to endDate.
+    // Only the record id, id, account record id and invoice date are populated.
+    List<InvoiceModelDao> getInvoicesByInvoiceDate(LocalDate fromInvoiceDate, Long fromRecordId, LocalDate endDate, int limit, InternalTenantContext context);
+
     Pagination<InvoiceModelDao> searchInvoices(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
     UUID getInvoiceIdByPaymentId(UUID paymentId, InternalTenantContext context);
@@ -68,6 +77,17 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
+    // Bulk versions of getAccountBalance and getAccountCBA (account record id -> amount), using a fixed number of queries
+    Map<Long, BigDecimal> getAccountBalances(Collection<Long> accountRecordIds, InternalTenantContext context);
+
+    Map<Long, BigDecimal> getAccountCBAs(Collection<Long> accountRecordIds, InternalTenantContext context);
+
+    // Recompute the balance and CBA of the account in the ledger (e.g. after an invoice was written off)
+    void refreshAccountBalance(InternalCallContext context);
+
+    // Compare the ledger with the balance and CBA computed from the invoices (and repair it if requested): return true if the ledger was up-to-date
+    boolean verifyAccountBalance(boolean repair, InternalCallContext context);
+
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate upToDate, InternalTenantContext context);
 
     // Include migrated invoices
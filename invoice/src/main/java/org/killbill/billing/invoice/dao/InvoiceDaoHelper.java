@@ -256,6 +256,34 @@ public class InvoiceDaoHelper {
         return invoices;
     }
 
+    // Bulk version of getAllInvoicesByAccountFromTransaction: invoices, items and payments of all these accounts are retrieved with one query each
+    public List<InvoiceModelDao> getAllInvoicesByAccountRecordIdsFromTransaction(final Collection<Long> accountRecordIds, final List<Tag> invoicesTags, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final List<InvoiceModelDao> invoices = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getByAccountRecordIds(accountRecordIds, context);
+        if (invoices.isEmpty()) {
+            return invoices;
+        }
+
+        setInvoiceItems(invoices, entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getByAccountRecordIds(accountRecordIds, context));
+        setInvoicePayments(invoices, entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getByAccountRecordIds(accountRecordIds, context));
+        setInvoicesWrittenOff(invoices, invoicesTags);
+
+        final Iterable<InvoiceModelDao> nonParentInvoices = Iterables.<InvoiceModelDao>filter(invoices,
+                                                                                              new Predicate<InvoiceModelDao>() {
+                                                                                                  @Override
+                                                                                                  public boolean apply(final InvoiceModelDao invoice) {
+                                                                                                      return !invoice.isParentInvoice();
+                                                                                                  }
+                                                                                              });
+        if (!Iterables.<InvoiceModelDao>isEmpty(nonParentInvoices)) {
+            // The parent lookups only rely on the tenant record id
+            setParentInvoice(nonParentInvoices,
+                             invoicesTags,
+                             entitySqlDaoWrapperFactory,
+                             context);
+        }
+        return invoices;
+    }
+
     public BigDecimal getRemainingAmountPaidFromTransaction(final UUID invoicePaymentId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final BigDecimal amount = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getRemainingAmountPaid(invoicePaymentId.toString(), context);
         return amount == null ? BigDecimal.ZERO : amount;
@@ -264,7 +292,10 @@ public class InvoiceDaoHelper {
     private void getInvoiceItemsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
         final List<InvoiceItemModelDao> invoiceItemsForAccount = invoiceItemSqlDao.getByAccountRecordId(context);
+        setInvoiceItems(invoices, invoiceItemsForAccount);
+    }
 
+    private void setInvoiceItems(final Iterable<InvoiceModelDao> invoices, final Iterable<InvoiceItemModelDao> invoiceItemsForAccount) {
         final Map<UUID, List<InvoiceItemModelDao>> invoiceItemsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
         for (final InvoiceItemModelDao item : invoiceItemsForAccount) {
             if (invoiceItemsPerInvoiceId.get(item.getInvoiceId()) == null) {
@@ -284,7 +315,10 @@ public class InvoiceDaoHelper {
     private void getInvoicePaymentsWithinTransaction(final Iterable<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final InvoicePaymentSqlDao invoicePaymentSqlDao = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
         final List<InvoicePaymentModelDao> invoicePaymentsForAccount = invoicePaymentSqlDao.getByAccountRecordId(context);
+        setInvoicePayments(invoices, invoicePaymentsForAccount);
+    }
 
+    private void setInvoicePayments(final Iterable<InvoiceModelDao> invoices, final Iterable<InvoicePaymentModelDao> invoicePaymentsForAccount) {
         final Map<UUID, List<InvoicePaymentModelDao>> invoicePaymentsPerInvoiceId = new HashMap<UUID, List<InvoicePaymentModelDao>>();
         for (final InvoicePaymentModelDao invoicePayment : invoicePaymentsForAccount) {
             if (invoicePaymentsPerInvoiceId.get(invoicePayment.getInvoiceId()) == null) {
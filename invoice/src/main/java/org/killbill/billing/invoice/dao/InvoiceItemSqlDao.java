@@ -19,6 +19,8 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -30,8 +32,10 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, InvoiceItem> {
@@ -45,10 +49,19 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
                                                             @SmartBindBean final InternalTenantContext context);
 
 
+    @SqlQuery
+    List<InvoiceItemModelDao> getInvoiceItemsByAccountAfterCutoffDate(@Bind("cutoffDate") final Date cutoffDate,
+                                                                      @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     List<InvoiceItemModelDao> getAdjustedOrRepairedInvoiceItemsByLinkedId(@Bind("linkedItemId") final String linkedItemId,
                                                             @SmartBindBean final InternalTenantContext context);
 
+    @SqlBatch
+    @Audited(ChangeType.INSERT)
+    Object create(@SmartBindBean final Iterable<InvoiceItemModelDao> items,
+                  @SmartBindBean final InternalCallContext context);
+
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
     void updateAmount(@Bind("id") String invoiceItemId,
@@ -61,4 +74,8 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
 
     @SqlQuery
     BigDecimal getAccountCBA(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<InvoiceItemModelDao> getCommittedCBAItemsByAccountRecordIds(@BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                     @SmartBindBean final InternalTenantContext context);
 }
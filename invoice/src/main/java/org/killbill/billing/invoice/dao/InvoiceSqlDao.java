@@ -18,13 +18,16 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.dao.InvoiceAccountBalanceModelDao.InvoiceAccountBalanceModelDaoMapper;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
@@ -33,6 +36,7 @@ import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
 import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
@@ -59,5 +63,41 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     @SqlQuery
     List<InvoiceModelDao> getByIds(@BindIn("ids") final Collection<String> invoiceIds,
                                    @SmartBindBean final InternalTenantContext context);
-}
 
+    // Only the record id, id, account record id and invoice date are populated
+    @SqlQuery
+    List<InvoiceModelDao> getInvoicesByInvoiceDateRange(@Bind("fromInvoiceDate") final Date fromInvoiceDate,
+                                                        @Bind("fromRecordId") final Long fromRecordId,
+                                                        @Bind("endDate") final Date endDate,
+                                                        @Bind("rowCount") final int rowCount,
+                                                        @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    @Mapper(InvoiceAccountBalanceModelDaoMapper.class)
+    InvoiceAccountBalanceModelDao getAccountBalanceLedger(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    @Mapper(InvoiceAccountBalanceModelDaoMapper.class)
+    List<InvoiceAccountBalanceModelDao> getAccountBalanceLedgers(@BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                 @SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    int updateAccountBalanceLedger(@Bind("balance") final BigDecimal balance,
+                                   @Bind("cba") final BigDecimal cba,
+                                   @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    void createAccountBalanceLedger(@Bind("balance") final BigDecimal balance,
+                                    @Bind("cba") final BigDecimal cba,
+                                    @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    void deleteAccountBalanceLedgers(@BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                     @SmartBindBean final InternalTenantContext context);
+
+    @SqlUpdate
+    void deleteAccountBalanceLedgerWithChildren(@SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<Long> getChildAccountRecordIds(@SmartBindBean final InternalTenantContext context);
+}
@@ -21,9 +21,12 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -88,25 +91,26 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
                                            final InternalCallContext internalCallContext) throws InvoiceApiException {
         final Multimap<UUID, LocalDate> createdItemsPerDayPerSubscription = LinkedListMultimap.<UUID, LocalDate>create();
 
+        // When org.killbill.invoice.maxInvoiceLimit is set, items prior to the cutoff date are considered settled
+        final LocalDate cutoffDate = InvoiceDateUtils.getMaxInvoiceLimitCutoffDate(config.getMaxInvoiceLimit(internalCallContext), clock.getUTCToday());
+        final List<InvoiceItem> existingItems = getExistingItemsWithinMaxInvoiceLimit(existingInvoices, cutoffDate);
+
         final AccountItemTree accountItemTree = new AccountItemTree(account.getId(), invoiceId);
-        if (existingInvoices != null) {
-            for (final Invoice invoice : existingInvoices) {
-                for (final InvoiceItem item : invoice.getInvoiceItems()) {
-                    if (item.getSubscriptionId() == null || // Always include migration invoices, credits, external charges etc.
-                        !eventSet.getSubscriptionIdsWithAutoInvoiceOff()
-                                 .contains(item.getSubscriptionId())) { //don't add items with auto_invoice_off tag
-                        accountItemTree.addExistingItem(item);
-
-                        trackInvoiceItemCreatedDay(item, createdItemsPerDayPerSubscription, internalCallContext);
-                    }
-                }
+        for (final InvoiceItem item : existingItems) {
+            if (item.getSubscriptionId() == null || // Always include migration invoices, credits, external charges etc.
+                !eventSet.getSubscriptionIdsWithAutoInvoiceOff()
+                         .contains(item.getSubscriptionId())) { //don't add items with auto_invoice_off tag
+                accountItemTree.addExistingItem(item);
+
+                trackInvoiceItemCreatedDay(item, createdItemsPerDayPerSubscription, internalCallContext);
             }
         }
 
         // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
-        final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>();
-        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, perSubscriptionFutureNotificationDate, existingInvoices, internalCallContext);
-        processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, proposedItems, internalCallContext);
+        final List<InvoiceItem> allProposedItems = new ArrayList<InvoiceItem>();
+        processRecurringBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, allProposedItems, perSubscriptionFutureNotificationDate, existingInvoices, internalCallContext);
+        processFixedBillingEvents(invoiceId, account.getId(), eventSet, targetDate, targetCurrency, allProposedItems, internalCallContext);
+        final List<InvoiceItem> proposedItems = getProposedItemsWithinMaxInvoiceLimit(allProposedItems, existingItems, cutoffDate);
 
         try {
             accountItemTree.mergeWithProposedItems(proposedItems);
@@ -121,6 +125,79 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
         return resultingItems;
     }
 
+    private List<InvoiceItem> getExistingItemsWithinMaxInvoiceLimit(@Nullable final List<Invoice> existingInvoices, @Nullable final LocalDate cutoffDate) {
+        final List<InvoiceItem> existingItems = new LinkedList<InvoiceItem>();
+        if (existingInvoices == null) {
+            return existingItems;
+        }
+
+        final Set<UUID> existingItemIds = new HashSet<UUID>();
+        for (final Invoice invoice : existingInvoices) {
+            for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                if (cutoffDate == null ||
+                    (item.getInvoiceItemType() != InvoiceItemType.RECURRING && item.getInvoiceItemType() != InvoiceItemType.FIXED) ||
+                    InvoiceDateUtils.isWithinMaxInvoiceLimit(item, cutoffDate)) {
+                    existingItems.add(item);
+                    existingItemIds.add(item.getId());
+                }
+            }
+        }
+
+        if (cutoffDate != null) {
+            // Adjustments for settled items are settled as well (and would otherwise not be attached to any subscription)
+            final Iterator<InvoiceItem> iterator = existingItems.iterator();
+            while (iterator.hasNext()) {
+                final InvoiceItem item = iterator.next();
+                if ((item.getInvoiceItemType() == InvoiceItemType.REPAIR_ADJ || item.getInvoiceItemType() == InvoiceItemType.ITEM_ADJ) &&
+                    !existingItemIds.contains(item.getLinkedItemId())) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return existingItems;
+    }
+
+    private List<InvoiceItem> getProposedItemsWithinMaxInvoiceLimit(final List<InvoiceItem> proposedItems, final List<InvoiceItem> existingItems, @Nullable final LocalDate cutoffDate) {
+        if (cutoffDate == null) {
+            return proposedItems;
+        }
+
+        final Multimap<UUID, InvoiceItem> existingItemsPerSubscription = LinkedListMultimap.<UUID, InvoiceItem>create();
+        for (final InvoiceItem item : existingItems) {
+            if (item.getInvoiceItemType() == InvoiceItemType.RECURRING || item.getInvoiceItemType() == InvoiceItemType.FIXED) {
+                existingItemsPerSubscription.put(item.getSubscriptionId(), item);
+            }
+        }
+
+        // Proposed items prior to the cutoff date are kept only if they overlap an existing item we still consider,
+        // so that the tree doesn't repair (or re-invoice) periods it has no visibility on
+        final List<InvoiceItem> result = new ArrayList<InvoiceItem>(proposedItems.size());
+        for (final InvoiceItem proposedItem : proposedItems) {
+            if (InvoiceDateUtils.isWithinMaxInvoiceLimit(proposedItem, cutoffDate) ||
+                overlapsAny(proposedItem, existingItemsPerSubscription.get(proposedItem.getSubscriptionId()))) {
+                result.add(proposedItem);
+            }
+        }
+        return result;
+    }
+
+    private boolean overlapsAny(final InvoiceItem proposedItem, final Collection<InvoiceItem> existingItems) {
+        for (final InvoiceItem existingItem : existingItems) {
+            if (existingItem.getInvoiceItemType() == proposedItem.getInvoiceItemType() &&
+                existingItem.getStartDate().isBefore(getEndDateForOverlap(proposedItem)) &&
+                proposedItem.getStartDate().isBefore(getEndDateForOverlap(existingItem))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private LocalDate getEndDateForOverlap(final InvoiceItem item) {
+        // Fixed items are attached to a single day
+        return item.getEndDate() != null ? item.getEndDate() : item.getStartDate().plusDays(1);
+    }
+
     private void processRecurringBillingEvents(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
                                                final LocalDate targetDate, final Currency currency, final List<InvoiceItem> proposedItems,
                                                final Map<UUID, SubscriptionFutureNotificationDates> perSubscriptionFutureNotificationDate,
@@ -19,6 +19,9 @@
 package org.killbill.billing.invoice.generator;
 
 import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
@@ -26,7 +29,9 @@ import org.joda.time.Months;
 import org.joda.time.Weeks;
 import org.joda.time.Years;
 import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.skife.config.TimeSpan;
 
 public class InvoiceDateUtils {
 
@@ -101,4 +106,16 @@ public class InvoiceDateUtils {
         }
         return proposedDate;
     }
+
+    // Returns null when no limit is configured, i.e. when the whole invoice history has to be considered
+    @Nullable
+    public static LocalDate getMaxInvoiceLimitCutoffDate(final TimeSpan maxInvoiceLimit, final LocalDate today) {
+        final long nbDays = TimeUnit.MILLISECONDS.toDays(maxInvoiceLimit.getMillis());
+        return nbDays > 0 ? today.minusDays((int) nbDays) : null;
+    }
+
+    // Whether the item (still) covers a period after the cutoff date, i.e. whether it can be repaired
+    public static boolean isWithinMaxInvoiceLimit(final InvoiceItem item, final LocalDate cutoffDate) {
+        return item.getEndDate() != null ? item.getEndDate().isAfter(cutoffDate) : item.getStartDate().compareTo(cutoffDate) >= 0;
+    }
 }
@@ -23,8 +23,10 @@ import org.killbill.billing.invoice.InvoiceDispatcher;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
 import org.killbill.billing.invoice.ParkedAccountsManager;
+import org.killbill.billing.invoice.api.AdminInvoiceApi;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.invoice.api.InvoiceApiHelper;
+import org.killbill.billing.invoice.api.InvoiceBulkUserApi;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceNotifier;
 import org.killbill.billing.invoice.api.InvoicePaymentApi;
@@ -34,8 +36,11 @@ import org.killbill.billing.invoice.api.formatters.InvoiceFormatterFactory;
 import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory;
 import org.killbill.billing.invoice.api.invoice.DefaultInvoicePaymentApi;
 import org.killbill.billing.invoice.api.svcs.DefaultInvoiceInternalApi;
+import org.killbill.billing.invoice.api.user.DefaultAdminInvoiceApi;
+import org.killbill.billing.invoice.api.user.DefaultInvoiceBulkUserApi;
 import org.killbill.billing.invoice.api.user.DefaultInvoiceUserApi;
 import org.killbill.billing.invoice.config.MultiTenantInvoiceConfig;
+import org.killbill.billing.invoice.dao.AccountBalanceDao;
 import org.killbill.billing.invoice.dao.CBADao;
 import org.killbill.billing.invoice.dao.DefaultInvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceDao;
@@ -51,6 +56,8 @@ import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.NextBillingDatePoster;
 import org.killbill.billing.invoice.notification.NullInvoiceNotifier;
 import org.killbill.billing.invoice.plugin.api.InvoicePluginApi;
+import org.killbill.billing.invoice.template.HtmlInvoiceBatchRenderer;
+import org.killbill.billing.invoice.template.HtmlInvoiceGenerator;
 import org.killbill.billing.invoice.template.bundles.DefaultResourceBundleFactory;
 import org.killbill.billing.invoice.usage.RawUsageOptimizer;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
@@ -75,11 +82,14 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceDao.class).to(DefaultInvoiceDao.class).asEagerSingleton();
         bind(InvoiceDaoHelper.class).asEagerSingleton();
         bind(CBADao.class).asEagerSingleton();
+        bind(AccountBalanceDao.class).asEagerSingleton();
     }
 
     @Override
     public void installInvoiceUserApi() {
         bind(InvoiceUserApi.class).to(DefaultInvoiceUserApi.class).asEagerSingleton();
+        bind(InvoiceBulkUserApi.class).to(DefaultInvoiceBulkUserApi.class).asEagerSingleton();
+        bind(AdminInvoiceApi.class).to(DefaultAdminInvoiceApi.class).asEagerSingleton();
     }
 
     @Override
@@ -107,7 +117,12 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
     }
 
     protected void installResourceBundleFactory() {
-        bind(ResourceBundleFactory.class).to(DefaultResourceBundleFactory.class).asEagerSingleton();
+        // Both are caching per tenant templates and bundles (see InvoiceTemplateCacheInvalidationCallback)
+        bind(DefaultResourceBundleFactory.class).asEagerSingleton();
+        bind(ResourceBundleFactory.class).to(DefaultResourceBundleFactory.class);
+        bind(HtmlInvoiceGenerator.class).asEagerSingleton();
+        // Owns the rendering pool, started and stopped by DefaultInvoiceService
+        bind(HtmlInvoiceBatchRenderer.class).asEagerSingleton();
     }
 
 
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceHtmlConsumer;
+import org.killbill.billing.invoice.dao.InvoiceDao;
+import org.killbill.billing.invoice.dao.InvoiceModelDao;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.Tag;
+import org.killbill.commons.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+//
+// Renders many invoices as HTML (e.g. to archive or email a whole billing run).
+//
+// Invoices are loaded and rendered in parallel on a pool shared by all the batches (started and stopped by the invoice service).
+// They are processed by pages of PAGE_SIZE invoices, and the account, its MANUAL_PAY tag and its context are cached for the most recently seen
+// accounts only. The templates and bundles come from the HtmlInvoiceGenerator and ResourceBundleFactory caches. The consumer is called from the
+// caller thread, and at most twice as many invoices as threads are rendered ahead of it, so memory doesn't grow with the batch.
+//
+public class HtmlInvoiceBatchRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(HtmlInvoiceBatchRenderer.class);
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_CACHED_ACCOUNTS = 100;
+
+    private final InvoiceDao dao;
+    private final AccountInternalApi accountApi;
+    private final TagInternalApi tagApi;
+    private final HtmlInvoiceGenerator generator;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final InvoiceConfig invoiceConfig;
+
+    private volatile ExecutorService executor;
+
+    @Inject
+    public HtmlInvoiceBatchRenderer(final InvoiceDao dao,
+                                    final AccountInternalApi accountApi,
+                                    final TagInternalApi tagApi,
+                                    final HtmlInvoiceGenerator generator,
+                                    final InternalCallContextFactory internalCallContextFactory,
+                                    final InvoiceConfig invoiceConfig) {
+        this.dao = dao;
+        this.accountApi = accountApi;
+        this.tagApi = tagApi;
+        this.generator = generator;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void start() {
+        executor = Executors.newFixedThreadPool(getNbThreads(), "HtmlInvoiceBatchRenderer");
+    }
+
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        executor = null;
+    }
+
+    public void render(final Iterable<UUID> invoiceIds, final InvoiceHtmlConsumer consumer, final InternalTenantContext tenantContext) throws InvoiceApiException, IOException {
+        final BatchRendering batchRendering = new BatchRendering(consumer, tenantContext);
+        try {
+            for (final List<UUID> page : Iterables.<UUID>partition(ImmutableSet.<UUID>copyOf(invoiceIds), PAGE_SIZE)) {
+                // Invoices of other tenants are omitted
+                final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIds(ImmutableSet.<UUID>copyOf(page), ObjectType.INVOICE, tenantContext);
+                for (final UUID invoiceId : page) {
+                    final Long accountRecordId = accountRecordIds.get(invoiceId);
+                    if (accountRecordId == null) {
+                        log.warn("Skipping invoiceId='{}': not found for tenantRecordId='{}'", invoiceId, tenantContext.getTenantRecordId());
+                        continue;
+                    }
+                    batchRendering.submit(invoiceId, accountRecordId);
+                }
+            }
+            batchRendering.drain();
+        } finally {
+            batchRendering.cancel();
+        }
+    }
+
+    public void render(final LocalDate startDate, final LocalDate endDate, final InvoiceHtmlConsumer consumer, final InternalTenantContext tenantContext) throws InvoiceApiException, IOException {
+        final BatchRendering batchRendering = new BatchRendering(consumer, tenantContext);
+        try {
+            // Keyset on (invoice date, record id), as the index
+            LocalDate fromInvoiceDate = startDate;
+            Long fromRecordId = 0L;
+            List<InvoiceModelDao> page;
+            do {
+                page = dao.getInvoicesByInvoiceDate(fromInvoiceDate, fromRecordId, endDate, PAGE_SIZE, tenantContext);
+                for (final InvoiceModelDao invoice : page) {
+                    batchRendering.submit(invoice.getId(), invoice.getAccountRecordId());
+                    fromInvoiceDate = invoice.getInvoiceDate();
+                    fromRecordId = invoice.getRecordId();
+                }
+            } while (page.size() == PAGE_SIZE);
+            batchRendering.drain();
+        } finally {
+            batchRendering.cancel();
+        }
+    }
+
+    private int getNbThreads() {
+        return Math.max(1, invoiceConfig.getHtmlRenderingThreads());
+    }
+
+    // State of a single batch: not thread safe, only used from the caller thread
+    private final class BatchRendering {
+
+        private final InvoiceHtmlConsumer consumer;
+        private final InternalTenantContext tenantContext;
+        private final CompletionService<RenderedInvoice> completionService;
+        private final Set<Future<RenderedInvoice>> pending = new HashSet<Future<RenderedInvoice>>();
+        private final int maxRenderedAhead = 2 * getNbThreads();
+        // Accessed by the rendering threads
+        private final Cache<Long, AccountRenderingContext> accountRenderingContexts = CacheBuilder.newBuilder()
+                                                                                                  .maximumSize(MAX_CACHED_ACCOUNTS)
+                                                                                                  .build();
+
+        private BatchRendering(final InvoiceHtmlConsumer consumer, final InternalTenantContext tenantContext) {
+            final ExecutorService executor = HtmlInvoiceBatchRenderer.this.executor;
+            Preconditions.checkState(executor != null, "HtmlInvoiceBatchRenderer isn't started");
+            this.consumer = consumer;
+            this.tenantContext = tenantContext;
+            this.completionService = new ExecutorCompletionService<RenderedInvoice>(executor);
+        }
+
+        public void submit(final UUID invoiceId, final Long accountRecordId) throws InvoiceApiException, IOException {
+            if (pending.size() == maxRenderedAhead) {
+                consumeNext();
+            }
+            pending.add(completionService.submit(new Callable<RenderedInvoice>() {
+                @Override
+                public RenderedInvoice call() throws Exception {
+                    return renderInvoice(invoiceId, accountRecordId, accountRenderingContexts, tenantContext);
+                }
+            }));
+        }
+
+        public void drain() throws InvoiceApiException, IOException {
+            while (!pending.isEmpty()) {
+                consumeNext();
+            }
+        }
+
+        // Interrupts the remaining tasks if the consumer failed (the pool is shared with the other batches)
+        public void cancel() {
+            for (final Future<RenderedInvoice> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+        }
+
+        private void consumeNext() throws InvoiceApiException, IOException {
+            final RenderedInvoice renderedInvoice;
+            try {
+                final Future<RenderedInvoice> future = completionService.take();
+                pending.remove(future);
+                renderedInvoice = future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while rendering invoices");
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof InvoiceApiException) {
+                    throw (InvoiceApiException) e.getCause();
+                } else if (e.getCause() instanceof AccountApiException) {
+                    throw new InvoiceApiException((AccountApiException) e.getCause());
+                } else if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else {
+                    throw new IOException(e.getCause());
+                }
+            }
+            consumer.accept(renderedInvoice.getInvoice(), renderedInvoice.getHtml());
+        }
+    }
+
+    private RenderedInvoice renderInvoice(final UUID invoiceId,
+                                          final Long accountRecordId,
+                                          final Cache<Long, AccountRenderingContext> accountRenderingContexts,
+                                          final InternalTenantContext tenantContext) throws InvoiceApiException, AccountApiException, IOException {
+        AccountRenderingContext accountRenderingContext = accountRenderingContexts.getIfPresent(accountRecordId);
+        if (accountRenderingContext == null) {
+            // Two invoices of the same account may both get here: this is harmless
+            accountRenderingContext = createAccountRenderingContext(accountRecordId, tenantContext);
+            accountRenderingContexts.put(accountRecordId, accountRenderingContext);
+        }
+
+        final Invoice invoice = new DefaultInvoice(dao.getById(invoiceId, accountRenderingContext.getContext()));
+        final HtmlInvoice htmlInvoice = generator.generateInvoice(accountRenderingContext.getAccount(), invoice, accountRenderingContext.isManualPay(), accountRenderingContext.getContext());
+        return new RenderedInvoice(invoice, htmlInvoice.getBody());
+    }
+
+    private AccountRenderingContext createAccountRenderingContext(final Long accountRecordId, final InternalTenantContext tenantContext) throws AccountApiException {
+        final InternalTenantContext context = internalCallContextFactory.createInternalTenantContext(tenantContext.getTenantRecordId(), accountRecordId);
+        final Account account = accountApi.getAccountByRecordId(accountRecordId, context);
+
+        // Check if this account has the MANUAL_PAY system tag
+        boolean manualPay = false;
+        for (final Tag tag : tagApi.getTags(account.getId(), ObjectType.ACCOUNT, context)) {
+            if (ControlTagType.MANUAL_PAY.getId().equals(tag.getTagDefinitionId())) {
+                manualPay = true;
+                break;
+            }
+        }
+
+        return new AccountRenderingContext(context, account, manualPay);
+    }
+
+    private static final class AccountRenderingContext {
+
+        private final InternalTenantContext context;
+        private final Account account;
+        private final boolean manualPay;
+
+        private AccountRenderingContext(final InternalTenantContext context, final Account account, final boolean manualPay) {
+            this.context = context;
+            this.account = account;
+            this.manualPay = manualPay;
+        }
+
+        public InternalTenantContext getContext() {
+            return context;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        public boolean isManualPay() {
+            return manualPay;
+        }
+    }
+
+    private static final class RenderedInvoice {
+
+        private final Invoice invoice;
+        private final String html;
+
+        private RenderedInvoice(final Invoice invoice, final String html) {
+            this.invoice = invoice;
+            this.html = html;
+        }
+
+        public Invoice getInvoice() {
+            return invoice;
+        }
+
+        public String getHtml() {
+            return html;
+        }
+    }
+}
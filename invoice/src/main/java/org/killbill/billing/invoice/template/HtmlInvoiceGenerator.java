@@ -20,9 +20,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -44,16 +50,28 @@ import org.killbill.billing.util.template.translation.TranslatorConfig;
 import org.killbill.xmlloader.UriAccessor;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 
 public class HtmlInvoiceGenerator {
 
+    private static final int MAX_CACHED_TEMPLATES = 1000;
+
     private final InvoiceFormatterFactory factory;
     private final TranslatorConfig config;
     private final CurrencyConversionApi currencyConversionApi;
     private final TemplateEngine templateEngine;
     private final TenantInternalApi tenantApi;
     private final ResourceBundleFactory bundleFactory;
+    // Template text per tenant, manualPay flag and locale (the default one if the tenant has none): see InvoiceTemplateCacheInvalidationCallback.
+    // Returning the same text instances also lets the TemplateEngine find its compiled version cheaply
+    private final Cache<String, String> templates = CacheBuilder.newBuilder()
+                                                                .maximumSize(MAX_CACHED_TEMPLATES)
+                                                                .build();
+    // Bumped on invalidation: a load which started before is stored under the previous generation and never served again
+    private final ConcurrentMap<Long, AtomicLong> generations = new ConcurrentHashMap<Long, AtomicLong>();
 
     @Inject
     public HtmlInvoiceGenerator(final InvoiceFormatterFactory factory,
@@ -100,6 +118,52 @@ public class HtmlInvoiceGenerator {
     }
 
     private String getTemplateText(final Locale locale, final boolean manualPay, final InternalTenantContext context) throws IOException {
+        final String cacheKey = getTemplateCacheKeyPrefix(context.getTenantRecordId()) + getGeneration(context.getTenantRecordId()).get() + "/" + manualPay + "/" + locale;
+        try {
+            return templates.get(cacheKey, new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return loadTemplateText(locale, manualPay, context);
+                }
+            });
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        } catch (final UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    public void invalidateCache(final InternalTenantContext context) {
+        getGeneration(context.getTenantRecordId()).incrementAndGet();
+
+        final String cacheKeyPrefix = getTemplateCacheKeyPrefix(context.getTenantRecordId());
+        final Iterator<String> iterator = templates.asMap().keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(cacheKeyPrefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private String getTemplateCacheKeyPrefix(final Long tenantRecordId) {
+        return tenantRecordId + "/";
+    }
+
+    private AtomicLong getGeneration(final Long tenantRecordId) {
+        final AtomicLong generation = generations.get(tenantRecordId);
+        if (generation != null) {
+            return generation;
+        }
+        final AtomicLong newGeneration = new AtomicLong();
+        final AtomicLong existingGeneration = generations.putIfAbsent(tenantRecordId, newGeneration);
+        return existingGeneration != null ? existingGeneration : newGeneration;
+    }
+
+    private String loadTemplateText(final Locale locale, final boolean manualPay, final InternalTenantContext context) throws IOException {
 
         if (InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID.equals(context.getTenantRecordId())) {
             return getDefaultTemplate(manualPay ? config.getManualPayTemplateName() : config.getTemplateName());
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+import org.killbill.billing.invoice.template.bundles.DefaultResourceBundleFactory;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+public class InvoiceTemplateCacheInvalidationCallback implements CacheInvalidationCallback {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceTemplateCacheInvalidationCallback.class);
+
+    private final HtmlInvoiceGenerator htmlInvoiceGenerator;
+    private final DefaultResourceBundleFactory resourceBundleFactory;
+
+    @Inject
+    public InvoiceTemplateCacheInvalidationCallback(final HtmlInvoiceGenerator htmlInvoiceGenerator, final DefaultResourceBundleFactory resourceBundleFactory) {
+        this.htmlInvoiceGenerator = htmlInvoiceGenerator;
+        this.resourceBundleFactory = resourceBundleFactory;
+    }
+
+    @Override
+    public void invalidateCache(final TenantKey key, final Object cookie, final InternalTenantContext tenantContext) {
+        log.info("Invalidate invoice template cache for tenantRecordId='{}' and key='{}'", tenantContext.getTenantRecordId(), key);
+        switch (key) {
+            case INVOICE_TEMPLATE:
+            case INVOICE_MP_TEMPLATE:
+                htmlInvoiceGenerator.invalidateCache(tenantContext);
+                break;
+            case INVOICE_TRANSLATION_:
+                resourceBundleFactory.invalidateCache(ResourceBundleType.INVOICE_TRANSLATION, tenantContext);
+                break;
+            case CATALOG_TRANSLATION_:
+                resourceBundleFactory.invalidateCache(ResourceBundleType.CATALOG_TRANSLATION, tenantContext);
+                break;
+            default:
+                break;
+        }
+    }
+}
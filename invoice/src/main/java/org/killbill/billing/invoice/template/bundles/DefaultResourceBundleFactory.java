@@ -21,11 +21,18 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -37,12 +44,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class DefaultResourceBundleFactory implements ResourceBundleFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultResourceBundleFactory.class);
 
+    private static final int MAX_CACHED_BUNDLES = 1000;
+
     private final TenantInternalApi tenantApi;
+    // Parsed bundles (immutable) per tenant, type, locale and path, absent if none was found. Tenant entries
+    // are invalidated when the translations are updated (see InvoiceTemplateCacheInvalidationCallback)
+    private final Cache<String, Optional<ResourceBundle>> bundles = CacheBuilder.newBuilder()
+                                                                                .maximumSize(MAX_CACHED_BUNDLES)
+                                                                                .build();
+    // Bumped on invalidation, per tenant and type: a load which started before is stored under the previous generation and never served again
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
 
     @Inject
     public DefaultResourceBundleFactory(final TenantInternalApi tenantApi) {
@@ -51,6 +71,50 @@ public class DefaultResourceBundleFactory implements ResourceBundleFactory {
 
     @Override
     public ResourceBundle createBundle(final Locale locale, final String bundlePath, final ResourceBundleType type, final InternalTenantContext tenantContext) {
+        final String cacheKeyPrefix = getCacheKeyPrefix(type, tenantContext.getTenantRecordId());
+        final String cacheKey = cacheKeyPrefix + getGeneration(cacheKeyPrefix).get() + "/" + locale + "/" + bundlePath;
+        try {
+            return bundles.get(cacheKey, new Callable<Optional<ResourceBundle>>() {
+                @Override
+                public Optional<ResourceBundle> call() {
+                    return Optional.<ResourceBundle>fromNullable(loadBundle(locale, bundlePath, type, tenantContext));
+                }
+            }).orNull();
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (final UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    public void invalidateCache(final ResourceBundleType type, final InternalTenantContext tenantContext) {
+        final String cacheKeyPrefix = getCacheKeyPrefix(type, tenantContext.getTenantRecordId());
+        getGeneration(cacheKeyPrefix).incrementAndGet();
+
+        final Iterator<String> iterator = bundles.asMap().keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(cacheKeyPrefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private String getCacheKeyPrefix(final ResourceBundleType type, final Long tenantRecordId) {
+        return tenantRecordId + "/" + type + "/";
+    }
+
+    private AtomicLong getGeneration(final String cacheKeyPrefix) {
+        final AtomicLong generation = generations.get(cacheKeyPrefix);
+        if (generation != null) {
+            return generation;
+        }
+        final AtomicLong newGeneration = new AtomicLong();
+        final AtomicLong existingGeneration = generations.putIfAbsent(cacheKeyPrefix, newGeneration);
+        return existingGeneration != null ? existingGeneration : newGeneration;
+    }
+
+    @Nullable
+    private ResourceBundle loadBundle(final Locale locale, final String bundlePath, final ResourceBundleType type, final InternalTenantContext tenantContext) {
         if (InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID.equals(tenantContext.getTenantRecordId())) {
             return getGlobalBundle(locale, bundlePath);
         }
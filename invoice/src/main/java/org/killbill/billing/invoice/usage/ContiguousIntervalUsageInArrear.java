@@ -243,31 +243,25 @@ public class ContiguousIntervalUsageInArrear {
 
     @VisibleForTesting
     List<RolledUpUsage> getRolledUpUsage() {
-        final Iterator<RawUsage> rawUsageIterator = rawSubscriptionUsage.iterator();
-        if (!rawUsageIterator.hasNext()) {
+        //
+        // Skip all items before our first transition date (rawSubscriptionUsage is sorted by date)
+        //
+        final int firstRawUsageIdx = getFirstRawUsageIndexOnOrAfter(transitionTimes.get(0));
+        if (firstRawUsageIdx >= rawSubscriptionUsage.size()) {
             return ImmutableList.of();
         }
 
-        final List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
-
-        //
-        // Skip all items before our first transition date
-        //
+        final Iterator<RawUsage> rawUsageIterator = rawSubscriptionUsage.listIterator(firstRawUsageIdx + 1);
         // prevRawUsage keeps track of first unconsumed raw usage element
-        RawUsage prevRawUsage = null;
-        while (rawUsageIterator.hasNext()) {
-            final RawUsage curRawUsage = rawUsageIterator.next();
-            if (curRawUsage.getDate().compareTo(transitionTimes.get(0)) >= 0) {
-                prevRawUsage = curRawUsage;
-                break;
-            }
-        }
+        RawUsage prevRawUsage = rawSubscriptionUsage.get(firstRawUsageIdx);
 
         // Optimize path where all raw usage items are outside or our transitionTimes range
         if (prevRawUsage.getDate().compareTo(transitionTimes.get(transitionTimes.size() - 1)) >= 0) {
             return ImmutableList.of();
         }
 
+        final List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
+
         //
         // Loop through each interval [prevDate, curDate) and consume as many rawSubscriptionUsage elements within that range
         // to create one RolledUpUsage per interval. If an interval does not have any rawSubscriptionUsage element, there will be no
@@ -325,6 +319,21 @@ public class ContiguousIntervalUsageInArrear {
         return result;
     }
 
+    // Binary search for the first raw usage element whose date is on or after the given date
+    private int getFirstRawUsageIndexOnOrAfter(final LocalDate date) {
+        int low = 0;
+        int high = rawSubscriptionUsage.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (rawSubscriptionUsage.get(mid).getDate().compareTo(date) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Based on usage type compute new amount
      *
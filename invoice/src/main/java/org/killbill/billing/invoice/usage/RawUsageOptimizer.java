@@ -17,10 +17,13 @@
 
 package org.killbill.billing.invoice.usage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -40,7 +43,9 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
@@ -153,10 +158,19 @@ public class RawUsageOptimizer {
 
         private final LocalDate rawUsageStartDate;
         private final List<RawUsage> rawUsage;
+        private final Map<UUID, List<RawUsage>> rawUsagePerSubscription;
 
         public RawUsageOptimizerResult(final LocalDate rawUsageStartDate, final List<RawUsage> rawUsage) {
             this.rawUsageStartDate = rawUsageStartDate;
             this.rawUsage = rawUsage;
+            // Partition the (account wide) raw usage once, instead of having each subscription go through all of it
+            this.rawUsagePerSubscription = new HashMap<UUID, List<RawUsage>>();
+            for (final RawUsage cur : rawUsage) {
+                if (rawUsagePerSubscription.get(cur.getSubscriptionId()) == null) {
+                    rawUsagePerSubscription.put(cur.getSubscriptionId(), new ArrayList<RawUsage>());
+                }
+                rawUsagePerSubscription.get(cur.getSubscriptionId()).add(cur);
+            }
         }
 
         public LocalDate getRawUsageStartDate() {
@@ -166,5 +180,9 @@ public class RawUsageOptimizer {
         public List<RawUsage> getRawUsage() {
             return rawUsage;
         }
+
+        public List<RawUsage> getRawUsage(final UUID subscriptionId) {
+            return MoreObjects.firstNonNull(rawUsagePerSubscription.get(subscriptionId), ImmutableList.<RawUsage>of());
+        }
     }
 }
@@ -53,6 +53,7 @@ CREATE TABLE invoices (
 CREATE UNIQUE INDEX invoices_id ON invoices(id);
 CREATE INDEX invoices_account ON invoices(account_id ASC);
 CREATE INDEX invoices_tenant_account_record_id ON invoices(tenant_record_id, account_record_id);
+CREATE INDEX invoices_tenant_invoice_date ON invoices(tenant_record_id, invoice_date, record_id);
 
 DROP TABLE IF EXISTS invoice_payments;
 CREATE TABLE invoice_payments (
@@ -98,3 +99,16 @@ CREATE UNIQUE INDEX invoice_parent_children_id ON invoice_parent_children(id);
 CREATE INDEX invoice_parent_children_invoice_id ON invoice_parent_children(parent_invoice_id);
 CREATE INDEX invoice_parent_children_tenant_account_record_id ON invoice_parent_children(tenant_record_id, account_record_id);
 CREATE INDEX invoice_parent_children_child_invoice_id ON invoice_parent_children(child_invoice_id);
+
+DROP TABLE IF EXISTS invoice_account_balances;
+CREATE TABLE invoice_account_balances (
+    record_id serial unique,
+    balance numeric(15,9) NOT NULL,
+    cba numeric(15,9) NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX invoice_account_balances_tenant_account_record_id ON invoice_account_balances(tenant_record_id, account_record_id);
@@ -0,0 +1 @@
+alter table invoices add index invoices_tenant_invoice_date(tenant_record_id, invoice_date, record_id);
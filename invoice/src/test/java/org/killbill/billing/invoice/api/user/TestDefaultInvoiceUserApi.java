@@ -19,6 +19,7 @@
 package org.killbill.billing.invoice.api.user;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -42,6 +43,8 @@ import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.clock.ClockMock;
@@ -50,6 +53,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import static org.testng.Assert.assertEquals;
 
@@ -94,6 +98,35 @@ public class TestDefaultInvoiceUserApi extends InvoiceTestSuiteWithEmbeddedDB {
         verifyExternalChargeOnNewInvoice(accountBalance, bundleId, externalChargeAmount, externalChargeInvoiceItem);
     }
 
+    @Test(groups = "slow")
+    public void testGetInvoicesWithKeysetPagination() throws Exception {
+        // Two more invoices
+        for (int i = 0; i < 2; i++) {
+            final InvoiceItem externalCharge = new ExternalChargeInvoiceItem(null, accountId, null, "description", clock.getUTCToday(), BigDecimal.TEN, accountCurrency);
+            invoiceUserApi.insertExternalCharges(accountId, clock.getUTCToday(), ImmutableList.<InvoiceItem>of(externalCharge), true, callContext);
+        }
+
+        final PaginationOptions paginationOptions = new PaginationOptions(true, false);
+        final List<UUID> invoiceIds = new ArrayList<UUID>();
+        Long recordIdCursor = 0L;
+        while (recordIdCursor != null) {
+            final Pagination<Invoice> page = invoiceBulkUserApi.getInvoices(recordIdCursor, 2L, paginationOptions, callContext);
+            Assert.assertNull(page.getMaxNbRecords());
+            for (final Invoice invoice : page) {
+                invoiceIds.add(invoice.getId());
+            }
+            recordIdCursor = page.getNextOffset();
+        }
+        Assert.assertEquals(invoiceIds.size(), 3);
+        Assert.assertEquals(invoiceIds.get(0), invoiceId);
+        Assert.assertEquals(ImmutableSet.<UUID>copyOf(invoiceIds).size(), 3);
+
+        // Offset pagination is still the default
+        final Pagination<Invoice> page = invoiceBulkUserApi.getInvoices(1L, 2L, PaginationOptions.DEFAULT, callContext);
+        Assert.assertEquals(page.getMaxNbRecords(), (Long) 3L);
+        Assert.assertEquals(ImmutableList.<Invoice>copyOf(page).get(0).getId(), invoiceIds.get(1));
+    }
+
     private void verifyExternalChargeOnNewInvoice(final BigDecimal initialAccountBalance, @Nullable final UUID bundleId,
                                                   final BigDecimal externalChargeAmount, final InvoiceItem externalChargeInvoiceItem) throws InvoiceApiException {
         Assert.assertNotNull(externalChargeInvoiceItem.getInvoiceId());
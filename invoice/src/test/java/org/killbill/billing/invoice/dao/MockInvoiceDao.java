@@ -148,6 +148,12 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return result;
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(final LocalDate cutoffDate, final InternalTenantContext context) {
+        // The invoice generator filters the items itself
+        return getInvoicesByAccount(context);
+    }
+
     @Override
     public List<InvoiceModelDao> getInvoicesByAccount(final LocalDate fromDate, final InternalTenantContext context) {
         final List<InvoiceModelDao> invoicesForAccount = new ArrayList<InvoiceModelDao>();
@@ -180,6 +186,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return result;
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByInvoiceDate(final LocalDate fromInvoiceDate, final Long fromRecordId, final LocalDate endDate, final int limit, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Pagination<InvoiceModelDao> searchInvoices(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         final List<InvoiceModelDao> results = new LinkedList<InvoiceModelDao>();
@@ -356,6 +367,25 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return null;
     }
 
+    @Override
+    public Map<Long, BigDecimal> getAccountBalances(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<Long, BigDecimal> getAccountCBAs(final Collection<Long> accountRecordIds, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void refreshAccountBalance(final InternalCallContext context) {
+    }
+
+    @Override
+    public boolean verifyAccountBalance(final boolean repair, final InternalCallContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public InvoicePaymentModelDao createRefund(final UUID paymentId, final BigDecimal amount, final boolean isInvoiceAdjusted,
                                                final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final String transactionExternalKey,
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.invoice.model.CreditAdjInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAccountBalanceLedger extends InvoiceTestSuiteWithEmbeddedDB {
+
+    private Account account;
+    private InternalCallContext context;
+
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/resource.properties", ImmutableMap.<String, String>of("org.killbill.invoice.accountBalanceLedger.enabled", "true"));
+    }
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        account = invoiceUtil.createAccount(callContext);
+        context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountBalanceLedger() throws InvoiceApiException {
+        final UUID accountId = account.getId();
+        final LocalDate effectiveDate = new LocalDate(2011, 3, 1);
+
+        // Nothing written yet for that account
+        Assert.assertFalse(invoiceDao.verifyAccountBalance(false, context));
+
+        createCredit(accountId, effectiveDate, new BigDecimal("5.0"));
+        assertTrue(invoiceDao.verifyAccountBalance(false, context));
+        assertEquals(getAccountBalanceLedger("cba").compareTo(new BigDecimal("5.0")), 0);
+
+        createRecurringInvoice(accountId, effectiveDate, new BigDecimal("17.0"));
+
+        // The ledger is kept up-to-date by the write
+        assertTrue(invoiceDao.verifyAccountBalance(false, context));
+        assertEquals(getAccountBalanceLedger("balance").compareTo(new BigDecimal("12.0")), 0);
+        assertEquals(getAccountBalanceLedger("balance").compareTo(invoiceDao.getAccountBalance(accountId, context)), 0);
+        assertEquals(getAccountBalanceLedger("cba").compareTo(BigDecimal.ZERO), 0);
+        assertEquals(getAccountBalanceLedger("cba").compareTo(invoiceDao.getAccountCBA(accountId, context)), 0);
+
+        // Simulate a drift
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("update invoice_account_balances set balance = 0 where account_record_id = ?", context.getAccountRecordId());
+                return null;
+            }
+        });
+        Assert.assertFalse(invoiceDao.verifyAccountBalance(false, context));
+        Assert.assertFalse(invoiceDao.verifyAccountBalance(true, context));
+        assertTrue(invoiceDao.verifyAccountBalance(false, context));
+        assertEquals(getAccountBalanceLedger("balance").compareTo(new BigDecimal("12.0")), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountBalanceLedgerWithGenericWrittenOffTag() throws Exception {
+        final UUID accountId = account.getId();
+        final InvoiceModelDao invoice = createRecurringInvoice(accountId, new LocalDate(2011, 3, 1), new BigDecimal("17.0"));
+        assertEquals(getAccountBalanceLedger("balance").compareTo(new BigDecimal("17.0")), 0);
+
+        // Not going through InvoiceUserApi#tagInvoiceAsWrittenOff: the ledger is refreshed on the tag event
+        tagUserApi.addTag(invoice.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        awaitAccountBalanceLedger(BigDecimal.ZERO);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(BigDecimal.ZERO), 0);
+
+        tagUserApi.removeTag(invoice.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        awaitAccountBalanceLedger(new BigDecimal("17.0"));
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("17.0")), 0);
+    }
+
+    private void awaitAccountBalanceLedger(final BigDecimal expectedBalance) {
+        await().atMost(10, SECONDS).until(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                final BigDecimal balance = getAccountBalanceLedger("balance");
+                return balance != null && balance.compareTo(expectedBalance) == 0;
+            }
+        });
+    }
+
+    private InvoiceModelDao createRecurringInvoice(final UUID accountId, final LocalDate effectiveDate, final BigDecimal amount) {
+        final InvoiceModelDao invoice = new InvoiceModelDao(accountId, clock.getUTCToday(), effectiveDate, Currency.USD, false, InvoiceStatus.COMMITTED);
+        invoice.addInvoiceItem(new InvoiceItemModelDao(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase A", effectiveDate,
+                                                                                effectiveDate.plusMonths(1), amount, amount, Currency.USD)));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoice), context);
+        return invoice;
+    }
+
+    private void createCredit(final UUID accountId, final LocalDate effectiveDate, final BigDecimal creditAmount) {
+        final InvoiceModelDao invoice = new InvoiceModelDao(accountId, effectiveDate, effectiveDate, Currency.USD, false, InvoiceStatus.COMMITTED);
+        invoice.addInvoiceItem(new InvoiceItemModelDao(new CreditAdjInvoiceItem(UUID.randomUUID(), context.getCreatedDate(), invoice.getId(), accountId, effectiveDate, null,
+                                                                                creditAmount.negate(), Currency.USD)));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoice), context);
+    }
+
+    private BigDecimal getAccountBalanceLedger(final String column) {
+        return dbi.withHandle(new HandleCallback<BigDecimal>() {
+            @Override
+            public BigDecimal withHandle(final Handle handle) throws Exception {
+                return handle.createQuery("select " + column + " from invoice_account_balances where account_record_id = :accountRecordId")
+                             .bind("accountRecordId", context.getAccountRecordId())
+                             .mapTo(BigDecimal.class)
+                             .first();
+            }
+        });
+    }
+}
@@ -72,7 +72,9 @@ import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.exceptions.TransactionFailedException;
+import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -808,6 +810,89 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(cba.compareTo(expectedCba), 0);
     }
 
+    @Test(groups = "slow")
+    public void testCreateInvoiceWithMultipleItems() throws Exception {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+
+        final InvoiceModelDao invoiceModelDao = new InvoiceModelDao(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD, false);
+        final ExternalChargeInvoiceItem externalCharge1 = new ExternalChargeInvoiceItem(invoiceModelDao.getId(), accountId, bundleId, "charge1", clock.getUTCToday(), new BigDecimal("15.0"), Currency.USD);
+        final ExternalChargeInvoiceItem externalCharge2 = new ExternalChargeInvoiceItem(invoiceModelDao.getId(), accountId, bundleId, "charge2", clock.getUTCToday(), new BigDecimal("25.0"), Currency.USD);
+        // Adjustment on an item created in the same batch
+        final ItemAdjInvoiceItem itemAdjustment = new ItemAdjInvoiceItem(externalCharge2, clock.getUTCToday(), new BigDecimal("-5.0"), Currency.USD);
+        invoiceModelDao.addInvoiceItem(new InvoiceItemModelDao(externalCharge1));
+        invoiceModelDao.addInvoiceItem(new InvoiceItemModelDao(externalCharge2));
+        invoiceModelDao.addInvoiceItem(new InvoiceItemModelDao(itemAdjustment));
+
+        final List<InvoiceItemModelDao> createdItems = invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoiceModelDao), context);
+        assertEquals(createdItems.size(), 3);
+        assertEquals(createdItems.get(0).getId(), externalCharge1.getId());
+        assertEquals(createdItems.get(1).getId(), externalCharge2.getId());
+        assertEquals(createdItems.get(2).getId(), itemAdjustment.getId());
+        for (final InvoiceItemModelDao createdItem : createdItems) {
+            assertNotNull(createdItem.getRecordId());
+        }
+
+        final InvoiceModelDao savedInvoice = invoiceDao.getById(invoiceModelDao.getId(), context);
+        assertEquals(savedInvoice.getInvoiceItems().size(), 3);
+        assertEquals(InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(savedInvoice).compareTo(new BigDecimal("35.0")), 0);
+
+        // Verify the audit entries were written for each item
+        final Integer nbAudits = dbi.withHandle(new HandleCallback<Integer>() {
+            @Override
+            public Integer withHandle(final Handle handle) throws Exception {
+                return handle.createQuery("select count(1) from audit_log where table_name = 'INVOICE_ITEMS' and change_type = 'INSERT' and account_record_id = :accountRecordId")
+                             .bind("accountRecordId", context.getAccountRecordId())
+                             .mapTo(Integer.class)
+                             .first();
+            }
+        });
+        assertEquals(nbAudits, (Integer) 3);
+    }
+
+    @Test(groups = "slow")
+    public void testGetInvoicesByAccountForInvoiceGeneration() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID subscriptionId = UUID.randomUUID();
+        final BigDecimal rate = new BigDecimal("10.0");
+
+        // Settled invoice (prior to the cutoff date)
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 1, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, context);
+        final RecurringInvoiceItem item1 = new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 1, 1), new LocalDate(2011, 2, 1),
+                                                                    rate, rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(item1, context);
+
+        // Invoice overlapping the cutoff date
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 2, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice2, context);
+        final RecurringInvoiceItem item2 = new RecurringInvoiceItem(invoice2.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 2, 1), new LocalDate(2011, 3, 1),
+                                                                    rate, rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(item2, context);
+        final ExternalChargeInvoiceItem oldCharge = new ExternalChargeInvoiceItem(invoice2.getId(), accountId, bundleId, "old charge", new LocalDate(2011, 2, 1), rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(oldCharge, context);
+
+        // Invoice after the cutoff date, repairing (part of) the item overlapping the cutoff date
+        final Invoice invoice3 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 3, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice3, context);
+        final RecurringInvoiceItem item3 = new RecurringInvoiceItem(invoice3.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 3, 1), new LocalDate(2011, 4, 1),
+                                                                    rate, rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(item3, context);
+        final RepairAdjInvoiceItem repair = new RepairAdjInvoiceItem(invoice3.getId(), accountId, new LocalDate(2011, 2, 1), new LocalDate(2011, 2, 10), new BigDecimal("-3.0"), Currency.USD, item2.getId());
+        invoiceUtil.createInvoiceItem(repair, context);
+
+        final List<InvoiceModelDao> invoices = invoiceDao.getInvoicesByAccountForInvoiceGeneration(new LocalDate(2011, 2, 15), context);
+        assertEquals(invoices.size(), 2);
+        assertEquals(invoices.get(0).getId(), invoice2.getId());
+        assertEquals(invoices.get(0).getInvoiceItems().size(), 1);
+        assertEquals(invoices.get(0).getInvoiceItems().get(0).getId(), item2.getId());
+        assertEquals(invoices.get(1).getId(), invoice3.getId());
+        assertEquals(invoices.get(1).getInvoiceItems().size(), 2);
+
+        assertEquals(invoiceDao.getInvoicesByAccountForInvoiceGeneration(new LocalDate(2011, 4, 1), context).size(), 0);
+    }
+
     @Test(groups = "slow")
     public void testExternalChargeWithCBA() throws InvoiceApiException, EntityPersistenceException {
         final UUID accountId = account.getId();
@@ -1007,6 +1092,74 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(creditAmount), 0);
     }
 
+    @Test(groups = "slow")
+    public void testAccountsBalanceAndCBA() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final LocalDate effectiveDate = new LocalDate(2011, 3, 1);
+
+        createCredit(accountId, effectiveDate, new BigDecimal("5.0"), false);
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), effectiveDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice, context);
+        final RecurringInvoiceItem item = new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase A", effectiveDate,
+                                                                   effectiveDate.plusMonths(1), new BigDecimal("17.0"), new BigDecimal("17.0"), Currency.USD);
+        invoiceUtil.createInvoiceItem(item, context);
+
+        final Long unknownAccountRecordId = context.getAccountRecordId() + 1000;
+        final List<Long> accountRecordIds = ImmutableList.<Long>of(context.getAccountRecordId(), unknownAccountRecordId);
+
+        final Map<Long, BigDecimal> balances = invoiceDao.getAccountBalances(accountRecordIds, context);
+        assertEquals(balances.size(), 2);
+        assertEquals(balances.get(context.getAccountRecordId()).compareTo(invoiceDao.getAccountBalance(accountId, context)), 0);
+        assertEquals(balances.get(unknownAccountRecordId).compareTo(BigDecimal.ZERO), 0);
+
+        final Map<Long, BigDecimal> cbas = invoiceDao.getAccountCBAs(accountRecordIds, context);
+        assertEquals(cbas.size(), 2);
+        assertEquals(cbas.get(context.getAccountRecordId()).compareTo(invoiceDao.getAccountCBA(accountId, context)), 0);
+        assertEquals(cbas.get(unknownAccountRecordId).compareTo(BigDecimal.ZERO), 0);
+
+        assertTrue(invoiceDao.getAccountBalances(ImmutableList.<Long>of(), context).isEmpty());
+        assertTrue(invoiceDao.getAccountCBAs(ImmutableList.<Long>of(), context).isEmpty());
+    }
+
+    @Test(groups = "slow")
+    public void testAccountBalanceLedgerDisabled() throws InvoiceApiException {
+        final UUID accountId = account.getId();
+        final LocalDate effectiveDate = new LocalDate(2011, 3, 1);
+
+        // The ledger isn't maintained by default
+        createCredit(accountId, effectiveDate, new BigDecimal("5.0"), false);
+        assertNull(getAccountBalanceLedger("balance"));
+
+        // Row left over from a time the ledger was enabled
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into invoice_account_balances (balance, cba, created_date, updated_date, account_record_id, tenant_record_id) values (0, 0, ?, ?, ?, ?)",
+                               context.getCreatedDate().toDate(), context.getCreatedDate().toDate(), context.getAccountRecordId(), context.getTenantRecordId());
+                return null;
+            }
+        });
+        assertEquals(getAccountBalanceLedger("balance").compareTo(BigDecimal.ZERO), 0);
+
+        // The write drops it, as it would be stale otherwise
+        createCredit(accountId, effectiveDate, new BigDecimal("5.0"), false);
+        assertNull(getAccountBalanceLedger("balance"));
+        assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(new BigDecimal("10.0")), 0);
+    }
+
+    private BigDecimal getAccountBalanceLedger(final String column) {
+        return dbi.withHandle(new HandleCallback<BigDecimal>() {
+            @Override
+            public BigDecimal withHandle(final Handle handle) throws Exception {
+                return handle.createQuery("select " + column + " from invoice_account_balances where account_record_id = :accountRecordId")
+                             .bind("accountRecordId", context.getAccountRecordId())
+                             .mapTo(BigDecimal.class)
+                             .first();
+            }
+        });
+    }
+
     @Test(groups = "slow")
     public void testInvoiceCreditWithBalancePositive() throws EntityPersistenceException {
         final BigDecimal creditAmount = new BigDecimal("2.0");
@@ -29,6 +29,7 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.DefaultPrice;
 import org.killbill.billing.catalog.MockInternationalPrice;
 import org.killbill.billing.catalog.MockPlan;
@@ -55,9 +56,14 @@ import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.ClockMock;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 
@@ -1351,4 +1357,146 @@ public class TestFixedAndRecurringInvoiceItemGenerator extends InvoiceTestSuiteN
             assertEquals(e.getCode(), ErrorCode.UNEXPECTED_ERROR.getCode());
         }
     }
+
+    // With org.killbill.invoice.maxInvoiceLimit set to 45 days on 2016-05-01, the cutoff date is 2016-03-17
+    @Test(groups = "fast")
+    public void testMaxInvoiceLimitWithExistingItemStraddlingCutoff() throws InvoiceApiException {
+        final LocalDate startDate = new LocalDate("2016-01-01");
+        final BillingEventSet events = createMonthlyBillingEvents(startDate);
+        final BillingEvent event = events.first();
+
+        final Invoice invoice = new DefaultInvoice(account.getId(), startDate, startDate, account.getCurrency());
+        for (int i = 0; i < 4; i++) {
+            invoice.addInvoiceItem(createRecurringItem(invoice, event, startDate.plusMonths(i), startDate.plusMonths(i + 1)));
+        }
+
+        // The March item straddles the cutoff date: it is still considered (otherwise March would be invoiced again)
+        final List<InvoiceItem> generatedItems = generateItems(createGeneratorWithMaxInvoiceLimit("45d", new LocalDate("2016-05-01")), events, ImmutableList.<Invoice>of(invoice), new LocalDate("2016-05-01"));
+        assertEquals(generatedItems.size(), 1);
+        assertTrue(generatedItems.get(0) instanceof RecurringInvoiceItem);
+        assertEquals(generatedItems.get(0).getStartDate(), new LocalDate("2016-05-01"));
+        assertEquals(generatedItems.get(0).getEndDate(), new LocalDate("2016-06-01"));
+    }
+
+    @Test(groups = "fast")
+    public void testMaxInvoiceLimitWithRepairOfItemStartingPriorToCutoff() throws InvoiceApiException {
+        final LocalDate startDate = new LocalDate("2016-01-01");
+        final BillingEventSet events = createMonthlyBillingEvents(startDate);
+        final BillingEvent event = events.first();
+
+        // Simulate a previous mis-bill: the February item is for [2016-02-01,2016-03-25], overlapping March
+        final Invoice invoice = new DefaultInvoice(account.getId(), startDate, startDate, account.getCurrency());
+        invoice.addInvoiceItem(createRecurringItem(invoice, event, startDate, startDate.plusMonths(1)));
+        final InvoiceItem misBilledItem = createRecurringItem(invoice, event, startDate.plusMonths(1), new LocalDate("2016-03-25"));
+        invoice.addInvoiceItem(misBilledItem);
+        invoice.addInvoiceItem(createRecurringItem(invoice, event, startDate.plusMonths(2), startDate.plusMonths(3)));
+        invoice.addInvoiceItem(createRecurringItem(invoice, event, startDate.plusMonths(3), startDate.plusMonths(4)));
+
+        // The proposed February item is prior to the cutoff date, but it overlaps the mis-billed item: it is kept, so only the March part is repaired
+        final List<InvoiceItem> generatedItems = generateItems(createGeneratorWithMaxInvoiceLimit("45d", new LocalDate("2016-05-01")), events, ImmutableList.<Invoice>of(invoice), new LocalDate("2016-05-01"));
+        assertEquals(generatedItems.size(), 2);
+        assertTrue(generatedItems.get(0) instanceof RepairAdjInvoiceItem);
+        assertEquals(generatedItems.get(0).getLinkedItemId(), misBilledItem.getId());
+        assertEquals(generatedItems.get(0).getStartDate(), new LocalDate("2016-03-01"));
+        assertEquals(generatedItems.get(0).getEndDate(), new LocalDate("2016-03-25"));
+        assertTrue(generatedItems.get(1) instanceof RecurringInvoiceItem);
+        assertEquals(generatedItems.get(1).getStartDate(), new LocalDate("2016-05-01"));
+
+        // Same result as without a cutoff date
+        final List<InvoiceItem> generatedItemsWithoutCutoff = generateItems(createGeneratorWithMaxInvoiceLimit("0s", new LocalDate("2016-05-01")), events, ImmutableList.<Invoice>of(invoice), new LocalDate("2016-05-01"));
+        assertEquals(generatedItemsWithoutCutoff.size(), 2);
+        assertEquals(generatedItemsWithoutCutoff.get(0).getAmount().compareTo(generatedItems.get(0).getAmount()), 0);
+        assertEquals(generatedItemsWithoutCutoff.get(0).getStartDate(), generatedItems.get(0).getStartDate());
+        assertEquals(generatedItemsWithoutCutoff.get(0).getEndDate(), generatedItems.get(0).getEndDate());
+    }
+
+    @Test(groups = "fast")
+    public void testMaxInvoiceLimitNotSet() throws InvoiceApiException {
+        final LocalDate startDate = new LocalDate("2016-01-01");
+        final BillingEventSet events = createMonthlyBillingEvents(startDate);
+        final BillingEvent event = events.first();
+
+        // Simulate a previous mis-bill in January: existing item is for [2016-01-01,2016-01-30], proposed will be for [2016-01-01,2016-02-01]
+        final Invoice invoice = new DefaultInvoice(account.getId(), startDate, startDate, account.getCurrency());
+        final InvoiceItem misBilledItem = createRecurringItem(invoice, event, startDate, startDate.plusDays(29));
+        invoice.addInvoiceItem(misBilledItem);
+        for (int i = 1; i < 4; i++) {
+            invoice.addInvoiceItem(createRecurringItem(invoice, event, startDate.plusMonths(i), startDate.plusMonths(i + 1)));
+        }
+
+        // No cutoff date (0s): the whole history is considered, and January is repaired
+        final List<InvoiceItem> generatedItems = generateItems(createGeneratorWithMaxInvoiceLimit("0s", new LocalDate("2016-05-01")), events, ImmutableList.<Invoice>of(invoice), new LocalDate("2016-05-01"));
+        assertEquals(generatedItems.size(), 3);
+        assertTrue(generatedItems.get(0) instanceof RecurringInvoiceItem);
+        assertEquals(generatedItems.get(0).getStartDate(), new LocalDate("2016-01-01"));
+        assertEquals(generatedItems.get(0).getEndDate(), new LocalDate("2016-02-01"));
+        assertTrue(generatedItems.get(1) instanceof RepairAdjInvoiceItem);
+        assertEquals(generatedItems.get(1).getLinkedItemId(), misBilledItem.getId());
+        assertTrue(generatedItems.get(2) instanceof RecurringInvoiceItem);
+        assertEquals(generatedItems.get(2).getStartDate(), new LocalDate("2016-05-01"));
+
+        // With the cutoff date, January is settled
+        final List<InvoiceItem> generatedItemsWithCutoff = generateItems(createGeneratorWithMaxInvoiceLimit("45d", new LocalDate("2016-05-01")), events, ImmutableList.<Invoice>of(invoice), new LocalDate("2016-05-01"));
+        assertEquals(generatedItemsWithCutoff.size(), 1);
+        assertEquals(generatedItemsWithCutoff.get(0).getStartDate(), new LocalDate("2016-05-01"));
+    }
+
+    private FixedAndRecurringInvoiceItemGenerator createGeneratorWithMaxInvoiceLimit(final String maxInvoiceLimit, final LocalDate today) {
+        final InvoiceConfig config = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(config.getMaxInvoiceLimit(Mockito.<InternalTenantContext>any())).thenReturn(new TimeSpan(maxInvoiceLimit));
+        Mockito.when(config.isSanitySafetyBoundEnabled(Mockito.<InternalTenantContext>any())).thenReturn(true);
+        Mockito.when(config.getMaxDailyNumberOfItemsSafetyBound(Mockito.<InternalTenantContext>any())).thenReturn(-1);
+        final ClockMock generatorClock = new ClockMock();
+        generatorClock.setDay(today);
+        return new FixedAndRecurringInvoiceItemGenerator(config, generatorClock);
+    }
+
+    private BillingEventSet createMonthlyBillingEvents(final LocalDate startDate) {
+        final BillingEventSet events = new MockBillingEventSet();
+        final MockInternationalPrice price = new MockInternationalPrice(new DefaultPrice(BigDecimal.TEN, account.getCurrency()));
+        final Plan plan = new MockPlan("my-plan");
+        final PlanPhase planPhase = new MockPlanPhase(price, null, BillingPeriod.MONTHLY, PhaseType.EVERGREEN);
+        events.add(invoiceUtil.createMockBillingEvent(account,
+                                                      subscription,
+                                                      startDate.toDateTimeAtStartOfDay(),
+                                                      plan,
+                                                      planPhase,
+                                                      null,
+                                                      BigDecimal.TEN,
+                                                      account.getCurrency(),
+                                                      BillingPeriod.MONTHLY,
+                                                      1,
+                                                      BillingMode.IN_ADVANCE,
+                                                      "Billing Event Desc",
+                                                      1L,
+                                                      SubscriptionBaseTransitionType.CREATE));
+        return events;
+    }
+
+    private InvoiceItem createRecurringItem(final Invoice invoice, final BillingEvent event, final LocalDate startDate, final LocalDate endDate) {
+        return new RecurringInvoiceItem(UUID.randomUUID(),
+                                        startDate.toDateTimeAtStartOfDay(),
+                                        invoice.getId(),
+                                        account.getId(),
+                                        subscription.getBundleId(),
+                                        subscription.getId(),
+                                        event.getPlan().getName(),
+                                        event.getPlanPhase().getName(),
+                                        startDate,
+                                        endDate,
+                                        BigDecimal.TEN,
+                                        BigDecimal.TEN,
+                                        account.getCurrency());
+    }
+
+    private List<InvoiceItem> generateItems(final FixedAndRecurringInvoiceItemGenerator generator, final BillingEventSet events, final List<Invoice> existingInvoices, final LocalDate targetDate) throws InvoiceApiException {
+        return generator.generateItems(account,
+                                       UUID.randomUUID(),
+                                       events,
+                                       existingInvoices,
+                                       targetDate,
+                                       account.getCurrency(),
+                                       new HashMap<UUID, SubscriptionFutureNotificationDates>(),
+                                       internalCallContext);
+    }
 }
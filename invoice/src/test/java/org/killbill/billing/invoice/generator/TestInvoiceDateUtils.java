@@ -19,10 +19,16 @@
 package org.killbill.billing.invoice.generator;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.skife.config.TimeSpan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -110,4 +116,22 @@ public class TestInvoiceDateUtils extends InvoiceTestSuiteNoDB {
         Assert.assertEquals(InvoiceDateUtils.recedeByNPeriods(new LocalDate(2016, 5, 27), BillingPeriod.WEEKLY, 1), new LocalDate(2016, 5, 20));
         Assert.assertEquals(InvoiceDateUtils.recedeByNPeriods(new LocalDate(2016, 5, 27), BillingPeriod.WEEKLY, 0), new LocalDate(2016, 5, 27));
     }
+
+    @Test(groups = "fast")
+    public void testMaxInvoiceLimit() throws Exception {
+        Assert.assertNull(InvoiceDateUtils.getMaxInvoiceLimitCutoffDate(new TimeSpan("0s"), new LocalDate(2016, 4, 8)));
+        final LocalDate cutoffDate = InvoiceDateUtils.getMaxInvoiceLimitCutoffDate(new TimeSpan("30d"), new LocalDate(2016, 4, 8));
+        Assert.assertEquals(cutoffDate, new LocalDate(2016, 3, 9));
+
+        final UUID invoiceId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        final InvoiceItem settledRecurring = new RecurringInvoiceItem(invoiceId, accountId, null, null, "plan", "phase", new LocalDate(2016, 2, 9), new LocalDate(2016, 3, 9), BigDecimal.TEN, BigDecimal.TEN, Currency.USD);
+        final InvoiceItem recurring = new RecurringInvoiceItem(invoiceId, accountId, null, null, "plan", "phase", new LocalDate(2016, 2, 10), new LocalDate(2016, 3, 10), BigDecimal.TEN, BigDecimal.TEN, Currency.USD);
+        final InvoiceItem settledFixed = new FixedPriceInvoiceItem(invoiceId, accountId, null, null, "plan", "phase", new LocalDate(2016, 3, 8), BigDecimal.TEN, Currency.USD);
+        final InvoiceItem fixed = new FixedPriceInvoiceItem(invoiceId, accountId, null, null, "plan", "phase", new LocalDate(2016, 3, 9), BigDecimal.TEN, Currency.USD);
+        Assert.assertFalse(InvoiceDateUtils.isWithinMaxInvoiceLimit(settledRecurring, cutoffDate));
+        Assert.assertTrue(InvoiceDateUtils.isWithinMaxInvoiceLimit(recurring, cutoffDate));
+        Assert.assertFalse(InvoiceDateUtils.isWithinMaxInvoiceLimit(settledFixed, cutoffDate));
+        Assert.assertTrue(InvoiceDateUtils.isWithinMaxInvoiceLimit(fixed, cutoffDate));
+    }
 }
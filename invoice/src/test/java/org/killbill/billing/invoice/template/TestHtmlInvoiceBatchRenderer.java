@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.DefaultCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceHtmlConsumer;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.dao.InvoiceModelDao;
+import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TestHtmlInvoiceBatchRenderer extends InvoiceTestSuiteWithEmbeddedDB {
+
+    @Test(groups = "slow")
+    public void testRenderInvoicesAsHTML() throws Exception {
+        final LocalDate today = clock.getUTCToday();
+        final Account account1 = invoiceUtil.createAccount(callContext);
+        final UUID invoiceId1 = invoiceUtil.generateRegularInvoice(account1, today, callContext);
+        // Second invoice for the same account
+        final InvoiceItem externalCharge = new ExternalChargeInvoiceItem(null, account1.getId(), null, "description", today, BigDecimal.TEN, account1.getCurrency());
+        final UUID invoiceId2 = invoiceUserApi.insertExternalCharges(account1.getId(), today, ImmutableList.<InvoiceItem>of(externalCharge), true, callContext).get(0).getInvoiceId();
+        // Invoice dated tomorrow, created before (lower record id) the next invoice dated today
+        clock.addDays(1);
+        final CallContext tomorrowCallContext = new DefaultCallContext(callContext.getTenantId(), callContext.getUserName(), callContext.getCallOrigin(), callContext.getUserType(), callContext.getUserToken(), clock);
+        clock.addDays(-1);
+        final InvoiceItem tomorrowExternalCharge = new ExternalChargeInvoiceItem(null, account1.getId(), null, "description", today.plusDays(1), BigDecimal.TEN, account1.getCurrency());
+        final UUID invoiceId4 = invoiceUserApi.insertExternalCharges(account1.getId(), today.plusDays(1), ImmutableList.<InvoiceItem>of(tomorrowExternalCharge), true, tomorrowCallContext).get(0).getInvoiceId();
+        final Account account2 = invoiceUtil.createAccount(callContext);
+        final UUID invoiceId3 = invoiceUtil.generateRegularInvoice(account2, today, callContext);
+
+        final InternalTenantContext tenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+
+        // Pages by invoice date, then record id
+        final List<UUID> pagedInvoiceIds = new ArrayList<UUID>();
+        LocalDate fromInvoiceDate = today;
+        Long fromRecordId = 0L;
+        List<InvoiceModelDao> page;
+        while (!(page = invoiceDao.getInvoicesByInvoiceDate(fromInvoiceDate, fromRecordId, today.plusDays(1), 1, tenantContext)).isEmpty()) {
+            Assert.assertEquals(page.size(), 1);
+            final int dateComparison = page.get(0).getInvoiceDate().compareTo(fromInvoiceDate);
+            Assert.assertTrue(dateComparison > 0 || (dateComparison == 0 && page.get(0).getRecordId() > fromRecordId));
+            Assert.assertNotNull(page.get(0).getAccountRecordId());
+            pagedInvoiceIds.add(page.get(0).getId());
+            fromInvoiceDate = page.get(0).getInvoiceDate();
+            fromRecordId = page.get(0).getRecordId();
+        }
+        Assert.assertEquals(pagedInvoiceIds, ImmutableList.<UUID>of(invoiceId1, invoiceId2, invoiceId3, invoiceId4));
+
+        final Map<UUID, String> renderedInvoices = new HashMap<UUID, String>();
+        final UUID unknownInvoiceId = UUID.randomUUID();
+        invoiceBulkUserApi.renderInvoicesAsHTML(ImmutableList.<UUID>of(invoiceId1, invoiceId2, invoiceId3, unknownInvoiceId, invoiceId1),
+                                                new RenderedInvoicesConsumer(renderedInvoices),
+                                                callContext);
+
+        Assert.assertEquals(renderedInvoices.size(), 3);
+        for (final UUID invoiceId : ImmutableList.<UUID>of(invoiceId1, invoiceId2, invoiceId3)) {
+            Assert.assertEquals(renderedInvoices.get(invoiceId), invoiceUserApi.getInvoiceAsHTML(invoiceId, callContext));
+        }
+
+        final Map<UUID, String> renderedInvoicesByDate = new HashMap<UUID, String>();
+        invoiceBulkUserApi.renderInvoicesAsHTML(today, today.plusDays(1), new RenderedInvoicesConsumer(renderedInvoicesByDate), callContext);
+        Assert.assertEquals(renderedInvoicesByDate.keySet(), ImmutableSet.<UUID>copyOf(pagedInvoiceIds));
+        for (final UUID invoiceId : ImmutableList.<UUID>of(invoiceId1, invoiceId2, invoiceId3)) {
+            Assert.assertEquals(renderedInvoicesByDate.get(invoiceId), renderedInvoices.get(invoiceId));
+        }
+
+        final Map<UUID, String> noRenderedInvoices = new HashMap<UUID, String>();
+        invoiceBulkUserApi.renderInvoicesAsHTML(today.plusDays(2), today.plusYears(1), new RenderedInvoicesConsumer(noRenderedInvoices), callContext);
+        Assert.assertTrue(noRenderedInvoices.isEmpty());
+    }
+
+    private static final class RenderedInvoicesConsumer implements InvoiceHtmlConsumer {
+
+        private final Map<UUID, String> renderedInvoices;
+
+        private RenderedInvoicesConsumer(final Map<UUID, String> renderedInvoices) {
+            this.renderedInvoices = renderedInvoices;
+        }
+
+        @Override
+        public void accept(final Invoice invoice, final String html) throws IOException {
+            Assert.assertNull(renderedInvoices.put(invoice.getId(), html));
+        }
+    }
+}
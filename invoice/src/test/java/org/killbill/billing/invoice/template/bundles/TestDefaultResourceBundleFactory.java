@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template.bundles;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+import org.killbill.billing.tenant.api.TenantInternalApi;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDefaultResourceBundleFactory extends InvoiceTestSuiteNoDB {
+
+    private static final String BUNDLE_PATH = "org/killbill/billing/util/template/translation/InvoiceTranslation";
+
+    @Test(groups = "fast")
+    public void testTenantBundlesAreCached() throws Exception {
+        final InternalTenantContext tenantContext = new InternalTenantContext(12L);
+        final TenantInternalApi tenantApi = Mockito.mock(TenantInternalApi.class);
+        Mockito.when(tenantApi.getInvoiceTranslation(Locale.FRANCE, tenantContext)).thenReturn("invoiceTitle=Facture");
+        final DefaultResourceBundleFactory bundleFactory = new DefaultResourceBundleFactory(tenantApi);
+
+        final ResourceBundle bundle = bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext);
+        Assert.assertEquals(bundle.getString("invoiceTitle"), "Facture");
+        Assert.assertSame(bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext), bundle);
+        Mockito.verify(tenantApi, Mockito.times(1)).getInvoiceTranslation(Locale.FRANCE, tenantContext);
+
+        // Other types, locales and tenants aren't affected by the invalidation
+        bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.CATALOG_TRANSLATION, tenantContext);
+        bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, new InternalTenantContext(13L));
+        Mockito.verify(tenantApi, Mockito.times(1)).getCatalogTranslation(Locale.FRANCE, tenantContext);
+
+        Mockito.when(tenantApi.getInvoiceTranslation(Locale.FRANCE, tenantContext)).thenReturn("invoiceTitle=Nouvelle facture");
+        bundleFactory.invalidateCache(ResourceBundleType.INVOICE_TRANSLATION, tenantContext);
+
+        Assert.assertEquals(bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext).getString("invoiceTitle"), "Nouvelle facture");
+        bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.CATALOG_TRANSLATION, tenantContext);
+        Mockito.verify(tenantApi, Mockito.times(2)).getInvoiceTranslation(Locale.FRANCE, tenantContext);
+        Mockito.verify(tenantApi, Mockito.times(1)).getCatalogTranslation(Locale.FRANCE, tenantContext);
+    }
+
+    @Test(groups = "fast")
+    public void testLoadRacingWithInvalidationIsNotCached() throws Exception {
+        final InternalTenantContext tenantContext = new InternalTenantContext(12L);
+        final TenantInternalApi tenantApi = Mockito.mock(TenantInternalApi.class);
+        final DefaultResourceBundleFactory bundleFactory = new DefaultResourceBundleFactory(tenantApi);
+
+        // The translations are updated (and the cache invalidated) while the previous version is being loaded
+        Mockito.when(tenantApi.getInvoiceTranslation(Locale.FRANCE, tenantContext)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(final InvocationOnMock invocation) {
+                bundleFactory.invalidateCache(ResourceBundleType.INVOICE_TRANSLATION, tenantContext);
+                return "invoiceTitle=Facture";
+            }
+        });
+        Assert.assertEquals(bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext).getString("invoiceTitle"), "Facture");
+
+        // The stale bundle isn't served anymore
+        Mockito.when(tenantApi.getInvoiceTranslation(Locale.FRANCE, tenantContext)).thenReturn("invoiceTitle=Nouvelle facture");
+        Assert.assertEquals(bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext).getString("invoiceTitle"), "Nouvelle facture");
+        Assert.assertEquals(bundleFactory.createBundle(Locale.FRANCE, BUNDLE_PATH, ResourceBundleType.INVOICE_TRANSLATION, tenantContext).getString("invoiceTitle"), "Nouvelle facture");
+        Mockito.verify(tenantApi, Mockito.times(2)).getInvoiceTranslation(Locale.FRANCE, tenantContext);
+    }
+}
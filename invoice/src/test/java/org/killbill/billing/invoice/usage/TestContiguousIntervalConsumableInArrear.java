@@ -278,6 +278,35 @@ public class TestContiguousIntervalConsumableInArrear extends TestUsageInArrearB
 
 
 
+    @Test(groups = "fast")
+    public void testGetRolledUpUsageWithRawUsageOutsideTransitions() {
+        final DefaultTieredBlock tieredBlock = createDefaultTieredBlock("unit", 100, 1000, BigDecimal.ONE);
+        final DefaultTier tier = createDefaultTierWithBlocks(tieredBlock);
+        final DefaultUsage usage = createConsumableInArrearUsage(usageName, BillingPeriod.MONTHLY, tier);
+
+        final LocalDate t0 = new LocalDate(2015, 03, BCD);
+        final BillingEvent eventT0 = createMockBillingEvent(t0.toDateTimeAtStartOfDay(DateTimeZone.UTC), BillingPeriod.MONTHLY, Collections.<Usage>emptyList());
+        final LocalDate t1 = new LocalDate(2015, 04, BCD);
+        final BillingEvent eventT1 = createMockBillingEvent(t1.toDateTimeAtStartOfDay(DateTimeZone.UTC), BillingPeriod.MONTHLY, Collections.<Usage>emptyList());
+
+        // All prior t0
+        final List<RawUsage> rawUsagePriorT0 = ImmutableList.<RawUsage>of(new DefaultRawUsage(subscriptionId, new LocalDate(2015, 02, 01), "unit", 12L),
+                                                                         new DefaultRawUsage(subscriptionId, new LocalDate(2015, 03, 01), "unit", 6L));
+        Assert.assertEquals(createContiguousIntervalConsumableInArrear(usage, rawUsagePriorT0, t1, true, eventT0, eventT1).getRolledUpUsage().size(), 0);
+
+        // All after t1
+        final List<RawUsage> rawUsageAfterT1 = ImmutableList.<RawUsage>of(new DefaultRawUsage(subscriptionId, new LocalDate(2015, 04, BCD), "unit", 12L));
+        Assert.assertEquals(createContiguousIntervalConsumableInArrear(usage, rawUsageAfterT1, t1, true, eventT0, eventT1).getRolledUpUsage().size(), 0);
+
+        // Starting exactly on t0
+        final List<RawUsage> rawUsageFromT0 = ImmutableList.<RawUsage>of(new DefaultRawUsage(subscriptionId, new LocalDate(2015, 02, 01), "unit", 12L),
+                                                                        new DefaultRawUsage(subscriptionId, t0, "unit", 6L),
+                                                                        new DefaultRawUsage(subscriptionId, new LocalDate(2015, 03, 25), "unit", 4L));
+        final List<RolledUpUsage> rolledUpUsage = createContiguousIntervalConsumableInArrear(usage, rawUsageFromT0, t1, true, eventT0, eventT1).getRolledUpUsage();
+        Assert.assertEquals(rolledUpUsage.size(), 1);
+        Assert.assertEquals(rolledUpUsage.get(0).getRolledUpUnits().get(0).getAmount(), new Long(10L));
+    }
+
     @Test(groups = "fast", description="See https://github.com/killbill/killbill/issues/706")
     public void testWithRawUsageStartDateAfterEndDate() throws CatalogApiException {
 
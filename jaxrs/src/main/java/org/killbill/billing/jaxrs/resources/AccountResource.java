@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -59,6 +60,7 @@ import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.MutableAccountData;
+import org.killbill.billing.audit.AuditBulkUserApi;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.Currency;
@@ -73,6 +75,7 @@ import org.killbill.billing.entitlement.api.SubscriptionApiException;
 import org.killbill.billing.entitlement.api.SubscriptionBundle;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceBulkUserApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
 import org.killbill.billing.invoice.api.InvoicePayment;
@@ -158,6 +161,8 @@ public class AccountResource extends JaxRsResourceBase {
     private final PaymentConfig paymentConfig;
     private final JaxrsExecutors jaxrsExecutors;
     private final JaxrsConfig jaxrsConfig;
+    private final AuditBulkUserApi auditBulkUserApi;
+    private final InvoiceBulkUserApi invoiceBulkUserApi;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -174,6 +179,8 @@ public class AccountResource extends JaxRsResourceBase {
                            final PaymentConfig paymentConfig,
                            final JaxrsExecutors jaxrsExecutors,
                            final JaxrsConfig jaxrsConfig,
+                           final AuditBulkUserApi auditBulkUserApi,
+                           final InvoiceBulkUserApi invoiceBulkUserApi,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, subscriptionApi, clock, context);
         this.subscriptionApi = subscriptionApi;
@@ -183,6 +190,8 @@ public class AccountResource extends JaxRsResourceBase {
         this.paymentConfig = paymentConfig;
         this.jaxrsExecutors = jaxrsExecutors;
         this.jaxrsConfig = jaxrsConfig;
+        this.auditBulkUserApi = auditBulkUserApi;
+        this.invoiceBulkUserApi = invoiceBulkUserApi;
     }
 
     @TimedResource
@@ -221,16 +230,9 @@ public class AccountResource extends JaxRsResourceBase {
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                            QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
                                                                                                                                                            QUERY_AUDIT, auditMode.getLevel().toString()));
-        return buildStreamingPaginationResponse(accounts,
-                                                new Function<Account, AccountJson>() {
-                                                    @Override
-                                                    public AccountJson apply(final Account account) {
-                                                        final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(account.getId(), auditMode.getLevel(), tenantContext);
-                                                        return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+        return buildStreamingPaginationResponseInBatches(accounts,
+                                                         toAccountsJson(accountWithBalance, accountWithBalanceAndCBA, auditMode, tenantContext),
+                                                         nextPageUri);
     }
 
     @TimedResource
@@ -252,16 +254,9 @@ public class AccountResource extends JaxRsResourceBase {
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
                                                                                                                                                               QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
                                                                                                                                                               QUERY_AUDIT, auditMode.getLevel().toString()));
-        return buildStreamingPaginationResponse(accounts,
-                                                new Function<Account, AccountJson>() {
-                                                    @Override
-                                                    public AccountJson apply(final Account account) {
-                                                        final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(account.getId(), auditMode.getLevel(), tenantContext);
-                                                        return getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext);
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+        return buildStreamingPaginationResponseInBatches(accounts,
+                                                         toAccountsJson(accountWithBalance, accountWithBalanceAndCBA, auditMode, tenantContext),
+                                                         nextPageUri);
     }
 
     @TimedResource
@@ -347,6 +342,34 @@ public class AccountResource extends JaxRsResourceBase {
         }
     }
 
+    // Audit logs, balances and CBA are retrieved for the whole batch of accounts at once
+    private Function<List<Account>, List<AccountJson>> toAccountsJson(final Boolean accountWithBalance, final Boolean accountWithBalanceAndCBA,
+                                                                      final AuditMode auditMode, final TenantContext tenantContext) {
+        return new Function<List<Account>, List<AccountJson>>() {
+            @Override
+            public List<AccountJson> apply(final List<Account> accounts) {
+                final Collection<UUID> accountIds = new ArrayList<UUID>(accounts.size());
+                for (final Account account : accounts) {
+                    accountIds.add(account.getId());
+                }
+
+                final Map<UUID, AccountAuditLogs> accountsAuditLogs = auditBulkUserApi.getAccountsAuditLogs(accountIds, auditMode.getLevel(), tenantContext);
+                final Map<UUID, BigDecimal> accountsBalance = accountWithBalance || accountWithBalanceAndCBA ?
+                                                              invoiceBulkUserApi.getAccountsBalance(accountIds, tenantContext) :
+                                                              ImmutableMap.<UUID, BigDecimal>of();
+                final Map<UUID, BigDecimal> accountsCBA = accountWithBalanceAndCBA ?
+                                                          invoiceBulkUserApi.getAccountsCBA(accountIds, tenantContext) :
+                                                          ImmutableMap.<UUID, BigDecimal>of();
+
+                final List<AccountJson> result = new ArrayList<AccountJson>(accounts.size());
+                for (final Account account : accounts) {
+                    result.add(new AccountJson(account, accountsBalance.get(account.getId()), accountsCBA.get(account.getId()), accountsAuditLogs.get(account.getId())));
+                }
+                return result;
+            }
+        };
+    }
+
     @TimedResource
     @POST
     @Consumes(APPLICATION_JSON)
@@ -1435,11 +1458,7 @@ public class AccountResource extends JaxRsResourceBase {
         final TenantContext tenantContext = context.createContext(request);
         final List<Account> accounts = accountUserApi.getChildrenAccounts(UUID.fromString(parentAccountId), tenantContext);
 
-        final List<AccountJson> accountJson = new ArrayList<AccountJson>();
-        for (final Account account : accounts) {
-            final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(account.getId(), auditMode.getLevel(), tenantContext);
-            accountJson.add(getAccount(account, accountWithBalance, accountWithBalanceAndCBA, accountAuditLogs, tenantContext));
-        }
+        final List<AccountJson> accountJson = toAccountsJson(accountWithBalance, accountWithBalanceAndCBA, auditMode, tenantContext).apply(accounts);
         return Response.status(Status.OK).entity(accountJson).build();
     }
 
@@ -22,7 +22,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -50,6 +54,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.catalog.api.Catalog;
+import org.killbill.billing.invoice.api.AdminInvoiceApi;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
 import org.killbill.billing.jaxrs.json.AdminPaymentJson;
@@ -77,17 +82,22 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.tenant.PerTenantConfig;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.metrics.LatencyHistograms;
+import org.killbill.billing.util.security.TenantCredentialsCache;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.SystemTags;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.BusEventWithMetadata;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.clock.Clock;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -112,12 +122,15 @@ public class AdminResource extends JaxRsResourceBase {
 
     private final AdminPaymentApi adminPaymentApi;
     private final InvoiceUserApi invoiceUserApi;
+    private final AdminInvoiceApi adminInvoiceApi;
     private final TenantUserApi tenantApi;
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final RecordIdApi recordIdApi;
     private final PersistentBus persistentBus;
     private final NotificationQueueService notificationQueueService;
     private final KillbillHealthcheck killbillHealthcheck;
+    private final TenantCredentialsCache tenantCredentialsCache;
+    private final LatencyHistograms latencyHistograms;
 
     @Inject
     public AdminResource(final JaxrsUriBuilder uriBuilder,
@@ -128,23 +141,29 @@ public class AdminResource extends JaxRsResourceBase {
                          final PaymentApi paymentApi,
                          final AdminPaymentApi adminPaymentApi,
                          final InvoiceUserApi invoiceUserApi,
+                         final AdminInvoiceApi adminInvoiceApi,
                          final CacheControllerDispatcher cacheControllerDispatcher,
                          final TenantUserApi tenantApi,
                          final RecordIdApi recordIdApi,
                          final PersistentBus persistentBus,
                          final NotificationQueueService notificationQueueService,
                          final KillbillHealthcheck killbillHealthcheck,
+                         final TenantCredentialsCache tenantCredentialsCache,
+                         final LatencyHistograms latencyHistograms,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, null, clock, context);
         this.adminPaymentApi = adminPaymentApi;
         this.invoiceUserApi = invoiceUserApi;
+        this.adminInvoiceApi = adminInvoiceApi;
         this.tenantApi = tenantApi;
         this.recordIdApi = recordIdApi;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.persistentBus = persistentBus;
         this.notificationQueueService = notificationQueueService;
         this.killbillHealthcheck = killbillHealthcheck;
+        this.tenantCredentialsCache = tenantCredentialsCache;
+        this.latencyHistograms = latencyHistograms;
     }
 
     @GET
@@ -328,6 +347,22 @@ public class AdminResource extends JaxRsResourceBase {
                        .build();
     }
 
+    @PUT
+    @Path("/" + ACCOUNTS + "/{accountId:" + UUID_PATTERN + "}/" + BALANCE_LEDGER)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Verify (and optionally repair) the account balance ledger against the invoices")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid account id supplied")})
+    public Response verifyAccountBalanceLedger(@PathParam("accountId") final String accountIdStr,
+                                               @QueryParam(QUERY_REPAIR) @DefaultValue("false") final Boolean repair,
+                                               @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                               @HeaderParam(HDR_REASON) final String reason,
+                                               @HeaderParam(HDR_COMMENT) final String comment,
+                                               @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+        final boolean upToDate = adminInvoiceApi.verifyAccountBalance(UUID.fromString(accountIdStr), repair, callContext);
+        return Response.status(Status.OK).entity(ImmutableMap.<String, Object>of("upToDate", upToDate, "repaired", !upToDate && repair)).build();
+    }
+
     @DELETE
     @Path("/" + CACHE)
     @Produces(APPLICATION_JSON)
@@ -347,6 +382,7 @@ public class AdminResource extends JaxRsResourceBase {
         } else {
             // if not given a specific cacheName, clear all
             cacheControllerDispatcher.clearAll();
+            tenantCredentialsCache.invalidateAll();
         }
         return Response.status(Status.OK).build();
     }
@@ -412,6 +448,9 @@ public class AdminResource extends JaxRsResourceBase {
         final CacheController<String, Tenant> tenantCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT);
         tenantCacheController.remove(currentTenant.getApiKey());
 
+        // clear the verified credentials of the tenant
+        tenantCredentialsCache.invalidate(currentTenant.getId());
+
         // clear tenant-kv cache by tenantRecordId
         final CacheController<String, String> tenantKVCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_KV);
         tenantKVCacheController.remove(tenantKeysMatcher);
@@ -451,6 +490,43 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.OK).build();
     }
 
+    @GET
+    @Path("/" + LATENCIES)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the aggregated latencies (in ms) of DAO, plugin and JAX-RS calls")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid profiling feature type")})
+    public Response getLatencies(@QueryParam(QUERY_PROFILING_FEATURE_TYPE) final String profilingFeatureType,
+                                 @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final SortedMap<String, Timer> histograms;
+        if (Strings.isNullOrEmpty(profilingFeatureType)) {
+            histograms = latencyHistograms.getHistograms();
+        } else {
+            try {
+                histograms = latencyHistograms.getHistograms(ProfilingFeatureType.valueOf(profilingFeatureType.toUpperCase()));
+            } catch (final IllegalArgumentException e) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+        }
+
+        final Map<String, Map<String, Object>> result = new LinkedHashMap<String, Map<String, Object>>();
+        for (final Map.Entry<String, Timer> entry : histograms.entrySet()) {
+            final Snapshot snapshot = entry.getValue().getSnapshot();
+            result.put(entry.getKey(), ImmutableMap.<String, Object>builder()
+                                                   .put("count", entry.getValue().getCount())
+                                                   .put("mean", toMillis(snapshot.getMean()))
+                                                   .put("p50", toMillis(snapshot.getMedian()))
+                                                   .put("p95", toMillis(snapshot.get95thPercentile()))
+                                                   .put("p99", toMillis(snapshot.get99thPercentile()))
+                                                   .put("max", toMillis(snapshot.getMax()))
+                                                   .build());
+        }
+        return Response.status(Status.OK).entity(result).build();
+    }
+
+    private static double toMillis(final double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
     private Iterable<NotificationEventWithMetadata<NotificationEvent>> getNotifications(@Nullable final String queueName,
                                                                                         @Nullable final String serviceName,
                                                                                         final boolean includeInProcessing,
@@ -21,7 +21,9 @@ package org.killbill.billing.jaxrs.resources;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -33,7 +35,8 @@ import java.util.Map;
 import java.util.PropertyResourceBundle;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
@@ -48,8 +51,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.LocalDate;
@@ -58,6 +63,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.audit.AuditBulkUserApi;
 import org.killbill.billing.catalog.DefaultPlanPhasePriceOverride;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.catalog.api.BillingPeriod;
@@ -72,6 +78,8 @@ import org.killbill.billing.invoice.api.DryRunArguments;
 import org.killbill.billing.invoice.api.DryRunType;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceBulkUserApi;
+import org.killbill.billing.invoice.api.InvoiceHtmlConsumer;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceNotifier;
 import org.killbill.billing.invoice.api.InvoicePayment;
@@ -103,6 +111,7 @@ import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 import org.slf4j.Logger;
@@ -134,11 +143,14 @@ public class InvoiceResource extends JaxRsResourceBase {
     private static final Logger log = LoggerFactory.getLogger(InvoiceResource.class);
     private static final String ID_PARAM_NAME = "invoiceId";
     private static final String LOCALE_PARAM_NAME = "locale";
+    private static final String APPLICATION_ZIP = "application/zip";
 
     private final InvoiceUserApi invoiceApi;
+    private final InvoiceBulkUserApi invoiceBulkUserApi;
     private final InvoiceNotifier invoiceNotifier;
     private final TenantUserApi tenantApi;
     private final Locale defaultLocale;
+    private final AuditBulkUserApi auditBulkUserApi;
 
     private static final Ordering<InvoicePaymentJson> INVOICE_PAYMENT_ORDERING = Ordering.from(new Comparator<InvoicePaymentJson>() {
         @Override
@@ -150,6 +162,7 @@ public class InvoiceResource extends JaxRsResourceBase {
     @Inject
     public InvoiceResource(final AccountUserApi accountUserApi,
                            final InvoiceUserApi invoiceApi,
+                           final InvoiceBulkUserApi invoiceBulkUserApi,
                            final PaymentApi paymentApi,
                            final InvoiceNotifier invoiceNotifier,
                            final Clock clock,
@@ -158,12 +171,15 @@ public class InvoiceResource extends JaxRsResourceBase {
                            final CustomFieldUserApi customFieldUserApi,
                            final AuditUserApi auditUserApi,
                            final TenantUserApi tenantApi,
+                           final AuditBulkUserApi auditBulkUserApi,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, null, clock, context);
         this.invoiceApi = invoiceApi;
+        this.invoiceBulkUserApi = invoiceBulkUserApi;
         this.invoiceNotifier = invoiceNotifier;
         this.tenantApi = tenantApi;
         this.defaultLocale = Locale.getDefault();
+        this.auditBulkUserApi = auditBulkUserApi;
     }
 
     @TimedResource
@@ -226,6 +242,69 @@ public class InvoiceResource extends JaxRsResourceBase {
         return Response.status(Status.OK).entity(invoiceApi.getInvoiceAsHTML(UUID.fromString(invoiceId), context.createContext(request))).build();
     }
 
+    @TimedResource
+    @GET
+    @Path("/html")
+    @Produces(APPLICATION_ZIP)
+    @ApiOperation(value = "Render invoices, by id or by invoice date, as HTML in a zip archive (one <invoiceId>.html entry per invoice)")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Missing invoice ids or start and end dates")})
+    public Response getInvoicesAsHTML(@QueryParam(QUERY_INVOICE_ID) final List<String> invoiceIdsString,
+                                      @QueryParam(QUERY_START_DATE) final String startDate,
+                                      @QueryParam(QUERY_END_DATE) final String endDate,
+                                      @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createContext(request);
+
+        final List<UUID> invoiceIds;
+        final LocalDate startLocalDate;
+        final LocalDate endLocalDate;
+        if (invoiceIdsString != null && !invoiceIdsString.isEmpty()) {
+            invoiceIds = ImmutableList.<UUID>copyOf(Iterables.<String, UUID>transform(invoiceIdsString,
+                                                                                     new Function<String, UUID>() {
+                                                                                         @Override
+                                                                                         public UUID apply(final String input) {
+                                                                                             return UUID.fromString(input);
+                                                                                         }
+                                                                                     }));
+            startLocalDate = null;
+            endLocalDate = null;
+        } else if (startDate != null && endDate != null) {
+            // The invoices of the range are paged through while rendering
+            invoiceIds = null;
+            startLocalDate = LOCAL_DATE_FORMATTER.parseLocalDate(startDate);
+            endLocalDate = LOCAL_DATE_FORMATTER.parseLocalDate(endDate);
+        } else {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        final StreamingOutput zip = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final ZipOutputStream zipOutputStream = new ZipOutputStream(output);
+                // Entries are written as the invoices are rendered
+                final InvoiceHtmlConsumer consumer = new InvoiceHtmlConsumer() {
+                    @Override
+                    public void accept(final Invoice invoice, final String html) throws IOException {
+                        zipOutputStream.putNextEntry(new ZipEntry(invoice.getId() + ".html"));
+                        zipOutputStream.write(html.getBytes(StandardCharsets.UTF_8));
+                        zipOutputStream.closeEntry();
+                    }
+                };
+                try {
+                    if (invoiceIds != null) {
+                        invoiceBulkUserApi.renderInvoicesAsHTML(invoiceIds, consumer, tenantContext);
+                    } else {
+                        invoiceBulkUserApi.renderInvoicesAsHTML(startLocalDate, endLocalDate, consumer, tenantContext);
+                    }
+                } catch (final InvoiceApiException e) {
+                    // The response has already been committed
+                    throw new IOException(e);
+                }
+                zipOutputStream.finish();
+            }
+        };
+        return Response.status(Status.OK).entity(zip).build();
+    }
+
     @TimedResource
     @GET
     @Path("/" + PAGINATION)
@@ -236,26 +315,20 @@ public class InvoiceResource extends JaxRsResourceBase {
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
                                 @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
+                                @QueryParam(QUERY_PAGINATION_KEYSET) @DefaultValue("false") final Boolean keyset,
+                                @QueryParam(QUERY_PAGINATION_WITH_TOTALS) final Boolean withTotals,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+        final PaginationOptions paginationOptions = toPaginationOptions(keyset, withTotals);
+        final Pagination<Invoice> invoices = invoiceBulkUserApi.getInvoices(offset, limit, paginationOptions, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
-
-        final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
-        return buildStreamingPaginationResponse(invoices,
-                                                new Function<Invoice, InvoiceJson>() {
-                                                    @Override
-                                                    public InvoiceJson apply(final Invoice invoice) {
-                                                        // Cache audit logs per account
-                                                        if (accountsAuditLogs.get().get(invoice.getAccountId()) == null) {
-                                                            accountsAuditLogs.get().put(invoice.getAccountId(), auditUserApi.getAccountAuditLogs(invoice.getAccountId(), auditMode.getLevel(), tenantContext));
-                                                        }
-                                                        return new InvoiceJson(invoice, withItems, null, accountsAuditLogs.get().get(invoice.getAccountId()));
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString(),
+                                                                                                                                                           QUERY_PAGINATION_KEYSET, String.valueOf(paginationOptions.isKeyset()),
+                                                                                                                                                           QUERY_PAGINATION_WITH_TOTALS, String.valueOf(paginationOptions.isWithTotals())));
+
+        return buildStreamingPaginationResponseInBatches(invoices,
+                                                         toInvoicesJson(withItems, auditMode, tenantContext),
+                                                         nextPageUri);
     }
 
     @TimedResource
@@ -275,20 +348,34 @@ public class InvoiceResource extends JaxRsResourceBase {
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
                                                                                                                                                               QUERY_AUDIT, auditMode.getLevel().toString()));
-        final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
-        return buildStreamingPaginationResponse(invoices,
-                                                new Function<Invoice, InvoiceJson>() {
-                                                    @Override
-                                                    public InvoiceJson apply(final Invoice invoice) {
-                                                        // Cache audit logs per account
-                                                        if (accountsAuditLogs.get().get(invoice.getAccountId()) == null) {
-                                                            accountsAuditLogs.get().put(invoice.getAccountId(), auditUserApi.getAccountAuditLogs(invoice.getAccountId(), auditMode.getLevel(), tenantContext));
-                                                        }
-                                                        return new InvoiceJson(invoice, withItems, null, accountsAuditLogs.get().get(invoice.getAccountId()));
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+        return buildStreamingPaginationResponseInBatches(invoices,
+                                                         toInvoicesJson(withItems, auditMode, tenantContext),
+                                                         nextPageUri);
+    }
+
+    // Audit logs are cached per account, the missing ones being retrieved for the whole batch of invoices at once
+    private Function<List<Invoice>, List<InvoiceJson>> toInvoicesJson(final Boolean withItems, final AuditMode auditMode, final TenantContext tenantContext) {
+        final Map<UUID, AccountAuditLogs> accountsAuditLogs = new HashMap<UUID, AccountAuditLogs>();
+        return new Function<List<Invoice>, List<InvoiceJson>>() {
+            @Override
+            public List<InvoiceJson> apply(final List<Invoice> invoices) {
+                final Set<UUID> accountIdsToLoad = new HashSet<UUID>();
+                for (final Invoice invoice : invoices) {
+                    if (accountsAuditLogs.get(invoice.getAccountId()) == null) {
+                        accountIdsToLoad.add(invoice.getAccountId());
+                    }
+                }
+                if (!accountIdsToLoad.isEmpty()) {
+                    accountsAuditLogs.putAll(auditBulkUserApi.getAccountsAuditLogs(accountIdsToLoad, auditMode.getLevel(), tenantContext));
+                }
+
+                final List<InvoiceJson> result = new ArrayList<InvoiceJson>(invoices.size());
+                for (final Invoice invoice : invoices) {
+                    result.add(new InvoiceJson(invoice, withItems, null, accountsAuditLogs.get(invoice.getAccountId())));
+                }
+                return result;
+            }
+        };
     }
 
     @TimedResource
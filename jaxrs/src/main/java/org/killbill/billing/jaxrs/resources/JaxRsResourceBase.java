@@ -93,6 +93,7 @@ import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
@@ -123,6 +124,9 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
 
     protected static final ObjectMapper mapper = new ObjectMapper();
 
+    // Number of entities converted at once when streaming a page (default page size)
+    protected static final int STREAMING_PAGINATION_BATCH_SIZE = 100;
+
     protected final JaxrsUriBuilder uriBuilder;
     protected final TagUserApi tagUserApi;
     protected final CustomFieldUserApi customFieldUserApi;
@@ -315,6 +319,22 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
                                                                                                final Function<E, J> toJson,
                                                                                                final URI nextPageUri) {
+        return buildStreamingPaginationResponseInBatches(entities,
+                                                         new Function<List<E>, List<J>>() {
+                                                             @Override
+                                                             public List<J> apply(final List<E> batch) {
+                                                                 return Lists.transform(batch, toJson);
+                                                             }
+                                                         },
+                                                         nextPageUri);
+    }
+
+    // Same as buildStreamingPaginationResponse, but the conversion is done for a batch of entities at a time
+    // (up to STREAMING_PAGINATION_BATCH_SIZE), so that data related to the entities (audit logs, balances, ...)
+    // can be retrieved with a fixed number of queries instead of one per entity
+    protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponseInBatches(final Pagination<E> entities,
+                                                                                                        final Function<List<E>, List<J>> toJsons,
+                                                                                                        final URI nextPageUri) {
         final StreamingOutput json = new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
@@ -325,11 +345,16 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                     generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
                     generator.writeStartArray();
+                    List<E> batch = new ArrayList<E>(STREAMING_PAGINATION_BATCH_SIZE);
                     while (iterator.hasNext()) {
-                        final E entity = iterator.next();
-                        final J asJson = toJson.apply(entity);
-                        if (asJson != null) {
-                            generator.writeObject(asJson);
+                        batch.add(iterator.next());
+                        if (batch.size() == STREAMING_PAGINATION_BATCH_SIZE || !iterator.hasNext()) {
+                            for (final J asJson : toJsons.apply(batch)) {
+                                if (asJson != null) {
+                                    generator.writeObject(asJson);
+                                }
+                            }
+                            batch = new ArrayList<E>(STREAMING_PAGINATION_BATCH_SIZE);
                         }
                     }
                     generator.writeEndArray();
@@ -358,6 +383,11 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                        .build();
     }
 
+    // In keyset mode, the offset is a record_id cursor and the count queries are skipped unless explicitly requested
+    protected PaginationOptions toPaginationOptions(final Boolean keyset, @Nullable final Boolean withTotals) {
+        return new PaginationOptions(keyset, withTotals == null ? !keyset : withTotals);
+    }
+
     protected void validatePaymentMethodForAccount(final UUID accountId, final UUID paymentMethodId, final CallContext callContext) throws PaymentApiException {
         if (paymentMethodId != null) {
             final PaymentMethod paymentMethod = paymentApi.getPaymentMethodById(paymentMethodId, false, false, ImmutableList.<PluginProperty>of(), callContext);
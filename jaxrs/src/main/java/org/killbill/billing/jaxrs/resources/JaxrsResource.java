@@ -87,6 +87,8 @@ public interface JaxrsResource {
     public static final String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     public static final String QUERY_SEARCH_OFFSET = "offset";
     public static final String QUERY_SEARCH_LIMIT = "limit";
+    public static final String QUERY_PAGINATION_KEYSET = "keyset";
+    public static final String QUERY_PAGINATION_WITH_TOTALS = "withTotals";
     public static final String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     public static final String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -108,6 +110,7 @@ public interface JaxrsResource {
     public static final String QUERY_WITH_MIGRATION_INVOICES = "withMigrationInvoices";
     public static final String QUERY_UNPAID_INVOICES_ONLY = "unpaidInvoicesOnly";
     public static final String QUERY_INVOICE_WITH_CHILDREN_ITEMS = "withChildrenItems";
+    public static final String QUERY_INVOICE_ID = "invoiceId";
 
     public static final String QUERY_PAYMENT_EXTERNAL = "externalPayment";
     public static final String QUERY_PAYMENT_AMOUNT = "paymentAmount";
@@ -239,6 +242,7 @@ public interface JaxrsResource {
 
     public static final String USAGES = "usages";
     public static final String USAGES_PATH = PREFIX + "/" + USAGES;
+    public static final String BULK = "bulk";
 
     public static final String EXPORT = "export";
     public static final String EXPORT_PATH = PREFIX + "/" + EXPORT;
@@ -287,6 +291,10 @@ public interface JaxrsResource {
 
     public static final String CACHE = "cache";
     public static final String HEALTHCHECK = "healthcheck";
+    public static final String LATENCIES = "latencies";
+    public static final String QUERY_PROFILING_FEATURE_TYPE = "profilingFeatureType";
+    public static final String BALANCE_LEDGER = "balanceLedger";
+    public static final String QUERY_REPAIR = "repair";
 
     public static final String QUERY_INCLUDED_DELETED = "includedDeleted";
 
@@ -19,11 +19,13 @@ package org.killbill.billing.jaxrs.resources;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -47,6 +49,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.audit.AuditBulkUserApi;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.jaxrs.json.ComboPaymentTransactionJson;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
@@ -58,6 +61,7 @@ import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PaymentBulkUserApi;
 import org.killbill.billing.payment.api.PaymentOptions;
 import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
@@ -73,11 +77,13 @@ import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.MetricTag;
 import org.killbill.commons.metrics.TimedResource;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -95,6 +101,9 @@ public class PaymentResource extends ComboPaymentResource {
 
     private static final String ID_PARAM_NAME = "paymentId";
 
+    private final AuditBulkUserApi auditBulkUserApi;
+    private final PaymentBulkUserApi paymentBulkUserApi;
+
     @Inject
     public PaymentResource(final JaxrsUriBuilder uriBuilder,
                            final TagUserApi tagUserApi,
@@ -102,9 +111,13 @@ public class PaymentResource extends ComboPaymentResource {
                            final AuditUserApi auditUserApi,
                            final AccountUserApi accountUserApi,
                            final PaymentApi paymentApi,
+                           final AuditBulkUserApi auditBulkUserApi,
+                           final PaymentBulkUserApi paymentBulkUserApi,
                            final Clock clock,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
+        this.auditBulkUserApi = auditBulkUserApi;
+        this.paymentBulkUserApi = paymentBulkUserApi;
     }
 
     @TimedResource(name = "getPayment")
@@ -162,35 +175,31 @@ public class PaymentResource extends ComboPaymentResource {
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @QueryParam(QUERY_WITH_PLUGIN_INFO) @DefaultValue("false") final Boolean withPluginInfo,
                                 @QueryParam(QUERY_WITH_ATTEMPTS) @DefaultValue("false") final Boolean withAttempts,
+                                @QueryParam(QUERY_PAGINATION_KEYSET) @DefaultValue("false") final Boolean keyset,
+                                @QueryParam(QUERY_PAGINATION_WITH_TOTALS) final Boolean withTotals,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws PaymentApiException {
+        // Keyset pagination is only supported when listing all payments
+        Preconditions.checkArgument(!keyset || Strings.isNullOrEmpty(pluginName), "Keyset pagination isn't supported when filtering by pluginName");
+
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createContext(request);
 
+        final PaginationOptions paginationOptions = toPaginationOptions(keyset, withTotals);
         final Pagination<Payment> payments;
         if (Strings.isNullOrEmpty(pluginName)) {
-            payments = paymentApi.getPayments(offset, limit, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+            payments = paymentBulkUserApi.getPayments(offset, limit, withPluginInfo, withAttempts, paginationOptions, pluginProperties, tenantContext);
         } else {
-            payments = paymentApi.getPayments(offset, limit, pluginName, withPluginInfo, withAttempts, pluginProperties, tenantContext);
+            payments = paymentBulkUserApi.getPayments(offset, limit, pluginName, withPluginInfo, withAttempts, paginationOptions, pluginProperties, tenantContext);
         }
 
         final URI nextPageUri = uriBuilder.nextPage(PaymentResource.class, "getPayments", payments.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_PAYMENT_METHOD_PLUGIN_NAME, Strings.nullToEmpty(pluginName),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
-        final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
-
-        return buildStreamingPaginationResponse(payments,
-                                                new Function<Payment, PaymentJson>() {
-                                                    @Override
-                                                    public PaymentJson apply(final Payment payment) {
-                                                        // Cache audit logs per account
-                                                        if (accountsAuditLogs.get().get(payment.getAccountId()) == null) {
-                                                            accountsAuditLogs.get().put(payment.getAccountId(), auditUserApi.getAccountAuditLogs(payment.getAccountId(), auditMode.getLevel(), tenantContext));
-                                                        }
-                                                        final AccountAuditLogs accountAuditLogs = accountsAuditLogs.get().get(payment.getAccountId());
-                                                        return new PaymentJson(payment, accountAuditLogs);
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString(),
+                                                                                                                                                           QUERY_PAGINATION_KEYSET, String.valueOf(paginationOptions.isKeyset()),
+                                                                                                                                                           QUERY_PAGINATION_WITH_TOTALS, String.valueOf(paginationOptions.isWithTotals())));
+
+        return buildStreamingPaginationResponseInBatches(payments,
+                                                         toPaymentsJson(auditMode, tenantContext),
+                                                         nextPageUri);
     }
 
     @TimedResource
@@ -222,22 +231,35 @@ public class PaymentResource extends ComboPaymentResource {
         final URI nextPageUri = uriBuilder.nextPage(PaymentResource.class, "searchPayments", payments.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                               QUERY_PAYMENT_METHOD_PLUGIN_NAME, Strings.nullToEmpty(pluginName),
                                                                                                                                                               QUERY_AUDIT, auditMode.getLevel().toString()));
-        final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
-
-        return buildStreamingPaginationResponse(payments,
-                                                new Function<Payment, PaymentJson>() {
-                                                    @Override
-                                                    public PaymentJson apply(final Payment payment) {
-                                                        // Cache audit logs per account
-                                                        if (accountsAuditLogs.get().get(payment.getAccountId()) == null) {
-                                                            accountsAuditLogs.get().put(payment.getAccountId(), auditUserApi.getAccountAuditLogs(payment.getAccountId(), auditMode.getLevel(), tenantContext));
-                                                        }
-                                                        final AccountAuditLogs accountAuditLogs = accountsAuditLogs.get().get(payment.getAccountId());
-                                                        return new PaymentJson(payment, accountAuditLogs);
-                                                    }
-                                                },
-                                                nextPageUri
-                                               );
+
+        return buildStreamingPaginationResponseInBatches(payments,
+                                                         toPaymentsJson(auditMode, tenantContext),
+                                                         nextPageUri);
+    }
+
+    // Audit logs are cached per account, the missing ones being retrieved for the whole batch of payments at once
+    private Function<List<Payment>, List<PaymentJson>> toPaymentsJson(final AuditMode auditMode, final TenantContext tenantContext) {
+        final Map<UUID, AccountAuditLogs> accountsAuditLogs = new HashMap<UUID, AccountAuditLogs>();
+        return new Function<List<Payment>, List<PaymentJson>>() {
+            @Override
+            public List<PaymentJson> apply(final List<Payment> payments) {
+                final Set<UUID> accountIdsToLoad = new HashSet<UUID>();
+                for (final Payment payment : payments) {
+                    if (accountsAuditLogs.get(payment.getAccountId()) == null) {
+                        accountIdsToLoad.add(payment.getAccountId());
+                    }
+                }
+                if (!accountIdsToLoad.isEmpty()) {
+                    accountsAuditLogs.putAll(auditBulkUserApi.getAccountsAuditLogs(accountIdsToLoad, auditMode.getLevel(), tenantContext));
+                }
+
+                final List<PaymentJson> result = new ArrayList<PaymentJson>(payments.size());
+                for (final Payment payment : payments) {
+                    result.add(new PaymentJson(payment, accountsAuditLogs.get(payment.getAccountId())));
+                }
+                return result;
+            }
+        };
     }
 
     @TimedResource(name = "completeTransaction")
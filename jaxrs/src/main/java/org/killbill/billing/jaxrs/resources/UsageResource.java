@@ -16,6 +16,9 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -47,6 +50,7 @@ import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UsageRecordJs
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.usage.UsageBulkUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
 import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
@@ -59,6 +63,8 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -75,7 +81,11 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.USAGES_PATH, description = "Operations on usage")
 public class UsageResource extends JaxRsResourceBase {
 
+    // Bulk uploads are recorded in one transaction: bound the number of subscription usage records held in memory
+    private static final int MAX_BULK_USAGE_RECORDS = 10000;
+
     private final UsageUserApi usageUserApi;
+    private final UsageBulkUserApi usageBulkUserApi;
     private final EntitlementApi entitlementApi;
 
     @Inject
@@ -85,12 +95,14 @@ public class UsageResource extends JaxRsResourceBase {
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
                          final UsageUserApi usageUserApi,
+                         final UsageBulkUserApi usageBulkUserApi,
                          final PaymentApi paymentApi,
                          final EntitlementApi entitlementApi,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, null, clock, context);
         this.usageUserApi = usageUserApi;
+        this.usageBulkUserApi = usageBulkUserApi;
         this.entitlementApi = entitlementApi;
     }
 
@@ -108,19 +120,7 @@ public class UsageResource extends JaxRsResourceBase {
                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException,
                                                                                         AccountApiException,
                                                                                         UsageApiException {
-        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
-        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
-                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
-        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty());
-        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
-            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
-            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
-                                        "UnitUsageRecordJson usageRecords must have at least one element.");
-            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
-                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
-                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
-            }
-        }
+        verifySubscriptionUsageRecordJson(json);
         final CallContext callContext = context.createContext(createdBy, reason, comment, request);
         // Verify subscription exists..
         final Entitlement entitlement = entitlementApi.getEntitlementForId(UUID.fromString(json.getSubscriptionId()), callContext);
@@ -133,6 +133,53 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.CREATED).build();
     }
 
+    @TimedResource
+    @POST
+    @Path("/" + BULK)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Record usage for many subscriptions",
+                  notes = "All the records are recorded atomically: a trackingId already recorded for the subscription (USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS) " +
+                          "or any other failure leaves none of them recorded. At most " + MAX_BULK_USAGE_RECORDS + " records per request")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid usage records, or too many records")})
+    public Response recordBulkUsage(final InputStream body,
+                                    @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                    @HeaderParam(HDR_REASON) final String reason,
+                                    @HeaderParam(HDR_COMMENT) final String comment,
+                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws UsageApiException,
+                                                                                                       IOException {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+
+        // The body is a JSON array of SubscriptionUsageRecordJson: stream it instead of binding the whole payload
+        final JsonParser parser = mapper.getFactory().createParser(body);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+
+            final List<SubscriptionUsageRecord> records = new ArrayList<SubscriptionUsageRecord>();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Preconditions.checkArgument(records.size() < MAX_BULK_USAGE_RECORDS, "At most %s usage records can be recorded per request", MAX_BULK_USAGE_RECORDS);
+                final SubscriptionUsageRecordJson json = mapper.readValue(parser, SubscriptionUsageRecordJson.class);
+                verifySubscriptionUsageRecordJson(json);
+                records.add(json.toSubscriptionUsageRecord());
+            }
+            // Anything but the end of the array, followed by the end of the payload, is invalid (nothing is recorded)
+            if (token != JsonToken.END_ARRAY || parser.nextToken() != null) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+
+            if (!records.isEmpty()) {
+                usageBulkUserApi.recordRolledUpUsage(records, callContext);
+            }
+        } finally {
+            parser.close();
+        }
+
+        return Response.status(Status.CREATED).build();
+    }
+
     @TimedResource
     @GET
     @Path("/{subscriptionId:" + UUID_PATTERN + "}/{unitType}")
@@ -183,5 +230,19 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.OK).entity(result).build();
     }
 
+    private void verifySubscriptionUsageRecordJson(final SubscriptionUsageRecordJson json) {
+        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
+        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
+                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
+        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty());
+        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
+            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
+            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
+                                        "UnitUsageRecordJson usageRecords must have at least one element.");
+            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
+                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
+                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
+            }
+        }
+    }
 }
-
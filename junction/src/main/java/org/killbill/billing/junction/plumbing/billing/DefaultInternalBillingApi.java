@@ -18,6 +18,7 @@
 
 package org.killbill.billing.junction.plumbing.billing;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -62,7 +63,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 
 public class DefaultInternalBillingApi implements BillingInternalApi {
@@ -114,14 +121,24 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             return result;
         }
 
-        // Pretty-print the events, before and after the blocking calculator does its magic
-        final StringBuilder logStringBuilder = new StringBuilder("Computed billing events for accountId='").append(accountId).append("'");
-        eventsToString(logStringBuilder, result);
-        if (blockCalculator.insertBlockingEvents(result, skippedSubscriptions, context)) {
-            logStringBuilder.append("\nBilling Events After Blocking");
+        // Pretty-print the events, before and after the blocking calculator does its magic (this can be large, so only in DEBUG)
+        final StringBuilder logStringBuilder = log.isDebugEnabled() ? new StringBuilder("Computed billing events for accountId='").append(accountId).append("'") : null;
+        if (logStringBuilder != null) {
             eventsToString(logStringBuilder, result);
         }
-        log.info(logStringBuilder.toString());
+
+        final int nbBillingEvents = result.size();
+        final boolean insertedBlockingEvents = blockCalculator.insertBlockingEvents(result, skippedSubscriptions, context);
+        if (logStringBuilder != null) {
+            if (insertedBlockingEvents) {
+                logStringBuilder.append("\nBilling Events After Blocking");
+                eventsToString(logStringBuilder, result);
+            }
+            log.debug(logStringBuilder.toString());
+        }
+
+        log.info("Computed billing events for accountId='{}': nbBillingEvents='{}', nbBillingEventsAfterBlocking='{}', nbSkippedSubscriptions='{}', nbAutoInvoiceOffSubscriptions='{}'",
+                 accountId, nbBillingEvents, result.size(), skippedSubscriptions.size(), result.getSubscriptionIdsWithAutoInvoiceOff().size());
 
         return result;
     }
@@ -137,6 +154,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
 
         final boolean dryRunMode = dryRunArguments != null;
 
+        int currentAccountBCD = accountApi.getBCD(account.getId(), context);
+
         // In dryRun mode, when we care about invoice generated for new BASE subscription, no such bundle exists yet; we still
         // want to tap into subscriptionBase logic, so we make up a bundleId
         if (dryRunArguments != null &&
@@ -145,46 +164,61 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             final UUID fakeBundleId = UUIDs.randomUUID();
             final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(fakeBundleId, dryRunArguments, context);
 
-            addBillingEventsForSubscription(account, subscriptions, null, dryRunMode, context, result, skipSubscriptionsSet);
-
+            currentAccountBCD = addBillingEventsForSubscription(account, subscriptions, null, currentAccountBCD, dryRunMode, context, result, skipSubscriptionsSet);
         }
 
+        // Retrieve all subscriptions (along with their events) and all bundle tags for the account at once, instead of querying them bundle per bundle
+        final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = bundles.isEmpty() ? ImmutableMap.<UUID, List<SubscriptionBase>>of() : subscriptionApi.getSubscriptionsForAccount(context);
+        final Multimap<UUID, Tag> bundleTags = bundles.isEmpty() ? ImmutableMultimap.<UUID, Tag>of() : getBundleTags(context);
+
         for (final SubscriptionBaseBundle bundle : bundles) {
             final DryRunArguments dryRunArgumentsForBundle = (dryRunArguments != null &&
                                                               dryRunArguments.getBundleId() != null &&
                                                               dryRunArguments.getBundleId().equals(bundle.getId())) ?
                                                              dryRunArguments : null;
-            final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context);
+            // The dryRun events need to be merged by subscriptionBase for that specific bundle
+            final List<SubscriptionBase> subscriptions = dryRunArgumentsForBundle != null ?
+                                                         subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context) :
+                                                         MoreObjects.firstNonNull(subscriptionsForAccount.get(bundle.getId()), ImmutableList.<SubscriptionBase>of());
 
             //Check if billing is off for the bundle
-            final List<Tag> bundleTags = tagApi.getTags(bundle.getId(), ObjectType.BUNDLE, context);
-            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags);
+            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags.get(bundle.getId()));
             if (found_AUTO_INVOICING_OFF) {
                 for (final SubscriptionBase subscription : subscriptions) { // billing is off so list sub ids in set to be excluded
                     result.getSubscriptionIdsWithAutoInvoiceOff().add(subscription.getId());
                 }
             } else { // billing is not off
                 final SubscriptionBase baseSubscription = !subscriptions.isEmpty() ? subscriptions.get(0) : null;
-                addBillingEventsForSubscription(account, subscriptions, baseSubscription, dryRunMode, context, result, skipSubscriptionsSet);
+                currentAccountBCD = addBillingEventsForSubscription(account, subscriptions, baseSubscription, currentAccountBCD, dryRunMode, context, result, skipSubscriptionsSet);
             }
         }
     }
 
+    private Multimap<UUID, Tag> getBundleTags(final InternalTenantContext context) {
+        final Multimap<UUID, Tag> bundleTags = ArrayListMultimap.<UUID, Tag>create();
+        for (final Tag tag : tagApi.getTagsForAccountType(ObjectType.BUNDLE, false, context)) {
+            bundleTags.put(tag.getObjectId(), tag);
+        }
+        return bundleTags;
+    }
 
-    private void addBillingEventsForSubscription(final ImmutableAccountData account,
-                                                 final List<SubscriptionBase> subscriptions,
-                                                 final SubscriptionBase baseSubscription,
-                                                 final boolean dryRunMode,
-                                                 final InternalCallContext context,
-                                                 final DefaultBillingEventSet result,
-                                                 final Set<UUID> skipSubscriptionsSet) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+    // Returns the (possibly updated) account BCD
+    private int addBillingEventsForSubscription(final ImmutableAccountData account,
+                                                final List<SubscriptionBase> subscriptions,
+                                                final SubscriptionBase baseSubscription,
+                                                final int accountBCD,
+                                                final boolean dryRunMode,
+                                                final InternalCallContext context,
+                                                final DefaultBillingEventSet result,
+                                                final Set<UUID> skipSubscriptionsSet) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
 
         // If dryRun is specified, we don't want to to update the account BCD value, so we initialize the flag updatedAccountBCD to true
         boolean updatedAccountBCD = dryRunMode;
 
         final Map<UUID, Integer> bcdCache = new HashMap<UUID, Integer>();
 
-        int currentAccountBCD = accountApi.getBCD(account.getId(), context);
+        final int currentAccountBCD = accountBCD;
+        Integer updatedAccountBCDValue = null;
 
         for (final SubscriptionBase subscription : subscriptions) {
 
@@ -195,7 +229,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                  billingTransitions.get(0).getTransitionType() != SubscriptionBaseTransitionType.TRANSFER)) {
                 log.warn("Skipping billing events for subscription " + subscription.getId() + ": Does not start with a valid CREATE transition");
                 skipSubscriptionsSet.add(subscription.getId());
-                return;
+                return updatedAccountBCDValue != null ? updatedAccountBCDValue : currentAccountBCD;
             }
 
             final Catalog catalog = catalogService.getFullCatalog(true, true, context);
@@ -216,12 +250,14 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                     log.info("Setting account BCD='{}', accountId='{}'", bcdLocal, account.getId());
                     accountApi.updateBCD(account.getExternalKey(), bcdLocal, context);
                     updatedAccountBCD = true;
+                    updatedAccountBCDValue = bcdLocal;
                 }
 
                 final BillingEvent event = new DefaultBillingEvent(transition, subscription, bcdLocal, account.getCurrency(), catalog);
                 result.add(event);
             }
         }
+        return updatedAccountBCDValue != null ? updatedAccountBCDValue : currentAccountBCD;
     }
 
     private int calculateBcdForTransition(final Catalog catalog, final Map<UUID, Integer> bcdCache, final SubscriptionBase baseSubscription, final SubscriptionBase subscription, final int accountBillCycleDayLocal, final EffectiveSubscriptionInternalEvent transition, final InternalTenantContext internalTenantContext)
@@ -244,7 +280,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
 
     }
 
-    private boolean is_AUTO_INVOICING_OFF(final List<Tag> tags) {
+    private boolean is_AUTO_INVOICING_OFF(final Collection<Tag> tags) {
         return ControlTagType.isAutoInvoicingOff(Collections2.transform(tags, new Function<Tag, UUID>() {
             @Nullable
             @Override
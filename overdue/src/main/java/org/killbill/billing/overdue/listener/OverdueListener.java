@@ -23,6 +23,7 @@ import java.util.UUID;
 
 import javax.inject.Named;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountInternalApi;
@@ -34,6 +35,7 @@ import org.killbill.billing.events.InvoiceAdjustmentInternalEvent;
 import org.killbill.billing.events.InvoiceCreationInternalEvent;
 import org.killbill.billing.events.InvoicePaymentErrorInternalEvent;
 import org.killbill.billing.events.InvoicePaymentInfoInternalEvent;
+import org.killbill.billing.overdue.OverdueProperties;
 import org.killbill.billing.overdue.api.OverdueApiException;
 import org.killbill.billing.overdue.api.OverdueConfig;
 import org.killbill.billing.overdue.caching.OverdueConfigCache;
@@ -72,6 +74,7 @@ public class OverdueListener {
     private final OverdueConfigCache overdueConfigCache;
     private final NonEntityDao nonEntityDao;
     private final AccountInternalApi accountApi;
+    private final OverdueProperties overdueProperties;
 
     @Inject
     public OverdueListener(final NonEntityDao nonEntityDao,
@@ -80,7 +83,8 @@ public class OverdueListener {
                            @Named(DefaultOverdueModule.OVERDUE_NOTIFIER_ASYNC_BUS_NAMED)  final OverduePoster asyncPoster,
                            final OverdueConfigCache overdueConfigCache,
                            final InternalCallContextFactory internalCallContextFactory,
-                           final AccountInternalApi accountApi) {
+                           final AccountInternalApi accountApi,
+                           final OverdueProperties overdueProperties) {
         this.nonEntityDao = nonEntityDao;
         this.clock = clock;
         this.asyncPoster = asyncPoster;
@@ -88,6 +92,7 @@ public class OverdueListener {
         this.objectIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
         this.internalCallContextFactory = internalCallContextFactory;
         this.accountApi = accountApi;
+        this.overdueProperties = overdueProperties;
     }
 
     @AllowConcurrentEvents
@@ -154,8 +159,9 @@ public class OverdueListener {
         final boolean shouldInsertNotification = shouldInsertNotification(callContext);
 
         if (shouldInsertNotification) {
+            final DateTime notificationTime = getNotificationTime(action);
             OverdueAsyncBusNotificationKey notificationKey = new OverdueAsyncBusNotificationKey(accountId, action);
-            asyncPoster.insertOverdueNotification(accountId, clock.getUTCNow(), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, callContext);
+            asyncPoster.insertOverdueNotification(accountId, notificationTime, OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, callContext);
 
             try {
                 final List<Account> childrenAccounts = accountApi.getChildrenAccounts(accountId, callContext);
@@ -166,7 +172,7 @@ public class OverdueListener {
                             final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(childAccount.getId(), callContext);
                             final InternalCallContext accountContext = internalCallContextFactory.createInternalCallContext(internalTenantContext.getAccountRecordId(), callContext);
                             notificationKey = new OverdueAsyncBusNotificationKey(childAccount.getId(), action);
-                            asyncPoster.insertOverdueNotification(childAccount.getId(), clock.getUTCNow(), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, accountContext);
+                            asyncPoster.insertOverdueNotification(childAccount.getId(), notificationTime, OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, accountContext);
                         }
                     }
                 }
@@ -177,6 +183,17 @@ public class OverdueListener {
         }
     }
 
+    // A REFRESH is delayed by the coalescing window, so that the events received in the meantime (e.g. during a payment run)
+    // find it pending and don't queue another one (see OverdueAsyncBusPoster). A CLEAR is never delayed.
+    private DateTime getNotificationTime(final OverdueAsyncBusNotificationAction action) {
+        final DateTime now = clock.getUTCNow();
+        if (action == OverdueAsyncBusNotificationAction.REFRESH) {
+            return now.plus(overdueProperties.getRefreshCoalescingWindow().getMillis());
+        } else {
+            return now;
+        }
+    }
+
     // Optimization: don't bother running the Overdue machinery if it's disabled
     private boolean shouldInsertNotification(final InternalTenantContext internalTenantContext) {
         OverdueConfig overdueConfig;
@@ -30,6 +30,7 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
@@ -50,9 +51,10 @@ public abstract class DefaultOverduePosterBase implements OverduePoster {
 
     public DefaultOverduePosterBase(final NotificationQueueService notificationQueueService,
                                     final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                                    final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
+                                    final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                    final LatencyHistograms latencyHistograms) {
         this.notificationQueueService = notificationQueueService;
-        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
     }
 
     @Override
@@ -69,7 +71,7 @@ public abstract class DefaultOverduePosterBase implements OverduePoster {
                     final Iterable<NotificationEventWithMetadata<T>> futureNotifications = getFutureNotificationsForAccountInTransaction(entitySqlDaoWrapperFactory, overdueQueue,
                                                                                                                                          clazz, context);
 
-                    final boolean shouldInsertNewNotification = cleanupFutureNotificationsFormTransaction(entitySqlDaoWrapperFactory, futureNotifications, futureNotificationTime, overdueQueue);
+                    final boolean shouldInsertNewNotification = cleanupFutureNotificationsFormTransaction(entitySqlDaoWrapperFactory, futureNotifications, futureNotificationTime, notificationKey, overdueQueue);
                     if (shouldInsertNewNotification) {
                         log.debug("Queuing overdue check notification. Account id: {}, timestamp: {}", accountId.toString(), futureNotificationTime.toString());
                         overdueQueue.recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), futureNotificationTime, notificationKey, context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
@@ -124,6 +126,7 @@ public abstract class DefaultOverduePosterBase implements OverduePoster {
 
     protected abstract <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                                  final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
-                                                                                                                 final DateTime futureNotificationTime, final NotificationQueue overdueQueue);
+                                                                                                                 final DateTime futureNotificationTime, final T notificationKey,
+                                                                                                                 final NotificationQueue overdueQueue);
 
 }
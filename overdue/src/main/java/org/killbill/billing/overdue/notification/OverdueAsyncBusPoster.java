@@ -18,38 +18,58 @@
 
 package org.killbill.billing.overdue.notification;
 
+import java.util.Iterator;
+
 import org.joda.time.DateTime;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.skife.jdbi.v2.IDBI;
 
-import com.google.common.collect.Iterables;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public class OverdueAsyncBusPoster extends DefaultOverduePosterBase {
 
+    private final Counter coalescedCounter;
+
     @Inject
     public OverdueAsyncBusPoster(final NotificationQueueService notificationQueueService,
                                  final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                                 final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
-        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+                                 final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                 final LatencyHistograms latencyHistograms, final MetricRegistry metricRegistry) {
+        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
+        this.coalescedCounter = metricRegistry.counter(MetricRegistry.name(OverdueAsyncBusPoster.class, "coalesced"));
     }
 
     @Override
     protected <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                         final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
                                                                                                         final DateTime futureNotificationTime,
+                                                                                                        final T notificationKey,
                                                                                                         final NotificationQueue overdueQueue) {
-        // If we already have notification for that account we don't insert the new one
-        // Note that this is slightly incorrect because we could for instance already have a REFRESH and insert a CLEAR, but if that were the case,
-        // if means overdue state would change very rapidly and the behavior would anyway be non deterministic
-        // Note: don't use isEmpty() to go through all results to close the connection
-        return Iterables.<NotificationEventWithMetadata<T>>size(futureNotifications) == 0;
+        // If we already have a pending notification with the same action for that account, we don't insert the new one: it will
+        // see the changes which triggered this one (see OverdueProperties#getRefreshCoalescingWindow). A pending REFRESH doesn't
+        // swallow a CLEAR (and vice versa), notifications are processed in order.
+        boolean shouldInsertNewNotification = true;
+        final Iterator<NotificationEventWithMetadata<T>> iterator = futureNotifications.iterator();
+        // Go through all results to close the connection
+        while (iterator.hasNext()) {
+            if (notificationKey.equals(iterator.next().getEvent())) {
+                shouldInsertNewNotification = false;
+            }
+        }
+
+        if (!shouldInsertNewNotification) {
+            coalescedCounter.inc();
+        }
+        return shouldInsertNewNotification;
     }
 }
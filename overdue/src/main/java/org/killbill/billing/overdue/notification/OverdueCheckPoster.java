@@ -25,6 +25,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
@@ -38,14 +39,16 @@ public class OverdueCheckPoster extends DefaultOverduePosterBase {
     @Inject
     public OverdueCheckPoster(final NotificationQueueService notificationQueueService,
                               final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                              final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
-        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+                              final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                              final LatencyHistograms latencyHistograms) {
+        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
     }
 
     @Override
     protected <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                         final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
-                                                                                                        final DateTime futureNotificationTime, final NotificationQueue overdueQueue) {
+                                                                                                        final DateTime futureNotificationTime, final T notificationKey,
+                                                                                                        final NotificationQueue overdueQueue) {
 
         boolean shouldInsertNewNotification = true;
         int minIndexToDeleteFrom = 0;
@@ -39,6 +39,7 @@ import org.killbill.billing.overdue.wrapper.OverdueWrapperFactory;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.testng.annotations.AfterMethod;
@@ -99,6 +100,8 @@ public abstract class OverdueTestSuiteWithEmbeddedDB extends GuicyKillbillTestSu
     protected TestOverdueHelper testOverdueHelper;
     @Inject
     protected OverdueConfigCache overdueConfigCache;
+    @Inject
+    protected LatencyHistograms latencyHistograms;
 
     @BeforeClass(groups = "slow")
     protected void beforeClass() throws Exception {
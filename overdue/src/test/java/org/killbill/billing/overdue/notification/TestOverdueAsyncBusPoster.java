@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.notification;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.overdue.OverdueTestSuiteWithEmbeddedDB;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
+import org.killbill.billing.overdue.service.DefaultOverdueService;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+public class TestOverdueAsyncBusPoster extends OverdueTestSuiteWithEmbeddedDB {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private OverdueAsyncBusPoster poster;
+    private EntitySqlDaoTransactionalJdbiWrapper entitySqlDaoTransactionalJdbiWrapper;
+    private NotificationQueue overdueQueue;
+
+    @Override
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        poster = new OverdueAsyncBusPoster(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms, metricRegistry);
+        entitySqlDaoTransactionalJdbiWrapper = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
+
+        overdueQueue = notificationQueueService.getNotificationQueue(DefaultOverdueService.OVERDUE_SERVICE_NAME,
+                                                                     OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE);
+        Assert.assertTrue(overdueQueue.isStarted());
+    }
+
+    @Test(groups = "slow")
+    public void testCoalescePendingNotifications() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        // Far enough in the future not to be processed during the test
+        final DateTime notificationTime = clock.getUTCNow().plusDays(1);
+        final Counter coalescedCounter = metricRegistry.counter(MetricRegistry.name(OverdueAsyncBusPoster.class, "coalesced"));
+        final long initialCoalescedCount = coalescedCounter.getCount();
+
+        final OverdueAsyncBusNotificationKey refreshKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH);
+        for (int i = 0; i < 3; i++) {
+            poster.insertOverdueNotification(accountId, notificationTime.plusMinutes(i), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, refreshKey, internalCallContext);
+        }
+
+        List<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> notifications = getNotificationsForAccount();
+        Assert.assertEquals(notifications.size(), 1);
+        Assert.assertEquals(notifications.get(0).getEvent(), refreshKey);
+        // The first notification is kept
+        Assert.assertEquals(notifications.get(0).getEffectiveDate().compareTo(notificationTime), 0);
+        Assert.assertEquals(coalescedCounter.getCount(), initialCoalescedCount + 2);
+
+        // A pending REFRESH doesn't swallow a CLEAR
+        final OverdueAsyncBusNotificationKey clearKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.CLEAR);
+        poster.insertOverdueNotification(accountId, notificationTime, OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, clearKey, internalCallContext);
+
+        notifications = getNotificationsForAccount();
+        Assert.assertEquals(notifications.size(), 2);
+        Assert.assertEquals(coalescedCounter.getCount(), initialCoalescedCount + 2);
+    }
+
+    private List<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> getNotificationsForAccount() {
+        return entitySqlDaoTransactionalJdbiWrapper.execute(new EntitySqlDaoTransactionWrapper<List<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>>>() {
+            @Override
+            public List<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                // This will go through all results to close the connection
+                return ImmutableList.<NotificationEventWithMetadata<OverdueAsyncBusNotificationKey>>copyOf(poster.getFutureNotificationsForAccountInTransaction(entitySqlDaoWrapperFactory, overdueQueue, OverdueAsyncBusNotificationKey.class, internalCallContext));
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.api;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.payment.core.PaymentProcessor;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
+
+import com.google.common.base.Preconditions;
+
+public class DefaultPaymentBulkUserApi implements PaymentBulkUserApi {
+
+    private final PaymentProcessor paymentProcessor;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultPaymentBulkUserApi(final PaymentProcessor paymentProcessor, final InternalCallContextFactory internalCallContextFactory) {
+        this.paymentProcessor = paymentProcessor;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public Pagination<Payment> getPayments(final Long offset, final Long limit, final boolean withPluginInfo, final boolean withAttempts, final PaginationOptions paginationOptions, final Iterable<PluginProperty> properties, final TenantContext context) {
+        return paymentProcessor.getPayments(offset, limit, withPluginInfo, withAttempts, paginationOptions, properties, context, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context));
+    }
+
+    @Override
+    public Pagination<Payment> getPayments(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final boolean withAttempts, final PaginationOptions paginationOptions, final Iterable<PluginProperty> properties, final TenantContext tenantContext) throws PaymentApiException {
+        // The payments of a plugin are looked up by plugin name, not walked through the record_id index
+        Preconditions.checkArgument(!paginationOptions.isKeyset(), "Keyset pagination isn't supported when filtering by pluginName");
+        return paymentProcessor.getPayments(offset, limit, pluginName, withPluginInfo, withAttempts, paginationOptions, properties, tenantContext, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext));
+    }
+}
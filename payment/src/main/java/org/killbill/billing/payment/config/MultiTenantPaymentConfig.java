@@ -144,6 +144,21 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getJanitorRunningRate();
     }
 
+    @Override
+    public int getJanitorThreadNb() {
+        return staticConfig.getJanitorThreadNb();
+    }
+
+    @Override
+    public int getJanitorShardNb() {
+        return staticConfig.getJanitorShardNb();
+    }
+
+    @Override
+    public int getJanitorShardIndex() {
+        return staticConfig.getJanitorShardIndex();
+    }
+
     @Override
     public TimeSpan getIncompleteAttemptsTimeSpanDelay() {
         return staticConfig.getIncompleteAttemptsTimeSpanDelay();
@@ -164,6 +179,26 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public int getPaymentPluginThreadNbPerPlugin() {
+        return staticConfig.getPaymentPluginThreadNbPerPlugin();
+    }
+
+    @Override
+    public int getPaymentPluginQueueSizePerPlugin() {
+        return staticConfig.getPaymentPluginQueueSizePerPlugin();
+    }
+
+    @Override
+    public int getPaymentPluginInfoParallelism() {
+        return staticConfig.getPaymentPluginInfoParallelism();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginInfoTimeout() {
+        return staticConfig.getPaymentPluginInfoTimeout();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -17,19 +17,32 @@
 
 package org.killbill.billing.payment.core;
 
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
 public class PaymentExecutors {
 
     private static final long TIMEOUT_EXECUTOR_SEC = 3L;
@@ -43,42 +56,91 @@ public class PaymentExecutors {
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
     private final PaymentConfig paymentConfig;
+    private final MetricRegistry metricRegistry;
+
+    // Bulkheads: one bounded pool per plugin (or per list of control plugins), lazily created
+    private final ConcurrentMap<String, ThreadPoolExecutor> perPluginExecutorServices = new ConcurrentHashMap<String, ThreadPoolExecutor>();
 
     private volatile ThreadPoolExecutor pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
+    private volatile ExecutorService janitorWorkerExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(final PaymentConfig paymentConfig, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.metricRegistry = metricRegistry;
     }
 
     public void initialize() {
         this.pluginExecutorService = createPluginExecutorService();
         this.pluginExecutorService.prestartAllCoreThreads();
         this.janitorExecutorService = createJanitorExecutorService();
+        this.janitorWorkerExecutorService = createJanitorWorkerExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        janitorWorkerExecutorService.shutdownNow();
+        for (final ThreadPoolExecutor perPluginExecutorService : perPluginExecutorServices.values()) {
+            perPluginExecutorService.shutdownNow();
+        }
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
+        for (final Map.Entry<String, ThreadPoolExecutor> entry : perPluginExecutorServices.entrySet()) {
+            entry.getValue().awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+            metricRegistry.remove(getPluginMetricName(entry.getKey(), "queueSize"));
+            metricRegistry.remove(getPluginMetricName(entry.getKey(), "activeThreads"));
+            metricRegistry.remove(getPluginMetricName(entry.getKey(), "rejected"));
+        }
+        perPluginExecutorServices.clear();
+
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
+
+        janitorWorkerExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        janitorWorkerExecutorService = null;
     }
 
     public ExecutorService getPluginExecutorService() {
         return pluginExecutorService;
     }
 
+    // Returns the executor dedicated to pluginName (fails fast with a RejectedExecutionException when saturated),
+    // or the shared plugin executor when org.killbill.payment.plugin.threads.perPlugin.nb isn't set
+    public ExecutorService getPluginExecutorService(@Nullable final String pluginName) {
+        if (pluginName == null || paymentConfig.getPaymentPluginThreadNbPerPlugin() <= 0) {
+            return pluginExecutorService;
+        }
+
+        final ThreadPoolExecutor existingExecutorService = perPluginExecutorServices.get(pluginName);
+        if (existingExecutorService != null) {
+            return existingExecutorService;
+        }
+
+        final ThreadPoolExecutor newExecutorService = createPerPluginExecutorService(pluginName);
+        final ThreadPoolExecutor previousExecutorService = perPluginExecutorServices.putIfAbsent(pluginName, newExecutorService);
+        if (previousExecutorService != null) {
+            // Lost the race, no thread has been started yet
+            newExecutorService.shutdown();
+            return previousExecutorService;
+        }
+
+        registerPerPluginGauges(pluginName, newExecutorService);
+        return newExecutorService;
+    }
+
     public ScheduledExecutorService getJanitorExecutorService() {
         return janitorExecutorService;
     }
 
+    public ExecutorService getJanitorWorkerExecutorService() {
+        return janitorWorkerExecutorService;
+    }
+
     private ThreadPoolExecutor createPluginExecutorService() {
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
         return new WithProfilingThreadPoolExecutor(minThreadNb,
@@ -98,7 +160,66 @@ public class PaymentExecutors {
 
     }
 
+    private ThreadPoolExecutor createPerPluginExecutorService(final String pluginName) {
+        final int threadNb = paymentConfig.getPaymentPluginThreadNbPerPlugin();
+        final int queueSize = paymentConfig.getPaymentPluginQueueSizePerPlugin();
+        final BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>();
+        final Counter rejectedCounter = metricRegistry.counter(getPluginMetricName(pluginName, "rejected"));
+        final ThreadPoolExecutor executorService = new WithProfilingThreadPoolExecutor(threadNb,
+                                                                                       threadNb,
+                                                                                       10,
+                                                                                       TimeUnit.MINUTES,
+                                                                                       queue,
+                                                                                       new ThreadFactory() {
+
+                                                                                           @Override
+                                                                                           public Thread newThread(final Runnable r) {
+                                                                                               final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
+                                                                                               th.setName(PLUGIN_THREAD_PREFIX + pluginName + "-" + th.getId());
+                                                                                               return th;
+                                                                                           }
+                                                                                       },
+                                                                                       new RejectedExecutionHandler() {
+
+                                                                                           @Override
+                                                                                           public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                                                                                               rejectedCounter.inc();
+                                                                                               throw new RejectedExecutionException(String.format("Executor for plugin='%s' is saturated: activeThreads='%s', queueSize='%s'",
+                                                                                                                                                  pluginName, executor.getActiveCount(), executor.getQueue().size()));
+                                                                                           }
+                                                                                       });
+        // Idle plugins don't hold on to their threads
+        executorService.allowCoreThreadTimeOut(true);
+        return executorService;
+    }
+
+    private void registerPerPluginGauges(final String pluginName, final ThreadPoolExecutor executorService) {
+        metricRegistry.register(getPluginMetricName(pluginName, "queueSize"),
+                                new Gauge<Integer>() {
+                                    @Override
+                                    public Integer getValue() {
+                                        return executorService.getQueue().size();
+                                    }
+                                });
+        metricRegistry.register(getPluginMetricName(pluginName, "activeThreads"),
+                                new Gauge<Integer>() {
+                                    @Override
+                                    public Integer getValue() {
+                                        return executorService.getActiveCount();
+                                    }
+                                });
+    }
+
+    private static String getPluginMetricName(final String pluginName, final String metric) {
+        return MetricRegistry.name(PaymentExecutors.class, pluginName, metric);
+    }
+
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    private ExecutorService createJanitorWorkerExecutorService() {
+        final int threadNb = paymentConfig.getJanitorThreadNb() > 0 ? paymentConfig.getJanitorThreadNb() : 1;
+        return Executors.newFixedThreadPool(threadNb, "PaymentJanitorWorker");
+    }
 }
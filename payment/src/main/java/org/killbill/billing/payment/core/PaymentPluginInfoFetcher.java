@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.apache.shiro.util.ThreadContext;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.dao.PaymentModelDao;
+import org.killbill.billing.payment.dispatcher.CallableWithRequestData;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+
+//
+// Retrieves the plugin info (PaymentPluginApi#getPaymentInfo) of the payments returned by the bulk get APIs (getAccountPayments / getPayments).
+//
+// The plugin api has no bulk call: instead, the calls for the next org.killbill.payment.plugin.info.parallelism payments are dispatched ahead
+// on the executor of their plugin (see PaymentExecutors#getPluginExecutorService(String)), while the results are returned in the original order.
+// Each call has its own deadline (org.killbill.payment.plugin.info.timeout), starting when the call starts running: as when the plugin fails
+// or its executor is saturated, the payment is then returned without plugin info. A call which doesn't start running within parallelism * timeout
+// (the time for the calls dispatched ahead of it) is cancelled, and the payment is returned without plugin info as well.
+//
+public class PaymentPluginInfoFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentPluginInfoFetcher.class);
+
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentPluginServiceRegistration paymentPluginServiceRegistration;
+    private final PaymentConfig paymentConfig;
+
+    @Inject
+    public PaymentPluginInfoFetcher(final PaymentExecutors paymentExecutors, final PaymentPluginServiceRegistration paymentPluginServiceRegistration, final PaymentConfig paymentConfig) {
+        this.paymentExecutors = paymentExecutors;
+        this.paymentPluginServiceRegistration = paymentPluginServiceRegistration;
+        this.paymentConfig = paymentConfig;
+    }
+
+    /**
+     * @param payments        the payments (e.g. a database cursor), consumed as the returned iterator is
+     * @param pluginNameLookup the plugin name of each payment, null to skip the plugin info (called from the iterating thread)
+     * @param properties      plugin properties
+     * @param context         tenant context
+     * @return the payments with their plugin info, in the same order: the iterator should be closed if it isn't consumed entirely
+     */
+    public Iterator<PaymentWithPluginInfo> fetch(final Iterator<PaymentModelDao> payments,
+                                                 final Function<PaymentModelDao, String> pluginNameLookup,
+                                                 final Iterable<PluginProperty> properties,
+                                                 final TenantContext context) {
+        return new PrefetchingIterator(payments, pluginNameLookup, properties, context);
+    }
+
+    public static final class PaymentWithPluginInfo {
+
+        private final PaymentModelDao paymentModelDao;
+        private final List<PaymentTransactionInfoPlugin> pluginInfo;
+
+        private PaymentWithPluginInfo(final PaymentModelDao paymentModelDao, @Nullable final List<PaymentTransactionInfoPlugin> pluginInfo) {
+            this.paymentModelDao = paymentModelDao;
+            this.pluginInfo = pluginInfo;
+        }
+
+        public PaymentModelDao getPaymentModelDao() {
+            return paymentModelDao;
+        }
+
+        @Nullable
+        public List<PaymentTransactionInfoPlugin> getPluginInfo() {
+            return pluginInfo;
+        }
+    }
+
+    private final class PrefetchingIterator implements Iterator<PaymentWithPluginInfo>, Closeable {
+
+        private final Iterator<PaymentModelDao> payments;
+        private final Function<PaymentModelDao, String> pluginNameLookup;
+        private final Iterable<PluginProperty> properties;
+        private final TenantContext context;
+        private final int parallelism;
+        private final long timeoutNanos;
+        private final long maxQueueWaitNanos;
+        // Payments read from the source, in order, with their in-flight plugin call
+        private final LinkedList<PendingPluginInfo> pendingPluginInfos = new LinkedList<PendingPluginInfo>();
+        // Absent if the plugin isn't registered (to log it only once)
+        private final Map<String, Optional<PaymentPluginApi>> pluginApis = new HashMap<String, Optional<PaymentPluginApi>>();
+
+        private PrefetchingIterator(final Iterator<PaymentModelDao> payments,
+                                    final Function<PaymentModelDao, String> pluginNameLookup,
+                                    final Iterable<PluginProperty> properties,
+                                    final TenantContext context) {
+            this.payments = payments;
+            this.pluginNameLookup = pluginNameLookup;
+            this.properties = properties;
+            this.context = context;
+            this.parallelism = Math.max(1, paymentConfig.getPaymentPluginInfoParallelism());
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(paymentConfig.getPaymentPluginInfoTimeout().getMillis());
+            this.maxQueueWaitNanos = parallelism * timeoutNanos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pendingPluginInfos.isEmpty() || payments.hasNext();
+        }
+
+        @Override
+        public PaymentWithPluginInfo next() {
+            prefetch();
+            final PendingPluginInfo pendingPluginInfo = pendingPluginInfos.poll();
+            if (pendingPluginInfo == null) {
+                throw new NoSuchElementException();
+            }
+            // Keep the plugins busy while the caller processes this payment
+            prefetch();
+            return new PaymentWithPluginInfo(pendingPluginInfo.getPaymentModelDao(), pendingPluginInfo.get());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (final PendingPluginInfo pendingPluginInfo : pendingPluginInfos) {
+                pendingPluginInfo.cancel();
+            }
+            pendingPluginInfos.clear();
+
+            if (payments instanceof Closeable) {
+                ((Closeable) payments).close();
+            } else {
+                // Release the source without calling the plugins
+                while (payments.hasNext()) {
+                    payments.next();
+                }
+            }
+        }
+
+        private void prefetch() {
+            while (pendingPluginInfos.size() < parallelism && payments.hasNext()) {
+                final PaymentModelDao paymentModelDao = payments.next();
+                final String pluginName = pluginNameLookup.apply(paymentModelDao);
+                final PaymentPluginApi pluginApi = pluginName == null ? null : getPluginApi(pluginName);
+                if (pluginApi == null) {
+                    pendingPluginInfos.add(new PendingPluginInfo(paymentModelDao));
+                } else {
+                    pendingPluginInfos.add(submit(pluginName, pluginApi, paymentModelDao));
+                }
+            }
+        }
+
+        private PaymentPluginApi getPluginApi(final String pluginName) {
+            if (pluginApis.get(pluginName) == null) {
+                try {
+                    pluginApis.put(pluginName, Optional.<PaymentPluginApi>of(paymentPluginServiceRegistration.getPaymentPluginApi(pluginName)));
+                } catch (final PaymentApiException e) {
+                    log.warn("Unable to retrieve PaymentPluginApi for pluginName='{}'", pluginName, e);
+                    pluginApis.put(pluginName, Optional.<PaymentPluginApi>absent());
+                }
+            }
+            return pluginApis.get(pluginName).orNull();
+        }
+
+        private PendingPluginInfo submit(final String pluginName, final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao) {
+            final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService(pluginName);
+            final CountDownLatch started = new CountDownLatch(1);
+            final AtomicLong startedNanos = new AtomicLong();
+            final Callable<List<PaymentTransactionInfoPlugin>> callable = new Callable<List<PaymentTransactionInfoPlugin>>() {
+                @Override
+                public List<PaymentTransactionInfoPlugin> call() throws Exception {
+                    startedNanos.set(System.nanoTime());
+                    started.countDown();
+                    return pluginApi.getPaymentInfo(paymentModelDao.getAccountId(), paymentModelDao.getId(), properties, context);
+                }
+            };
+
+            final long submittedNanos = System.nanoTime();
+            try {
+                // Keep the original request id, as PluginDispatcher
+                final Future<List<PaymentTransactionInfoPlugin>> future = pluginExecutor.submit(new CallableWithRequestData<List<PaymentTransactionInfoPlugin>>(Request.getPerThreadRequestData(),
+                                                                                                                                         UUIDs.getRandom(),
+                                                                                                                                         ThreadContext.getSecurityManager(),
+                                                                                                                                         ThreadContext.getSubject(),
+                                                                                                                                         MDC.getCopyOfContextMap(),
+                                                                                                                                         callable));
+                return new PendingPluginInfo(paymentModelDao, future, submittedNanos, started, startedNanos);
+            } catch (final RejectedExecutionException e) {
+                log.warn("Unable to retrieve plugin info for paymentId='{}': {}", paymentModelDao.getId(), e.getMessage());
+                return new PendingPluginInfo(paymentModelDao);
+            }
+        }
+
+        private final class PendingPluginInfo {
+
+            private final PaymentModelDao paymentModelDao;
+            private final Future<List<PaymentTransactionInfoPlugin>> future;
+            private final long submittedNanos;
+            private final CountDownLatch started;
+            private final AtomicLong startedNanos;
+
+            // No plugin info
+            private PendingPluginInfo(final PaymentModelDao paymentModelDao) {
+                this(paymentModelDao, null, 0, null, null);
+            }
+
+            private PendingPluginInfo(final PaymentModelDao paymentModelDao,
+                                      @Nullable final Future<List<PaymentTransactionInfoPlugin>> future,
+                                      final long submittedNanos,
+                                      @Nullable final CountDownLatch started,
+                                      @Nullable final AtomicLong startedNanos) {
+                this.paymentModelDao = paymentModelDao;
+                this.future = future;
+                this.submittedNanos = submittedNanos;
+                this.started = started;
+                this.startedNanos = startedNanos;
+            }
+
+            public PaymentModelDao getPaymentModelDao() {
+                return paymentModelDao;
+            }
+
+            @Nullable
+            public List<PaymentTransactionInfoPlugin> get() {
+                if (future == null) {
+                    return null;
+                }
+
+                try {
+                    // The call may be queued behind other calls to the same plugin: the deadline only starts once it runs
+                    if (!started.await(Math.max(0, submittedNanos + maxQueueWaitNanos - System.nanoTime()), TimeUnit.NANOSECONDS) && !future.isDone()) {
+                        log.warn("Call to retrieve plugin info for paymentId='{}' wasn't run after {} ms", paymentModelDao.getId(), TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos));
+                        future.cancel(true);
+                        return null;
+                    }
+                    return future.get(Math.max(0, startedNanos.get() + timeoutNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (final TimeoutException e) {
+                    log.warn("Call TIMEOUT to retrieve plugin info for paymentId='{}'", paymentModelDao.getId());
+                    future.cancel(true);
+                    return null;
+                } catch (final ExecutionException e) {
+                    log.warn("Unable to retrieve plugin info for paymentId='{}'", paymentModelDao.getId(), e.getCause());
+                    return null;
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                    return null;
+                }
+            }
+
+            public void cancel() {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+}
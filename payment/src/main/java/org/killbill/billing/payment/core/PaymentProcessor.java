@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -52,12 +51,14 @@ import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.PaymentPluginInfoFetcher.PaymentWithPluginInfo;
 import org.killbill.billing.payment.core.janitor.IncompletePaymentTransactionTask;
 import org.killbill.billing.payment.core.sm.PaymentAutomatonDAOHelper;
 import org.killbill.billing.payment.core.sm.PaymentAutomatonRunner;
 import org.killbill.billing.payment.core.sm.PaymentStateContext;
 import org.killbill.billing.payment.dao.PaymentAttemptModelDao;
 import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PaymentMethodModelDao;
 import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.dao.PluginPropertySerializer;
@@ -74,6 +75,7 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 import org.killbill.clock.Clock;
@@ -93,6 +95,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 
@@ -106,6 +109,7 @@ public class PaymentProcessor extends ProcessorBase {
     private final PaymentAutomatonRunner paymentAutomatonRunner;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
     private final NotificationQueueService notificationQueueService;
+    private final PaymentPluginInfoFetcher paymentPluginInfoFetcher;
 
     private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
 
@@ -123,11 +127,13 @@ public class PaymentProcessor extends ProcessorBase {
                             final PaymentAutomatonRunner paymentAutomatonRunner,
                             final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
                             final NotificationQueueService notificationQueueService,
+                            final PaymentPluginInfoFetcher paymentPluginInfoFetcher,
                             final Clock clock) {
         super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         this.paymentAutomatonRunner = paymentAutomatonRunner;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
         this.notificationQueueService = notificationQueueService;
+        this.paymentPluginInfoFetcher = paymentPluginInfoFetcher;
     }
 
     public Payment createAuthorization(final boolean isApiPayment, @Nullable final UUID attemptId, final Account account, @Nullable final UUID paymentMethodId, @Nullable final UUID paymentId, final BigDecimal amount, final Currency currency,
@@ -193,34 +199,19 @@ public class PaymentProcessor extends ProcessorBase {
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
         final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
 
-        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
-        final Collection<UUID> absentPlugins = new HashSet<UUID>();
-        final List<Payment> transformedPayments = Lists.<PaymentModelDao, Payment>transform(paymentsModelDao,
-                                                                                            new Function<PaymentModelDao, Payment>() {
-                                                                                                @Override
-                                                                                                public Payment apply(final PaymentModelDao paymentModelDao) {
-                                                                                                    List<PaymentTransactionInfoPlugin> pluginInfo = null;
-
-                                                                                                    if (withPluginInfo) {
-                                                                                                        PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
-                                                                                                        if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
-                                                                                                            try {
-                                                                                                                pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, tenantContext);
-                                                                                                                paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
-                                                                                                            } catch (final PaymentApiException e) {
-                                                                                                                log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
-                                                                                                                absentPlugins.add(paymentModelDao.getPaymentMethodId());
-                                                                                                            }
-                                                                                                        }
-
-                                                                                                        pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
-                                                                                                    }
-
-                                                                                                    return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, withAttempts, tenantContext);
-                                                                                                }
-                                                                                            });
-
-        // Copy the transformed list, so the transformation function is applied once (otherwise, the Janitor could be invoked multiple times)
+        final Iterator<PaymentWithPluginInfo> paymentsWithPluginInfo = paymentPluginInfoFetcher.fetch(paymentsModelDao.iterator(),
+                                                                                                      getPluginNameLookup(withPluginInfo, tenantContext),
+                                                                                                      PLUGIN_PROPERTIES,
+                                                                                                      context);
+        final Iterator<Payment> transformedPayments = Iterators.<PaymentWithPluginInfo, Payment>transform(paymentsWithPluginInfo,
+                                                                                                          new Function<PaymentWithPluginInfo, Payment>() {
+                                                                                                              @Override
+                                                                                                              public Payment apply(final PaymentWithPluginInfo paymentWithPluginInfo) {
+                                                                                                                  return toPayment(paymentWithPluginInfo.getPaymentModelDao(), transactionsModelDao, paymentWithPluginInfo.getPluginInfo(), withAttempts, tenantContext);
+                                                                                                              }
+                                                                                                          });
+
+        // Copy the transformed payments, so the transformation function is applied once (otherwise, the Janitor could be invoked multiple times)
         return ImmutableList.<Payment>copyOf(transformedPayments);
     }
 
@@ -241,42 +232,20 @@ public class PaymentProcessor extends ProcessorBase {
         return toPayment(paymentModelDao, withPluginInfo, withAttempts, properties, tenantContext, internalTenantContext);
     }
 
-    public Pagination<Payment> getPayments(final Long offset, final Long limit, final boolean withPluginInfo, final boolean withAttempts,
+    public Pagination<Payment> getPayments(final Long offset, final Long limit, final boolean withPluginInfo, final boolean withAttempts, final PaginationOptions paginationOptions,
                                            final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) {
-        final Map<UUID, Optional<PaymentPluginApi>> paymentMethodIdToPaymentPluginApi = new HashMap<UUID, Optional<PaymentPluginApi>>();
+        final Function<PaymentModelDao, String> pluginNameLookup = getPluginNameLookup(withPluginInfo, internalTenantContext);
 
         try {
             return getEntityPagination(limit,
-                                       new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                       new SourcePaginationBuilder<PaymentWithPluginInfo, PaymentApiException>() {
                                            @Override
-                                           public Pagination<PaymentModelDao> build() {
+                                           public Pagination<PaymentWithPluginInfo> build() {
                                                // Find all payments for all accounts
-                                               return paymentDao.get(offset, limit, internalTenantContext);
+                                               return fetchPluginInfo(paymentDao.get(offset, limit, paginationOptions, internalTenantContext), limit, pluginNameLookup, tenantContext);
                                            }
                                        },
-                                       new Function<PaymentModelDao, Payment>() {
-                                           @Override
-                                           public Payment apply(final PaymentModelDao paymentModelDao) {
-                                               final PaymentPluginApi pluginApi;
-                                               if (!withPluginInfo) {
-                                                   pluginApi = null;
-                                               } else {
-                                                   if (paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()) == null) {
-                                                       try {
-                                                           final PaymentPluginApi paymentProviderPlugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, internalTenantContext);
-                                                           paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>of(paymentProviderPlugin));
-                                                       } catch (final PaymentApiException e) {
-                                                           log.warn("Unable to retrieve PaymentPluginApi for paymentMethodId='{}'", paymentModelDao.getPaymentMethodId(), e);
-                                                           // We use Optional to avoid printing the log line for each result
-                                                           paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.<PaymentPluginApi>absent());
-                                                       }
-                                                   }
-                                                   pluginApi = paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()).orNull();
-                                               }
-                                               final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                               return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, internalTenantContext);
-                                           }
-                                       }
+                                       toPaymentFromPaymentWithPluginInfo(withAttempts, internalTenantContext)
                                       );
         } catch (final PaymentApiException e) {
             log.warn("Unable to get payments", e);
@@ -284,27 +253,69 @@ public class PaymentProcessor extends ProcessorBase {
         }
     }
 
-    public Pagination<Payment> getPayments(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final boolean withAttempts, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
-        final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
+    public Pagination<Payment> getPayments(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final boolean withAttempts, final PaginationOptions paginationOptions, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
+        if (withPluginInfo) {
+            // Fail early if the plugin isn't registered
+            getPaymentPluginApi(pluginName);
+        }
+        final Function<PaymentModelDao, String> pluginNameLookup = new Function<PaymentModelDao, String>() {
+            @Override
+            public String apply(final PaymentModelDao paymentModelDao) {
+                return withPluginInfo ? pluginName : null;
+            }
+        };
 
         return getEntityPagination(limit,
-                                   new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                   new SourcePaginationBuilder<PaymentWithPluginInfo, PaymentApiException>() {
                                        @Override
-                                       public Pagination<PaymentModelDao> build() {
+                                       public Pagination<PaymentWithPluginInfo> build() {
                                            // Find all payments for all accounts
-                                           return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
+                                           return fetchPluginInfo(paymentDao.getPayments(pluginName, offset, limit, paginationOptions, internalTenantContext), limit, pluginNameLookup, tenantContext);
                                        }
                                    },
-                                   new Function<PaymentModelDao, Payment>() {
-                                       @Override
-                                       public Payment apply(final PaymentModelDao paymentModelDao) {
-                                           final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                           return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, internalTenantContext);
-                                       }
-                                   }
+                                   toPaymentFromPaymentWithPluginInfo(withAttempts, internalTenantContext)
                                   );
     }
 
+    // The plugin info is retrieved ahead, in parallel, as the payments are iterated through (see PaymentPluginInfoFetcher)
+    private Pagination<PaymentWithPluginInfo> fetchPluginInfo(final Pagination<PaymentModelDao> payments, final Long limit, final Function<PaymentModelDao, String> pluginNameLookup, final TenantContext tenantContext) {
+        return new DefaultPagination<PaymentWithPluginInfo>(payments, limit, paymentPluginInfoFetcher.fetch(payments.iterator(), pluginNameLookup, PLUGIN_PROPERTIES, tenantContext));
+    }
+
+    // Plugin name of the payment method of each payment, null if withPluginInfo is false or if the payment method can't be found
+    private Function<PaymentModelDao, String> getPluginNameLookup(final boolean withPluginInfo, final InternalTenantContext internalTenantContext) {
+        final Map<UUID, Optional<String>> paymentMethodIdToPluginName = new HashMap<UUID, Optional<String>>();
+        return new Function<PaymentModelDao, String>() {
+            @Override
+            public String apply(final PaymentModelDao paymentModelDao) {
+                if (!withPluginInfo) {
+                    return null;
+                }
+
+                if (paymentMethodIdToPluginName.get(paymentModelDao.getPaymentMethodId()) == null) {
+                    try {
+                        final PaymentMethodModelDao paymentMethodModelDao = getPaymentMethodById(paymentModelDao.getPaymentMethodId(), true, internalTenantContext);
+                        paymentMethodIdToPluginName.put(paymentModelDao.getPaymentMethodId(), Optional.<String>of(paymentMethodModelDao.getPluginName()));
+                    } catch (final PaymentApiException e) {
+                        log.warn("Unable to retrieve payment method for paymentMethodId='{}'", paymentModelDao.getPaymentMethodId(), e);
+                        // We use Optional to avoid printing the log line for each result
+                        paymentMethodIdToPluginName.put(paymentModelDao.getPaymentMethodId(), Optional.<String>absent());
+                    }
+                }
+                return paymentMethodIdToPluginName.get(paymentModelDao.getPaymentMethodId()).orNull();
+            }
+        };
+    }
+
+    private Function<PaymentWithPluginInfo, Payment> toPaymentFromPaymentWithPluginInfo(final boolean withAttempts, final InternalTenantContext internalTenantContext) {
+        return new Function<PaymentWithPluginInfo, Payment>() {
+            @Override
+            public Payment apply(final PaymentWithPluginInfo paymentWithPluginInfo) {
+                return toPayment(paymentWithPluginInfo.getPaymentModelDao().getId(), paymentWithPluginInfo.getPluginInfo(), withAttempts, internalTenantContext);
+            }
+        };
+    }
+
     public Pagination<Payment> searchPayments(final String searchKey, final Long offset, final Long limit, final boolean withPluginInfo, final boolean withAttempts, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) {
         if (withPluginInfo) {
             return getEntityPaginationFromPlugins(false,
@@ -621,20 +632,6 @@ public class PaymentProcessor extends ProcessorBase {
         return Iterables.<PaymentTransactionModelDao>getLast(completionCandidates, null);
     }
 
-    // Used in bulk get API (getAccountPayments / getPayments)
-    private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao, final TenantContext context) {
-        if (pluginApi == null) {
-            return null;
-        }
-
-        try {
-            return getPaymentTransactionInfoPlugins(pluginApi, paymentModelDao, PLUGIN_PROPERTIES, context);
-        } catch (final PaymentApiException e) {
-            log.warn("Unable to retrieve plugin info for payment " + paymentModelDao.getId());
-            return null;
-        }
-    }
-
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final PaymentPluginApi plugin, final PaymentModelDao paymentModelDao, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentApiException {
         try {
             return plugin.getPaymentInfo(paymentModelDao.getAccountId(), paymentModelDao.getId(), properties, context);
@@ -18,7 +18,13 @@
 package org.killbill.billing.payment.core.janitor;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountInternalApi;
@@ -26,6 +32,7 @@ import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.callcontext.DefaultCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.events.PaymentInternalEvent;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateMachineHelper;
 import org.killbill.billing.payment.dao.PaymentDao;
@@ -45,6 +52,11 @@ import org.killbill.notificationq.api.NotificationQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistry.MetricSupplier;
+
 abstract class CompletionTaskBase<T> implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(CompletionTaskBase.class);
@@ -57,10 +69,15 @@ abstract class CompletionTaskBase<T> implements Runnable {
     protected final PaymentControlStateMachineHelper retrySMHelper;
     protected final AccountInternalApi accountInternalApi;
     protected final GlobalLocker locker;
+    protected final PaymentExecutors paymentExecutors;
+
+    protected final Meter processedMeter;
 
     protected NotificationQueue janitorQueue;
 
     private volatile boolean isStopped;
+    // Number of entries left to process (in this shard) as of the last run
+    private volatile long backlog;
 
     public CompletionTaskBase(final InternalCallContextFactory internalCallContextFactory,
                               final PaymentConfig paymentConfig,
@@ -69,7 +86,9 @@ abstract class CompletionTaskBase<T> implements Runnable {
                               final PaymentStateMachineHelper paymentStateMachineHelper,
                               final PaymentControlStateMachineHelper retrySMHelper,
                               final AccountInternalApi accountInternalApi,
-                              final GlobalLocker locker) {
+                              final GlobalLocker locker,
+                              final PaymentExecutors paymentExecutors,
+                              final MetricRegistry metricRegistry) {
         this.internalCallContextFactory = internalCallContextFactory;
         this.paymentConfig = paymentConfig;
         this.paymentDao = paymentDao;
@@ -78,7 +97,22 @@ abstract class CompletionTaskBase<T> implements Runnable {
         this.retrySMHelper = retrySMHelper;
         this.accountInternalApi = accountInternalApi;
         this.locker = locker;
+        this.paymentExecutors = paymentExecutors;
         this.isStopped = false;
+
+        this.processedMeter = metricRegistry.meter(MetricRegistry.name(getClass(), "processed"));
+        metricRegistry.gauge(MetricRegistry.name(getClass(), "backlog"),
+                             new MetricSupplier<Gauge>() {
+                                 @Override
+                                 public Gauge newMetric() {
+                                     return new Gauge<Long>() {
+                                         @Override
+                                         public Long getValue() {
+                                             return backlog;
+                                         }
+                                     };
+                                 }
+                             });
     }
 
     @Override
@@ -88,19 +122,13 @@ abstract class CompletionTaskBase<T> implements Runnable {
             return;
         }
 
+        final int threadNb = paymentConfig.getJanitorThreadNb();
         final Iterator<T> iterator = getItemsForIteration().iterator();
         try {
-            while (iterator.hasNext()) {
-                final T item = iterator.next();
-                if (isStopped) {
-                    log.info("Janitor was requested to stop");
-                    return;
-                }
-                try {
-                    doIteration(item);
-                } catch (final Exception e) {
-                    log.warn(e.getMessage());
-                }
+            if (threadNb <= 1) {
+                doIterations(iterator);
+            } else {
+                doIterationsInParallel(iterator, threadNb);
             }
         } finally {
             // In case the loop stops early, make sure to close the underlying DB connection
@@ -110,6 +138,75 @@ abstract class CompletionTaskBase<T> implements Runnable {
         }
     }
 
+    private void doIterations(final Iterator<T> iterator) {
+        while (iterator.hasNext()) {
+            final T item = iterator.next();
+            if (isStopped) {
+                log.info("Janitor was requested to stop");
+                return;
+            }
+            doIterationAndRecord(item);
+        }
+    }
+
+    //
+    // Items are partitioned by account: all the items of a given account are processed sequentially by the same worker,
+    // so workers never compete for the same account lock. Since nodes are already sharded by accountRecordId % shardNb,
+    // we partition on accountRecordId / shardNb to make sure all workers get a share.
+    //
+    private void doIterationsInParallel(final Iterator<T> iterator, final int threadNb) {
+        final int shardNb = paymentConfig.getJanitorShardNb() > 0 ? paymentConfig.getJanitorShardNb() : 1;
+        final List<List<T>> partitions = new ArrayList<List<T>>(threadNb);
+        for (int i = 0; i < threadNb; i++) {
+            partitions.add(new LinkedList<T>());
+        }
+        while (iterator.hasNext()) {
+            final T item = iterator.next();
+            final long accountRecordId = getAccountRecordId(item);
+            partitions.get((int) ((accountRecordId / shardNb) % threadNb)).add(item);
+        }
+
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(threadNb);
+        for (final List<T> partition : partitions) {
+            if (partition.isEmpty()) {
+                continue;
+            }
+            futures.add(paymentExecutors.getJanitorWorkerExecutorService().submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    doIterations(partition.iterator());
+                    return null;
+                }
+            }));
+        }
+
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Janitor was interrupted");
+                return;
+            } catch (final ExecutionException e) {
+                log.warn("Janitor worker failed", e.getCause());
+            }
+        }
+    }
+
+    private void doIterationAndRecord(final T item) {
+        try {
+            doIteration(item);
+        } catch (final Exception e) {
+            log.warn(e.getMessage());
+        } finally {
+            processedMeter.mark();
+        }
+    }
+
+    protected void setBacklog(final long backlog) {
+        this.backlog = backlog;
+    }
+
     public synchronized void start() {
         this.isStopped = false;
     }
@@ -122,6 +219,8 @@ abstract class CompletionTaskBase<T> implements Runnable {
 
     public abstract void doIteration(final T item);
 
+    protected abstract Long getAccountRecordId(final T item);
+
     public abstract void processPaymentEvent(final PaymentInternalEvent event, final NotificationQueue janitorQueue) throws IOException;
 
     public void attachJanitorQueue(final NotificationQueue janitorQueue) {
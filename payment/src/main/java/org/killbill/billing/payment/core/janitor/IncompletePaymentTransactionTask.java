@@ -33,6 +33,7 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.events.PaymentInternalEvent;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.PaymentPluginServiceRegistration;
 import org.killbill.billing.payment.core.PaymentTransactionInfoPluginConverter;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
@@ -57,6 +58,7 @@ import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
@@ -83,8 +85,10 @@ public class IncompletePaymentTransactionTask extends CompletionTaskBase<Payment
                                             final PaymentControlStateMachineHelper retrySMHelper,
                                             final AccountInternalApi accountInternalApi,
                                             final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
-                                            final GlobalLocker locker) {
-        super(internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, locker);
+                                            final GlobalLocker locker,
+                                            final PaymentExecutors paymentExecutors,
+                                            final MetricRegistry metricRegistry) {
+        super(internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, locker, paymentExecutors, metricRegistry);
         this.paymentPluginServiceRegistration = paymentPluginServiceRegistration;
     }
 
@@ -99,9 +103,15 @@ public class IncompletePaymentTransactionTask extends CompletionTaskBase<Payment
         // Nothing
     }
 
+    @Override
+    protected Long getAccountRecordId(final PaymentTransactionModelDao paymentTransaction) {
+        return paymentTransaction.getAccountRecordId();
+    }
+
     public void processNotification(final JanitorNotificationKey notificationKey, final UUID userToken, final Long accountRecordId, final long tenantRecordId) {
         try {
             tryToProcessNotification(notificationKey, userToken, accountRecordId, tenantRecordId);
+            processedMeter.mark();
         } catch (final LockFailedException e) {
             log.warn("Error locking accountRecordId='{}', will attempt to retry later", accountRecordId, e);
 
@@ -64,11 +64,15 @@ public interface PaymentAttemptSqlDao extends EntitySqlDao<PaymentAttemptModelDa
 
     @SqlQuery
     Long getCountByStateNameAcrossTenants(@Bind("stateName") final String stateName,
-                                          @Bind("createdBeforeDate") final Date createdBeforeDate);
+                                          @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                          @Bind("shardNb") final int shardNb,
+                                          @Bind("shardIndex") final int shardIndex);
 
     @SqlQuery
     Iterator<PaymentAttemptModelDao> getByStateNameAcrossTenants(@Bind("stateName") final String stateName,
                                                                  @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                                                 @Bind("shardNb") final int shardNb,
+                                                                 @Bind("shardIndex") final int shardIndex,
                                                                  @Bind("offset") final Long offset,
                                                                  @Bind("rowCount") final Long rowCount,
                                                                  @Define("ordering") final String ordering);
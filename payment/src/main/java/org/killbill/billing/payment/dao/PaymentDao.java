@@ -31,6 +31,7 @@ import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.entity.dao.EntityDao;
 
 public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentApiException> {
@@ -45,6 +46,9 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(String stateName, DateTime createdBeforeDate, final Long offset, final Long limit);
 
+    // Only returns the attempts for which account_record_id % shardNb == shardIndex
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(String stateName, DateTime createdBeforeDate, int shardNb, int shardIndex, final Long offset, final Long limit);
+
     public List<PaymentAttemptModelDao> getPaymentAttempts(String paymentExternalKey, InternalTenantContext context);
 
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(String externalKey, InternalTenantContext context);
@@ -55,6 +59,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public Pagination<PaymentModelDao> getPayments(String pluginName, Long offset, Long limit, InternalTenantContext context);
 
+    public Pagination<PaymentModelDao> getPayments(String pluginName, Long offset, Long limit, PaginationOptions paginationOptions, InternalTenantContext context);
+
     public Pagination<PaymentModelDao> searchPayments(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
     public PaymentAndTransactionModelDao insertPaymentWithFirstTransaction(PaymentModelDao payment, PaymentTransactionModelDao paymentTransaction, InternalCallContext context);
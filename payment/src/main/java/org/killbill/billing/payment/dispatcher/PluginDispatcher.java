@@ -25,11 +25,15 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
+
 import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.ProfilingData;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 import org.killbill.commons.request.Request;
 import org.slf4j.MDC;
 
@@ -41,22 +45,35 @@ public class PluginDispatcher<ReturnType> {
 
     private final long timeoutSeconds;
     private final PaymentExecutors paymentExecutors;
+    private final LatencyHistograms latencyHistograms;
 
-    public PluginDispatcher(final long timeoutSeconds, final PaymentExecutors paymentExecutors) {
+    public PluginDispatcher(final long timeoutSeconds, final PaymentExecutors paymentExecutors, final LatencyHistograms latencyHistograms) {
         this.timeoutSeconds = timeoutSeconds;
         this.paymentExecutors = paymentExecutors;
+        this.latencyHistograms = latencyHistograms;
     }
 
     // TODO Once we switch fully to automata, should this throw PaymentPluginApiException instead?
     public ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task) throws TimeoutException, ExecutionException, InterruptedException {
-        return dispatchWithTimeout(task, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
+        return dispatchWithTimeout(task, null);
+    }
+
+    // The task is run on the executor dedicated to pluginName (see PaymentExecutors#getPluginExecutorService(String)): RejectedExecutionException is thrown if it is saturated
+    public ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task, @Nullable final String pluginName) throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(task, pluginName, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
     }
 
     @VisibleForTesting
     ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task, final long timeout, final TimeUnit unit)
             throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(task, null, timeout, unit);
+    }
 
-        final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService();
+    @VisibleForTesting
+    ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task, @Nullable final String pluginName, final long timeout, final TimeUnit unit)
+            throws TimeoutException, ExecutionException, InterruptedException {
+
+        final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService(pluginName);
 
         // Wrap existing callable to keep the original requestId
         final Callable<PluginDispatcherReturnType<ReturnType>> callableWithRequestData = new CallableWithRequestData(Request.getPerThreadRequestData(),
@@ -66,8 +83,16 @@ public class PluginDispatcher<ReturnType> {
                                                                                                                      MDC.getCopyOfContextMap(),
                                                                                                                      task);
 
-        final Future<PluginDispatcherReturnType<ReturnType>> future = pluginExecutor.submit(callableWithRequestData);
-        final PluginDispatcherReturnType<ReturnType> pluginDispatcherResult = future.get(timeout, unit);
+        final long startNanos = latencyHistograms.start();
+        final PluginDispatcherReturnType<ReturnType> pluginDispatcherResult;
+        try {
+            final Future<PluginDispatcherReturnType<ReturnType>> future = pluginExecutor.submit(callableWithRequestData);
+            pluginDispatcherResult = future.get(timeout, unit);
+        } finally {
+            if (pluginName != null) {
+                latencyHistograms.record(ProfilingFeatureType.PLUGIN, "payment:" + pluginName, startNanos);
+            }
+        }
 
         if (pluginDispatcherResult instanceof WithProfilingPluginDispatcherReturnType) {
             // Transfer state from dispatch thread into current one.
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.core.PaymentPluginInfoFetcher.PaymentWithPluginInfo;
+import org.killbill.billing.payment.dao.PaymentModelDao;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+public class TestPaymentPluginInfoFetcher extends PaymentTestSuiteNoDB {
+
+    private static final String TEST_PLUGIN_NAME = "test-plugin";
+    private static final UUID SLOW_PAYMENT_ID = UUID.randomUUID();
+
+    private ExecutorService pluginExecutor;
+
+    @Override
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        pluginExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @Override
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        pluginExecutor.shutdownNow();
+        super.afterMethod();
+    }
+
+    @Test(groups = "fast")
+    public void testFetchPreservesOrder() throws Exception {
+        final List<PaymentModelDao> payments = createPayments(20);
+
+        final Iterator<PaymentWithPluginInfo> result = createFetcher(5, "10s", 0).fetch(payments.iterator(),
+                                                                                   new Function<PaymentModelDao, String>() {
+                                                                                       @Override
+                                                                                       public String apply(final PaymentModelDao input) {
+                                                                                           return TEST_PLUGIN_NAME;
+                                                                                       }
+                                                                                   },
+                                                                                   ImmutableList.<PluginProperty>of(),
+                                                                                   callContext);
+
+        for (final PaymentModelDao payment : payments) {
+            Assert.assertTrue(result.hasNext());
+            final PaymentWithPluginInfo paymentWithPluginInfo = result.next();
+            Assert.assertEquals(paymentWithPluginInfo.getPaymentModelDao(), payment);
+            Assert.assertEquals(paymentWithPluginInfo.getPluginInfo().size(), 1);
+            Assert.assertEquals(paymentWithPluginInfo.getPluginInfo().get(0).getKbPaymentId(), payment.getId());
+        }
+        Assert.assertFalse(result.hasNext());
+    }
+
+    @Test(groups = "fast")
+    public void testFetchWithoutPlugin() throws Exception {
+        final List<PaymentModelDao> payments = createPayments(3);
+
+        final Iterator<PaymentWithPluginInfo> result = createFetcher(5, "10s", 0).fetch(payments.iterator(),
+                                                                                   new Function<PaymentModelDao, String>() {
+                                                                                       @Override
+                                                                                       public String apply(final PaymentModelDao input) {
+                                                                                           return null;
+                                                                                       }
+                                                                                   },
+                                                                                   ImmutableList.<PluginProperty>of(),
+                                                                                   callContext);
+
+        for (final PaymentModelDao payment : payments) {
+            final PaymentWithPluginInfo paymentWithPluginInfo = result.next();
+            Assert.assertEquals(paymentWithPluginInfo.getPaymentModelDao(), payment);
+            Assert.assertNull(paymentWithPluginInfo.getPluginInfo());
+        }
+        Assert.assertFalse(result.hasNext());
+    }
+
+    @Test(groups = "fast")
+    public void testFetchWithTimeout() throws Exception {
+        final PaymentModelDao slowPayment = new PaymentModelDao(SLOW_PAYMENT_ID, clock.getUTCNow(), clock.getUTCNow(), UUID.randomUUID(), UUID.randomUUID(), "slow");
+        final List<PaymentModelDao> payments = ImmutableList.<PaymentModelDao>builder().addAll(createPayments(2))
+                                                                                       .add(slowPayment)
+                                                                                       .addAll(createPayments(2))
+                                                                                       .build();
+
+        final Iterator<PaymentWithPluginInfo> result = createFetcher(2, "200ms", 0).fetch(payments.iterator(),
+                                                                                     new Function<PaymentModelDao, String>() {
+                                                                                         @Override
+                                                                                         public String apply(final PaymentModelDao input) {
+                                                                                             return TEST_PLUGIN_NAME;
+                                                                                         }
+                                                                                     },
+                                                                                     ImmutableList.<PluginProperty>of(),
+                                                                                     callContext);
+
+        for (final PaymentModelDao payment : payments) {
+            final PaymentWithPluginInfo paymentWithPluginInfo = result.next();
+            Assert.assertEquals(paymentWithPluginInfo.getPaymentModelDao(), payment);
+            if (payment == slowPayment) {
+                // Returned without plugin info
+                Assert.assertNull(paymentWithPluginInfo.getPluginInfo());
+            } else {
+                Assert.assertEquals(paymentWithPluginInfo.getPluginInfo().size(), 1);
+            }
+        }
+        Assert.assertFalse(result.hasNext());
+    }
+
+    @Test(groups = "fast")
+    public void testDeadlineStartsWhenCallRuns() throws Exception {
+        final List<PaymentModelDao> payments = createPayments(8);
+
+        // 8 calls of 100ms dispatched at once on 2 threads: the last ones are queued for more than the 200ms timeout
+        final Iterator<PaymentWithPluginInfo> result = createFetcher(8, "200ms", 100).fetch(payments.iterator(),
+                                                                                          new Function<PaymentModelDao, String>() {
+                                                                                              @Override
+                                                                                              public String apply(final PaymentModelDao input) {
+                                                                                                  return TEST_PLUGIN_NAME;
+                                                                                              }
+                                                                                          },
+                                                                                          ImmutableList.<PluginProperty>of(),
+                                                                                          callContext);
+
+        for (final PaymentModelDao payment : payments) {
+            final PaymentWithPluginInfo paymentWithPluginInfo = result.next();
+            Assert.assertEquals(paymentWithPluginInfo.getPaymentModelDao(), payment);
+            Assert.assertEquals(paymentWithPluginInfo.getPluginInfo().size(), 1);
+        }
+        Assert.assertFalse(result.hasNext());
+    }
+
+    @Test(groups = "fast")
+    public void testFetchWithSaturatedExecutor() throws Exception {
+        final List<PaymentModelDao> payments = createPayments(3);
+
+        // Both plugin threads are busy with other calls: the plugin info calls never start
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pluginExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    release.await();
+                    return null;
+                }
+            });
+        }
+
+        try {
+            final Iterator<PaymentWithPluginInfo> result = createFetcher(2, "100ms", 0).fetch(payments.iterator(),
+                                                                                         new Function<PaymentModelDao, String>() {
+                                                                                             @Override
+                                                                                             public String apply(final PaymentModelDao input) {
+                                                                                                 return TEST_PLUGIN_NAME;
+                                                                                             }
+                                                                                         },
+                                                                                         ImmutableList.<PluginProperty>of(),
+                                                                                         callContext);
+
+            for (final PaymentModelDao payment : payments) {
+                final PaymentWithPluginInfo paymentWithPluginInfo = result.next();
+                Assert.assertEquals(paymentWithPluginInfo.getPaymentModelDao(), payment);
+                // Returned without plugin info, once the maximum queue wait (2 * 100ms) has elapsed
+                Assert.assertNull(paymentWithPluginInfo.getPluginInfo());
+            }
+            Assert.assertFalse(result.hasNext());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private PaymentPluginInfoFetcher createFetcher(final int parallelism, final String timeout, final long callDurationMillis) throws PaymentApiException, PaymentPluginApiException {
+        final PaymentConfig config = Mockito.mock(PaymentConfig.class);
+        Mockito.when(config.getPaymentPluginInfoParallelism()).thenReturn(parallelism);
+        Mockito.when(config.getPaymentPluginInfoTimeout()).thenReturn(new TimeSpan(timeout));
+
+        // The calls must go through the executor of their plugin
+        final PaymentExecutors executors = Mockito.mock(PaymentExecutors.class);
+        Mockito.when(executors.getPluginExecutorService(TEST_PLUGIN_NAME)).thenReturn(pluginExecutor);
+
+        final PaymentPluginApi pluginApi = createPluginApi(callDurationMillis);
+        final PaymentPluginServiceRegistration registration = Mockito.mock(PaymentPluginServiceRegistration.class);
+        Mockito.when(registration.getPaymentPluginApi(TEST_PLUGIN_NAME)).thenReturn(pluginApi);
+
+        return new PaymentPluginInfoFetcher(executors, registration, config);
+    }
+
+    private PaymentPluginApi createPluginApi(final long callDurationMillis) throws PaymentPluginApiException {
+        final PaymentPluginApi pluginApi = Mockito.mock(PaymentPluginApi.class);
+        Mockito.when(pluginApi.getPaymentInfo(Mockito.<UUID>any(), Mockito.<UUID>any(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<TenantContext>any()))
+               .thenAnswer(new Answer<List<PaymentTransactionInfoPlugin>>() {
+                   @Override
+                   public List<PaymentTransactionInfoPlugin> answer(final InvocationOnMock invocation) throws Throwable {
+                       final UUID paymentId = (UUID) invocation.getArguments()[1];
+                       if (SLOW_PAYMENT_ID.equals(paymentId)) {
+                           Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                       } else if (callDurationMillis > 0) {
+                           Thread.sleep(callDurationMillis);
+                       }
+
+                       final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = Mockito.mock(PaymentTransactionInfoPlugin.class);
+                       Mockito.when(paymentTransactionInfoPlugin.getKbPaymentId()).thenReturn(paymentId);
+                       return ImmutableList.<PaymentTransactionInfoPlugin>of(paymentTransactionInfoPlugin);
+                   }
+               });
+        return pluginApi;
+    }
+
+    private List<PaymentModelDao> createPayments(final int nbPayments) {
+        final ImmutableList.Builder<PaymentModelDao> payments = ImmutableList.<PaymentModelDao>builder();
+        for (int i = 0; i < nbPayments; i++) {
+            payments.add(new PaymentModelDao(clock.getUTCNow(), clock.getUTCNow(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID().toString()));
+        }
+        return payments.build();
+    }
+}
@@ -18,11 +18,14 @@
 package org.killbill.billing.payment.core.janitor;
 
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PluginControlPaymentAutomatonRunner;
@@ -32,10 +35,15 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 
 public class TestCompletionTaskBase extends PaymentTestSuiteWithEmbeddedDB {
 
@@ -61,7 +69,9 @@ public class TestCompletionTaskBase extends PaymentTestSuiteWithEmbeddedDB {
                                                                                                                  paymentControlStateMachineHelper,
                                                                                                                  accountApi,
                                                                                                                  pluginControlPaymentAutomatonRunner,
-                                                                                                                 locker);
+                                                                                                                 locker,
+                                                                                                                 paymentExecutors,
+                                                                                                                 new MetricRegistry());
 
         incompletePaymentAttemptTaskWithException.run();
 
@@ -69,12 +79,58 @@ public class TestCompletionTaskBase extends PaymentTestSuiteWithEmbeddedDB {
         Assert.assertFalse(paymentAttemptModelDaoIterator.hasNext());
     }
 
-    private final class IncompletePaymentAttemptTaskWithException extends IncompletePaymentAttemptTask {
+    @Test(groups = "slow")
+    public void testPartitionByAccount() throws PaymentApiException {
+        final PaymentConfig parallelPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(parallelPaymentConfig.getJanitorThreadNb()).thenReturn(3);
+        Mockito.when(parallelPaymentConfig.getJanitorShardNb()).thenReturn(1);
+
+        final List<PaymentAttemptModelDao> paymentAttemptModelDaos = new LinkedList<PaymentAttemptModelDao>();
+        for (long accountRecordId = 1; accountRecordId <= 5; accountRecordId++) {
+            for (int i = 0; i < 4; i++) {
+                final PaymentAttemptModelDao paymentAttemptModelDao = new PaymentAttemptModelDao();
+                paymentAttemptModelDao.setAccountRecordId(accountRecordId);
+                paymentAttemptModelDaos.add(paymentAttemptModelDao);
+            }
+        }
+
+        final Multimap<Long, String> threadsPerAccountRecordId = Multimaps.synchronizedSetMultimap(HashMultimap.<Long, String>create());
+        final AtomicInteger processed = new AtomicInteger();
+        final Runnable incompletePaymentAttemptTask = new IncompletePaymentAttemptTaskForTests(paymentAttemptModelDaos,
+                                                                                               internalCallContextFactory,
+                                                                                               parallelPaymentConfig,
+                                                                                               paymentDao,
+                                                                                               clock,
+                                                                                               paymentSMHelper,
+                                                                                               paymentControlStateMachineHelper,
+                                                                                               accountApi,
+                                                                                               pluginControlPaymentAutomatonRunner,
+                                                                                               locker,
+                                                                                               paymentExecutors,
+                                                                                               new MetricRegistry()) {
+            @Override
+            public void doIteration(final PaymentAttemptModelDao attempt) {
+                threadsPerAccountRecordId.put(attempt.getAccountRecordId(), Thread.currentThread().getName());
+                processed.incrementAndGet();
+            }
+        };
+
+        incompletePaymentAttemptTask.run();
+
+        Assert.assertEquals(processed.get(), paymentAttemptModelDaos.size());
+        Assert.assertEquals(threadsPerAccountRecordId.keySet().size(), 5);
+        for (final Long accountRecordId : threadsPerAccountRecordId.keySet()) {
+            // All entries for a given account are processed by the same worker
+            Assert.assertEquals(threadsPerAccountRecordId.get(accountRecordId).size(), 1);
+        }
+    }
+
+    private class IncompletePaymentAttemptTaskForTests extends IncompletePaymentAttemptTask {
 
         private final Iterable<PaymentAttemptModelDao> itemsForIteration;
 
-        public IncompletePaymentAttemptTaskWithException(final Iterable<PaymentAttemptModelDao> itemsForIteration, final InternalCallContextFactory internalCallContextFactory, final PaymentConfig paymentConfig, final PaymentDao paymentDao, final Clock clock, final PaymentStateMachineHelper paymentStateMachineHelper, final PaymentControlStateMachineHelper retrySMHelper, final AccountInternalApi accountInternalApi, final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner, final GlobalLocker locker) {
-            super(internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, locker);
+        public IncompletePaymentAttemptTaskForTests(final Iterable<PaymentAttemptModelDao> itemsForIteration, final InternalCallContextFactory internalCallContextFactory, final PaymentConfig paymentConfig, final PaymentDao paymentDao, final Clock clock, final PaymentStateMachineHelper paymentStateMachineHelper, final PaymentControlStateMachineHelper retrySMHelper, final AccountInternalApi accountInternalApi, final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner, final GlobalLocker locker, final PaymentExecutors paymentExecutors, final MetricRegistry metricRegistry) {
+            super(internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, locker, paymentExecutors, metricRegistry);
             this.itemsForIteration = itemsForIteration;
         }
 
@@ -82,6 +138,13 @@ public class TestCompletionTaskBase extends PaymentTestSuiteWithEmbeddedDB {
         public Iterable<PaymentAttemptModelDao> getItemsForIteration() {
             return itemsForIteration;
         }
+    }
+
+    private final class IncompletePaymentAttemptTaskWithException extends IncompletePaymentAttemptTaskForTests {
+
+        public IncompletePaymentAttemptTaskWithException(final Iterable<PaymentAttemptModelDao> itemsForIteration, final InternalCallContextFactory internalCallContextFactory, final PaymentConfig paymentConfig, final PaymentDao paymentDao, final Clock clock, final PaymentStateMachineHelper paymentStateMachineHelper, final PaymentControlStateMachineHelper retrySMHelper, final AccountInternalApi accountInternalApi, final PluginControlPaymentAutomatonRunner pluginControlledPaymentAutomatonRunner, final GlobalLocker locker, final PaymentExecutors paymentExecutors, final MetricRegistry metricRegistry) {
+            super(itemsForIteration, internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, pluginControlledPaymentAutomatonRunner, locker, paymentExecutors, metricRegistry);
+        }
 
         @Override
         public void doIteration(final PaymentAttemptModelDao attempt) {
@@ -105,7 +105,7 @@ public class TestPaymentOperation extends PaymentTestSuiteNoDB {
 
     private void setUp(final PaymentPluginStatus paymentPluginStatus) throws Exception {
         final GlobalLocker locker = new MemoryGlobalLocker();
-        final PluginDispatcher<OperationResult> paymentPluginDispatcher = new PluginDispatcher<OperationResult>(1, paymentExecutors);
+        final PluginDispatcher<OperationResult> paymentPluginDispatcher = new PluginDispatcher<OperationResult>(1, paymentExecutors, latencyHistograms);
         paymentStateContext = new PaymentStateContext(true,
                                                       UUID.randomUUID(),
                                                       null, null,
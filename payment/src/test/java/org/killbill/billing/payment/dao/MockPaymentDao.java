@@ -41,6 +41,7 @@ import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.entity.dao.MockEntityDaoBase;
 
 import com.google.common.base.Predicate;
@@ -133,6 +134,11 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         return null;
     }
 
+    @Override
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final int shardNb, final int shardIndex, final Long offset, final Long limit) {
+        return null;
+    }
+
     @Override
     public List<PaymentAttemptModelDao> getPaymentAttempts(final String paymentExternalKey, final InternalTenantContext context) {
         synchronized (this) {
@@ -189,6 +195,11 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         return null;
     }
 
+    @Override
+    public Pagination<PaymentModelDao> getPayments(final String pluginName, final Long offset, final Long limit, final PaginationOptions paginationOptions, final InternalTenantContext context) {
+        return getPayments(pluginName, offset, limit, context);
+    }
+
     @Override
     public Pagination<PaymentModelDao> searchPayments(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
@@ -533,6 +533,13 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
 
         final Pagination<PaymentAttemptModelDao> result = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 0L, 2L);
         Assert.assertEquals(result.getTotalNbRecords().longValue(), 2L);
+
+        // Both attempts were inserted with the same accountRecordId, hence end up in the same shard
+        final int shardIndex = (int) (internalCallContext.getAccountRecordId() % 2);
+        final Pagination<PaymentAttemptModelDao> resultForShard = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, shardIndex, 0L, 2L);
+        Assert.assertEquals(resultForShard.getTotalNbRecords().longValue(), 2L);
+        final Pagination<PaymentAttemptModelDao> resultForOtherShard = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, 1 - shardIndex, 0L, 2L);
+        Assert.assertEquals(resultForOtherShard.getTotalNbRecords().longValue(), 0L);
     }
 
     @Test(groups = "slow")
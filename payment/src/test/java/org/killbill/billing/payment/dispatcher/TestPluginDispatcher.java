@@ -19,6 +19,7 @@
 package org.killbill.billing.payment.dispatcher;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -26,15 +27,20 @@ import java.util.concurrent.TimeoutException;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.request.Request;
 import org.killbill.commons.request.RequestData;
+import org.mockito.Mockito;
 import org.slf4j.MDC;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.MetricRegistry;
+
 public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
 
     private PluginDispatcher<Void> voidPluginDispatcher;
@@ -45,8 +51,8 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
     public void beforeMethod() throws Exception {
         super.beforeMethod();
         eventBus.start();
-        voidPluginDispatcher = new PluginDispatcher<Void>(10, paymentExecutors);
-        stringPluginDispatcher = new PluginDispatcher<String>(1, paymentExecutors);
+        voidPluginDispatcher = new PluginDispatcher<Void>(10, paymentExecutors, latencyHistograms);
+        stringPluginDispatcher = new PluginDispatcher<String>(1, paymentExecutors, latencyHistograms);
     }
 
 
@@ -148,4 +154,55 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testDispatchWithSaturatedPluginExecutor() throws Exception {
+        final PaymentConfig bulkheadPaymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginThreadNb()).thenReturn(1);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginThreadNbPerPlugin()).thenReturn(1);
+        Mockito.when(bulkheadPaymentConfig.getPaymentPluginQueueSizePerPlugin()).thenReturn(0);
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PaymentExecutors bulkheadPaymentExecutors = new PaymentExecutors(bulkheadPaymentConfig, metricRegistry);
+        bulkheadPaymentExecutors.initialize();
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            final PluginDispatcher<String> bulkheadPluginDispatcher = new PluginDispatcher<String>(1, bulkheadPaymentExecutors, latencyHistograms);
+
+            // Hog the only thread of the slow plugin
+            bulkheadPaymentExecutors.getPluginExecutorService("slow-plugin").submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    latch.await();
+                    return null;
+                }
+            });
+
+            final Callable<PluginDispatcherReturnType<String>> callable = new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    return PluginDispatcher.<String>createPluginDispatcherReturnType("ok");
+                }
+            };
+
+            try {
+                PaymentPluginDispatcher.dispatchWithExceptionHandling(null, "slow-plugin", callable, bulkheadPluginDispatcher);
+                Assert.fail("Failed : should have had a PaymentApiException");
+            } catch (final PaymentApiException e) {
+                Assert.assertEquals(e.getCode(), ErrorCode.PAYMENT_INTERNAL_ERROR.getCode());
+            }
+            Assert.assertEquals(metricRegistry.counter(MetricRegistry.name(PaymentExecutors.class, "slow-plugin", "rejected")).getCount(), 1L);
+
+            // Other plugins aren't impacted
+            Assert.assertEquals(PaymentPluginDispatcher.dispatchWithExceptionHandling(null, "other-plugin", callable, bulkheadPluginDispatcher), "ok");
+        } finally {
+            latch.countDown();
+            bulkheadPaymentExecutors.stop();
+        }
+
+        // Per-plugin metrics don't outlive the executors
+        for (final String metricName : metricRegistry.getNames()) {
+            Assert.assertFalse(metricName.startsWith(PaymentExecutors.class.getName()), metricName);
+        }
+    }
+
 }
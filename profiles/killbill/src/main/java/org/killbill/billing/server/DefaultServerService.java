@@ -79,6 +79,8 @@ public class DefaultServerService implements ServerService {
         } catch (final EventBusException e) {
             log.warn("Failed to unregister PushNotificationListener", e);
         }
+        // Pending and in-flight notifications are written to the retry queue, before it is stopped
+        pushNotificationListener.shutdown();
         pushNotificationRetryService.stop();
     }
 }
@@ -59,6 +59,26 @@ public class MultiTenantNotificationConfig extends MultiTenantConfigBase impleme
         return getPushNotificationsRetries();
     }
 
+    @Override
+    public int getPushNotificationsMaxConcurrentRequestsPerEndpoint() {
+        return staticConfig.getPushNotificationsMaxConcurrentRequestsPerEndpoint();
+    }
+
+    @Override
+    public int getPushNotificationsMaxPendingRequestsPerEndpoint() {
+        return staticConfig.getPushNotificationsMaxPendingRequestsPerEndpoint();
+    }
+
+    @Override
+    public int getPushNotificationsCircuitBreakerFailureThreshold() {
+        return staticConfig.getPushNotificationsCircuitBreakerFailureThreshold();
+    }
+
+    @Override
+    public TimeSpan getPushNotificationsCircuitBreakerOpenDuration() {
+        return staticConfig.getPushNotificationsCircuitBreakerOpenDuration();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return NotificationConfig.class;
@@ -18,9 +18,14 @@
 package org.killbill.billing.server.filters;
 
 import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.Context;
 
 import org.killbill.billing.jaxrs.json.ProfilingDataJson;
 import org.killbill.billing.util.jackson.ObjectMapper;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.ProfilingData;
 import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
@@ -29,7 +34,10 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
 import com.google.inject.Singleton;
+import com.sun.jersey.api.core.ExtendedUriInfo;
+import com.sun.jersey.api.uri.UriTemplate;
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 import com.sun.jersey.spi.container.ContainerResponse;
@@ -43,14 +51,31 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
     private static final String PROFILING_HEADER_REQ = "X-Killbill-Profiling-Req";
     private static final String PROFILING_HEADER_RESP = "X-Killbill-Profiling-Resp";
 
+    private static final String LATENCY_START_NANOS_PROPERTY = ProfilingContainerResponseFilter.class.getName() + ".startNanos";
+    // Requests matching no resource (e.g. 404) share a single histogram
+    private static final String LATENCY_UNMATCHED_ID = "unmatched";
+    // Strip the regular expressions from the templates, e.g. {accountId:\w+-\w+-\w+-\w+-\w+} -> {accountId}
+    private static final Pattern TEMPLATE_VARIABLE_PATTERN = Pattern.compile("\\{\\s*(\\w[\\w.-]*)\\s*:[^}]*}");
+
     private static final ObjectMapper mapper = new ObjectMapper();
 
     static {
         mapper.configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
     }
 
+    private final LatencyHistograms latencyHistograms;
+
+    @Context
+    private ExtendedUriInfo uriInfo;
+
+    @Inject
+    public ProfilingContainerResponseFilter(final LatencyHistograms latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
     @Override
     public ContainerRequest filter(final ContainerRequest request) {
+        request.getProperties().put(LATENCY_START_NANOS_PROPERTY, latencyHistograms.start());
 
         final List<String> profilingHeaderRequests = request.getRequestHeader(PROFILING_HEADER_REQ);
         final String profilingHeaderRequest = (profilingHeaderRequests == null || profilingHeaderRequests.isEmpty()) ? null : profilingHeaderRequests.get(0);
@@ -71,6 +96,11 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
 
     @Override
     public ContainerResponse filter(final ContainerRequest request, final ContainerResponse response) {
+        final Object startNanos = request.getProperties().get(LATENCY_START_NANOS_PROPERTY);
+        if (startNanos != null) {
+            latencyHistograms.record(ProfilingFeatureType.JAXRS, request.getMethod() + " " + getMatchedTemplate(), (Long) startNanos);
+        }
+
         try {
             final ProfilingData rawData = Profiling.getPerThreadProfilingData();
             if (rawData != null) {
@@ -92,4 +122,19 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
         }
         return response;
     }
+
+    // Key the histograms by resource template and not by raw path (search keys, external keys, ...), to keep their number bounded
+    private String getMatchedTemplate() {
+        final List<UriTemplate> matchedTemplates = uriInfo.getMatchedTemplates();
+        if (matchedTemplates == null || matchedTemplates.isEmpty()) {
+            return LATENCY_UNMATCHED_ID;
+        }
+
+        // Templates are ordered from the most specific one
+        final StringBuilder template = new StringBuilder();
+        for (final UriTemplate matchedTemplate : Lists.reverse(matchedTemplates)) {
+            template.append(matchedTemplate.getTemplate());
+        }
+        return TEMPLATE_VARIABLE_PATTERN.matcher(template).replaceAll("{$1}");
+    }
 }
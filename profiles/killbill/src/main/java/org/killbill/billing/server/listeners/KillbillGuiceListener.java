@@ -32,7 +32,6 @@ import org.killbill.billing.server.filters.ProfilingContainerResponseFilter;
 import org.killbill.billing.server.filters.RequestDataFilter;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
 import org.killbill.billing.server.modules.KillbillServerModule;
-import org.killbill.billing.server.notifications.PushNotificationListener;
 import org.killbill.billing.server.security.TenantFilter;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.commons.skeleton.modules.BaseServerModuleBuilder;
@@ -150,12 +149,4 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
         beanConfig.setLicenseUrl("http://www.apache.org/licenses/LICENSE-2.0.html");
         beanConfig.setScan(true);
     }
-
-    @Override
-    protected void stopLifecycleStage3() {
-        super.stopLifecycleStage3();
-
-        final PushNotificationListener pushNotificationListener = injector.getInstance(PushNotificationListener.class);
-        pushNotificationListener.shutdown();
-    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Aho-Corasick automaton finding all occurrences of a set of keywords in a single pass.
+ * <p/>
+ * Keywords are made of ASCII letters and are matched case-insensitively, using the same (ASCII only) case folding
+ * as Pattern.CASE_INSENSITIVE: a keyword not found by the automaton can't be matched by a case-insensitive regex starting with it.
+ */
+class KeywordsAutomaton {
+
+    static final int ROOT = 0;
+
+    private static final int ALPHABET_SIZE = 26;
+
+    private final int nbKeywords;
+    private final int[] keywordsLength;
+    // Complete transitions (the failure links are already followed)
+    private final int[][] transitions;
+    // Keywords ending at each state, including through the failure links
+    private final int[][] outputs;
+
+    KeywordsAutomaton(final String... keywords) {
+        this.nbKeywords = keywords.length;
+        this.keywordsLength = new int[keywords.length];
+
+        // Build the trie
+        final List<int[]> trieTransitions = new ArrayList<int[]>();
+        final List<List<Integer>> trieOutputs = new ArrayList<List<Integer>>();
+        trieTransitions.add(newState());
+        trieOutputs.add(new LinkedList<Integer>());
+        for (int keywordIdx = 0; keywordIdx < keywords.length; keywordIdx++) {
+            final String keyword = keywords[keywordIdx];
+            Preconditions.checkArgument(!keyword.isEmpty(), "Empty keyword");
+            keywordsLength[keywordIdx] = keyword.length();
+
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                final int letter = letterIndex(keyword.charAt(i));
+                Preconditions.checkArgument(letter >= 0, "Keyword %s isn't made of ASCII letters", keyword);
+                if (trieTransitions.get(state)[letter] == -1) {
+                    trieTransitions.get(state)[letter] = trieTransitions.size();
+                    trieTransitions.add(newState());
+                    trieOutputs.add(new LinkedList<Integer>());
+                }
+                state = trieTransitions.get(state)[letter];
+            }
+            trieOutputs.get(state).add(keywordIdx);
+        }
+
+        // Compute the failure links in breadth-first order, and complete the transitions
+        final int nbStates = trieTransitions.size();
+        this.transitions = trieTransitions.toArray(new int[nbStates][]);
+        final int[] failures = new int[nbStates];
+        final Queue<Integer> queue = new LinkedList<Integer>();
+        for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+            if (transitions[ROOT][letter] == -1) {
+                transitions[ROOT][letter] = ROOT;
+            } else {
+                failures[transitions[ROOT][letter]] = ROOT;
+                queue.add(transitions[ROOT][letter]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            trieOutputs.get(state).addAll(trieOutputs.get(failures[state]));
+            for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+                final int nextState = transitions[state][letter];
+                if (nextState == -1) {
+                    transitions[state][letter] = transitions[failures[state]][letter];
+                } else {
+                    failures[nextState] = transitions[failures[state]][letter];
+                    queue.add(nextState);
+                }
+            }
+        }
+
+        this.outputs = new int[nbStates][];
+        for (int state = 0; state < nbStates; state++) {
+            final List<Integer> stateOutputs = trieOutputs.get(state);
+            outputs[state] = new int[stateOutputs.size()];
+            int i = 0;
+            for (final Integer keywordIdx : stateOutputs) {
+                outputs[state][i++] = keywordIdx;
+            }
+        }
+    }
+
+    /**
+     * @param text the text to scan
+     * @return for each keyword (in the constructor order), the index of its first occurrence in the text, -1 if it doesn't occur
+     */
+    int[] findFirstOccurrences(final CharSequence text) {
+        final int[] firstOccurrences = newFirstOccurrences();
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            recordOccurrences(state, i, firstOccurrences);
+        }
+        return firstOccurrences;
+    }
+
+    int[] newFirstOccurrences() {
+        final int[] firstOccurrences = new int[nbKeywords];
+        Arrays.fill(firstOccurrences, -1);
+        return firstOccurrences;
+    }
+
+    int next(final int state, final char c) {
+        final int letter = letterIndex(c);
+        return letter == -1 ? ROOT : transitions[state][letter];
+    }
+
+    // Record the keywords ending at endIndex (inclusive), if not seen yet
+    void recordOccurrences(final int state, final int endIndex, final int[] firstOccurrences) {
+        for (final int keywordIdx : outputs[state]) {
+            if (firstOccurrences[keywordIdx] == -1) {
+                firstOccurrences[keywordIdx] = endIndex - keywordsLength[keywordIdx] + 1;
+            }
+        }
+    }
+
+    private int[] newState() {
+        final int[] stateTransitions = new int[ALPHABET_SIZE];
+        Arrays.fill(stateTransitions, -1);
+        return stateTransitions;
+    }
+
+    private static int letterIndex(final char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else {
+            return -1;
+        }
+    }
+}
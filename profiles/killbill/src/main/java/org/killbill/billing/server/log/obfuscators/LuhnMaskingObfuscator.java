@@ -32,7 +32,7 @@ public class LuhnMaskingObfuscator extends Obfuscator {
     /**
      * The minimum number of digits a credit card can have.
      */
-    private static final int MIN_CC_DIGITS = 13;
+    static final int MIN_CC_DIGITS = 13;
 
     public LuhnMaskingObfuscator() {
         super();
@@ -191,7 +191,7 @@ public class LuhnMaskingObfuscator extends Obfuscator {
         return new String(result, 0, count);
     }
 
-    private static boolean isDigit(final char c) {
+    static boolean isDigit(final char c) {
         switch (c) {
             case '0':
             case '1':
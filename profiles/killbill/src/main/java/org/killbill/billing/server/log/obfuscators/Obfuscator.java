@@ -42,28 +42,34 @@ public abstract class Obfuscator {
         final StringBuilder obfuscatedStringBuilder = new StringBuilder(originalString);
 
         for (final Pattern pattern : patterns) {
-            int currentOffset = 0;
-            // Create a matcher with a copy of the current obfuscated String
-            final Matcher matcher = pattern.matcher(obfuscatedStringBuilder.toString());
-            while (matcher.find()) {
-                for (int groupNb = 1; groupNb <= matcher.groupCount(); groupNb++) {
-                    final String confidentialData = matcher.group(groupNb);
-
-                    if (shouldObfuscate(confidentialData, event)) {
-                        final String obfuscatedConfidentialData = obfuscateConfidentialData(confidentialData);
-
-                        obfuscatedStringBuilder.replace(currentOffset + matcher.start(groupNb), currentOffset + matcher.end(groupNb), obfuscatedConfidentialData);
-
-                        // The original String is modified in place, which will confuse the Matcher if it becomes bigger
-                        if (obfuscatedConfidentialData.length() > confidentialData.length()) {
-                            currentOffset += obfuscatedConfidentialData.length() - confidentialData.length();
-                        }
+            obfuscate(obfuscatedStringBuilder, pattern, 0, event);
+        }
+
+        return obfuscatedStringBuilder.toString();
+    }
+
+    // Matches can't start before fromIndex (e.g. first occurrence of the literal the pattern starts with)
+    protected void obfuscate(final StringBuilder obfuscatedStringBuilder, final Pattern pattern, final int fromIndex, final ILoggingEvent event) {
+        int currentOffset = 0;
+        // Create a matcher with a copy of the current obfuscated String
+        final Matcher matcher = pattern.matcher(obfuscatedStringBuilder.toString());
+        matcher.region(fromIndex, obfuscatedStringBuilder.length());
+        while (matcher.find()) {
+            for (int groupNb = 1; groupNb <= matcher.groupCount(); groupNb++) {
+                final String confidentialData = matcher.group(groupNb);
+
+                if (shouldObfuscate(confidentialData, event)) {
+                    final String obfuscatedConfidentialData = obfuscateConfidentialData(confidentialData);
+
+                    obfuscatedStringBuilder.replace(currentOffset + matcher.start(groupNb), currentOffset + matcher.end(groupNb), obfuscatedConfidentialData);
+
+                    // The original String is modified in place, which will confuse the Matcher if it becomes bigger
+                    if (obfuscatedConfidentialData.length() > confidentialData.length()) {
+                        currentOffset += obfuscatedConfidentialData.length() - confidentialData.length();
                     }
                 }
             }
         }
-
-        return obfuscatedStringBuilder.toString();
     }
 
     private boolean shouldObfuscate(final String confidentialData, final ILoggingEvent event) {
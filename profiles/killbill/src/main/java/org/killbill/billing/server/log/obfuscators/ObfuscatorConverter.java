@@ -46,8 +46,7 @@ public class ObfuscatorConverter extends ClassicConverter {
 
     private final Collection<Obfuscator> obfuscators = ImmutableList.<Obfuscator>of(new ConfigMagicObfuscator(),
                                                                                     new LoggingFilterObfuscator(),
-                                                                                    new PatternObfuscator(),
-                                                                                    new LuhnMaskingObfuscator());
+                                                                                    new SensitiveDataObfuscator());
 
     @Override
     public String convert(final ILoggingEvent event) {
@@ -17,11 +17,14 @@
 
 package org.killbill.billing.server.log.obfuscators;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
 public class PatternObfuscator extends Obfuscator {
@@ -53,6 +56,10 @@ public class PatternObfuscator extends Obfuscator {
     };
 
     private final Collection<Pattern> patterns = new LinkedList<Pattern>();
+    // Same order as DEFAULT_SENSITIVE_KEYS
+    private final List<Collection<Pattern>> patternsBySensitiveKey = new ArrayList<Collection<Pattern>>(DEFAULT_SENSITIVE_KEYS.length);
+    private final Collection<Pattern> extraPatterns;
+    private final KeywordsAutomaton sensitiveKeysAutomaton = new KeywordsAutomaton(DEFAULT_SENSITIVE_KEYS);
 
     public PatternObfuscator() {
         this(ImmutableList.<Pattern>of());
@@ -62,20 +69,54 @@ public class PatternObfuscator extends Obfuscator {
         super();
 
         for (final String sensitiveKey : DEFAULT_SENSITIVE_KEYS) {
-            this.patterns.add(buildJSONPattern(sensitiveKey));
-            this.patterns.add(buildXMLPattern(sensitiveKey));
-            this.patterns.add(buildMultiValuesXMLPattern(sensitiveKey));
-            this.patterns.add(buildKeyValuePattern1(sensitiveKey));
-            this.patterns.add(buildKeyValuePattern2(sensitiveKey));
+            final Collection<Pattern> sensitiveKeyPatterns = ImmutableList.<Pattern>of(buildJSONPattern(sensitiveKey),
+                                                                                       buildXMLPattern(sensitiveKey),
+                                                                                       buildMultiValuesXMLPattern(sensitiveKey),
+                                                                                       buildKeyValuePattern1(sensitiveKey),
+                                                                                       buildKeyValuePattern2(sensitiveKey));
+            this.patternsBySensitiveKey.add(sensitiveKeyPatterns);
+            this.patterns.addAll(sensitiveKeyPatterns);
         }
+        this.extraPatterns = ImmutableList.<Pattern>copyOf(extraPatterns);
         this.patterns.addAll(extraPatterns);
     }
 
     @Override
     public String obfuscate(final String originalString, final ILoggingEvent event) {
+        return obfuscate(originalString, sensitiveKeysAutomaton.findFirstOccurrences(originalString), event);
+    }
+
+    // All the patterns for the default keys start with the key: instead of running all of them against the String,
+    // only the patterns for the keys found by the automaton are run, from the first occurrence of the key. Because the
+    // masking preserves the length and only introduces PAD_CHAR, it can't make a key appear nor move it, so the output is the same.
+    String obfuscate(final String originalString, final int[] sensitiveKeysFirstOccurrences, final ILoggingEvent event) {
+        final StringBuilder obfuscatedStringBuilder = new StringBuilder(originalString);
+
+        for (int i = 0; i < sensitiveKeysFirstOccurrences.length; i++) {
+            if (sensitiveKeysFirstOccurrences[i] == -1) {
+                continue;
+            }
+            for (final Pattern pattern : patternsBySensitiveKey.get(i)) {
+                obfuscate(obfuscatedStringBuilder, pattern, sensitiveKeysFirstOccurrences[i], event);
+            }
+        }
+        for (final Pattern pattern : extraPatterns) {
+            obfuscate(obfuscatedStringBuilder, pattern, 0, event);
+        }
+
+        return obfuscatedStringBuilder.toString();
+    }
+
+    // Reference implementation, running all the patterns
+    @VisibleForTesting
+    String obfuscateWithAllPatterns(final String originalString, final ILoggingEvent event) {
         return obfuscate(originalString, patterns, event);
     }
 
+    KeywordsAutomaton getSensitiveKeysAutomaton() {
+        return sensitiveKeysAutomaton;
+    }
+
     private Pattern buildJSONPattern(final String key) {
         return Pattern.compile(key + "\"\\s*:\\s*([^,{}]+)", DEFAULT_PATTERN_FLAGS);
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Equivalent to the PatternObfuscator followed by the LuhnMaskingObfuscator, but the String is scanned only once
+ * to find both the sensitive keys and the candidate PANs: most log lines have neither, and are returned as-is.
+ */
+public class SensitiveDataObfuscator extends Obfuscator {
+
+    private final PatternObfuscator patternObfuscator;
+    private final LuhnMaskingObfuscator luhnMaskingObfuscator;
+
+    public SensitiveDataObfuscator() {
+        this(new PatternObfuscator(), new LuhnMaskingObfuscator());
+    }
+
+    public SensitiveDataObfuscator(final PatternObfuscator patternObfuscator, final LuhnMaskingObfuscator luhnMaskingObfuscator) {
+        super();
+        this.patternObfuscator = patternObfuscator;
+        this.luhnMaskingObfuscator = luhnMaskingObfuscator;
+    }
+
+    @Override
+    public String obfuscate(final String originalString, final ILoggingEvent event) {
+        final KeywordsAutomaton sensitiveKeysAutomaton = patternObfuscator.getSensitiveKeysAutomaton();
+        final int[] sensitiveKeysFirstOccurrences = sensitiveKeysAutomaton.newFirstOccurrences();
+
+        int state = KeywordsAutomaton.ROOT;
+        int digits = 0;
+        boolean hasEnoughDigits = false;
+        for (int i = 0; i < originalString.length(); i++) {
+            final char current = originalString.charAt(i);
+
+            state = sensitiveKeysAutomaton.next(state, current);
+            sensitiveKeysAutomaton.recordOccurrences(state, i, sensitiveKeysFirstOccurrences);
+
+            // Same rules as LuhnMaskingObfuscator#hasEnoughDigits
+            if (LuhnMaskingObfuscator.isDigit(current)) {
+                if (++digits >= LuhnMaskingObfuscator.MIN_CC_DIGITS) {
+                    hasEnoughDigits = true;
+                }
+            } else if (digits > 0 && current != ' ' && current != '-') {
+                digits = 0;
+            }
+        }
+
+        final String obfuscatedString = patternObfuscator.obfuscate(originalString, sensitiveKeysFirstOccurrences, event);
+        // The masking only replaces characters with PAD_CHAR: if the original String doesn't have enough digits, neither has the obfuscated one
+        return hasEnoughDigits ? luhnMaskingObfuscator.obfuscate(obfuscatedString, event) : obfuscatedString;
+    }
+}
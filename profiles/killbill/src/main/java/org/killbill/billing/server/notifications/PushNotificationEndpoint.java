@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.killbill.clock.Clock;
+
+//
+// Dispatch state of a push notification callback url: at most maxConcurrentRequests requests are in flight,
+// at most maxPendingRequests are waiting for a slot, and after failureThreshold consecutive failures the circuit
+// is opened for openDurationMillis (requests are rejected, i.e. deferred to the retry queue, instead of being sent).
+// Once that duration has elapsed, the circuit is half-open: a single probe request is sent (the others wait for a slot),
+// a success closes the circuit and a failure re-opens it.
+//
+// The methods only update the state and tell the caller what to do: no I/O is done while holding the lock.
+//
+class PushNotificationEndpoint<T> {
+
+    enum Admission {
+        // Send it now
+        SEND,
+        // Queued, it will be returned by onCompletion when a slot is available
+        QUEUED,
+        // Circuit open or queue full
+        REJECTED
+    }
+
+    private final int maxConcurrentRequests;
+    private final int maxPendingRequests;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final Clock clock;
+
+    private final Queue<T> pendingRequests = new LinkedList<T>();
+    private int inFlightRequests = 0;
+    private int consecutiveFailures = 0;
+    private long openUntilMillis = 0;
+    // Set when the circuit is opened, until the next success
+    private boolean halfOpen = false;
+
+    PushNotificationEndpoint(final int maxConcurrentRequests,
+                             final int maxPendingRequests,
+                             final int failureThreshold,
+                             final long openDurationMillis,
+                             final Clock clock) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.maxPendingRequests = maxPendingRequests;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+    }
+
+    synchronized Admission submit(final T request) {
+        if (isOpen()) {
+            return Admission.REJECTED;
+        } else if (hasAvailableSlot()) {
+            inFlightRequests++;
+            return Admission.SEND;
+        } else if (pendingRequests.size() < maxPendingRequests) {
+            pendingRequests.add(request);
+            return Admission.QUEUED;
+        } else {
+            return Admission.REJECTED;
+        }
+    }
+
+    /**
+     * To be called when an in-flight request completes.
+     *
+     * @param success          whether the request succeeded
+     * @param nextRequests     populated with the pending requests to send now (an in-flight slot is reserved for each of them)
+     * @param rejectedRequests populated with the pending requests to defer, if the circuit has just been opened
+     */
+    synchronized void onCompletion(final boolean success, final List<T> nextRequests, final List<T> rejectedRequests) {
+        inFlightRequests--;
+
+        if (success) {
+            consecutiveFailures = 0;
+            halfOpen = false;
+        } else if (halfOpen || (failureThreshold > 0 && ++consecutiveFailures >= failureThreshold)) {
+            openUntilMillis = clock.getUTCNow().getMillis() + openDurationMillis;
+            halfOpen = true;
+            rejectedRequests.addAll(pendingRequests);
+            pendingRequests.clear();
+        }
+
+        while (!pendingRequests.isEmpty() && hasAvailableSlot()) {
+            nextRequests.add(pendingRequests.poll());
+            inFlightRequests++;
+        }
+    }
+
+    /**
+     * @return the pending requests, which won't be sent (e.g. on shutdown)
+     */
+    synchronized List<T> drainPendingRequests() {
+        final List<T> drainedRequests = new LinkedList<T>(pendingRequests);
+        pendingRequests.clear();
+        return drainedRequests;
+    }
+
+    synchronized boolean isOpen() {
+        return openUntilMillis > clock.getUTCNow().getMillis();
+    }
+
+    synchronized int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    synchronized int getPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    private boolean hasAvailableSlot() {
+        if (isOpen()) {
+            return false;
+        } else if (halfOpen) {
+            // Single probe
+            return inFlightRequests == 0;
+        } else {
+            return inFlightRequests < maxConcurrentRequests;
+        }
+    }
+}
@@ -19,10 +19,15 @@
 package org.killbill.billing.server.notifications;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import javax.inject.Inject;
 
@@ -32,6 +37,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.jaxrs.json.NotificationJson;
 import org.killbill.billing.notification.plugin.api.ExtBusEvent;
 import org.killbill.billing.server.DefaultServerService;
+import org.killbill.billing.server.notifications.PushNotificationEndpoint.Admission;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
@@ -40,6 +46,7 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.definition.NotificationConfig;
 import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
@@ -51,7 +58,6 @@ import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
 import com.ning.http.client.AsyncHttpClientConfig;
-import com.ning.http.client.ListenableFuture;
 import com.ning.http.client.Response;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -71,6 +77,7 @@ public class PushNotificationListener {
     public static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
     private static final int TIMEOUT_NOTIFICATION = 15; // 15 seconds
+    private static final int NB_COMPLETION_THREADS = 4;
 
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
@@ -80,6 +87,14 @@ public class PushNotificationListener {
     private final InternalCallContextFactory internalCallContextFactory;
     private final Clock clock;
     private final NotificationConfig notificationConfig;
+    // Completed requests are processed there (and not on the http client I/O threads), since failures are written to the retry queue
+    private final ExecutorService completionExecutor;
+    private final ConcurrentMap<String, PushNotificationEndpoint<PushNotificationRequest>> endpoints = new ConcurrentHashMap<String, PushNotificationEndpoint<PushNotificationRequest>>();
+    // The bus event is acked once the requests are submitted: the ones not completed on shutdown are written to the retry queue.
+    // Whoever removes a request from this set (completion or shutdown) is responsible for it.
+    private final Set<PushNotificationRequest> inFlightRequests = Collections.newSetFromMap(new ConcurrentHashMap<PushNotificationRequest, Boolean>());
+
+    private volatile boolean isStopping = false;
 
     @Inject
     public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory,
@@ -93,6 +108,7 @@ public class PushNotificationListener {
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
         this.notificationConfig = notificationConfig;
+        this.completionExecutor = Executors.newFixedThreadPool(NB_COMPLETION_THREADS, "PushNotificationCompletion");
     }
 
     @AllowConcurrentEvents
@@ -113,47 +129,159 @@ public class PushNotificationListener {
         }
     }
 
+    // Must be called while the retry queue is still available
     public void shutdown() {
+        isStopping = true;
+
+        // Not sent yet
+        deferPendingRequests();
+
+        // Give the in-flight requests a chance to complete (bounded by the request timeout), failures are deferred as usual
+        try {
+            final long deadlineMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_NOTIFICATION);
+            while (!inFlightRequests.isEmpty() && System.currentTimeMillis() < deadlineMillis) {
+                Thread.sleep(100);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         httpClient.close();
+        completionExecutor.shutdown();
+        try {
+            completionExecutor.awaitTermination(TIMEOUT_NOTIFICATION, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (final PushNotificationRequest inFlightRequest : inFlightRequests) {
+            if (inFlightRequests.remove(inFlightRequest)) {
+                // Not a failure: the outcome is unknown
+                log.info("Deferring in-flight push notification url='{}', tenantId='{}' on shutdown", inFlightRequest.url, inFlightRequest.tenantId);
+                deferPushNotification(inFlightRequest);
+            }
+        }
+
+        // Queued concurrently with the first pass
+        deferPendingRequests();
+    }
+
+    private void deferPendingRequests() {
+        for (final PushNotificationEndpoint<PushNotificationRequest> endpoint : endpoints.values()) {
+            for (final PushNotificationRequest pendingRequest : endpoint.drainPendingRequests()) {
+                deferPushNotification(pendingRequest);
+            }
+        }
     }
 
     private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
         final String body = mapper.writeValueAsString(notification);
         for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, notification, TIMEOUT_NOTIFICATION, 0);
+            submit(new PushNotificationRequest(tenantId, cur, body, notification, 0));
         }
     }
 
-    private boolean doPost(final UUID tenantId, final String url, final String body, final NotificationJson notification,
-                           final int timeoutSec, final int attemptRetryNumber) {
-        final BoundRequestBuilder builder = httpClient.preparePost(url);
-        builder.setBody(body == null ? "{}" : body);
+    // Non-blocking: a slow callback url doesn't delay the other ones (nor the bus thread)
+    private void submit(final PushNotificationRequest request) {
+        if (isStopping) {
+            deferPushNotification(request);
+            return;
+        }
+
+        final Admission admission = getEndpoint(request.url).submit(request);
+        if (admission == Admission.SEND) {
+            doPost(request);
+        } else if (admission == Admission.REJECTED) {
+            log.info("Deferring push notification url='{}', tenantId='{}': too many failures or pending requests", request.url, request.tenantId);
+            deferPushNotification(request);
+        }
+    }
+
+    private PushNotificationEndpoint<PushNotificationRequest> getEndpoint(final String url) {
+        PushNotificationEndpoint<PushNotificationRequest> endpoint = endpoints.get(url);
+        if (endpoint == null) {
+            endpoint = new PushNotificationEndpoint<PushNotificationRequest>(notificationConfig.getPushNotificationsMaxConcurrentRequestsPerEndpoint(),
+                                                                            notificationConfig.getPushNotificationsMaxPendingRequestsPerEndpoint(),
+                                                                            notificationConfig.getPushNotificationsCircuitBreakerFailureThreshold(),
+                                                                            notificationConfig.getPushNotificationsCircuitBreakerOpenDuration().getMillis(),
+                                                                            clock);
+            final PushNotificationEndpoint<PushNotificationRequest> existingEndpoint = endpoints.putIfAbsent(url, endpoint);
+            if (existingEndpoint != null) {
+                endpoint = existingEndpoint;
+            }
+        }
+        return endpoint;
+    }
+
+    private void doPost(final PushNotificationRequest request) {
+        if (isStopping) {
+            // The http client may already be closed
+            deferPushNotification(request);
+            return;
+        }
+        inFlightRequests.add(request);
+
+        final BoundRequestBuilder builder = httpClient.preparePost(request.url);
+        builder.setBody(request.body == null ? "{}" : request.body);
         builder.addHeader(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
 
-        final Response response;
         try {
-            final ListenableFuture<Response> futureStatus =
-                    builder.execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(final Response response) throws Exception {
-                            return response;
-                        }
-                    });
-            response = futureStatus.get(timeoutSec, TimeUnit.SECONDS);
-        } catch (final TimeoutException toe) {
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber);
-            return false;
-        } catch (final Exception e) {
-            log.warn("Failed to push notification url='{}', tenantId='{}'", url, tenantId, e);
-            return false;
-        }
-
-        if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
-            return true;
-        } else {
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber);
-            return false;
+            builder.execute(new AsyncCompletionHandler<Response>() {
+                @Override
+                public Response onCompleted(final Response response) throws Exception {
+                    onRequestCompletion(request, response, null);
+                    return response;
+                }
+
+                @Override
+                public void onThrowable(final Throwable t) {
+                    onRequestCompletion(request, null, t);
+                }
+            });
+        } catch (final RuntimeException e) {
+            onRequestCompletion(request, null, e);
+        }
+    }
+
+    private void onRequestCompletion(final PushNotificationRequest request, final Response response, final Throwable throwable) {
+        try {
+            completionExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    handleRequestCompletion(request, response, throwable);
+                }
+            });
+        } catch (final RuntimeException e) {
+            // Shutting down: the request is deferred by shutdown()
+            log.warn("Failed to process push notification completion url='{}', tenantId='{}'", request.url, request.tenantId, e);
+        }
+    }
+
+    private void handleRequestCompletion(final PushNotificationRequest request, final Response response, final Throwable throwable) {
+        if (!inFlightRequests.remove(request)) {
+            // Already deferred by shutdown()
+            return;
+        }
+
+        final boolean success = response != null && response.getStatusCode() >= 200 && response.getStatusCode() < 300;
+        if (!success) {
+            if (throwable != null) {
+                log.warn("Failed to push notification url='{}', tenantId='{}'", request.url, request.tenantId, throwable);
+            }
+            retryPushNotification(request);
+        }
+
+        final List<PushNotificationRequest> nextRequests = new LinkedList<PushNotificationRequest>();
+        final List<PushNotificationRequest> rejectedRequests = new LinkedList<PushNotificationRequest>();
+        getEndpoint(request.url).onCompletion(success, nextRequests, rejectedRequests);
+        if (!rejectedRequests.isEmpty()) {
+            log.warn("Too many failures for push notification url='{}', deferring {} pending notifications", request.url, rejectedRequests.size());
+        }
+        for (final PushNotificationRequest rejectedRequest : rejectedRequests) {
+            deferPushNotification(rejectedRequest);
+        }
+        for (final PushNotificationRequest nextRequest : nextRequests) {
+            doPost(nextRequest);
         }
     }
 
@@ -165,16 +293,26 @@ public class PushNotificationListener {
                                                                    key.getObjectId() != null ? key.getObjectId().toString() : null,
                                                                    key.getMetaData());
         final String body = mapper.writeValueAsString(notification);
-        doPost(key.getTenantId(), key.getUrl(), body, notification, TIMEOUT_NOTIFICATION, key.getAttemptNumber());
+        submit(new PushNotificationRequest(key.getTenantId(), key.getUrl(), body, notification, key.getAttemptNumber()));
     }
 
-    private void saveRetryPushNotificationInQueue(final UUID tenantId, final String url, final NotificationJson notificationJson, final int attemptRetryNumber) {
+    // The request was sent and failed: schedule the next attempt
+    private void retryPushNotification(final PushNotificationRequest request) {
+        saveRetryPushNotificationInQueue(request.tenantId, request.url, request.notification, request.attemptRetryNumber + 1);
+    }
+
+    // The request wasn't sent (or didn't complete): schedule it again, as the same attempt
+    private void deferPushNotification(final PushNotificationRequest request) {
+        saveRetryPushNotificationInQueue(request.tenantId, request.url, request.notification, request.attemptRetryNumber);
+    }
+
+    private void saveRetryPushNotificationInQueue(final UUID tenantId, final String url, final NotificationJson notificationJson, final int attemptNumber) {
         final PushNotificationKey key = new PushNotificationKey(tenantId,
                                                                 notificationJson.getAccountId() != null ? UUID.fromString(notificationJson.getAccountId()) : null,
                                                                 notificationJson.getEventType(),
                                                                 notificationJson.getObjectType(),
                                                                 notificationJson.getObjectId() != null ? UUID.fromString(notificationJson.getObjectId()) : null,
-                                                                attemptRetryNumber + 1,
+                                                                attemptNumber,
                                                                 notificationJson.getMetaData(),
                                                                 url);
 
@@ -202,14 +340,32 @@ public class PushNotificationListener {
     private DateTime getNextNotificationTime(final int attemptNumber, final InternalTenantContext tenantContext) {
 
         final List<TimeSpan> retries = notificationConfig.getPushNotificationsRetries(tenantContext);
-        if (attemptNumber > retries.size()) {
+        if (attemptNumber > retries.size() || retries.isEmpty()) {
             return null;
         }
-        final TimeSpan nextDelay = retries.get(attemptNumber - 1);
+        // A notification deferred before its first attempt (attempt number 0) waits as long as a first retry
+        final TimeSpan nextDelay = retries.get(Math.max(attemptNumber, 1) - 1);
         return clock.getUTCNow().plusMillis((int) nextDelay.getMillis());
     }
 
     private List<String> getCallbacksForTenant(final TenantContext context) throws TenantApiException {
         return tenantApi.getTenantValuesForKey(TenantKey.PUSH_NOTIFICATION_CB.toString(), context);
     }
+
+    private static final class PushNotificationRequest {
+
+        private final UUID tenantId;
+        private final String url;
+        private final String body;
+        private final NotificationJson notification;
+        private final int attemptRetryNumber;
+
+        private PushNotificationRequest(final UUID tenantId, final String url, final String body, final NotificationJson notification, final int attemptRetryNumber) {
+            this.tenantId = tenantId;
+            this.url = url;
+            this.body = body;
+            this.notification = notification;
+            this.attemptRetryNumber = attemptRetryNumber;
+        }
+    }
 }
@@ -42,6 +42,7 @@ import org.killbill.billing.server.listeners.KillbillGuiceListener;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.util.security.TenantCredentialsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +62,8 @@ public class TenantFilter implements Filter {
     protected TenantUserApi tenantUserApi;
     @Inject
     protected KillbillJdbcTenantRealm killbillJdbcTenantRealm;
+    @Inject
+    protected TenantCredentialsCache tenantCredentialsCache;
 
     private ModularRealmAuthenticator modularRealmAuthenticator;
 
@@ -89,6 +92,13 @@ public class TenantFilter implements Filter {
             return;
         }
 
+        // Credentials recently verified: skip the (expensive) hashing and the tenant lookup
+        final Tenant cachedTenant = tenantCredentialsCache.getIfVerified(apiKey, apiSecret);
+        if (cachedTenant != null) {
+            doFilterWithTenant(cachedTenant, chain, request, response);
+            return;
+        }
+
         // Verify the apiKey/apiSecret combo
         final AuthenticationToken token = new UsernamePasswordToken(apiKey, apiSecret);
         try {
@@ -99,19 +109,27 @@ public class TenantFilter implements Filter {
             return;
         }
 
+        final Tenant tenant;
         try {
             // Load the tenant in the request object (apiKey is unique across tenants)
-            final Tenant tenant = tenantUserApi.getTenantByApiKey(apiKey);
-            request.setAttribute(TENANT, tenant);
-
-            // Create a dummy context, to set the MDC very early for LoggingFilter
-            context.createContext(request);
-
-            chain.doFilter(request, response);
+            tenant = tenantUserApi.getTenantByApiKey(apiKey);
         } catch (final TenantApiException e) {
             // Should never happen since Shiro validated the credentials?
             log.error("Couldn't find the tenant? - should never happen!", e);
+            return;
         }
+        tenantCredentialsCache.put(apiKey, apiSecret, tenant);
+
+        doFilterWithTenant(tenant, chain, request, response);
+    }
+
+    private void doFilterWithTenant(final Tenant tenant, final FilterChain chain, final ServletRequest request, final ServletResponse response) throws IOException, ServletException {
+        request.setAttribute(TENANT, tenant);
+
+        // Create a dummy context, to set the MDC very early for LoggingFilter
+        context.createContext(request);
+
+        chain.doFilter(request, response);
     }
 
     private void handleAuthenticationError(final String errorMessage, final FilterChain chain, final ServletRequest request, final ServletResponse response) throws IOException, ServletException {
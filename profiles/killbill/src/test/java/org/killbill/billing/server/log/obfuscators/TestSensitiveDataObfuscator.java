@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import java.util.Random;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+public class TestSensitiveDataObfuscator extends ServerTestSuiteNoDB {
+
+    private static final String[] FRAGMENTS = {
+            "accountNumber", "bankAccountNumber", "NUMBER", "number", "ccNumber", "cvNumber", "ccvv", "cvv", "Email", "name", "ccFirstName", "xid", "numbe", "nam",
+            "\"", "\":", "\" : ", "'", "=", " = ", ",", "{", "}", "<", ">", "</", "</ns:", "</key>", "<value>", "<value type=\"string\">", "</value>",
+            " ", "\n", "-", "foo", "Bob@example.org", "4111111111111111", "4111 1111 1111 1111", "4111-1111-1111-1111", "5137004986396403", "1234567890123",
+            "\"PLUGIN:", "\"DAO:", "x\u0130d", "\u212A"
+    };
+
+    private final SensitiveDataObfuscator sensitiveDataObfuscator = new SensitiveDataObfuscator();
+    private final PatternObfuscator patternObfuscator = new PatternObfuscator();
+    private final LuhnMaskingObfuscator luhnMaskingObfuscator = new LuhnMaskingObfuscator();
+
+    @Test(groups = "fast")
+    public void testKeywordsAutomaton() throws Exception {
+        final KeywordsAutomaton automaton = new KeywordsAutomaton("number", "accountnumber", "cvv", "ccvv", "xid");
+
+        Assert.assertEquals(automaton.findFirstOccurrences(""), new int[]{-1, -1, -1, -1, -1});
+        Assert.assertEquals(automaton.findFirstOccurrences("no sensitive data"), new int[]{-1, -1, -1, -1, -1});
+        Assert.assertEquals(automaton.findFirstOccurrences("{\"bankAccountNumber\":\"1234\",\"CCVV\":\"123\"}"), new int[]{13, 6, 30, 29, -1});
+        Assert.assertEquals(automaton.findFirstOccurrences("nnumber=1;xid=2;NUMBER=3"), new int[]{1, -1, -1, -1, 10});
+        // Only ASCII case folding, as Pattern.CASE_INSENSITIVE
+        Assert.assertEquals(automaton.findFirstOccurrences("x\u0130d XID"), new int[]{-1, -1, -1, -1, 4});
+    }
+
+    @Test(groups = "fast")
+    public void testSameOutputAsPatternAndLuhnMaskingObfuscators() throws Exception {
+        final ILoggingEvent event = Mockito.mock(ILoggingEvent.class);
+        final ILoggingEvent loggingFilterEvent = Mockito.mock(ILoggingEvent.class);
+        Mockito.when(loggingFilterEvent.getLoggerName()).thenReturn(Obfuscator.LOGGING_FILTER_NAME);
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            final StringBuilder input = new StringBuilder();
+            final int nbFragments = random.nextInt(30);
+            for (int j = 0; j < nbFragments; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+
+            verify(input.toString(), i % 2 == 0 ? event : loggingFilterEvent);
+        }
+    }
+
+    private void verify(final String input, final ILoggingEvent event) {
+        final String expected = luhnMaskingObfuscator.obfuscate(patternObfuscator.obfuscateWithAllPatterns(input, event), event);
+        Assert.assertEquals(sensitiveDataObfuscator.obfuscate(input, event), expected, input);
+        Assert.assertEquals(patternObfuscator.obfuscate(input, event), patternObfuscator.obfuscateWithAllPatterns(input, event), input);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.billing.server.notifications.PushNotificationEndpoint.Admission;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestPushNotificationEndpoint extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testConcurrencyAndPendingLimits() throws Exception {
+        final PushNotificationEndpoint<String> endpoint = new PushNotificationEndpoint<String>(2, 1, 0, 60000, clock);
+
+        Assert.assertEquals(endpoint.submit("1"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("2"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("3"), Admission.QUEUED);
+        Assert.assertEquals(endpoint.submit("4"), Admission.REJECTED);
+        Assert.assertEquals(endpoint.getInFlightRequests(), 2);
+        Assert.assertEquals(endpoint.getPendingRequests(), 1);
+
+        // The slot is transferred to the pending request
+        final List<String> nextRequests = new LinkedList<String>();
+        final List<String> rejectedRequests = new LinkedList<String>();
+        endpoint.onCompletion(true, nextRequests, rejectedRequests);
+        Assert.assertEquals(nextRequests, ImmutableList.<String>of("3"));
+        Assert.assertEquals(endpoint.getInFlightRequests(), 2);
+        Assert.assertEquals(endpoint.getPendingRequests(), 0);
+
+        nextRequests.clear();
+        endpoint.onCompletion(true, nextRequests, rejectedRequests);
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertTrue(nextRequests.isEmpty());
+        Assert.assertEquals(endpoint.getInFlightRequests(), 0);
+        Assert.assertTrue(rejectedRequests.isEmpty());
+        // Circuit breaker disabled
+        Assert.assertFalse(endpoint.isOpen());
+    }
+
+    @Test(groups = "fast")
+    public void testCircuitBreaker() throws Exception {
+        final PushNotificationEndpoint<String> endpoint = new PushNotificationEndpoint<String>(2, 10, 2, 60000, clock);
+
+        Assert.assertEquals(endpoint.submit("1"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("2"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("3"), Admission.QUEUED);
+        Assert.assertEquals(endpoint.submit("4"), Admission.QUEUED);
+
+        final List<String> nextRequests = new LinkedList<String>();
+        final List<String> rejectedRequests = new LinkedList<String>();
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertEquals(nextRequests, ImmutableList.<String>of("3"));
+        Assert.assertFalse(endpoint.isOpen());
+
+        // Second consecutive failure: the circuit is opened, and the pending requests are deferred
+        nextRequests.clear();
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertTrue(nextRequests.isEmpty());
+        Assert.assertTrue(endpoint.isOpen());
+        Assert.assertEquals(rejectedRequests, ImmutableList.<String>of("4"));
+        Assert.assertEquals(endpoint.submit("5"), Admission.REJECTED);
+        // Still in flight when the circuit was opened
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertEquals(endpoint.getInFlightRequests(), 0);
+
+        // Half-open: a single probe is sent, the other requests wait for it
+        clock.addDeltaFromReality(60001);
+        Assert.assertFalse(endpoint.isOpen());
+        Assert.assertEquals(endpoint.submit("6"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("7"), Admission.QUEUED);
+        Assert.assertEquals(endpoint.getInFlightRequests(), 1);
+
+        // A failure of the probe re-opens the circuit
+        rejectedRequests.clear();
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertTrue(endpoint.isOpen());
+        Assert.assertTrue(nextRequests.isEmpty());
+        Assert.assertEquals(rejectedRequests, ImmutableList.<String>of("7"));
+
+        // A success of the probe closes it, and the pending requests are sent with the full concurrency
+        clock.addDeltaFromReality(60001);
+        Assert.assertEquals(endpoint.submit("8"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("9"), Admission.QUEUED);
+        Assert.assertEquals(endpoint.submit("10"), Admission.QUEUED);
+        endpoint.onCompletion(true, nextRequests, rejectedRequests);
+        Assert.assertEquals(nextRequests, ImmutableList.<String>of("9", "10"));
+        Assert.assertEquals(endpoint.getInFlightRequests(), 2);
+
+        // A single failure doesn't re-open it anymore
+        nextRequests.clear();
+        endpoint.onCompletion(false, nextRequests, rejectedRequests);
+        Assert.assertFalse(endpoint.isOpen());
+    }
+
+    @Test(groups = "fast")
+    public void testDrainPendingRequests() throws Exception {
+        final PushNotificationEndpoint<String> endpoint = new PushNotificationEndpoint<String>(1, 10, 0, 60000, clock);
+
+        Assert.assertEquals(endpoint.submit("1"), Admission.SEND);
+        Assert.assertEquals(endpoint.submit("2"), Admission.QUEUED);
+        Assert.assertEquals(endpoint.submit("3"), Admission.QUEUED);
+
+        Assert.assertEquals(endpoint.drainPendingRequests(), ImmutableList.<String>of("2", "3"));
+        Assert.assertEquals(endpoint.getPendingRequests(), 0);
+
+        final List<String> nextRequests = new LinkedList<String>();
+        endpoint.onCompletion(true, nextRequests, new LinkedList<String>());
+        Assert.assertTrue(nextRequests.isEmpty());
+        Assert.assertEquals(endpoint.getInFlightRequests(), 0);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Compares the PatternObfuscator regex loop followed by the LuhnMaskingObfuscator with the single-pass SensitiveDataObfuscator.
+ * <p/>
+ * To run: mvn -Pjmh -pl profiles/killbill test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.server.log.obfuscators.ObfuscatorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObfuscatorBenchmark {
+
+    private static final String NON_SENSITIVE_LINE = "Successfully processed event BusEvent{eventType='INVOICE_CREATION', objectId=9a1c8e2e-7b5f-4a7b-a0c4-0e4b8f1d2c3a, accountRecordId=12, tenantRecordId=1}";
+
+    private static final String PLUGIN_PROPERTIES_LINE = "ENTERING onSuccessCall paymentMethodId='e92a3bfd-0713-4396-a1e2-ff46cb051f8c' ccVerificationValue='123' ccNumber = '4111111111111111' ccTrackData=\"XXX\" ccFirstName = \"John\" ccLastName=\"'Smith'\"";
+
+    private static final String JSON_RESPONSE = "{\n" +
+                                                "  \"paymentId\": \"e92a3bfd-0713-4396-a1e2-ff46cb051f8c\",\n" +
+                                                "  \"card\": {\n" +
+                                                "    \"number\": \"4111111111111111\",\n" +
+                                                "    \"cvv\": \"123\",\n" +
+                                                "    \"name\": \"John Doe\",\n" +
+                                                "    \"expiryMonth\": 12,\n" +
+                                                "    \"expiryYear\": 2020\n" +
+                                                "  },\n" +
+                                                "  \"billingAddress\": {\n" +
+                                                "    \"email\": \"john@example.org\",\n" +
+                                                "    \"street1\": \"5, oakriu road\",\n" +
+                                                "    \"city\": \"Gdio Foia\",\n" +
+                                                "    \"country\": \"US\"\n" +
+                                                "  },\n" +
+                                                "  \"amount\": 10.00,\n" +
+                                                "  \"currency\": \"USD\"\n" +
+                                                "}";
+
+    private static final String XML_REQUEST = "<requestMessage xmlns=\"urn:schemas-cybersource-com:transaction-data-1.109\">\n" +
+                                              "  <merchantReferenceCode>e92a3bfd-0713-4396-a1e2-ff46cb051f8c</merchantReferenceCode>\n" +
+                                              "  <billTo>\n" +
+                                              "    <firstName>John</firstName>\n" +
+                                              "    <lastName>Doe</lastName>\n" +
+                                              "    <street1>5, oakriu road</street1>\n" +
+                                              "    <city>Gdio Foia</city>\n" +
+                                              "    <email>1428324461-test@tester.com</email>\n" +
+                                              "  </billTo>\n" +
+                                              "  <card>\n" +
+                                              "    <accountNumber>4242424242424242</accountNumber>\n" +
+                                              "    <expirationMonth>12</expirationMonth>\n" +
+                                              "    <expirationYear>2017</expirationYear>\n" +
+                                              "    <cvNumber>1234</cvNumber>\n" +
+                                              "    <cardType>001</cardType>\n" +
+                                              "  </card>\n" +
+                                              "</requestMessage>";
+
+    @Param({"NON_SENSITIVE_LINE", "PLUGIN_PROPERTIES_LINE", "JSON_RESPONSE", "XML_REQUEST"})
+    public String payload;
+
+    private String logLine;
+    private ILoggingEvent event;
+    private PatternObfuscator patternObfuscator;
+    private LuhnMaskingObfuscator luhnMaskingObfuscator;
+    private SensitiveDataObfuscator sensitiveDataObfuscator;
+
+    @Setup
+    public void setUp() throws Exception {
+        logLine = (String) ObfuscatorBenchmark.class.getDeclaredField(payload).get(null);
+        event = Mockito.mock(ILoggingEvent.class);
+        patternObfuscator = new PatternObfuscator();
+        luhnMaskingObfuscator = new LuhnMaskingObfuscator();
+        sensitiveDataObfuscator = new SensitiveDataObfuscator(patternObfuscator, luhnMaskingObfuscator);
+    }
+
+    @Benchmark
+    public String regexLoop() {
+        return luhnMaskingObfuscator.obfuscate(patternObfuscator.obfuscateWithAllPatterns(logLine, event), event);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return sensitiveDataObfuscator.obfuscate(logLine, event);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ObfuscatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -489,7 +489,10 @@ public class DefaultSubscriptionInternalApi extends SubscriptionApiBase implemen
             final Map<UUID, List<SubscriptionBase>> internalSubscriptions = dao.getSubscriptionsForAccount(context);
             final Map<UUID, List<SubscriptionBase>> result = new HashMap<UUID, List<SubscriptionBase>>();
             for (final UUID bundleId : internalSubscriptions.keySet()) {
-                result.put(bundleId, createSubscriptionsForApiUse(internalSubscriptions.get(bundleId)));
+                // Same ordering as getSubscriptionsForBundle (base subscription first)
+                final List<SubscriptionBase> subscriptionsForBundle = new ArrayList<SubscriptionBase>(internalSubscriptions.get(bundleId));
+                Collections.sort(subscriptionsForBundle, DefaultSubscriptionInternalApi.SUBSCRIPTIONS_COMPARATOR);
+                result.put(bundleId, createSubscriptionsForApiUse(subscriptionsForBundle));
             }
             return result;
         } catch (final CatalogApiException e) {
@@ -91,6 +91,7 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -125,8 +126,9 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Inject
     public DefaultSubscriptionDao(final IDBI dbi, final Clock clock, final AddonUtils addonUtils,
                                   final NotificationQueueService notificationQueueService, final PersistentBus eventBus, final CatalogService catalogService,
-                                  final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
-        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), BundleSqlDao.class);
+                                  final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                  final LatencyHistograms latencyHistograms) {
+        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms), BundleSqlDao.class);
         this.clock = clock;
         this.notificationQueueService = notificationQueueService;
         this.addonUtils = addonUtils;
@@ -410,6 +412,12 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
         final List<SubscriptionBaseEvent> eventsForAccount = getEventsForAccountId(context);
 
+        // Index the events once (ordering is preserved per subscription), instead of scanning all account events for each subscription
+        final Multimap<UUID, SubscriptionBaseEvent> eventsForAccountPerSubscription = ArrayListMultimap.create();
+        for (final SubscriptionBaseEvent event : eventsForAccount) {
+            eventsForAccountPerSubscription.put(event.getSubscriptionId(), event);
+        }
+
         final Map<UUID, List<SubscriptionBase>> result = new HashMap<UUID, List<SubscriptionBase>>();
         for (final UUID bundleId : subscriptionsFromAccountId.keySet()) {
 
@@ -417,14 +425,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
             final Multimap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = ArrayListMultimap.create();
 
             for (final SubscriptionBase cur : subscriptionsForBundle) {
-                final Collection<SubscriptionBaseEvent> events = Collections2.filter(eventsForAccount, new Predicate<SubscriptionBaseEvent>() {
-                    @Override
-                    public boolean apply(final SubscriptionBaseEvent input) {
-                        return input.getSubscriptionId().equals(cur.getId());
-
-                    }
-                });
-                eventsForSubscriptions.putAll(cur.getId(), ImmutableList.copyOf(events));
+                eventsForSubscriptions.putAll(cur.getId(), eventsForAccountPerSubscription.get(cur.getId()));
             }
 
             result.put(bundleId, buildBundleSubscriptions(subscriptionsForBundle, eventsForSubscriptions, null, context));
@@ -438,17 +439,17 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
             public List<SubscriptionBase> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
 
                 final List<SubscriptionBundleModelDao> bundleModels = entitySqlDaoWrapperFactory.become(BundleSqlDao.class).getByAccountRecordId(context);
+                final Map<UUID, SubscriptionBundleModelDao> bundleModelsPerId = new HashMap<UUID, SubscriptionBundleModelDao>();
+                for (final SubscriptionBundleModelDao bundleModel : bundleModels) {
+                    bundleModelsPerId.put(bundleModel.getId(), bundleModel);
+                }
 
                 final List<SubscriptionModelDao> subscriptionModels = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).getByAccountRecordId(context);
                 return new ArrayList<SubscriptionBase>(Collections2.transform(subscriptionModels, new Function<SubscriptionModelDao, SubscriptionBase>() {
                     @Override
                     public SubscriptionBase apply(final SubscriptionModelDao input) {
-                        final SubscriptionBundleModelDao bundleModel = Iterables.find(bundleModels, new Predicate<SubscriptionBundleModelDao>() {
-                            @Override
-                            public boolean apply(final SubscriptionBundleModelDao bundleInput) {
-                                return bundleInput.getId().equals(input.getBundleId());
-                            }
-                        });
+                        final SubscriptionBundleModelDao bundleModel = bundleModelsPerId.get(input.getBundleId());
+                        Preconditions.checkState(bundleModel != null, "Unable to find bundle " + input.getBundleId() + " for subscription " + input.getId());
                         return SubscriptionModelDao.toSubscription(input, bundleModel.getExternalKey());
                     }
                 }));
@@ -19,6 +19,7 @@
 package org.killbill.billing.subscription.engine.dao;
 
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.skife.jdbi.v2.IDBI;
 
 import org.killbill.bus.api.PersistentBus;
@@ -36,7 +37,8 @@ public class MockSubscriptionDaoSql extends DefaultSubscriptionDao {
     @Inject
     public MockSubscriptionDaoSql(final IDBI dbi, final Clock clock, final AddonUtils addonUtils, final NotificationQueueService notificationQueueService,
                                   final PersistentBus eventBus, final CatalogService catalogService, final CacheControllerDispatcher cacheControllerDispatcher,
-                                  final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
-        super(dbi, clock, addonUtils, notificationQueueService, eventBus, catalogService, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+                                  final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                  final LatencyHistograms latencyHistograms) {
+        super(dbi, clock, addonUtils, notificationQueueService, eventBus, catalogService, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
     }
 }
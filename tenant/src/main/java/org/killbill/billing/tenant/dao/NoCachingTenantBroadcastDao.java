@@ -30,18 +30,21 @@ import org.killbill.billing.tenant.glue.DefaultTenantModule;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.IDBI;
 
 public class NoCachingTenantBroadcastDao extends EntityDaoBase<TenantBroadcastModelDao, Entity, TenantApiException> implements TenantBroadcastDao {
 
     @Inject
-    public NoCachingTenantBroadcastDao(final IDBI dbi, final Clock clock, @Named(DefaultTenantModule.NO_CACHING_TENANT) final InternalCallContextFactory internalCallContextFactory) {
-        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, null, null, internalCallContextFactory), TenantBroadcastSqlDao.class);
+    public NoCachingTenantBroadcastDao(final IDBI dbi, final Clock clock, @Named(DefaultTenantModule.NO_CACHING_TENANT) final InternalCallContextFactory internalCallContextFactory,
+                                       final LatencyHistograms latencyHistograms) {
+        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, null, null, internalCallContextFactory, latencyHistograms), TenantBroadcastSqlDao.class);
     }
 
     @Override
@@ -49,6 +52,11 @@ public class NoCachingTenantBroadcastDao extends EntityDaoBase<TenantBroadcastMo
         throw new IllegalStateException("Not implemented by NoCachingTenantBroadcastDao");
     }
 
+    @Override
+    public Pagination<TenantBroadcastModelDao> get(final Long offset, final Long limit, final PaginationOptions paginationOptions, final InternalTenantContext context) {
+        throw new IllegalStateException("Not implemented by NoCachingTenantBroadcastDao");
+    }
+
     @Override
     protected TenantApiException generateAlreadyExistsException(final TenantBroadcastModelDao entity, final InternalCallContext context) {
         throw new IllegalStateException("Not implemented by NoCachingTenantBroadcastDao");
@@ -18,6 +18,7 @@
 package org.killbill.billing.usage.api.svcs;
 
 import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -26,6 +27,8 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.api.user.RolledUpUsageAggregator;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
 
@@ -36,10 +39,12 @@ import com.google.common.collect.Iterables;
 public class DefaultInternalUserApi implements InternalUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
+    private final RolledUpUsageAggregator rolledUpUsageAggregator;
 
     @Inject
     public DefaultInternalUserApi(final RolledUpUsageDao rolledUpUsageDao) {
         this.rolledUpUsageDao = rolledUpUsageDao;
+        this.rolledUpUsageAggregator = new RolledUpUsageAggregator(rolledUpUsageDao);
     }
 
     @Override
@@ -53,4 +58,9 @@ public class DefaultInternalUserApi implements InternalUserApi {
             }
         }));
     }
+
+    @Override
+    public List<RolledUpUsage> getAllUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalTenantContext internalTenantContext) {
+        return rolledUpUsageAggregator.getAllUsageForSubscription(subscriptionId, transitionTimes, internalTenantContext);
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.usage.UsageBulkUserApi;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UnitUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.usage.api.UsageRecord;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.SetMultimap;
+
+public class DefaultUsageBulkUserApi implements UsageBulkUserApi {
+
+    private final RolledUpUsageDao rolledUpUsageDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultUsageBulkUserApi(final RolledUpUsageDao rolledUpUsageDao,
+                                   final InternalCallContextFactory internalCallContextFactory) {
+        this.rolledUpUsageDao = rolledUpUsageDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public void recordRolledUpUsage(final Iterable<SubscriptionUsageRecord> records, final CallContext callContext) throws UsageApiException {
+        final InternalCallContext context = internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(callContext);
+
+        final Set<UUID> subscriptionIds = new HashSet<UUID>();
+        final Set<String> trackingIds = new HashSet<String>();
+        for (final SubscriptionUsageRecord record : records) {
+            subscriptionIds.add(record.getSubscriptionId());
+            if (!Strings.isNullOrEmpty(record.getTrackingId())) {
+                trackingIds.add(record.getTrackingId());
+            }
+        }
+
+        // One query for all the account record ids (this also guarantees the subscriptions belong to the tenant)
+        final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIds(subscriptionIds, ObjectType.SUBSCRIPTION, context);
+        for (final UUID subscriptionId : subscriptionIds) {
+            if (accountRecordIds.get(subscriptionId) == null) {
+                throw new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, subscriptionId);
+            }
+        }
+
+        // One query for the (subscription_id, tracking_id) pairs already recorded
+        final SetMultimap<UUID, String> recordedTrackingIds = HashMultimap.<UUID, String>create();
+        for (final RolledUpUsageModelDao cur : rolledUpUsageDao.getSubscriptionIdsWithTrackingIds(trackingIds, context)) {
+            recordedTrackingIds.put(cur.getSubscriptionId(), cur.getTrackingId());
+        }
+
+        // As with the single record API, a tracking id already recorded for the subscription (or repeated in the batch) is rejected
+        final ListMultimap<Long, RolledUpUsageModelDao> usagesPerAccount = ArrayListMultimap.<Long, RolledUpUsageModelDao>create();
+        for (final SubscriptionUsageRecord record : records) {
+            if (!Strings.isNullOrEmpty(record.getTrackingId()) && !recordedTrackingIds.put(record.getSubscriptionId(), record.getTrackingId())) {
+                throw new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, record.getTrackingId());
+            }
+
+            final Long accountRecordId = accountRecordIds.get(record.getSubscriptionId());
+            for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+                for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                    usagesPerAccount.put(accountRecordId, new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), record.getTrackingId()));
+                }
+            }
+        }
+
+        final Map<InternalCallContext, List<RolledUpUsageModelDao>> usagesPerAccountContext = new LinkedHashMap<InternalCallContext, List<RolledUpUsageModelDao>>();
+        for (final Long accountRecordId : usagesPerAccount.keySet()) {
+            usagesPerAccountContext.put(internalCallContextFactory.createInternalCallContext(accountRecordId, context), usagesPerAccount.get(accountRecordId));
+        }
+        // All or nothing: a failure doesn't leave part of the records recorded
+        rolledUpUsageDao.record(usagesPerAccountContext);
+    }
+}
@@ -48,12 +48,14 @@ public class DefaultUsageUserApi implements UsageUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final RolledUpUsageAggregator rolledUpUsageAggregator;
 
     @Inject
     public DefaultUsageUserApi(final RolledUpUsageDao rolledUpUsageDao,
                                final InternalCallContextFactory internalCallContextFactory) {
         this.rolledUpUsageDao = rolledUpUsageDao;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.rolledUpUsageAggregator = new RolledUpUsageAggregator(rolledUpUsageDao);
     }
 
     @Override
@@ -84,17 +86,7 @@ public class DefaultUsageUserApi implements UsageUserApi {
     @Override
     public List<RolledUpUsage> getAllUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final TenantContext tenantContext) {
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext);
-        List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
-        LocalDate prevDate = null;
-        for (LocalDate curDate : transitionTimes) {
-            if (prevDate != null) {
-                final List<RolledUpUsageModelDao> usageForSubscription = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, prevDate, curDate, internalCallContext);
-                final List<RolledUpUnit> rolledUpAmount = getRolledUpUnits(usageForSubscription);
-                result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, rolledUpAmount));
-            }
-            prevDate = curDate;
-        }
-        return result;
+        return rolledUpUsageAggregator.getAllUsageForSubscription(subscriptionId, transitionTimes, internalCallContext);
     }
 
     private List<RolledUpUnit> getRolledUpUnits(final List<RolledUpUsageModelDao> usageForSubscription) {
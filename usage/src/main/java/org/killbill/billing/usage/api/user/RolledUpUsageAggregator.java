@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.usage.api.RolledUpUnit;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+
+import com.google.common.collect.ImmutableList;
+
+//
+// Computes the rolled up usage for a list of consecutive transition windows [t(i), t(i+1)) using a single query:
+// the database returns one row per (record_date, unit_type) over the whole [first, last) range, and each row is
+// then attributed to its window.
+//
+public class RolledUpUsageAggregator {
+
+    private final RolledUpUsageDao rolledUpUsageDao;
+
+    public RolledUpUsageAggregator(final RolledUpUsageDao rolledUpUsageDao) {
+        this.rolledUpUsageDao = rolledUpUsageDao;
+    }
+
+    public List<RolledUpUsage> getAllUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalTenantContext context) {
+        if (transitionTimes.size() < 2) {
+            return ImmutableList.<RolledUpUsage>of();
+        }
+
+        LocalDate minDate = transitionTimes.get(0);
+        LocalDate maxDate = transitionTimes.get(0);
+        for (final LocalDate curDate : transitionTimes) {
+            minDate = curDate.compareTo(minDate) < 0 ? curDate : minDate;
+            maxDate = curDate.compareTo(maxDate) > 0 ? curDate : maxDate;
+        }
+
+        final List<RolledUpUsageModelDao> dailyUsage = minDate.compareTo(maxDate) < 0 ?
+                                                       rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, minDate, maxDate, context) :
+                                                       ImmutableList.<RolledUpUsageModelDao>of();
+
+        final List<RolledUpUsage> result = new ArrayList<RolledUpUsage>(transitionTimes.size() - 1);
+        LocalDate prevDate = null;
+        for (final LocalDate curDate : transitionTimes) {
+            if (prevDate != null) {
+                result.add(new DefaultRolledUpUsage(subscriptionId, prevDate, curDate, getRolledUpUnits(dailyUsage, prevDate, curDate)));
+            }
+            prevDate = curDate;
+        }
+        return result;
+    }
+
+    // dailyUsage is sorted by record_date
+    private static List<RolledUpUnit> getRolledUpUnits(final List<RolledUpUsageModelDao> dailyUsage, final LocalDate startDate, final LocalDate endDate) {
+        final Map<String, Long> tmp = new LinkedHashMap<String, Long>();
+        for (int i = getFirstIndexOnOrAfter(dailyUsage, startDate); i < dailyUsage.size(); i++) {
+            final RolledUpUsageModelDao cur = dailyUsage.get(i);
+            if (cur.getRecordDate().compareTo(endDate) >= 0) {
+                break;
+            }
+            final Long currentAmount = tmp.get(cur.getUnitType());
+            final Long updatedAmount = (currentAmount != null) ? currentAmount + cur.getAmount() : cur.getAmount();
+            tmp.put(cur.getUnitType(), updatedAmount);
+        }
+
+        final List<RolledUpUnit> result = new ArrayList<RolledUpUnit>(tmp.size());
+        for (final Map.Entry<String, Long> entry : tmp.entrySet()) {
+            result.add(new DefaultRolledUpUnit(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    private static int getFirstIndexOnOrAfter(final List<RolledUpUsageModelDao> dailyUsage, final LocalDate date) {
+        int low = 0;
+        int high = dailyUsage.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (dailyUsage.get(mid).getRecordDate().compareTo(date) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -16,7 +16,13 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -24,20 +30,112 @@ import javax.inject.Inject;
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.definition.UsageConfig;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Transaction;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final String DAILY_USAGE_SAVEPOINT = "dailyUsage";
+    private static final int MAX_DAILY_USAGE_ATTEMPTS = 3;
+
     private final RolledUpUsageSqlDao rolledUpUsageSqlDao;
+    private final UsageConfig usageConfig;
 
     @Inject
-    public DefaultRolledUpUsageDao(final IDBI dbi) {
+    public DefaultRolledUpUsageDao(final IDBI dbi, final UsageConfig usageConfig) {
         this.rolledUpUsageSqlDao = dbi.onDemand(RolledUpUsageSqlDao.class);
+        this.usageConfig = usageConfig;
+    }
+
+    @Override
+    public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        record(ImmutableMap.<InternalCallContext, Iterable<RolledUpUsageModelDao>>of(context, usages));
     }
 
     @Override
-    public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context){
-        rolledUpUsageSqlDao.create(usages, context);
+    public void record(final Map<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> usagesPerAccount) {
+        rolledUpUsageSqlDao.inTransaction(new Transaction<Void, EntitySqlDao<RolledUpUsageModelDao, Entity>>() {
+            @Override
+            public Void inTransaction(final EntitySqlDao<RolledUpUsageModelDao, Entity> transactional, final TransactionStatus status) throws Exception {
+                final RolledUpUsageSqlDao sqlDao = (RolledUpUsageSqlDao) transactional;
+                for (final Entry<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> entry : usagesPerAccount.entrySet()) {
+                    sqlDao.create(entry.getValue(), entry.getKey());
+                    recordDailyUsage(sqlDao, entry.getValue(), entry.getKey());
+                }
+                return null;
+            }
+        });
+    }
+
+    // The daily aggregate is always maintained (so that it can be enabled at any time), only the reads depend on UsageConfig
+    private void recordDailyUsage(final RolledUpUsageSqlDao sqlDao, final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        final Map<String, RolledUpUsageModelDao> dailyUsages = new LinkedHashMap<String, RolledUpUsageModelDao>();
+        for (final RolledUpUsageModelDao usage : usages) {
+            final String key = usage.getSubscriptionId() + "|" + usage.getUnitType() + "|" + usage.getRecordDate();
+            final RolledUpUsageModelDao dailyUsage = dailyUsages.get(key);
+            if (dailyUsage == null) {
+                dailyUsages.put(key, new RolledUpUsageModelDao(usage.getSubscriptionId(), usage.getUnitType(), usage.getRecordDate(), usage.getAmount(), null));
+            } else {
+                dailyUsage.setAmount(dailyUsage.getAmount() + usage.getAmount());
+            }
+        }
+
+        List<RolledUpUsageModelDao> dailyUsagesToUpdate = new ArrayList<RolledUpUsageModelDao>(dailyUsages.values());
+        for (int attempt = 1; ; attempt++) {
+            final List<RolledUpUsageModelDao> dailyUsagesToCreate = updateDailyUsage(sqlDao, dailyUsagesToUpdate, context);
+            if (dailyUsagesToCreate.isEmpty()) {
+                return;
+            }
+
+            // Concurrent ingestion for the same (subscription, unit type, day) may create the row first: the insert then
+            // fails on the unique index and the rows are updated instead. The savepoint keeps the transaction (and the raw usage) usable,
+            // as some databases (e.g. PostgreSQL) abort the whole transaction on error.
+            sqlDao.checkpoint(DAILY_USAGE_SAVEPOINT);
+            try {
+                sqlDao.createDailyUsage(dailyUsagesToCreate, context);
+                sqlDao.release(DAILY_USAGE_SAVEPOINT);
+                return;
+            } catch (final UnableToExecuteStatementException e) {
+                if (attempt >= MAX_DAILY_USAGE_ATTEMPTS || !isDuplicateKey(e)) {
+                    throw e;
+                }
+                sqlDao.rollback(DAILY_USAGE_SAVEPOINT);
+                dailyUsagesToUpdate = dailyUsagesToCreate;
+            }
+        }
+    }
+
+    // Return the daily usages which don't exist yet
+    private List<RolledUpUsageModelDao> updateDailyUsage(final RolledUpUsageSqlDao sqlDao, final List<RolledUpUsageModelDao> dailyUsagesToUpdate, final InternalCallContext context) {
+        final int[] updatedRows = sqlDao.updateDailyUsage(dailyUsagesToUpdate, context);
+
+        final List<RolledUpUsageModelDao> dailyUsagesToCreate = new ArrayList<RolledUpUsageModelDao>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                dailyUsagesToCreate.add(dailyUsagesToUpdate.get(i));
+            }
+        }
+        return dailyUsagesToCreate;
+    }
+
+    // SQLSTATE class 23: integrity constraint violation
+    private static boolean isDuplicateKey(final Throwable e) {
+        Throwable cur = e;
+        while (cur != null) {
+            if (cur instanceof SQLException && ((SQLException) cur).getSQLState() != null && ((SQLException) cur).getSQLState().startsWith("23")) {
+                return true;
+            }
+            cur = cur.getCause();
+        }
+        return false;
     }
 
     @Override
@@ -45,8 +143,19 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return rolledUpUsageSqlDao.recordsWithTrackingIdExist(subscriptionId, trackingId, context) != null ;
     }
 
+    @Override
+    public List<RolledUpUsageModelDao> getSubscriptionIdsWithTrackingIds(final Collection<String> trackingIds, final InternalTenantContext context) {
+        if (trackingIds.isEmpty()) {
+            return ImmutableList.<RolledUpUsageModelDao>of();
+        }
+        return rolledUpUsageSqlDao.getSubscriptionIdsWithTrackingIds(trackingIds, context);
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getUsageForSubscription(final UUID subscriptionId, final LocalDate startDate, final LocalDate endDate, final String unitType, final InternalTenantContext context) {
+        if (usageConfig.isDailyAggregateEnabled()) {
+            return rolledUpUsageSqlDao.getDailyAggregateUsageForSubscriptionAndUnitType(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
+        }
         return rolledUpUsageSqlDao.getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
     }
 
@@ -55,8 +164,19 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return rolledUpUsageSqlDao.getAllUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), context);
     }
 
+    @Override
+    public List<RolledUpUsageModelDao> getDailyUsageForSubscription(final UUID subscriptionId, final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        if (usageConfig.isDailyAggregateEnabled()) {
+            return rolledUpUsageSqlDao.getDailyAggregateUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), context);
+        }
+        return rolledUpUsageSqlDao.getDailyUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), context);
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final LocalDate startDate, final LocalDate endDate, final InternalTenantContext context) {
+        if (usageConfig.isDailyAggregateEnabled()) {
+            return rolledUpUsageSqlDao.getDailyAggregateUsageForAccount(startDate.toDate(), endDate.toDate(), context);
+        }
         return rolledUpUsageSqlDao.getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
 }
@@ -16,7 +16,9 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -27,11 +29,18 @@ public interface RolledUpUsageDao {
 
     void record(Iterable<RolledUpUsageModelDao> usages, InternalCallContext context);
 
+    // Records the usage of several accounts (keyed by account context) in a single transaction
+    void record(Map<InternalCallContext, ? extends Iterable<RolledUpUsageModelDao>> usagesPerAccount);
+
     Boolean recordsWithTrackingIdExist(UUID subscriptionId, String trackingId, InternalTenantContext context);
 
+    List<RolledUpUsageModelDao> getSubscriptionIdsWithTrackingIds(Collection<String> trackingIds, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 
+    List<RolledUpUsageModelDao> getDailyUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getRawUsageForAccount(LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 }
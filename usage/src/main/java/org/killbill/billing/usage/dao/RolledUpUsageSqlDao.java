@@ -18,6 +18,7 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -32,11 +33,14 @@ import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao, Entity> {
 
     @SqlBatch
+    @BatchChunkSize(1000)
     void create(@SmartBindBean Iterable<RolledUpUsageModelDao> usages,
                 @InternalTenantContextBinder final InternalCallContext context);
 
@@ -45,6 +49,10 @@ public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao,
                                     @Bind("trackingId") final String trackingId,
                                     @InternalTenantContextBinder final InternalTenantContext context);
 
+    @SqlQuery
+    List<RolledUpUsageModelDao> getSubscriptionIdsWithTrackingIds(@BindIn("trackingIds") final Collection<String> trackingIds,
+                                                                  @InternalTenantContextBinder final InternalTenantContext context);
+
     @SqlQuery
     List<RolledUpUsageModelDao> getUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
                                                         @Bind("startDate") final Date startDate,
@@ -58,8 +66,42 @@ public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao,
                                                            @Bind("endDate") final Date endDate,
                                                            @InternalTenantContextBinder final InternalTenantContext context);
 
+    @SqlQuery
+    List<RolledUpUsageModelDao> getDailyUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                             @Bind("startDate") final Date startDate,
+                                                             @Bind("endDate") final Date endDate,
+                                                             @InternalTenantContextBinder final InternalTenantContext context);
+
     @SqlQuery
     List<RolledUpUsageModelDao> getRawUsageForAccount(@Bind("startDate") final Date startDate,
                                                       @Bind("endDate") final Date endDate,
                                                       @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlBatch
+    @BatchChunkSize(1000)
+    int[] updateDailyUsage(@SmartBindBean Iterable<RolledUpUsageModelDao> usages,
+                           @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlBatch
+    @BatchChunkSize(1000)
+    void createDailyUsage(@SmartBindBean Iterable<RolledUpUsageModelDao> usages,
+                          @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlQuery
+    List<RolledUpUsageModelDao> getDailyAggregateUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                      @Bind("startDate") final Date startDate,
+                                                                      @Bind("endDate") final Date endDate,
+                                                                      @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    List<RolledUpUsageModelDao> getDailyAggregateUsageForSubscriptionAndUnitType(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                                 @Bind("startDate") final Date startDate,
+                                                                                 @Bind("endDate") final Date endDate,
+                                                                                 @Bind("unitType") final String unitType,
+                                                                                 @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    List<RolledUpUsageModelDao> getDailyAggregateUsageForAccount(@Bind("startDate") final Date startDate,
+                                                                 @Bind("endDate") final Date endDate,
+                                                                 @InternalTenantContextBinder final InternalTenantContext context);
 }
@@ -20,12 +20,16 @@ package org.killbill.billing.usage.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.usage.InternalUserApi;
+import org.killbill.billing.usage.UsageBulkUserApi;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.api.svcs.DefaultInternalUserApi;
+import org.killbill.billing.usage.api.user.DefaultUsageBulkUserApi;
 import org.killbill.billing.usage.api.user.DefaultUsageUserApi;
 import org.killbill.billing.usage.dao.DefaultRolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.util.config.definition.UsageConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class UsageModule extends KillBillModule {
 
@@ -33,12 +37,18 @@ public class UsageModule extends KillBillModule {
         super(configSource);
     }
 
+    protected void installConfig() {
+        final UsageConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(UsageConfig.class);
+        bind(UsageConfig.class).toInstance(config);
+    }
+
     protected void installRolledUpUsageDao() {
         bind(RolledUpUsageDao.class).to(DefaultRolledUpUsageDao.class).asEagerSingleton();
     }
 
     protected void installUsageUserApi() {
         bind(UsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
+        bind(UsageBulkUserApi.class).to(DefaultUsageBulkUserApi.class).asEagerSingleton();
     }
 
     protected void installInternalUserApi() {
@@ -48,6 +58,7 @@ public class UsageModule extends KillBillModule {
 
     @Override
     protected void configure() {
+        installConfig();
         installRolledUpUsageDao();
         installUsageUserApi();
         installInternalUserApi();
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UnitUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.usage.api.UsageRecord;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestDefaultUsageBulkUserApi extends UsageTestSuiteWithEmbeddedDB {
+
+    private static final LocalDate START_DATE = new LocalDate(2013, 1, 1);
+    private static final LocalDate END_DATE = new LocalDate(2013, 2, 1);
+
+    private UUID subscriptionId1;
+    private UUID subscriptionId2;
+    private InternalCallContext accountContext1;
+    private InternalCallContext accountContext2;
+    private DefaultUsageBulkUserApi usageBulkUserApi;
+
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+
+        subscriptionId1 = UUID.randomUUID();
+        subscriptionId2 = UUID.randomUUID();
+        final Long accountRecordId1 = 1000L;
+        final Long accountRecordId2 = 2000L;
+        accountContext1 = new InternalCallContext(internalCallContext, accountRecordId1, null, null, clock.getUTCNow());
+        accountContext2 = new InternalCallContext(internalCallContext, accountRecordId2, null, null, clock.getUTCNow());
+
+        // No subscriptions table in the usage test schema: resolve the account record ids of the two known subscriptions
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(callContext)).thenReturn(internalCallContext);
+        Mockito.when(internalCallContextFactory.getAccountRecordIds(Mockito.<Collection<UUID>>any(), Mockito.eq(ObjectType.SUBSCRIPTION), Mockito.<InternalTenantContext>any()))
+               .thenReturn(ImmutableMap.<UUID, Long>of(subscriptionId1, accountRecordId1, subscriptionId2, accountRecordId2));
+        Mockito.when(internalCallContextFactory.createInternalCallContext(Mockito.eq(accountRecordId1), Mockito.<InternalCallContext>any())).thenReturn(accountContext1);
+        Mockito.when(internalCallContextFactory.createInternalCallContext(Mockito.eq(accountRecordId2), Mockito.<InternalCallContext>any())).thenReturn(accountContext2);
+
+        usageBulkUserApi = new DefaultUsageBulkUserApi(rolledUpUsageDao, internalCallContextFactory);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordRolledUpUsage() throws UsageApiException {
+        usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L),
+                                                                                      createRecord(subscriptionId2, "foo", "tracking-1", 5L),
+                                                                                      createRecord(subscriptionId1, "bar", "tracking-2", 7L)),
+                                            callContext);
+
+        // Grouped per account
+        final List<RolledUpUsageModelDao> usagesForAccount1 = rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1);
+        assertEquals(usagesForAccount1.size(), 2);
+        assertEquals(usagesForAccount1.get(0).getSubscriptionId(), subscriptionId1);
+        assertEquals(usagesForAccount1.get(1).getSubscriptionId(), subscriptionId1);
+        final List<RolledUpUsageModelDao> usagesForAccount2 = rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext2);
+        assertEquals(usagesForAccount2.size(), 1);
+        assertEquals(usagesForAccount2.get(0).getSubscriptionId(), subscriptionId2);
+        assertEquals(usagesForAccount2.get(0).getAmount(), (Long) 5L);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordRolledUpUsageWithRecordedTrackingId() throws UsageApiException {
+        usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L)), callContext);
+
+        try {
+            usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId2, "foo", "tracking-2", 5L),
+                                                                                          createRecord(subscriptionId1, "foo", "tracking-1", 10L)),
+                                                callContext);
+            fail();
+        } catch (final UsageApiException e) {
+            assertEquals(e.getCode(), ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+        }
+
+        // Nothing from the failed call was recorded
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1).size(), 1);
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext2).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordRolledUpUsageWithDuplicateTrackingIdInBatch() {
+        try {
+            usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L),
+                                                                                          createRecord(subscriptionId2, "foo", "tracking-2", 5L),
+                                                                                          createRecord(subscriptionId1, "bar", "tracking-1", 3L)),
+                                                callContext);
+            fail();
+        } catch (final UsageApiException e) {
+            assertEquals(e.getCode(), ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+        }
+
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1).size(), 0);
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext2).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordRolledUpUsageWithUnknownSubscription() {
+        try {
+            usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L),
+                                                                                          createRecord(UUID.randomUUID(), "foo", "tracking-2", 5L)),
+                                                callContext);
+            fail();
+        } catch (final UsageApiException e) {
+            assertEquals(e.getCode(), ErrorCode.SUB_INVALID_SUBSCRIPTION_ID.getCode());
+        }
+
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordRolledUpUsageIsAtomicAcrossAccounts() throws UsageApiException {
+        try {
+            // The unit type of the second account's record doesn't fit in the column
+            usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L),
+                                                                                          createRecord(subscriptionId2, Strings.repeat("x", 256), "tracking-2", 5L)),
+                                                callContext);
+            fail();
+        } catch (final RuntimeException e) {
+            // Expected
+        }
+
+        // The first account's records were rolled back as well
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1).size(), 0);
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext2).size(), 0);
+
+        // The records can be sent again
+        usageBulkUserApi.recordRolledUpUsage(ImmutableList.<SubscriptionUsageRecord>of(createRecord(subscriptionId1, "foo", "tracking-1", 10L)), callContext);
+        assertEquals(rolledUpUsageDao.getRawUsageForAccount(START_DATE, END_DATE, accountContext1).size(), 1);
+    }
+
+    private SubscriptionUsageRecord createRecord(final UUID subscriptionId, final String unitType, final String trackingId, final Long amount) {
+        final UsageRecord usageRecord = new UsageRecord(START_DATE.plusDays(3), amount);
+        final UnitUsageRecord unitUsageRecord = new UnitUsageRecord(unitType, ImmutableList.<UsageRecord>of(usageRecord));
+        return new SubscriptionUsageRecord(subscriptionId, trackingId, ImmutableList.<UnitUsageRecord>of(unitUsageRecord));
+    }
+}
@@ -20,13 +20,25 @@ package org.killbill.billing.usage.dao;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.api.user.RolledUpUsageAggregator;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.UsageConfig;
+import org.mockito.Mockito;
 import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 
@@ -96,6 +108,176 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(result.get(2).getAmount().compareTo(amount3), 0);
     }
 
+    @Test(groups = "slow")
+    public void testDailyUsageForSubscription() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 10L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 5L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, startDate, 7L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusDays(1), 3L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, endDate, 100L, UUID.randomUUID().toString()));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 3);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(0).getUnitType(), unitType2);
+        assertEquals(result.get(0).getAmount().compareTo(7L), 0);
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(1).getUnitType(), unitType1);
+        assertEquals(result.get(1).getAmount().compareTo(15L), 0);
+        assertEquals(result.get(2).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(result.get(2).getUnitType(), unitType1);
+        assertEquals(result.get(2).getAmount().compareTo(3L), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRolledUpUsageForTransitionTimes() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate t0 = new LocalDate(2013, 1, 1);
+        final LocalDate t1 = new LocalDate(2013, 2, 1);
+        final LocalDate t2 = new LocalDate(2013, 3, 1);
+        final LocalDate t3 = new LocalDate(2013, 4, 1);
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, t0.minusDays(1), 1000L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, t0, 10L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, t1.minusDays(1), 5L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, t1, 13L, UUID.randomUUID().toString()));
+        usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, t3, 1000L, UUID.randomUUID().toString()));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsage> result = new RolledUpUsageAggregator(rolledUpUsageDao).getAllUsageForSubscription(subscriptionId, ImmutableList.<LocalDate>of(t0, t1, t2, t3), internalCallContext);
+        assertEquals(result.size(), 3);
+
+        assertEquals(result.get(0).getStart().compareTo(t0), 0);
+        assertEquals(result.get(0).getEnd().compareTo(t1), 0);
+        assertEquals(result.get(0).getRolledUpUnits().size(), 1);
+        assertEquals(result.get(0).getRolledUpUnits().get(0).getUnitType(), unitType1);
+        assertEquals(result.get(0).getRolledUpUnits().get(0).getAmount().compareTo(15L), 0);
+
+        assertEquals(result.get(1).getStart().compareTo(t1), 0);
+        assertEquals(result.get(1).getEnd().compareTo(t2), 0);
+        assertEquals(result.get(1).getRolledUpUnits().size(), 1);
+        assertEquals(result.get(1).getRolledUpUnits().get(0).getUnitType(), unitType2);
+        assertEquals(result.get(1).getRolledUpUnits().get(0).getAmount().compareTo(13L), 0);
+
+        assertEquals(result.get(2).getStart().compareTo(t2), 0);
+        assertEquals(result.get(2).getEnd().compareTo(t3), 0);
+        assertEquals(result.get(2).getRolledUpUnits().size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDailyAggregate() {
+        final UsageConfig usageConfig = Mockito.mock(UsageConfig.class);
+        Mockito.when(usageConfig.isDailyAggregateEnabled()).thenReturn(true);
+        final RolledUpUsageDao dailyAggregateRolledUpUsageDao = new DefaultRolledUpUsageDao(dbi, usageConfig);
+
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        // Two rows for the same day and unit type in the same batch
+        final List<RolledUpUsageModelDao> usages1 = new ArrayList<RolledUpUsageModelDao>();
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 10L, UUID.randomUUID().toString()));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 5L, UUID.randomUUID().toString()));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, unitType2, startDate.plusDays(1), 7L, UUID.randomUUID().toString()));
+        dailyAggregateRolledUpUsageDao.record(usages1, internalCallContext);
+
+        // Existing day (update) and new day (insert)
+        final List<RolledUpUsageModelDao> usages2 = new ArrayList<RolledUpUsageModelDao>();
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate, 3L, UUID.randomUUID().toString()));
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, unitType1, startDate.plusDays(2), 4L, UUID.randomUUID().toString()));
+        dailyAggregateRolledUpUsageDao.record(usages2, internalCallContext);
+
+        // Raw records are still all there
+        assertEquals(rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext).size(), 5);
+
+        final List<RolledUpUsageModelDao> result = dailyAggregateRolledUpUsageDao.getRawUsageForAccount(startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 3);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(0).getUnitType(), unitType1);
+        assertEquals(result.get(0).getAmount().compareTo(18L), 0);
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(result.get(1).getUnitType(), unitType2);
+        assertEquals(result.get(1).getAmount().compareTo(7L), 0);
+        assertEquals(result.get(2).getRecordDate().compareTo(startDate.plusDays(2)), 0);
+        assertEquals(result.get(2).getUnitType(), unitType1);
+        assertEquals(result.get(2).getAmount().compareTo(4L), 0);
+
+        // Same sums as the raw records
+        final List<RolledUpUsageModelDao> dailyResult = dailyAggregateRolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        final List<RolledUpUsageModelDao> rawDailyResult = rolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(dailyResult.size(), rawDailyResult.size());
+        for (int i = 0; i < dailyResult.size(); i++) {
+            assertEquals(dailyResult.get(i).getRecordDate().compareTo(rawDailyResult.get(i).getRecordDate()), 0);
+            assertEquals(dailyResult.get(i).getUnitType(), rawDailyResult.get(i).getUnitType());
+            assertEquals(dailyResult.get(i).getAmount().compareTo(rawDailyResult.get(i).getAmount()), 0);
+        }
+
+        final List<RolledUpUsageModelDao> unitTypeResult = dailyAggregateRolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType1, internalCallContext);
+        assertEquals(unitTypeResult.size(), 2);
+        assertEquals(unitTypeResult.get(0).getAmount().compareTo(18L), 0);
+        assertEquals(unitTypeResult.get(1).getAmount().compareTo(4L), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testDailyAggregateWithConcurrentIngestion() throws Exception {
+        final UsageConfig usageConfig = Mockito.mock(UsageConfig.class);
+        Mockito.when(usageConfig.isDailyAggregateEnabled()).thenReturn(true);
+        final RolledUpUsageDao dailyAggregateRolledUpUsageDao = new DefaultRolledUpUsageDao(dbi, usageConfig);
+
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final int nbDays = 10;
+        final int nbThreads = 4;
+
+        // All threads record usage for the same (subscription, unit type, day) at the same time: all of them may try to create the daily row
+        final CyclicBarrier barrier = new CyclicBarrier(nbThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int day = 0; day < nbDays; day++) {
+                            barrier.await(10, TimeUnit.SECONDS);
+                            dailyAggregateRolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(day), 1L, UUID.randomUUID().toString())),
+                                                                  internalCallContext);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // No usage was lost
+        final LocalDate endDate = startDate.plusDays(nbDays);
+        assertEquals(rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext).size(), nbDays * nbThreads);
+        final List<RolledUpUsageModelDao> dailyResult = dailyAggregateRolledUpUsageDao.getDailyUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(dailyResult.size(), nbDays);
+        for (final RolledUpUsageModelDao dailyUsage : dailyResult) {
+            assertEquals(dailyUsage.getAmount().compareTo((long) nbThreads), 0);
+        }
+    }
+
     @Test(groups = "slow")
     public void testNoEntries() {
         final UUID subscriptionId = UUID.randomUUID();
@@ -170,4 +352,27 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(rolledUpUsageDao.recordsWithTrackingIdExist(subscriptionId, trackingId, internalCallContext),
                      Boolean.TRUE);
     }
+
+    @Test(groups = "slow")
+    public void testSubscriptionIdsWithTrackingIds() {
+        final UUID subscriptionId1 = UUIDs.randomUUID();
+        final UUID subscriptionId2 = UUIDs.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, unitType, startDate, 10L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, unitType, startDate.plusDays(1), 5L, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, unitType, startDate, 13L, trackingId2));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getSubscriptionIdsWithTrackingIds(ImmutableList.<String>of(trackingId1, UUIDs.randomUUID().toString()), internalCallContext);
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getSubscriptionId(), subscriptionId1);
+        assertEquals(result.get(0).getTrackingId(), trackingId1);
+
+        assertEquals(rolledUpUsageDao.getSubscriptionIdsWithTrackingIds(ImmutableList.<String>of(), internalCallContext).size(), 0);
+    }
 }
\ No newline at end of file
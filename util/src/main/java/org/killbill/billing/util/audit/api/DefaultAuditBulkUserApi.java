@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.audit.api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.audit.AuditBulkUserApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
+import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+
+public class DefaultAuditBulkUserApi implements AuditBulkUserApi {
+
+    private final AuditDao auditDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultAuditBulkUserApi(final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory) {
+        this.auditDao = auditDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public Map<UUID, AccountAuditLogs> getAccountsAuditLogs(final Collection<UUID> accountIds, final AuditLevel auditLevel, final TenantContext tenantContext) {
+        final Map<UUID, AccountAuditLogs> result = new HashMap<UUID, AccountAuditLogs>();
+
+        // Optimization - bail early
+        if (AuditLevel.NONE.equals(auditLevel)) {
+            for (final UUID accountId : accountIds) {
+                result.put(accountId, new DefaultAccountAuditLogs(accountId));
+            }
+            return result;
+        }
+
+        final InternalTenantContext context = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext);
+        final Map<UUID, Long> accountRecordIds = internalCallContextFactory.getAccountRecordIds(accountIds, ObjectType.ACCOUNT, context);
+        result.putAll(auditDao.getAuditLogsForAccountRecordIds(accountRecordIds, auditLevel, context));
+        return result;
+    }
+}
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -34,5 +35,8 @@ public interface AuditDao {
     // Make sure to consume all or call close() when done to release the connection
     public DefaultAccountAuditLogsForObjectType getAuditLogsForAccountRecordId(TableName tableName, AuditLevel auditLevel, InternalTenantContext context);
 
+    // Bulk version of getAuditLogsForAccountRecordId, for the given (account id, account record id) pairs
+    public Map<UUID, DefaultAccountAuditLogs> getAuditLogsForAccountRecordIds(Map<UUID, Long> accountRecordIds, AuditLevel auditLevel, InternalTenantContext context);
+
     public List<AuditLog> getAuditLogsForId(TableName tableName, UUID objectId, AuditLevel auditLevel, InternalTenantContext context);
 }
@@ -24,6 +24,8 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.ChangeType;
@@ -53,6 +55,10 @@ public class AuditLogModelDao implements EntityModelDao<AuditLog>, Externalizabl
     public AuditLogModelDao() {}
 
     public AuditLogModelDao(final EntityAudit entityAudit, final CallContext callContext) {
+        this(entityAudit, callContext, null);
+    }
+
+    public AuditLogModelDao(final EntityAudit entityAudit, final CallContext callContext, @Nullable final Long accountRecordId) {
         this.id = entityAudit.getId();
         this.tableName = entityAudit.getTableName();
         this.targetRecordId = entityAudit.getTargetRecordId();
@@ -60,6 +66,7 @@ public class AuditLogModelDao implements EntityModelDao<AuditLog>, Externalizabl
         this.createdDate = entityAudit.getCreatedDate();
         this.updatedDate = null;
         this.callContext = callContext;
+        this.accountRecordId = accountRecordId;
     }
 
     @Override
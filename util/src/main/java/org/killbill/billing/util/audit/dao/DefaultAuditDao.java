@@ -18,10 +18,13 @@
 
 package org.killbill.billing.util.audit.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -44,11 +47,13 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.IDBI;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
@@ -58,9 +63,10 @@ public class DefaultAuditDao implements AuditDao {
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     @Inject
-    public DefaultAuditDao(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
+    public DefaultAuditDao(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                           final LatencyHistograms latencyHistograms) {
         this.nonEntitySqlDao = dbi.onDemand(NonEntitySqlDao.class);
-        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, latencyHistograms);
     }
 
     @Override
@@ -96,69 +102,166 @@ public class DefaultAuditDao implements AuditDao {
         return new DefaultAccountAuditLogsForObjectType(auditLevel, allAuditLogs);
     }
 
+    @Override
+    public Map<UUID, DefaultAccountAuditLogs> getAuditLogsForAccountRecordIds(final Map<UUID, Long> accountRecordIds, final AuditLevel auditLevel, final InternalTenantContext context) {
+        final Map<UUID, DefaultAccountAuditLogs> result = new HashMap<UUID, DefaultAccountAuditLogs>();
+        if (accountRecordIds.isEmpty()) {
+            return result;
+        }
+
+        final Collection<Long> recordIds = ImmutableSet.<Long>copyOf(accountRecordIds.values());
+        final Map<Long, UUID> accountIds = new HashMap<Long, UUID>();
+        for (final Entry<UUID, Long> entry : accountRecordIds.entrySet()) {
+            accountIds.put(entry.getValue(), entry.getKey());
+        }
+
+        // Stream the results (ordered by account record id, then table name) to avoid loading the audit logs of all accounts
+        // in a single list: only the audit logs of the current account are buffered, until DefaultAccountAuditLogs is built
+        final EntitySqlDao auditSqlDao = transactionalSqlDao.onDemandForStreamingResults(EntitySqlDao.class);
+        final Iterator<AuditLogModelDao> auditLogsForAccountRecordIds = auditSqlDao.getAuditLogsForAccountRecordIds(recordIds, context);
+        final Function<AuditLogModelDao, AuditLog> toAuditLog = toAuditLog(new AccountsRecordIdIdMappingsLoader(recordIds, context));
+
+        Long currentAccountRecordId = null;
+        List<AuditLog> currentAuditLogs = new LinkedList<AuditLog>();
+        while (auditLogsForAccountRecordIds.hasNext()) {
+            final AuditLogModelDao auditLogModelDao = auditLogsForAccountRecordIds.next();
+            if (currentAccountRecordId != null && !currentAccountRecordId.equals(auditLogModelDao.getAccountRecordId())) {
+                final UUID accountId = accountIds.get(currentAccountRecordId);
+                result.put(accountId, new DefaultAccountAuditLogs(accountId, auditLevel, currentAuditLogs.iterator()));
+                currentAuditLogs = new LinkedList<AuditLog>();
+            }
+            currentAccountRecordId = auditLogModelDao.getAccountRecordId();
+            currentAuditLogs.add(toAuditLog.apply(auditLogModelDao));
+        }
+        if (currentAccountRecordId != null) {
+            final UUID accountId = accountIds.get(currentAccountRecordId);
+            result.put(accountId, new DefaultAccountAuditLogs(accountId, auditLevel, currentAuditLogs.iterator()));
+        }
+
+        // Accounts without any audit log
+        for (final Entry<UUID, Long> entry : accountRecordIds.entrySet()) {
+            if (result.get(entry.getKey()) == null) {
+                result.put(entry.getKey(), new DefaultAccountAuditLogs(entry.getKey(), auditLevel, ImmutableList.<AuditLog>of().iterator()));
+            }
+        }
+        return result;
+    }
+
     private Iterator<AuditLog> buildAuditLogsFromModelDao(final Iterator<AuditLogModelDao> auditLogsForAccountRecordId, final InternalTenantContext tenantContext) {
+        return buildAuditLogsFromModelDao(auditLogsForAccountRecordId, new AccountRecordIdIdMappingsLoader(tenantContext));
+    }
+
+    private Iterator<AuditLog> buildAuditLogsFromModelDao(final Iterator<AuditLogModelDao> auditLogsForAccountRecordId, final RecordIdIdMappingsLoader recordIdIdMappingsLoader) {
+        return Iterators.<AuditLogModelDao, AuditLog>transform(auditLogsForAccountRecordId, toAuditLog(recordIdIdMappingsLoader));
+    }
+
+    private Function<AuditLogModelDao, AuditLog> toAuditLog(final RecordIdIdMappingsLoader recordIdIdMappingsLoader) {
         final Map<TableName, Map<Long, UUID>> recordIdIdsCache = new HashMap<TableName, Map<Long, UUID>>();
         final Map<TableName, Map<Long, UUID>> historyRecordIdIdsCache = new HashMap<TableName, Map<Long, UUID>>();
-        return Iterators.<AuditLogModelDao, AuditLog>transform(auditLogsForAccountRecordId,
-                                                               new Function<AuditLogModelDao, AuditLog>() {
-                                                                   @Override
-                                                                   public AuditLog apply(final AuditLogModelDao input) {
-                                                                       // If input is for e.g. TAG_DEFINITION_HISTORY, retrieve TAG_DEFINITIONS
-                                                                       // For tables without history, e.g. TENANT, originalTableNameForHistoryTableName will be null
-                                                                       final TableName originalTableNameForHistoryTableName = findTableNameForHistoryTableName(input.getTableName());
-
-                                                                       final ObjectType objectType;
-                                                                       final UUID auditedEntityId;
-                                                                       if (originalTableNameForHistoryTableName != null) {
-                                                                           // input point to a history entry
-                                                                           objectType = originalTableNameForHistoryTableName.getObjectType();
-
-                                                                           if (historyRecordIdIdsCache.get(originalTableNameForHistoryTableName) == null) {
-                                                                               if (TableName.ACCOUNT.equals(originalTableNameForHistoryTableName)) {
-                                                                                   final Iterable<RecordIdIdMappings> mappings = nonEntitySqlDao.getHistoryRecordIdIdMappingsForAccountsTable(originalTableNameForHistoryTableName.getTableName(),
-                                                                                                                                                                                              input.getTableName().getTableName(),
-                                                                                                                                                                                              tenantContext);
-                                                                                   historyRecordIdIdsCache.put(originalTableNameForHistoryTableName, RecordIdIdMappings.toMap(mappings));
-                                                                               } else if (TableName.TAG_DEFINITIONS.equals(originalTableNameForHistoryTableName)) {
-                                                                                   final Iterable<RecordIdIdMappings> mappings = nonEntitySqlDao.getHistoryRecordIdIdMappingsForTablesWithoutAccountRecordId(originalTableNameForHistoryTableName.getTableName(),
-                                                                                                                                                                                                             input.getTableName().getTableName(),
-                                                                                                                                                                                                             tenantContext);
-                                                                                   historyRecordIdIdsCache.put(originalTableNameForHistoryTableName, RecordIdIdMappings.toMap(mappings));
-                                                                               } else {
-                                                                                   final Iterable<RecordIdIdMappings> mappings = nonEntitySqlDao.getHistoryRecordIdIdMappings(originalTableNameForHistoryTableName.getTableName(),
-                                                                                                                                                                              input.getTableName().getTableName(),
-                                                                                                                                                                              tenantContext);
-                                                                                   historyRecordIdIdsCache.put(originalTableNameForHistoryTableName, RecordIdIdMappings.toMap(mappings));
-
-                                                                               }
-                                                                           }
-
-                                                                           auditedEntityId = historyRecordIdIdsCache.get(originalTableNameForHistoryTableName).get(input.getTargetRecordId());
-                                                                       } else {
-                                                                           objectType = input.getTableName().getObjectType();
-
-                                                                           if (recordIdIdsCache.get(input.getTableName()) == null) {
-                                                                               final Iterable<RecordIdIdMappings> mappings = nonEntitySqlDao.getRecordIdIdMappings(input.getTableName().getTableName(),
-                                                                                                                                                                   tenantContext);
-                                                                               recordIdIdsCache.put(input.getTableName(), RecordIdIdMappings.toMap(mappings));
-                                                                           }
-
-                                                                           auditedEntityId = recordIdIdsCache.get(input.getTableName()).get(input.getTargetRecordId());
-                                                                       }
-
-                                                                       return new DefaultAuditLog(input, objectType, auditedEntityId);
-                                                                   }
-
-                                                                   private TableName findTableNameForHistoryTableName(final TableName historyTableName) {
-                                                                       for (final TableName tableName : TableName.values()) {
-                                                                           if (historyTableName.equals(tableName.getHistoryTableName())) {
-                                                                               return tableName;
-                                                                           }
-                                                                       }
-
-                                                                       return null;
-                                                                   }
-                                                               });
+        return new Function<AuditLogModelDao, AuditLog>() {
+            @Override
+            public AuditLog apply(final AuditLogModelDao input) {
+                // If input is for e.g. TAG_DEFINITION_HISTORY, retrieve TAG_DEFINITIONS
+                // For tables without history, e.g. TENANT, originalTableNameForHistoryTableName will be null
+                final TableName originalTableNameForHistoryTableName = findTableNameForHistoryTableName(input.getTableName());
+
+                final ObjectType objectType;
+                final UUID auditedEntityId;
+                if (originalTableNameForHistoryTableName != null) {
+                    // input point to a history entry
+                    objectType = originalTableNameForHistoryTableName.getObjectType();
+
+                    if (historyRecordIdIdsCache.get(originalTableNameForHistoryTableName) == null) {
+                        final Iterable<RecordIdIdMappings> mappings = recordIdIdMappingsLoader.getHistoryRecordIdIdMappings(originalTableNameForHistoryTableName, input.getTableName());
+                        historyRecordIdIdsCache.put(originalTableNameForHistoryTableName, RecordIdIdMappings.toMap(mappings));
+                    }
+
+                    auditedEntityId = historyRecordIdIdsCache.get(originalTableNameForHistoryTableName).get(input.getTargetRecordId());
+                } else {
+                    objectType = input.getTableName().getObjectType();
+
+                    if (recordIdIdsCache.get(input.getTableName()) == null) {
+                        final Iterable<RecordIdIdMappings> mappings = recordIdIdMappingsLoader.getRecordIdIdMappings(input.getTableName());
+                        recordIdIdsCache.put(input.getTableName(), RecordIdIdMappings.toMap(mappings));
+                    }
+
+                    auditedEntityId = recordIdIdsCache.get(input.getTableName()).get(input.getTargetRecordId());
+                }
+
+                return new DefaultAuditLog(input, objectType, auditedEntityId);
+            }
+
+            private TableName findTableNameForHistoryTableName(final TableName historyTableName) {
+                for (final TableName tableName : TableName.values()) {
+                    if (historyTableName.equals(tableName.getHistoryTableName())) {
+                        return tableName;
+                    }
+                }
+
+                return null;
+            }
+        };
+    }
+
+    private interface RecordIdIdMappingsLoader {
+
+        public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappings(TableName tableName, TableName historyTableName);
+
+        public Iterable<RecordIdIdMappings> getRecordIdIdMappings(TableName tableName);
+    }
+
+    // Mappings for a single account
+    private final class AccountRecordIdIdMappingsLoader implements RecordIdIdMappingsLoader {
+
+        private final InternalTenantContext tenantContext;
+
+        private AccountRecordIdIdMappingsLoader(final InternalTenantContext tenantContext) {
+            this.tenantContext = tenantContext;
+        }
+
+        @Override
+        public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappings(final TableName tableName, final TableName historyTableName) {
+            if (TableName.ACCOUNT.equals(tableName)) {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappingsForAccountsTable(tableName.getTableName(), historyTableName.getTableName(), tenantContext);
+            } else if (TableName.TAG_DEFINITIONS.equals(tableName)) {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappingsForTablesWithoutAccountRecordId(tableName.getTableName(), historyTableName.getTableName(), tenantContext);
+            } else {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappings(tableName.getTableName(), historyTableName.getTableName(), tenantContext);
+            }
+        }
+
+        @Override
+        public Iterable<RecordIdIdMappings> getRecordIdIdMappings(final TableName tableName) {
+            return nonEntitySqlDao.getRecordIdIdMappings(tableName.getTableName(), tenantContext);
+        }
+    }
+
+    // Mappings for a set of accounts, retrieved in one query per table
+    private final class AccountsRecordIdIdMappingsLoader implements RecordIdIdMappingsLoader {
+
+        private final Collection<Long> accountRecordIds;
+        private final InternalTenantContext tenantContext;
+
+        private AccountsRecordIdIdMappingsLoader(final Collection<Long> accountRecordIds, final InternalTenantContext tenantContext) {
+            this.accountRecordIds = accountRecordIds;
+            this.tenantContext = tenantContext;
+        }
+
+        @Override
+        public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappings(final TableName tableName, final TableName historyTableName) {
+            if (TableName.ACCOUNT.equals(tableName)) {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappingsForAccountsTableAndAccountRecordIds(tableName.getTableName(), historyTableName.getTableName(), accountRecordIds, tenantContext.getTenantRecordId());
+            } else if (TableName.TAG_DEFINITIONS.equals(tableName)) {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappingsForTablesWithoutAccountRecordId(tableName.getTableName(), historyTableName.getTableName(), tenantContext);
+            } else {
+                return nonEntitySqlDao.getHistoryRecordIdIdMappingsForAccountRecordIds(tableName.getTableName(), historyTableName.getTableName(), accountRecordIds, tenantContext.getTenantRecordId());
+            }
+        }
+
+        @Override
+        public Iterable<RecordIdIdMappings> getRecordIdIdMappings(final TableName tableName) {
+            return nonEntitySqlDao.getRecordIdIdMappingsForAccountRecordIds(tableName.getTableName(), accountRecordIds, tenantContext.getTenantRecordId());
+        }
     }
 
     @Override
@@ -31,6 +31,7 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 
 // Build the abstraction layer between EhCache and Kill Bill
@@ -40,12 +41,15 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
 
     private final CacheManager cacheManager;
     private final Set<BaseCacheLoader> cacheLoaders;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public CacheControllerDispatcherProvider(final CacheManager cacheManager,
-                                             final Set<BaseCacheLoader> cacheLoaders) {
+                                             final Set<BaseCacheLoader> cacheLoaders,
+                                             final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
         this.cacheLoaders = cacheLoaders;
+        this.metricRegistry = metricRegistry;
     }
 
     @Override
@@ -61,7 +65,7 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
             }
             Preconditions.checkState(!cache.isClosed(), "Cache '%s' should not be closed", cacheType.getCacheName());
 
-            final CacheController<Object, Object> ehCacheBasedCacheController = new EhCacheBasedCacheController<Object, Object>(cache, cacheLoader);
+            final CacheController<Object, Object> ehCacheBasedCacheController = new EhCacheBasedCacheController<Object, Object>(cache, cacheLoader, metricRegistry);
             cacheControllers.put(cacheType, ehCacheBasedCacheController);
         }
 
@@ -21,6 +21,11 @@ package org.killbill.billing.util.cache;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
@@ -29,6 +34,9 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -39,10 +47,21 @@ public class EhCacheBasedCacheController<K, V> implements CacheController<K, V>
 
     private final Cache<K, V> cache;
     private final BaseCacheLoader<K, V> baseCacheLoader;
+    // Loads in progress: concurrent misses for the same key wait for the first loader instead of all hitting the database
+    private final ConcurrentMap<K, FutureTask<V>> inFlightLoads = new ConcurrentHashMap<K, FutureTask<V>>();
 
-    public EhCacheBasedCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader) {
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Timer loadTimer;
+
+    public EhCacheBasedCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader, final MetricRegistry metricRegistry) {
         this.cache = cache;
         this.baseCacheLoader = baseCacheLoader;
+
+        final String cacheName = baseCacheLoader.getCacheType().getCacheName();
+        this.hitCounter = metricRegistry.counter(MetricRegistry.name(EhCacheBasedCacheController.class, cacheName, "hits"));
+        this.missCounter = metricRegistry.counter(MetricRegistry.name(EhCacheBasedCacheController.class, cacheName, "misses"));
+        this.loadTimer = metricRegistry.timer(MetricRegistry.name(EhCacheBasedCacheController.class, cacheName, "loads"));
     }
 
     @Override
@@ -68,11 +87,12 @@ public class EhCacheBasedCacheController<K, V> implements CacheController<K, V>
             return null;
         }
 
-        final V value;
-        if (!isKeyInCache(key)) {
+        V value = cache.get(key);
+        if (value == null) {
+            missCounter.inc();
             value = computeAndCacheValue(key, cacheLoaderArgument);
         } else {
-            value = cache.get(key);
+            hitCounter.inc();
         }
 
         if (value == null || value.equals(BaseCacheLoader.EMPTY_VALUE_PLACEHOLDER)) {
@@ -89,12 +109,7 @@ public class EhCacheBasedCacheController<K, V> implements CacheController<K, V>
 
     @Override
     public boolean remove(final K key) {
-        if (isKeyInCache(key)) {
-            cache.remove(key);
-            return true;
-        } else {
-            return false;
-        }
+        return cache.remove(key);
     }
 
     @Override
@@ -124,22 +139,40 @@ public class EhCacheBasedCacheController<K, V> implements CacheController<K, V>
     }
 
     private V computeAndCacheValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
-        final V value;
-        try {
-            value = baseCacheLoader.compute(key, cacheLoaderArgument);
-        } catch (final Exception e) {
-            // Remove noisy log (might be expected, see https://github.com/killbill/killbill/issues/842)
-            //logger.warn("Unable to compute cached value for key='{}' and cacheLoaderArgument='{}'", key, cacheLoaderArgument, e);
-            throw new RuntimeException(e);
+        final FutureTask<V> load = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                final Timer.Context timerContext = loadTimer.time();
+                try {
+                    final V value = baseCacheLoader.compute(key, cacheLoaderArgument);
+                    if (value != null) {
+                        putIfAbsent(key, value);
+                    }
+                    return value;
+                } finally {
+                    timerContext.stop();
+                }
+            }
+        });
+
+        final FutureTask<V> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad == null) {
+            try {
+                load.run();
+            } finally {
+                inFlightLoads.remove(key, load);
+            }
         }
 
-        if (value == null) {
-            return null;
+        try {
+            return (inFlightLoad == null ? load : inFlightLoad).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            // Remove noisy log (might be expected, see https://github.com/killbill/killbill/issues/842)
+            //logger.warn("Unable to compute cached value for key='{}' and cacheLoaderArgument='{}'", key, cacheLoaderArgument, e.getCause());
+            throw new RuntimeException(e.getCause());
         }
-
-        // Race condition, we may compute it for nothing
-        putIfAbsent(key, value);
-
-        return value;
     }
 }
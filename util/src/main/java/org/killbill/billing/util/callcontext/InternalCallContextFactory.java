@@ -18,6 +18,8 @@
 
 package org.killbill.billing.util.callcontext;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -340,6 +342,11 @@ public class InternalCallContextFactory {
         }
     }
 
+    // Safe method to retrieve the account record ids of many objects in one query (objects not belonging to the tenant are omitted)
+    public Map<UUID, Long> getAccountRecordIds(final Collection<UUID> objectIds, final ObjectType objectType, final InternalTenantContext context) {
+        return nonEntityDao.retrieveAccountRecordIdsFromObjects(objectIds, objectType, context.getTenantRecordId());
+    }
+
     // Safe method to retrieve the record id from any object (should only be used by DefaultRecordIdApi)
     public Long getRecordIdFromObject(final UUID objectId, final ObjectType objectType, final TenantContext context) {
         try {
@@ -76,11 +76,31 @@ public interface InvoiceConfig extends KillbillConfig {
     @Description("Maximum number of past billing periods we use to fetch raw usage data (usage optimization)")
     int getMaxRawUsagePreviousPeriod(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.invoice.maxInvoiceLimit")
+    @Default("0s")
+    @Description("How far back (from today) invoice generation looks at existing recurring/fixed/usage items; older items are considered settled and are neither loaded nor repaired. Should exceed the longest billing period (ignored if set to 0s)")
+    TimeSpan getMaxInvoiceLimit();
+
+    @Config("org.killbill.invoice.maxInvoiceLimit")
+    @Default("0s")
+    @Description("How far back (from today) invoice generation looks at existing recurring/fixed/usage items; older items are considered settled and are neither loaded nor repaired. Should exceed the longest billing period (ignored if set to 0s)")
+    TimeSpan getMaxInvoiceLimit(@Param("dummy") final InternalTenantContext tenantContext);
+
     @Config("org.killbill.invoice.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
     int getMaxGlobalLockRetries();
 
+    @Config("org.killbill.invoice.accountBalanceLedger.enabled")
+    @Default("false")
+    @Description("Whether account balance and CBA reads are served from the per account ledger instead of being computed from all invoices")
+    boolean isAccountBalanceLedgerEnabled();
+
+    @Config("org.killbill.invoice.html.renderingThreads")
+    @Default("4")
+    @Description("Number of threads used to render invoices as HTML in batch (e.g. end-of-month archives)")
+    int getHtmlRenderingThreads();
+
     @Config("org.killbill.invoice.emailNotificationsEnabled")
     @Default("false")
     @Description("Whether to send email notifications on invoice creation (for configured accounts)")
@@ -38,4 +38,24 @@ public interface NotificationConfig extends KillbillConfig {
     @Description("Delay before which unresolved push notifications should be retried")
     List<TimeSpan> getPushNotificationsRetries(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.billing.server.notifications.maxConcurrentRequestsPerEndpoint")
+    @Default("10")
+    @Description("Maximum number of concurrent push notification requests per callback url")
+    int getPushNotificationsMaxConcurrentRequestsPerEndpoint();
+
+    @Config("org.killbill.billing.server.notifications.maxPendingRequestsPerEndpoint")
+    @Default("1000")
+    @Description("Maximum number of push notifications waiting to be sent per callback url, before they are deferred to the retry queue")
+    int getPushNotificationsMaxPendingRequestsPerEndpoint();
+
+    @Config("org.killbill.billing.server.notifications.circuitBreaker.failureThreshold")
+    @Default("5")
+    @Description("Number of consecutive failures after which push notifications for a callback url are deferred to the retry queue (0 to disable)")
+    int getPushNotificationsCircuitBreakerFailureThreshold();
+
+    @Config("org.killbill.billing.server.notifications.circuitBreaker.openDuration")
+    @Default("1m")
+    @Description("How long push notifications for a failing callback url are deferred to the retry queue")
+    TimeSpan getPushNotificationsCircuitBreakerOpenDuration();
+
 }
\ No newline at end of file
@@ -104,6 +104,21 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Rate at which janitor tasks are scheduled")
     TimeSpan getJanitorRunningRate();
 
+    @Config("org.killbill.payment.janitor.threads.nb")
+    @Default("1")
+    @Description("Number of threads processing janitor entries (entries are partitioned by account)")
+    int getJanitorThreadNb();
+
+    @Config("org.killbill.payment.janitor.shards.nb")
+    @Default("1")
+    @Description("Number of janitor shards, typically the number of nodes running the janitor")
+    int getJanitorShardNb();
+
+    @Config("org.killbill.payment.janitor.shard.index")
+    @Default("0")
+    @Description("Janitor shard of this node (between 0 and org.killbill.payment.janitor.shards.nb - 1): only entries with account_record_id % shards.nb == shard.index are processed")
+    int getJanitorShardIndex();
+
     @Config("org.killbill.payment.janitor.attempts.delay")
     @Default("12h")
     @Description("Delay before which unresolved attempt should be retried")
@@ -125,6 +140,26 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.threads.perPlugin.nb")
+    @Default("0")
+    @Description("Number of threads dedicated to each payment plugin (0 to share the plugin executor dispatcher across all plugins)")
+    int getPaymentPluginThreadNbPerPlugin();
+
+    @Config("org.killbill.payment.plugin.queue.perPlugin.size")
+    @Default("100")
+    @Description("Maximum number of calls waiting for a thread of a given payment plugin before new calls are rejected")
+    int getPaymentPluginQueueSizePerPlugin();
+
+    @Config("org.killbill.payment.plugin.info.parallelism")
+    @Default("5")
+    @Description("Maximum number of plugin info calls (getPaymentInfo) in flight for a bulk payment retrieval with plugin info")
+    int getPaymentPluginInfoParallelism();
+
+    @Config("org.killbill.payment.plugin.info.timeout")
+    @Default("5s")
+    @Description("Timeout for each plugin info call (getPaymentInfo) of a bulk payment retrieval: past it, the payment is returned without plugin info")
+    TimeSpan getPaymentPluginInfoTimeout();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
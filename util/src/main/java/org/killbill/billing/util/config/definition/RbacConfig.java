@@ -28,4 +28,9 @@ public interface RbacConfig extends KillbillConfig {
     @Default("1h")
     @Description("System-wide default time that any session may remain idle before expiring")
     public TimeSpan getGlobalSessionTimeout();
+
+    @Config("org.killbill.rbac.sessionWriteBehindInterval")
+    @Default("0s")
+    @Description("When set, session last access time updates are coalesced in memory and flushed at that interval (0s to write them synchronously)")
+    public TimeSpan getSessionWriteBehindInterval();
 }
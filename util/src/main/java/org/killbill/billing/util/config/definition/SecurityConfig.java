@@ -21,6 +21,7 @@ import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.DefaultNull;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface SecurityConfig extends KillbillConfig {
 
@@ -34,6 +35,16 @@ public interface SecurityConfig extends KillbillConfig {
     @Description("Sets the number of times submitted credentials will be hashed before comparing to the credentials stored in the system")
     public Integer getShiroNbHashIterations();
 
+    @Config("org.killbill.security.tenantCredentialsCache.maxSize")
+    @Default("1000")
+    @Description("Maximum number of verified tenant api key/secret pairs kept in memory, to skip the hashing on subsequent requests (0 to disable)")
+    public Integer getTenantCredentialsCacheMaxSize();
+
+    @Config("org.killbill.security.tenantCredentialsCache.ttl")
+    @Default("5m")
+    @Description("How long a verified tenant api key/secret pair is kept in memory")
+    public TimeSpan getTenantCredentialsCacheTTL();
+
     // LDAP Realm
 
     @Config("org.killbill.security.ldap.userDnTemplate")
@@ -18,15 +18,18 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -53,10 +56,19 @@ public interface AuditSqlDao {
     public void insertAuditFromTransaction(@SmartBindBean final EntityAudit audit,
                                            @SmartBindBean final InternalCallContext context);
 
+    @SqlBatch
+    public void insertAuditsFromTransaction(@SmartBindBean final Iterable<EntityAudit> audits,
+                                            @SmartBindBean final InternalCallContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<AuditLogModelDao> getAuditLogsForAccountRecordId(@SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<AuditLogModelDao> getAuditLogsForAccountRecordIds(@BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                      @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<AuditLogModelDao> getAuditLogsForTableNameAndAccountRecordId(@Bind("tableName") final String tableName,
@@ -18,6 +18,9 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -35,7 +38,10 @@ import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 public class DefaultNonEntityDao implements NonEntityDao {
 
@@ -104,6 +110,35 @@ public class DefaultNonEntityDao implements NonEntityDao {
         }, objectIdOrNull, objectType, tableName, cache);
     }
 
+    @Override
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, final Long tenantRecordId) {
+        final TableName tableName = TableName.fromObjectType(objectType);
+        Preconditions.checkNotNull(tableName, "%s is not a valid ObjectType", objectType);
+        Preconditions.checkArgument(tableName != TableName.TENANT && tableName != TableName.TAG_DEFINITIONS,
+                                    "%s doesn't have an account_record_id", objectType);
+
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        if (objectIds.isEmpty()) {
+            return result;
+        }
+
+        final Collection<String> ids = ImmutableSet.<String>copyOf(Iterables.<UUID, String>transform(objectIds,
+                                                                                                     new Function<UUID, String>() {
+                                                                                                         @Override
+                                                                                                         public String apply(final UUID input) {
+                                                                                                             return input.toString();
+                                                                                                         }
+                                                                                                     }));
+        // For accounts, the account record id is the record id
+        final Iterable<RecordIdIdMappings> mappings = tableName == TableName.ACCOUNT ?
+                                                      nonEntitySqlDao.getRecordIdIdMappingsFromIds(ids, tableName.getTableName(), tenantRecordId) :
+                                                      nonEntitySqlDao.getAccountRecordIdIdMappingsFromObjectsOtherThanAccount(ids, tableName.getTableName(), tenantRecordId);
+        for (final RecordIdIdMappings mapping : mappings) {
+            result.put(mapping.getId(), mapping.getRecordId());
+        }
+        return result;
+    }
+
     @Override
     public Long retrieveTenantRecordIdFromObject(@Nullable final UUID objectId, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
         return retrieveTenantRecordIdFromObjectInTransaction(objectId, objectType, cache, null);
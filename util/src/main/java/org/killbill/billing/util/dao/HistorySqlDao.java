@@ -18,16 +18,20 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.dao.EntityModelDao;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 public interface HistorySqlDao<M extends EntityModelDao<E>, E extends Entity> {
 
@@ -38,4 +42,13 @@ public interface HistorySqlDao<M extends EntityModelDao<E>, E extends Entity> {
     @GetGeneratedKeys
     public Long addHistoryFromTransaction(@EntityHistoryBinder EntityHistoryModelDao<M, E> history,
                                           @SmartBindBean InternalCallContext context);
+
+    @SqlBatch
+    public void addHistoriesFromTransaction(@EntityHistoryBinder Iterable<EntityHistoryModelDao<M, E>> histories,
+                                            @SmartBindBean InternalCallContext context);
+
+    @SqlQuery
+    public List<RecordIdIdMappings> getHistoryRecordIdIdMappingsByIds(@BindIn("targetRecordIds") final Collection<Long> targetRecordIds,
+                                                                      @BindIn("ids") final Collection<String> historyIds,
+                                                                      @SmartBindBean InternalTenantContext context);
 }
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -28,6 +29,7 @@ import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
 import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe {
@@ -47,6 +49,16 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public Long getAccountRecordIdFromObjectOtherThanAccount(@Bind("id") String id, @Define("tableName") final String tableName);
 
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getAccountRecordIdIdMappingsFromObjectsOtherThanAccount(@BindIn("ids") final Collection<String> ids,
+                                                                                                @Define("tableName") final String tableName,
+                                                                                                @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getRecordIdIdMappingsFromIds(@BindIn("ids") final Collection<String> ids,
+                                                                     @Define("tableName") final String tableName,
+                                                                     @Bind("tenantRecordId") final Long tenantRecordId);
+
     @SqlQuery
     public Long getTenantRecordIdFromTenant(@Bind("id") String id);
 
@@ -77,4 +89,21 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public Iterable<RecordIdIdMappings> getRecordIdIdMappings(@Define("tableName") String tableName,
                                                               @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappingsForAccountRecordIds(@Define("tableName") String tableName,
+                                                                                        @Define("historyTableName") String historyTableName,
+                                                                                        @BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                                        @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappingsForAccountsTableAndAccountRecordIds(@Define("tableName") String tableName,
+                                                                                                        @Define("historyTableName") String historyTableName,
+                                                                                                        @BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                                                        @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getRecordIdIdMappingsForAccountRecordIds(@Define("tableName") String tableName,
+                                                                                 @BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                                                                 @Bind("tenantRecordId") final Long tenantRecordId);
 }
@@ -18,14 +18,28 @@ package org.killbill.billing.util.email.templates;
 
 import java.util.Map;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
 
 public class MustacheTemplateEngine implements TemplateEngine {
 
+    private static final int MAX_COMPILED_TEMPLATES = 1000;
+
+    private final Mustache.Compiler compiler = Mustache.compiler().nullValue("");
+    // Compiled templates are immutable (and can be executed concurrently): templates are only compiled once per text
+    private final Cache<String, Template> compiledTemplates = CacheBuilder.newBuilder()
+                                                                         .maximumSize(MAX_COMPILED_TEMPLATES)
+                                                                         .build();
+
     @Override
     public String executeTemplateText(final String templateText, final Map<String, Object> data) {
-        final Template template = Mustache.compiler().nullValue("").compile(templateText);
+        Template template = compiledTemplates.getIfPresent(templateText);
+        if (template == null) {
+            template = compiler.compile(templateText);
+            compiledTemplates.put(templateText, template);
+        }
         return template.execute(data);
     }
 }
@@ -35,6 +35,9 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     private final Long limit;
     private final Long totalNbRecords;
     private final Long maxNbRecords;
+    // Keyset pagination: offsets are record_id cursors and the next one is computed upfront by the DAO
+    private final boolean keyset;
+    private final Long keysetNextOffset;
     private final Iterator<T> delegateIterator;
 
     // Builders when the streaming API can't be used (should only be used for tests)
@@ -57,9 +60,22 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         return new DefaultPagination<T>(offset, limit, (long) results.size(), (long) maxNbRecords, results.iterator());
     }
 
+    // Builder for keyset pagination (see DefaultPaginationSqlDaoHelper): nextRecordIdCursor is null when there are no more results
+    public static <T> DefaultPagination<T> buildKeyset(final Long recordIdCursor, final Long limit, @Nullable final Long nextRecordIdCursor,
+                                                       @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                                                       final Iterator<T> delegateIterator) {
+        return new DefaultPagination<T>(recordIdCursor, limit, totalNbRecords, maxNbRecords, true, nextRecordIdCursor, delegateIterator);
+    }
+
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(),
+             limit,
+             original.getTotalNbRecords(),
+             original.getMaxNbRecords(),
+             original instanceof DefaultPagination && ((DefaultPagination) original).keyset,
+             original.getNextOffset(),
+             delegate);
     }
 
     // Constructor for DAO getAll calls
@@ -70,11 +86,20 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, false, null, delegateIterator);
+    }
+
+    private DefaultPagination(final Long currentOffset, final Long limit,
+                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                              final boolean keyset, @Nullable final Long keysetNextOffset,
+                              final Iterator<T> delegateIterator) {
         this.currentOffset = currentOffset;
         // See DefaultPaginationSqlDaoHelper
         this.limit = Math.abs(limit);
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
+        this.keyset = keyset;
+        this.keysetNextOffset = keyset ? keysetNextOffset : null;
         this.delegateIterator = delegateIterator;
     }
 
@@ -102,6 +127,10 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
 
     @Override
     public Long getNextOffset() {
+        if (keyset) {
+            return keysetNextOffset;
+        }
+
         final long candidate = currentOffset + limit;
         if (totalNbRecords != null && candidate >= totalNbRecords) {
             // No more results
@@ -132,6 +161,7 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         sb.append(", nextOffset=").append(getNextOffset());
         sb.append(", totalNbRecords=").append(totalNbRecords);
         sb.append(", maxNbRecords=").append(maxNbRecords);
+        sb.append(", keyset=").append(keyset);
         sb.append('}');
         return sb.toString();
     }
@@ -28,6 +28,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,27 +52,122 @@ public class DefaultPaginationSqlDaoHelper {
                                                                                                                      final Long offset,
                                                                                                                      final Long limitMaybeNegative,
                                                                                                                      @Nullable final InternalTenantContext context) {
+        return getPagination(sqlDaoClazz, paginationIteratorBuilder, offset, limitMaybeNegative, PaginationOptions.DEFAULT, context);
+    }
+
+    public <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                     final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                     final Long offset,
+                                                                                                                     final Long limitMaybeNegative,
+                                                                                                                     final PaginationOptions paginationOptions,
+                                                                                                                     @Nullable final InternalTenantContext context) {
         // Use a negative limit as a hint to go backwards. It's a bit awkward -- using a negative offset instead would be more intuitive,
         // but it is non-deterministic for the first page unfortunately (limit 0 offset 50: ASC or DESC?)
         final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
         final Long limit = Math.abs(limitMaybeNegative);
 
+        // The count queries can be skipped altogether when the caller doesn't need the totals
+        final boolean withTotals = paginationOptions.isWithTotals();
+        final Long totalNbRecordsOrNull = withTotals ? getTotalNbRecords(sqlDaoClazz, paginationIteratorBuilder, context) : null;
+
+        // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
+        // Since we want to stream the results out, we don't want to auto-commit when this method returns.
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+        final Long maxNbRecords = withTotals ? getMaxNbRecords(sqlDao, paginationIteratorBuilder, ordering, context) : null;
+
+        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, offset, limit, ordering, context);
+
+        final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
+
+        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+    }
+
+    // Keyset pagination, for simple pagination (no search filter): recordIdCursor is the record_id of the last record of the previous page
+    // (0 for the first page). Unlike "limit :rowCount offset :offset", the cost of a page doesn't depend on how deep it is.
+    public <E extends Entity, M extends EntityModelDao<E>> Pagination<M> getKeysetPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                            final Long recordIdCursor,
+                                                                                            final Long limitMaybeNegative,
+                                                                                            final PaginationOptions paginationOptions,
+                                                                                            final InternalTenantContext context) {
+        // See getPagination
+        final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
+        final Long limit = Math.abs(limitMaybeNegative);
+        final String cursorComparator = ordering == Ordering.ASC ? ">" : "<";
+        // When going backwards, the first page starts from the most recent record. The cursor is pinned to it, so that the two queries below
+        // return the same page even if records are inserted in the meantime (otherwise, the next page would skip the records shifted out of this one).
+        final Long actualRecordIdCursor;
+        if (ordering == Ordering.DESC && recordIdCursor == 0L) {
+            final Long maxRecordId = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+                @Override
+                public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                    return sqlDao.getLastRecordIdByRecordIdCursor(Long.MAX_VALUE, 0L, cursorComparator, ordering.toString(), context);
+                }
+            });
+            actualRecordIdCursor = maxRecordId == null ? 0L : maxRecordId + 1;
+        } else {
+            actualRecordIdCursor = recordIdCursor;
+        }
+
+        // The cursor for the next page (record_id of the last record of this page) needs to be known before the results are streamed out.
+        // This only walks the record_id index over the current page.
+        final Long nextRecordIdCursor = limit == 0 ? null : transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                return sqlDao.getLastRecordIdByRecordIdCursor(actualRecordIdCursor, limit - 1, cursorComparator, ordering.toString(), context);
+            }
+        });
+
+        // See getPagination
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+
+        final Long maxNbRecords;
+        if (paginationOptions.isWithTotals()) {
+            maxNbRecords = getMaxNbRecords(sqlDao,
+                                           new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                                               @Override
+                                               public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+                                                   return null;
+                                               }
+
+                                               @Override
+                                               public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                   return sqlDao.get(offset, limit, "record_id", ordering.toString(), context);
+                                               }
+                                           },
+                                           ordering,
+                                           context);
+        } else {
+            maxNbRecords = null;
+        }
+
+        final Iterator<M> results = sqlDao.getByRecordIdCursor(actualRecordIdCursor, limit, cursorComparator, ordering.toString(), context);
+
+        return DefaultPagination.<M>buildKeyset(recordIdCursor, limit, nextRecordIdCursor, maxNbRecords, maxNbRecords, results);
+    }
+
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Long getTotalNbRecords(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                 final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                 @Nullable final InternalTenantContext context) {
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
         // more pages.
-        // Note: for simple pagination (no search filter), this will be computed below instead (MaxNbRecords == TotalNbRecords)
-        final Long totalNbRecordsOrNull = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+        // Note: for simple pagination (no search filter), this will be computed in getMaxNbRecords instead (MaxNbRecords == TotalNbRecords)
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
             @Override
             public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
                 final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
                 return paginationIteratorBuilder.getCount((S) sqlDao, context);
             }
         });
+    }
 
-        // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
-        // Since we want to stream the results out, we don't want to auto-commit when this method returns.
-        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Long getMaxNbRecords(final EntitySqlDao<M, E> sqlDao,
+                                                                                                               final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                               final Ordering ordering,
+                                                                                                               @Nullable final InternalTenantContext context) {
         final Long maxNbRecords;
         if (context == null) {
             maxNbRecords = null;
@@ -102,11 +198,7 @@ public class DefaultPaginationSqlDaoHelper {
                 maxNbRecords = sqlDao.getCount(context);
             }
         }
-        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, offset, limit, ordering, context);
-
-        final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
-
-        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+        return maxNbRecords;
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
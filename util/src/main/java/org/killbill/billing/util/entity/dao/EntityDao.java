@@ -23,6 +23,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 
 public interface EntityDao<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> {
 
@@ -38,6 +39,8 @@ public interface EntityDao<M extends EntityModelDao<E>, E extends Entity, U exte
 
     public Pagination<M> get(Long offset, Long limit, InternalTenantContext context);
 
+    public Pagination<M> get(Long offset, Long limit, PaginationOptions paginationOptions, InternalTenantContext context);
+
     public Long getCount(InternalTenantContext context);
 
     public void test(InternalTenantContext context);
@@ -29,6 +29,7 @@ import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 
@@ -142,6 +143,16 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
 
     @Override
     public Pagination<M> get(final Long offset, final Long limit, final InternalTenantContext context) {
+        return get(offset, limit, PaginationOptions.DEFAULT, context);
+    }
+
+    @Override
+    public Pagination<M> get(final Long offset, final Long limit, final PaginationOptions paginationOptions, final InternalTenantContext context) {
+        if (paginationOptions.isKeyset()) {
+            // The offset is a record_id cursor
+            return paginationHelper.getKeysetPagination(realSqlDao, offset, limit, paginationOptions, context);
+        }
+
         return paginationHelper.getPagination(realSqlDao,
                                               new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
                                                   @Override
@@ -157,6 +168,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                               },
                                               offset,
                                               limit,
+                                              paginationOptions,
                                               context);
     }
 
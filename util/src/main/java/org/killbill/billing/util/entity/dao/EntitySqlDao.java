@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -40,6 +41,7 @@ import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
 import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> extends AuditSqlDao, HistorySqlDao<M, E>, Transactional<EntitySqlDao<M, E>>, CloseMe {
@@ -53,6 +55,10 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     public M getById(@Bind("id") final String id,
                      @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<M> getByIds(@BindIn("ids") final Collection<String> ids,
+                            @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public M getByRecordId(@Bind("recordId") final Long recordId,
                            @SmartBindBean final InternalTenantContext context);
@@ -60,6 +66,10 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     @SqlQuery
     public List<M> getByAccountRecordId(@SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<M> getByAccountRecordIds(@BindIn("accountRecordIds") final Collection<Long> accountRecordIds,
+                                         @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public List<M> getByAccountRecordIdIncludedDeleted(@SmartBindBean final InternalTenantContext context);
 
@@ -94,6 +104,21 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getByRecordIdCursor(@Bind("recordIdCursor") final Long recordIdCursor,
+                                           @Bind("rowCount") final Long rowCount,
+                                           @Define("cursorComparator") final String cursorComparator,
+                                           @Define("ordering") final String ordering,
+                                           @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getLastRecordIdByRecordIdCursor(@Bind("recordIdCursor") final Long recordIdCursor,
+                                                @Bind("lastRowOffset") final Long lastRowOffset,
+                                                @Define("cursorComparator") final String cursorComparator,
+                                                @Define("ordering") final String ordering,
+                                                @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCount(@SmartBindBean final InternalTenantContext context);
 
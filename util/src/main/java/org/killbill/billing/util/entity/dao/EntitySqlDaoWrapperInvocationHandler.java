@@ -25,6 +25,7 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -36,6 +37,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -50,8 +52,10 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.dao.RecordIdIdMappings;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.clock.Clock;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
@@ -95,6 +99,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private final Clock clock;
     private final NonEntityDao nonEntityDao;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final LatencyHistograms latencyHistograms;
     private final Profiling<Object, Throwable> prof;
 
     public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
@@ -104,7 +109,8 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 // Special DAO that don't require caching can invoke EntitySqlDaoWrapperInvocationHandler with no caching (e.g NoCachingTenantDao)
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
                                                 @Nullable final NonEntityDao nonEntityDao,
-                                                final InternalCallContextFactory internalCallContextFactory) {
+                                                final InternalCallContextFactory internalCallContextFactory,
+                                                final LatencyHistograms latencyHistograms) {
         this.sqlDaoClass = sqlDaoClass;
         this.sqlDao = sqlDao;
         this.handle = handle;
@@ -112,13 +118,16 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.latencyHistograms = latencyHistograms;
         this.prof = new Profiling<Object, Throwable>();
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final String profilingId = getProfilingId(null, method);
+        final long startNanos = latencyHistograms.start();
         try {
-            return prof.executeWithProfiling(ProfilingFeatureType.DAO, getProfilingId(null, method), new WithProfilingCallback<Object, Throwable>() {
+            return prof.executeWithProfiling(ProfilingFeatureType.DAO, profilingId, new WithProfilingCallback<Object, Throwable>() {
                 @Override
                 public Object execute() throws Throwable {
                     return invokeSafely(proxy, method, args);
@@ -154,6 +163,8 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             } else {
                 errorDuringTransaction(t, method);
             }
+        } finally {
+            latencyHistograms.record(ProfilingFeatureType.DAO, profilingId, startNanos);
         }
 
         // Never reached
@@ -322,8 +333,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         final Map<String, M> deletedEntities = new HashMap<String, M>();
         // Unfortunately, we cannot just look at DELETE as "markAsInactive" operations are often treated as UPDATE
         if (changeType == ChangeType.UPDATE || changeType == ChangeType.DELETE) {
-            for (final String entityId : entityIds) {
-                deletedEntities.put(entityId, sqlDao.getById(entityId, context));
+            if (entityIds.size() > 1) {
+                deletedEntities.putAll(getByIds(entityIds, context));
+            } else {
+                for (final String entityId : entityIds) {
+                    deletedEntities.put(entityId, sqlDao.getById(entityId, context));
+                }
             }
         }
 
@@ -335,6 +350,19 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             }
         });
 
+        if (entityIds.size() > 1) {
+            // PERF: batch calls (e.g. @SqlBatch) are re-hydrated with a single query and history and audit rows are written using JDBC batches
+            final List<M> ms = updateHistoryAndAuditInBatch(entityIds, deletedEntities, changeType, context);
+
+            // PERF: same as below, callers can retrieve the reHydrated entities by declaring an Object return type
+            if (Object.class.equals(method.getReturnType())) {
+                return ms;
+            } else {
+                // jDBI will return the number of rows modified otherwise
+                return obj;
+            }
+        }
+
         M m = null;
         for (final String entityId : entityIds) {
             m = updateHistoryAndAudit(entityId, deletedEntities.get(entityId), changeType, context);
@@ -410,6 +438,78 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return (M) reHydratedEntity;
     }
 
+    private List<M> updateHistoryAndAuditInBatch(final List<String> entityIds, final Map<String, M> deletedEntities, final ChangeType changeType, final InternalCallContext context) throws Throwable {
+        final Object reHydratedEntities = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("history/audit batch", null), new WithProfilingCallback<Object, Throwable>() {
+            @Override
+            public List<M> execute() throws Throwable {
+                final Map<String, M> currentEntities;
+                if (changeType == ChangeType.DELETE) {
+                    currentEntities = ImmutableMap.<String, M>of();
+                } else {
+                    currentEntities = getByIds(entityIds, context);
+                }
+
+                final List<M> reHydratedEntities = new ArrayList<M>(entityIds.size());
+                for (final String entityId : entityIds) {
+                    final M reHydratedEntity;
+                    if (changeType == ChangeType.DELETE) {
+                        reHydratedEntity = deletedEntities.get(entityId);
+                    } else {
+                        // See note above regarding "markAsInactive" operations
+                        reHydratedEntity = MoreObjects.firstNonNull(currentEntities.get(entityId), deletedEntities.get(entityId));
+                    }
+                    Preconditions.checkNotNull(reHydratedEntity, "reHydratedEntity cannot be null");
+                    reHydratedEntities.add(reHydratedEntity);
+                }
+
+                final TableName tableName = reHydratedEntities.get(0).getTableName();
+                if (TableName.ACCOUNT.equals(tableName) && ChangeType.INSERT.equals(changeType)) {
+                    // The audit context differs for each account row (see insertAudits), don't bother batching
+                    for (final M reHydratedEntity : reHydratedEntities) {
+                        final Long historyRecordId = insertHistory(reHydratedEntity.getRecordId(), reHydratedEntity, changeType, context);
+                        insertAudits(tableName, reHydratedEntity, reHydratedEntity.getRecordId(), historyRecordId, changeType, context);
+                    }
+                    return reHydratedEntities;
+                }
+
+                // Note: audit entries point to the history record id
+                final Map<Long, Long> historyRecordIdByEntityRecordId = new HashMap<Long, Long>();
+                if (tableName.getHistoryTableName() != null) {
+                    historyRecordIdByEntityRecordId.putAll(insertHistories(reHydratedEntities, changeType, context));
+                } else {
+                    for (final M reHydratedEntity : reHydratedEntities) {
+                        historyRecordIdByEntityRecordId.put(reHydratedEntity.getRecordId(), reHydratedEntity.getRecordId());
+                    }
+                }
+
+                final TableName destinationTableName = MoreObjects.firstNonNull(tableName.getHistoryTableName(), tableName);
+                final DateTime createdDate = clock.getUTCNow();
+                final Collection<EntityAudit> audits = new ArrayList<EntityAudit>(reHydratedEntities.size());
+                for (final M reHydratedEntity : reHydratedEntities) {
+                    final Long historyRecordId = historyRecordIdByEntityRecordId.get(reHydratedEntity.getRecordId());
+                    Preconditions.checkNotNull(historyRecordId, "historyRecordId cannot be null for entity %s", reHydratedEntity.getId());
+                    audits.add(new EntityAudit(destinationTableName, historyRecordId, changeType, createdDate));
+                }
+                sqlDao.insertAuditsFromTransaction(audits, context);
+
+                for (final M reHydratedEntity : reHydratedEntities) {
+                    invalidateAuditLogCache(tableName, reHydratedEntity.getRecordId());
+                }
+                return reHydratedEntities;
+            }
+        });
+        //noinspection unchecked
+        return (List<M>) reHydratedEntities;
+    }
+
+    private Map<String, M> getByIds(final Collection<String> entityIds, final InternalTenantContext context) {
+        final Map<String, M> entitiesById = new HashMap<String, M>();
+        for (final M entity : sqlDao.getByIds(entityIds, context)) {
+            entitiesById.put(entity.getId().toString(), entity);
+        }
+        return entitiesById;
+    }
+
     private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
         final Annotation[][] parameterAnnotations = getAnnotations(method);
 
@@ -486,6 +586,30 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return sqlDao.addHistoryFromTransaction(history, context);
     }
 
+    private Map<Long, Long> insertHistories(final Iterable<M> entityModelDaos, final ChangeType changeType, final InternalCallContext context) {
+        final DateTime createdDate = clock.getUTCNow();
+        final Collection<EntityHistoryModelDao<M, E>> histories = new ArrayList<EntityHistoryModelDao<M, E>>();
+        final Collection<Long> entityRecordIds = new ArrayList<Long>();
+        final Collection<String> historyIds = new ArrayList<String>();
+        final Map<UUID, Long> entityRecordIdByHistoryId = new HashMap<UUID, Long>();
+        for (final M entityModelDao : entityModelDaos) {
+            final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityModelDao.getRecordId(), changeType, createdDate);
+            histories.add(history);
+            entityRecordIds.add(entityModelDao.getRecordId());
+            historyIds.add(history.getId().toString());
+            entityRecordIdByHistoryId.put(history.getId(), entityModelDao.getRecordId());
+        }
+        sqlDao.addHistoriesFromTransaction(histories, context);
+
+        // Generated keys aren't reliably returned for JDBC batches across drivers: look the history record ids up instead (single query)
+        final Map<Long, Long> historyRecordIdByEntityRecordId = new HashMap<Long, Long>();
+        final Iterable<RecordIdIdMappings> mappings = sqlDao.getHistoryRecordIdIdMappingsByIds(entityRecordIds, historyIds, context);
+        for (final RecordIdIdMappings mapping : mappings) {
+            historyRecordIdByEntityRecordId.put(entityRecordIdByHistoryId.get(mapping.getId()), mapping.getRecordId());
+        }
+        return historyRecordIdByEntityRecordId;
+    }
+
     private void insertAudits(final TableName tableName, final M entityModelDao, final Long entityRecordId, final Long historyRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
         final TableName destinationTableName = MoreObjects.firstNonNull(tableName.getHistoryTableName(), tableName);
         final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordId, changeType, clock.getUTCNow());
@@ -501,6 +625,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         }
         sqlDao.insertAuditFromTransaction(audit, context);
 
+        invalidateAuditLogCache(tableName, entityRecordId);
+    }
+
+    private void invalidateAuditLogCache(final TableName tableName, final Long entityRecordId) {
         // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
         // TODO Knowledge on how the key is constructed is also in AuditSqlDao
         if (tableName.getHistoryTableName() != null) {
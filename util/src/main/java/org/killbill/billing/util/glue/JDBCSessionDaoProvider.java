@@ -41,7 +41,7 @@ public class JDBCSessionDaoProvider implements Provider<JDBCSessionDao> {
 
     @Override
     public JDBCSessionDao get() {
-        final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi);
+        final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi, rbacConfig.getSessionWriteBehindInterval().getMillis());
 
         if (sessionManager instanceof DefaultSessionManager) {
             final DefaultSessionManager defaultSessionManager = (DefaultSessionManager) sessionManager;
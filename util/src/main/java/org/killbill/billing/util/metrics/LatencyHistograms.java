@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+//
+// Always-on latency aggregation, keyed by ProfilingFeatureType and id (DAO method, plugin, JAX-RS resource, ...).
+//
+// Unlike Profiling, which only records when a request opts in through X-Killbill-Profiling-Req and drops the data
+// at the end of the request, these histograms are maintained for every call. Recording is a lookup in the registry
+// and an update of a bounded reservoir, so it is cheap enough to stay on in production.
+//
+// The timers live in the MetricRegistry (hence are visible to the metrics servlet and reporters): callers must use
+// ids of bounded cardinality (e.g. resource templates, not raw paths), as timers are never evicted.
+//
+@Singleton
+public class LatencyHistograms {
+
+    private static final String PREFIX = "latency";
+
+    private final MetricRegistry metricRegistry;
+
+    @Inject
+    public LatencyHistograms(final MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(final ProfilingFeatureType profilingFeatureType, final String id, final long startNanos) {
+        metricRegistry.timer(MetricRegistry.name(PREFIX, profilingFeatureType.name(), id)).update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Keyed by ProfilingFeatureType and id, e.g. DAO.AccountSqlDao.getById
+    public SortedMap<String, Timer> getHistograms() {
+        return getHistograms(PREFIX + ".");
+    }
+
+    public SortedMap<String, Timer> getHistograms(final ProfilingFeatureType profilingFeatureType) {
+        return getHistograms(MetricRegistry.name(PREFIX, profilingFeatureType.name()) + ".");
+    }
+
+    private SortedMap<String, Timer> getHistograms(final String prefix) {
+        final SortedMap<String, Timer> timers = metricRegistry.getTimers(new MetricFilter() {
+            @Override
+            public boolean matches(final String name, final Metric metric) {
+                return name.startsWith(prefix);
+            }
+        });
+
+        final SortedMap<String, Timer> histograms = new TreeMap<String, Timer>();
+        for (final Entry<String, Timer> entry : timers.entrySet()) {
+            histograms.put(entry.getKey().substring(PREFIX.length() + 1), entry.getValue());
+        }
+        return histograms;
+    }
+}
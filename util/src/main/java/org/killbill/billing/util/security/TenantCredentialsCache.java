@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.shiro.codec.Hex;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.config.definition.SecurityConfig;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+//
+// Tenant api key/secret pairs which have already been verified by the tenant realm, with their tenant.
+//
+// The realm hashes the secret getShiroNbHashIterations times on each request, which is expensive. Entries are keyed by an HMAC
+// of the pair (the secret itself is never kept in memory), using a random key generated at startup, so they can't be
+// matched outside of this process. The cache is bounded and short-lived, so that credentials changed in the database are picked up
+// (see also AdminResource#invalidatesCacheByTenant).
+//
+@Singleton
+public class TenantCredentialsCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, Tenant> verifiedCredentials;
+    private final SecretKeySpec hmacKey;
+
+    @Inject
+    public TenantCredentialsCache(final SecurityConfig securityConfig) {
+        this.verifiedCredentials = CacheBuilder.newBuilder()
+                                               .maximumSize(securityConfig.getTenantCredentialsCacheMaxSize())
+                                               .expireAfterWrite(securityConfig.getTenantCredentialsCacheTTL().getMillis(), TimeUnit.MILLISECONDS)
+                                               .build();
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    // Return the tenant if these credentials have been verified recently, null otherwise
+    @Nullable
+    public Tenant getIfVerified(final String apiKey, final String apiSecret) {
+        return verifiedCredentials.getIfPresent(hmac(apiKey, apiSecret));
+    }
+
+    // To be called once the credentials have been verified
+    public void put(final String apiKey, final String apiSecret, final Tenant tenant) {
+        verifiedCredentials.put(hmac(apiKey, apiSecret), tenant);
+    }
+
+    public void invalidate(final UUID tenantId) {
+        final Iterator<Tenant> iterator = verifiedCredentials.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            if (tenantId.equals(iterator.next().getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        verifiedCredentials.invalidateAll();
+    }
+
+    private String hmac(final String apiKey, final String apiSecret) {
+        try {
+            // Mac instances aren't thread-safe
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            // Prefix the key with its length, so that the (key, secret) split is unambiguous
+            mac.update(String.valueOf(apiKey.length()).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) ':');
+            mac.update(apiKey.getBytes(StandardCharsets.UTF_8));
+            mac.update(apiSecret.getBytes(StandardCharsets.UTF_8));
+            return Hex.encodeToString(mac.doFinal());
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
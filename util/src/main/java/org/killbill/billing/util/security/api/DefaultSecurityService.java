@@ -22,8 +22,11 @@ import javax.inject.Inject;
 
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.mgt.SessionsSecurityManager;
+import org.apache.shiro.session.mgt.DefaultSessionManager;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.security.shiro.dao.JDBCSessionDao;
 
 public class DefaultSecurityService implements SecurityService {
 
@@ -48,6 +51,15 @@ public class DefaultSecurityService implements SecurityService {
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
     public void stop() {
+        // Flush the pending session updates, if any
+        if (securityManager instanceof SessionsSecurityManager &&
+            ((SessionsSecurityManager) securityManager).getSessionManager() instanceof DefaultSessionManager) {
+            final DefaultSessionManager sessionManager = (DefaultSessionManager) ((SessionsSecurityManager) securityManager).getSessionManager();
+            if (sessionManager.getSessionDAO() instanceof JDBCSessionDao) {
+                ((JDBCSessionDao) sessionManager.getSessionDAO()).stop();
+            }
+        }
+
         SecurityUtils.setSecurityManager(null);
     }
 }
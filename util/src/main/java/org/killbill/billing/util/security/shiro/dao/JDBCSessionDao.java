@@ -20,14 +20,24 @@ package org.killbill.billing.util.security.shiro.dao;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.apache.shiro.session.Session;
+import org.apache.shiro.session.mgt.SimpleSession;
 import org.apache.shiro.session.mgt.eis.CachingSessionDAO;
+import org.joda.time.DateTime;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.commons.concurrent.Executors;
 import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,29 +45,87 @@ import org.slf4j.LoggerFactory;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
+//
+// When writeBehindIntervalMillis is set, updates which only bump the last access time (i.e. most authenticated requests)
+// are coalesced in memory and flushed in batches at that interval, instead of being written on the request thread.
+// Other nodes can therefore see a last access time up to one interval in the past: a touch is only deferred if the session,
+// as stored in the database, won't expire before the touch is flushed (see #canDeferTouch).
+//
 public class JDBCSessionDao extends CachingSessionDAO {
 
     private static final Logger log = LoggerFactory.getLogger(JDBCSessionDao.class);
 
+    private static final int MAX_CACHED_SESSIONS = 10000;
+
     private final JDBCSessionSqlDao jdbcSessionSqlDao;
+    private final long writeBehindIntervalMillis;
 
     private final Cache<Serializable, Boolean> noUpdateSessionsCache = CacheBuilder.<Serializable, Boolean>newBuilder().expireAfterWrite(5, TimeUnit.SECONDS).build();
 
+    // Write-behind mode only: sessions as last written (or read) by this node. Entries are short-lived, so that writes from other nodes are picked up
+    private final Cache<String, SessionModelDao> persistedSessionsCache;
+    // Write-behind mode only: latest state of the sessions whose last access time hasn't been flushed yet
+    private final ConcurrentMap<String, SessionModelDao> pendingTouches = new ConcurrentHashMap<String, SessionModelDao>();
+    private final ScheduledExecutorService flushExecutor;
+
     @Inject
     public JDBCSessionDao(final IDBI dbi) {
+        this(dbi, 0L);
+    }
+
+    public JDBCSessionDao(final IDBI dbi, final long writeBehindIntervalMillis) {
         this.jdbcSessionSqlDao = dbi.onDemand(JDBCSessionSqlDao.class);
+        this.writeBehindIntervalMillis = writeBehindIntervalMillis;
+
+        if (isWriteBehindEnabled()) {
+            this.persistedSessionsCache = CacheBuilder.<String, SessionModelDao>newBuilder()
+                                                      .maximumSize(MAX_CACHED_SESSIONS)
+                                                      .expireAfterWrite(writeBehindIntervalMillis, TimeUnit.MILLISECONDS)
+                                                      .build();
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor("SessionsFlusher");
+            this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushPendingTouches();
+                }
+            }, writeBehindIntervalMillis, writeBehindIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.persistedSessionsCache = null;
+            this.flushExecutor = null;
+        }
     }
 
     @Override
     protected void doUpdate(final Session session) {
-        if (shouldUpdateSession(session)) {
-            jdbcSessionSqlDao.update(new SessionModelDao(session));
+        if (!shouldUpdateSession(session)) {
+            return;
+        }
+
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        if (!isWriteBehindEnabled()) {
+            jdbcSessionSqlDao.update(sessionModelDao);
+            return;
+        }
+
+        final SessionModelDao persistedSessionModelDao = persistedSessionsCache.getIfPresent(sessionModelDao.getId());
+        if (persistedSessionModelDao != null && isTouchOnly(persistedSessionModelDao, sessionModelDao) && canDeferTouch(persistedSessionModelDao, sessionModelDao)) {
+            addPendingTouch(sessionModelDao);
+        } else {
+            // The full row is written, including the last access time
+            pendingTouches.remove(sessionModelDao.getId());
+            jdbcSessionSqlDao.update(sessionModelDao);
+            persistedSessionsCache.put(sessionModelDao.getId(), sessionModelDao);
         }
     }
 
     @Override
     protected void doDelete(final Session session) {
-        jdbcSessionSqlDao.delete(new SessionModelDao(session));
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        if (isWriteBehindEnabled()) {
+            pendingTouches.remove(sessionModelDao.getId());
+            persistedSessionsCache.invalidate(sessionModelDao.getId());
+        }
+        jdbcSessionSqlDao.delete(sessionModelDao);
     }
 
     @Override
@@ -66,7 +134,11 @@ public class JDBCSessionDao extends CachingSessionDAO {
         // See SessionModelDao#toSimpleSession for why we use toString()
         final String sessionIdAsString = sessionId.toString();
         assignSessionId(session, sessionIdAsString);
-        jdbcSessionSqlDao.create(new SessionModelDao(session));
+        final SessionModelDao sessionModelDao = new SessionModelDao(session);
+        jdbcSessionSqlDao.create(sessionModelDao);
+        if (isWriteBehindEnabled()) {
+            persistedSessionsCache.put(sessionIdAsString, sessionModelDao);
+        }
         // Make sure to return a String here as well, or Shiro will cache the Session with a UUID key
         // while it is expecting String
         return sessionIdAsString;
@@ -80,20 +152,117 @@ public class JDBCSessionDao extends CachingSessionDAO {
         }
 
         final String sessionIdString = sessionId.toString();
-        final SessionModelDao sessionModelDao = jdbcSessionSqlDao.read(sessionIdString);
+        final SessionModelDao sessionModelDao = readSessionModelDao(sessionIdString);
 
         if (sessionModelDao == null) {
             return null;
         }
 
         try {
-            return sessionModelDao.toSimpleSession();
+            final SimpleSession simpleSession = sessionModelDao.toSimpleSession();
+            final SessionModelDao pendingTouch = isWriteBehindEnabled() ? pendingTouches.get(sessionIdString) : null;
+            if (pendingTouch != null && pendingTouch.getLastAccessTime().isAfter(sessionModelDao.getLastAccessTime())) {
+                simpleSession.setLastAccessTime(pendingTouch.getLastAccessTime().toDate());
+            }
+            return simpleSession;
         } catch (final IOException e) {
             log.warn("Corrupted cookie", e);
             return null;
         }
     }
 
+    private SessionModelDao readSessionModelDao(final String sessionId) {
+        if (!isWriteBehindEnabled()) {
+            return jdbcSessionSqlDao.read(sessionId);
+        }
+
+        final SessionModelDao cachedSessionModelDao = persistedSessionsCache.getIfPresent(sessionId);
+        if (cachedSessionModelDao != null) {
+            return cachedSessionModelDao;
+        }
+
+        final SessionModelDao sessionModelDao = jdbcSessionSqlDao.read(sessionId);
+        if (sessionModelDao != null) {
+            persistedSessionsCache.put(sessionId, sessionModelDao);
+        }
+        return sessionModelDao;
+    }
+
+    // Write the coalesced last access times in one batch
+    public void flushPendingTouches() {
+        final List<SessionModelDao> touches = new LinkedList<SessionModelDao>();
+        for (final Entry<String, SessionModelDao> entry : pendingTouches.entrySet()) {
+            // Newer touches (re-added concurrently) are picked up by the next flush
+            if (pendingTouches.remove(entry.getKey(), entry.getValue())) {
+                touches.add(entry.getValue());
+            }
+        }
+        if (touches.isEmpty()) {
+            return;
+        }
+
+        try {
+            // The update is a no-op if another node has already written a more recent last access time
+            jdbcSessionSqlDao.updateLastAccessTime(touches);
+        } catch (final RuntimeException e) {
+            log.warn("Unable to flush {} session last access times, will retry", touches.size(), e);
+            for (final SessionModelDao touch : touches) {
+                addPendingTouch(touch);
+            }
+        }
+    }
+
+    public void stop() {
+        if (flushExecutor == null) {
+            return;
+        }
+
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("SessionsFlusher failed to complete termination within 5 sec");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPendingTouches();
+    }
+
+    private void addPendingTouch(final SessionModelDao sessionModelDao) {
+        // Keep the latest last access time (requests for the same session can be processed concurrently)
+        while (true) {
+            final SessionModelDao existingTouch = pendingTouches.putIfAbsent(sessionModelDao.getId(), sessionModelDao);
+            if (existingTouch == null ||
+                !sessionModelDao.getLastAccessTime().isAfter(existingTouch.getLastAccessTime()) ||
+                pendingTouches.replace(sessionModelDao.getId(), existingTouch, sessionModelDao)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isTouchOnly(final SessionModelDao persistedSessionModelDao, final SessionModelDao sessionModelDao) {
+        return persistedSessionModelDao.getTimeout() == sessionModelDao.getTimeout() &&
+               persistedSessionModelDao.getStartTimestamp().equals(sessionModelDao.getStartTimestamp()) &&
+               (persistedSessionModelDao.getHost() == null ? sessionModelDao.getHost() == null : persistedSessionModelDao.getHost().equals(sessionModelDao.getHost())) &&
+               Arrays.equals(persistedSessionModelDao.getSessionData(), sessionModelDao.getSessionData());
+    }
+
+    // Other nodes only see the persisted last access time: the touch can be deferred only if the pending flush (allowing one extra interval
+    // for a slow flush) will happen before the session expires from their point of view
+    private boolean canDeferTouch(final SessionModelDao persistedSessionModelDao, final SessionModelDao sessionModelDao) {
+        if (sessionModelDao.getTimeout() < 0) {
+            // Never expires
+            return true;
+        }
+        final DateTime persistedExpirationTime = persistedSessionModelDao.getLastAccessTime().plus(sessionModelDao.getTimeout());
+        final DateTime latestFlushTime = sessionModelDao.getLastAccessTime().plus(2 * writeBehindIntervalMillis);
+        return latestFlushTime.isBefore(persistedExpirationTime);
+    }
+
+    private boolean isWriteBehindEnabled() {
+        return writeBehindIntervalMillis > 0;
+    }
+
     public void disableUpdatesForSession(final Session session) {
         noUpdateSessionsCache.put(session.getId(), Boolean.TRUE);
     }
@@ -21,8 +21,10 @@ package org.killbill.billing.util.security.shiro.dao;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
 
 @KillBillSqlDaoStringTemplate
@@ -37,6 +39,10 @@ public interface JDBCSessionSqlDao extends Transactional<JDBCSessionSqlDao> {
     @SqlUpdate
     public void update(@SmartBindBean final SessionModelDao sessionModelDao);
 
+    @SqlBatch
+    @BatchChunkSize(1000)
+    public void updateLastAccessTime(@SmartBindBean final Iterable<SessionModelDao> sessionModelDaos);
+
     @SqlUpdate
     public void delete(@SmartBindBean final SessionModelDao sessionModelDao);
 
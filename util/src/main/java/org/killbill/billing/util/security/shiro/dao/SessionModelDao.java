@@ -55,7 +55,7 @@ public class SessionModelDao {
         }
     }
 
-    public Session toSimpleSession() throws IOException {
+    public SimpleSession toSimpleSession() throws IOException {
         final SimpleSession simpleSession = new SimpleSession();
         if (id != null) {
             // Make sure to use a String here! It will be used as-is as the key in Ehcache.
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.tag.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -38,4 +39,7 @@ public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
     List<TagModelDao> getTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
     List<TagModelDao> getTagsForAccount(boolean includedDeleted, InternalTenantContext internalTenantContext);
+
+    // Active tags of the given type across several accounts
+    List<TagModelDao> getTagsForAccountRecordIds(ObjectType objectType, Collection<Long> accountRecordIds, InternalTenantContext internalTenantContext);
 }
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -65,6 +66,17 @@ public class MockNonEntityDao implements NonEntityDao {
         return null;
     }
 
+    @Override
+    public Map<UUID, Long> retrieveAccountRecordIdsFromObjects(final Collection<UUID> objectIds, final ObjectType objectType, final Long tenantRecordId) {
+        final Map<UUID, Long> result = new HashMap<UUID, Long>();
+        for (final UUID objectId : objectIds) {
+            if (accountRecordIdMappings.get(objectId) != null && tenantRecordId.equals(tenantRecordIdMappings.get(objectId))) {
+                result.put(objectId, accountRecordIdMappings.get(objectId));
+            }
+        }
+        return result;
+    }
+
     @Override
     public Long retrieveTenantRecordIdFromObject(final UUID objectId, final ObjectType objectType, @Nullable final CacheController<String, Long> cache) {
         return tenantRecordIdMappings.get(objectId);
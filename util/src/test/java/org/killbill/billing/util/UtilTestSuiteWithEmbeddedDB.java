@@ -33,6 +33,7 @@ import org.killbill.billing.util.customfield.dao.CustomFieldDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.export.dao.DatabaseExportDao;
 import org.killbill.billing.util.glue.TestUtilModuleWithEmbeddedDB;
+import org.killbill.billing.util.metrics.LatencyHistograms;
 import org.killbill.billing.util.nodes.dao.NodeInfoDao;
 import org.killbill.billing.util.tag.api.DefaultTagUserApi;
 import org.killbill.billing.util.tag.dao.DefaultTagDao;
@@ -98,6 +99,8 @@ public abstract class UtilTestSuiteWithEmbeddedDB extends GuicyKillbillTestSuite
     protected NodeInfoDao nodeInfoDao;
     @Inject
     protected BroadcastDao broadcastDao;
+    @Inject
+    protected LatencyHistograms latencyHistograms;
 
     @BeforeClass(groups = "slow")
     public void beforeClass() throws Exception {
@@ -62,6 +62,11 @@ public class MockAuditDao implements AuditDao {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<UUID, DefaultAccountAuditLogs> getAuditLogsForAccountRecordIds(final Map<UUID, Long> accountRecordIds, final AuditLevel auditLevel, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<AuditLog> getAuditLogsForId(final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
         final Map<UUID, List<AuditLog>> auditLogsForTableName = auditLogsForTables.get(tableName);
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
@@ -25,6 +26,7 @@ import org.testng.annotations.Test;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.api.TestApiListener.NextEvent;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.api.TagApiException;
@@ -33,12 +35,15 @@ import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.audit.AccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagModelDao;
 
+import com.google.common.collect.ImmutableMap;
+
 public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
 
     private TagModelDao tag;
@@ -71,9 +76,41 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
 
             final AccountAuditLogsForObjectType accountAuditLogsForObjectType = auditDao.getAuditLogsForAccountRecordId(TableName.TAG, level, internalCallContext);
             verifyAuditLogsForTag(accountAuditLogsForObjectType.getAuditLogs(tag.getId()), level);
+
+            final UUID accountId = UUID.randomUUID();
+            final UUID otherAccountId = UUID.randomUUID();
+            final Map<UUID, DefaultAccountAuditLogs> accountsAuditLogs = auditDao.getAuditLogsForAccountRecordIds(ImmutableMap.<UUID, Long>of(accountId, internalCallContext.getAccountRecordId(),
+                                                                                                                                           otherAccountId, internalCallContext.getAccountRecordId() + 1),
+                                                                                                                  level,
+                                                                                                                  internalCallContext);
+            Assert.assertEquals(accountsAuditLogs.size(), 2);
+            verifyAuditLogsForTag(accountsAuditLogs.get(accountId).getAuditLogs(ObjectType.TAG).getAuditLogs(tag.getId()), level);
+            Assert.assertEquals(accountsAuditLogs.get(otherAccountId).getAuditLogs(ObjectType.TAG).getAuditLogs(tag.getId()).size(), 0);
         }
     }
 
+    @Test(groups = "slow")
+    public void testRetrieveAuditsForSeveralAccounts() throws Exception {
+        addTag();
+        final TagModelDao firstAccountTag = tag;
+
+        final InternalCallContext otherInternalCallContext = new InternalCallContext(internalCallContext, internalCallContext.getAccountRecordId() + 1, null, null, clock.getUTCNow());
+        addTag(otherInternalCallContext);
+        final TagModelDao otherAccountTag = tag;
+
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        final Map<UUID, DefaultAccountAuditLogs> accountsAuditLogs = auditDao.getAuditLogsForAccountRecordIds(ImmutableMap.<UUID, Long>of(accountId, internalCallContext.getAccountRecordId(),
+                                                                                                                                       otherAccountId, otherInternalCallContext.getAccountRecordId()),
+                                                                                                              AuditLevel.FULL,
+                                                                                                              internalCallContext);
+        Assert.assertEquals(accountsAuditLogs.size(), 2);
+        verifyAuditLogsForTag(accountsAuditLogs.get(accountId).getAuditLogs(ObjectType.TAG).getAuditLogs(firstAccountTag.getId()), AuditLevel.FULL);
+        Assert.assertEquals(accountsAuditLogs.get(accountId).getAuditLogs(ObjectType.TAG).getAuditLogs(otherAccountTag.getId()).size(), 0);
+        verifyAuditLogsForTag(accountsAuditLogs.get(otherAccountId).getAuditLogs(ObjectType.TAG).getAuditLogs(otherAccountTag.getId()), AuditLevel.FULL);
+        Assert.assertEquals(accountsAuditLogs.get(otherAccountId).getAuditLogs(ObjectType.TAG).getAuditLogs(firstAccountTag.getId()).size(), 0);
+    }
+
     @Test(groups = "slow")
     public void testVerifyAuditCachesAreCleared() throws Exception {
         addTag();
@@ -92,14 +129,18 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
     }
 
     private void addTag() throws TagDefinitionApiException, TagApiException {
+        addTag(internalCallContext);
+    }
+
+    private void addTag(final InternalCallContext context) throws TagDefinitionApiException, TagApiException {
         // Create a tag definition
         eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
         final TagDefinitionModelDao tagDefinition = tagDefinitionDao.create(UUID.randomUUID().toString().substring(0, 5),
                                                                             UUID.randomUUID().toString().substring(0, 5),
-                                                                            internalCallContext);
+                                                                            context);
         assertListenerStatus();
 
-        Assert.assertEquals(tagDefinitionDao.getById(tagDefinition.getId(), internalCallContext), tagDefinition);
+        Assert.assertEquals(tagDefinitionDao.getById(tagDefinition.getId(), context), tagDefinition);
 
         // Create a tag
         final UUID objectId = UUID.randomUUID();
@@ -107,10 +148,10 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
         final Tag theTag = new DescriptiveTag(tagDefinition.getId(), ObjectType.ACCOUNT, objectId, clock.getUTCNow());
 
         eventsListener.pushExpectedEvent(NextEvent.TAG);
-        tagDao.create(new TagModelDao(theTag), internalCallContext);
+        tagDao.create(new TagModelDao(theTag), context);
         assertListenerStatus();
 
-        final List<TagModelDao> tags = tagDao.getTagsForObject(objectId, ObjectType.ACCOUNT, false, internalCallContext);
+        final List<TagModelDao> tags = tagDao.getTagsForObject(objectId, ObjectType.ACCOUNT, false, context);
         Assert.assertEquals(tags.size(), 1);
         tag = tags.get(0);
         Assert.assertEquals(tag.getTagDefinitionId(), tagDefinition.getId());
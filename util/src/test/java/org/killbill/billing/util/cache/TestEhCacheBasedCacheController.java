@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestEhCacheBasedCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSingleFlightLoading() throws Exception {
+        final int nbThreads = 10;
+        final CountDownLatch loaderLatch = new CountDownLatch(1);
+        final AtomicInteger nbComputations = new AtomicInteger();
+        final BaseCacheLoader<Object, Object> cacheLoader = new BaseCacheLoader<Object, Object>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Object compute(final Object key, final CacheLoaderArgument cacheLoaderArgument) {
+                nbComputations.incrementAndGet();
+                try {
+                    loaderLatch.await();
+                } catch (final InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return 12L;
+            }
+        };
+
+        // The value never makes it to the cache, so that all calls are misses
+        final Cache<Object, Object> cache = Mockito.mock(Cache.class);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final EhCacheBasedCacheController<Object, Object> cacheController = new EhCacheBasedCacheController<Object, Object>(cache, cacheLoader, metricRegistry);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executorService.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return cacheController.get("key", new CacheLoaderArgument(null));
+                    }
+                }));
+            }
+
+            // Wait for all callers to miss before letting the loader complete
+            final String missesMetricName = MetricRegistry.name(EhCacheBasedCacheController.class, CacheType.RECORD_ID.getCacheName(), "misses");
+            final long timeoutMs = System.currentTimeMillis() + 10000;
+            while (metricRegistry.counter(missesMetricName).getCount() < nbThreads && System.currentTimeMillis() < timeoutMs) {
+                Thread.sleep(10);
+            }
+            // Leave time for the last callers to join the in-flight load
+            Thread.sleep(100);
+            loaderLatch.countDown();
+
+            for (final Future<Object> future : futures) {
+                Assert.assertEquals(future.get(10, TimeUnit.SECONDS), 12L);
+            }
+        } finally {
+            loaderLatch.countDown();
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals(nbComputations.get(), 1);
+        Assert.assertEquals(metricRegistry.timer(MetricRegistry.name(EhCacheBasedCacheController.class, CacheType.RECORD_ID.getCacheName(), "loads")).getCount(), 1L);
+        Mockito.verify(cache, Mockito.times(1)).putIfAbsent("key", 12L);
+    }
+}
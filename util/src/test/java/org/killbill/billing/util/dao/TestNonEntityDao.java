@@ -18,6 +18,7 @@ package org.killbill.billing.util.dao;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
@@ -28,6 +29,8 @@ import org.testng.annotations.Test;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestNonEntityDao extends UtilTestSuiteWithEmbeddedDB {
 
     final Long tenantRecordId = 123123123L;
@@ -75,6 +78,27 @@ public class TestNonEntityDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(resultAccountRecordId, accountRecordId);
     }
 
+    @Test(groups = "slow")
+    public void testRetrieveAccountRecordIdsFromObjects() throws IOException {
+        insertTag();
+
+        final Map<UUID, Long> resultAccountRecordIds = nonEntityDao.retrieveAccountRecordIdsFromObjects(ImmutableList.<UUID>of(tagId, UUID.randomUUID()), ObjectType.TAG, 0L);
+        Assert.assertEquals(resultAccountRecordIds.size(), 1);
+        Assert.assertEquals(resultAccountRecordIds.get(tagId), accountRecordId);
+
+        // Wrong tenant
+        Assert.assertTrue(nonEntityDao.retrieveAccountRecordIdsFromObjects(ImmutableList.<UUID>of(tagId), ObjectType.TAG, tenantRecordId).isEmpty());
+    }
+
+    @Test(groups = "slow")
+    public void testRetrieveAccountRecordIdsFromAccounts() throws IOException {
+        insertAccount();
+
+        final Map<UUID, Long> resultAccountRecordIds = nonEntityDao.retrieveAccountRecordIdsFromObjects(ImmutableList.<UUID>of(accountId, UUID.randomUUID()), ObjectType.ACCOUNT, tenantRecordId);
+        Assert.assertEquals(resultAccountRecordIds.size(), 1);
+        Assert.assertEquals(resultAccountRecordIds.get(accountId), accountRecordId);
+    }
+
     @Test(groups = "slow")
     public void testRetrieveTenantRecordIdFromObject() throws IOException {
         insertAccount();
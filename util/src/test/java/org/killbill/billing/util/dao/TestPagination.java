@@ -16,13 +16,16 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.killbill.billing.util.entity.PaginationOptions;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
 
@@ -74,4 +77,68 @@ public class TestPagination extends UtilTestSuiteWithEmbeddedDB {
             }
         }
     }
+
+    @Test(groups = "slow", description = "Test Pagination: keyset (record_id cursor) pagination")
+    public void testTagDefinitionsKeysetPagination() throws Exception {
+        final PaginationOptions keysetOptions = new PaginationOptions(true, false);
+
+        // Nothing to walk backwards from yet
+        final Pagination<TagDefinitionModelDao> emptyPage = tagDefinitionDao.get(0L, -3L, keysetOptions, internalCallContext);
+        Assert.assertNull(emptyPage.getNextOffset());
+        Assert.assertFalse(emptyPage.iterator().hasNext());
+
+        for (int i = 0; i < 10; i++) {
+            eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+            tagDefinitionDao.create("name-" + i, "description-" + i, internalCallContext);
+            assertListenerStatus();
+        }
+
+        // Walk forward, 4 records at a time
+        final List<String> names = new ArrayList<String>();
+        Long recordIdCursor = 0L;
+        int nbPages = 0;
+        while (recordIdCursor != null) {
+            final Pagination<TagDefinitionModelDao> page = tagDefinitionDao.get(recordIdCursor, 4L, keysetOptions, internalCallContext);
+            Assert.assertEquals(page.getCurrentOffset(), recordIdCursor);
+            // No count query
+            Assert.assertNull(page.getTotalNbRecords());
+            Assert.assertNull(page.getMaxNbRecords());
+
+            final List<TagDefinitionModelDao> tagDefinitions = ImmutableList.<TagDefinitionModelDao>copyOf(page);
+            for (final TagDefinitionModelDao tagDefinition : tagDefinitions) {
+                names.add(tagDefinition.getName());
+            }
+            if (page.getNextOffset() != null) {
+                Assert.assertEquals(page.getNextOffset(), tagDefinitions.get(tagDefinitions.size() - 1).getRecordId());
+            }
+            recordIdCursor = page.getNextOffset();
+            nbPages++;
+        }
+        Assert.assertEquals(nbPages, 3);
+        Assert.assertEquals(names.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(names.get(i), "name-" + i);
+        }
+
+        // Walk backwards
+        final Pagination<TagDefinitionModelDao> lastPage = tagDefinitionDao.get(0L, -3L, keysetOptions, internalCallContext);
+        final List<TagDefinitionModelDao> lastTagDefinitions = ImmutableList.<TagDefinitionModelDao>copyOf(lastPage);
+        Assert.assertEquals(lastTagDefinitions.size(), 3);
+        Assert.assertEquals(lastTagDefinitions.get(0).getName(), "name-9");
+        Assert.assertEquals(lastTagDefinitions.get(2).getName(), "name-7");
+        final List<TagDefinitionModelDao> previousTagDefinitions = ImmutableList.<TagDefinitionModelDao>copyOf(tagDefinitionDao.get(lastPage.getNextOffset(), -3L, keysetOptions, internalCallContext));
+        Assert.assertEquals(previousTagDefinitions.size(), 3);
+        Assert.assertEquals(previousTagDefinitions.get(0).getName(), "name-6");
+
+        // Totals are still available on demand
+        final Pagination<TagDefinitionModelDao> pageWithTotals = tagDefinitionDao.get(0L, 4L, new PaginationOptions(true, true), internalCallContext);
+        Assert.assertEquals(pageWithTotals.getMaxNbRecords(), (Long) 10L);
+        Assert.assertEquals(ImmutableList.<TagDefinitionModelDao>copyOf(pageWithTotals).size(), 4);
+
+        // Offset pagination without totals
+        final Pagination<TagDefinitionModelDao> page = tagDefinitionDao.get(4L, 4L, new PaginationOptions(false, false), internalCallContext);
+        Assert.assertNull(page.getMaxNbRecords());
+        Assert.assertEquals(page.getNextOffset(), (Long) 8L);
+        Assert.assertEquals(ImmutableList.<TagDefinitionModelDao>copyOf(page).get(0).getName(), "name-4");
+    }
 }
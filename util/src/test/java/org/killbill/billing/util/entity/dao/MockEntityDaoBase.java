@@ -29,6 +29,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.PaginationOptions;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -78,6 +79,11 @@ public class MockEntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U
         return DefaultPagination.<M>build(offset, limit, ImmutableList.<M>copyOf(getAll(context)));
     }
 
+    @Override
+    public Pagination<M> get(final Long offset, final Long limit, final PaginationOptions paginationOptions, final InternalTenantContext context) {
+        return get(offset, limit, context);
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return (long) entities.keySet().size();
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestLatencyHistograms extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testRecord() throws Exception {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final LatencyHistograms latencyHistograms = new LatencyHistograms(metricRegistry);
+
+        final long startNanos = latencyHistograms.start();
+        Thread.sleep(5);
+        latencyHistograms.record(ProfilingFeatureType.PLUGIN, "payment:test", startNanos);
+        latencyHistograms.record(ProfilingFeatureType.PLUGIN, "payment:test", latencyHistograms.start());
+        latencyHistograms.record(ProfilingFeatureType.DAO, "AccountSqlDao.getById", latencyHistograms.start());
+
+        Assert.assertEquals(latencyHistograms.getHistograms().size(), 2);
+        Assert.assertEquals(latencyHistograms.getHistograms(ProfilingFeatureType.PLUGIN).size(), 1);
+        Assert.assertEquals(latencyHistograms.getHistograms(ProfilingFeatureType.PLUGIN).get("PLUGIN.payment:test").getCount(), 2L);
+        Assert.assertTrue(latencyHistograms.getHistograms(ProfilingFeatureType.PLUGIN).get("PLUGIN.payment:test").getSnapshot().getMax() >= 5000000L);
+        Assert.assertEquals(latencyHistograms.getHistograms(ProfilingFeatureType.DAO).get("DAO.AccountSqlDao.getById").getCount(), 1L);
+        Assert.assertTrue(latencyHistograms.getHistograms(ProfilingFeatureType.JAXRS).isEmpty());
+
+        // The timers are visible to the reporters of the registry
+        Assert.assertEquals(metricRegistry.getTimers().get("latency.PLUGIN.payment:test").getCount(), 2L);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2017 Groupon, Inc
+ * Copyright 2014-2017 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.config.definition.SecurityConfig;
+import org.mockito.Mockito;
+import org.skife.config.ConfigurationObjectFactory;
+import org.skife.config.SimplePropertyConfigSource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTenantCredentialsCache extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testVerifiedCredentials() throws Exception {
+        final TenantCredentialsCache tenantCredentialsCache = new TenantCredentialsCache(buildSecurityConfig("1000"));
+
+        final Tenant tenant1 = createTenant();
+        final Tenant tenant2 = createTenant();
+        tenantCredentialsCache.put("key1", "secret1", tenant1);
+        tenantCredentialsCache.put("key2", "secret2", tenant2);
+
+        Assert.assertEquals(tenantCredentialsCache.getIfVerified("key1", "secret1"), tenant1);
+        Assert.assertEquals(tenantCredentialsCache.getIfVerified("key2", "secret2"), tenant2);
+        // Wrong secret
+        Assert.assertNull(tenantCredentialsCache.getIfVerified("key1", "secret2"));
+        // Same concatenation, different split
+        Assert.assertNull(tenantCredentialsCache.getIfVerified("key1s", "ecret1"));
+
+        tenantCredentialsCache.invalidate(tenant1.getId());
+        Assert.assertNull(tenantCredentialsCache.getIfVerified("key1", "secret1"));
+        Assert.assertEquals(tenantCredentialsCache.getIfVerified("key2", "secret2"), tenant2);
+
+        tenantCredentialsCache.invalidateAll();
+        Assert.assertNull(tenantCredentialsCache.getIfVerified("key2", "secret2"));
+    }
+
+    @Test(groups = "fast")
+    public void testDisabled() throws Exception {
+        final TenantCredentialsCache tenantCredentialsCache = new TenantCredentialsCache(buildSecurityConfig("0"));
+
+        tenantCredentialsCache.put("key1", "secret1", createTenant());
+        Assert.assertNull(tenantCredentialsCache.getIfVerified("key1", "secret1"));
+    }
+
+    private SecurityConfig buildSecurityConfig(final String maxSize) {
+        final Properties props = new Properties();
+        props.setProperty("org.killbill.security.tenantCredentialsCache.maxSize", maxSize);
+        return new ConfigurationObjectFactory(new SimplePropertyConfigSource(props)).build(SecurityConfig.class);
+    }
+
+    private Tenant createTenant() {
+        final Tenant tenant = Mockito.mock(Tenant.class);
+        Mockito.when(tenant.getId()).thenReturn(UUID.randomUUID());
+        return tenant;
+    }
+}
@@ -67,6 +67,56 @@ public class TestJDBCSessionDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertNull(jdbcSessionDao.doReadSession(session.getId()));
     }
 
+    @Test(groups = "slow")
+    public void testWriteBehind() throws Exception {
+        final JDBCSessionDao jdbcSessionDao = new JDBCSessionDao(dbi, 60000L);
+        // No write-behind, to look at the database directly
+        final JDBCSessionDao directJdbcSessionDao = new JDBCSessionDao(dbi);
+
+        final SimpleSession session = createSession();
+        final Serializable sessionId = jdbcSessionDao.doCreate(session);
+        final Date initialLastAccessTime = session.getLastAccessTime();
+
+        // Touch: deferred
+        final Date touchedLastAccessTime = new Date(initialLastAccessTime.getTime() + 1000);
+        session.setLastAccessTime(touchedLastAccessTime);
+        jdbcSessionDao.doUpdate(session);
+        Assert.assertEquals(directJdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), initialLastAccessTime);
+        Assert.assertEquals(jdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), touchedLastAccessTime);
+
+        // Flush
+        jdbcSessionDao.flushPendingTouches();
+        Assert.assertEquals(directJdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), touchedLastAccessTime);
+
+        // Other updates are written synchronously
+        final String newHost = UUID.randomUUID().toString();
+        session.setHost(newHost);
+        jdbcSessionDao.doUpdate(session);
+        Assert.assertEquals(directJdbcSessionDao.doReadSession(sessionId).getHost(), newHost);
+
+        // A more recent last access time written by another node isn't overridden by the flush
+        session.setLastAccessTime(new Date(touchedLastAccessTime.getTime() + 1000));
+        jdbcSessionDao.doUpdate(session);
+        final Date otherNodeLastAccessTime = new Date(touchedLastAccessTime.getTime() + 5000);
+        session.setLastAccessTime(otherNodeLastAccessTime);
+        directJdbcSessionDao.doUpdate(session);
+        jdbcSessionDao.flushPendingTouches();
+        Assert.assertEquals(directJdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), otherNodeLastAccessTime);
+
+        // Touch close to the expiration time of the persisted session: written synchronously
+        final Date lateLastAccessTime = new Date(otherNodeLastAccessTime.getTime() + session.getTimeout() - 60000L);
+        session.setLastAccessTime(lateLastAccessTime);
+        jdbcSessionDao.doUpdate(session);
+        Assert.assertEquals(directJdbcSessionDao.doReadSession(sessionId).getLastAccessTime(), lateLastAccessTime);
+
+        // Delete
+        jdbcSessionDao.doDelete(session);
+        Assert.assertNull(jdbcSessionDao.doReadSession(sessionId));
+        Assert.assertNull(directJdbcSessionDao.doReadSession(sessionId));
+
+        jdbcSessionDao.stop();
+    }
+
     private SimpleSession createSession() {
         final SimpleSession simpleSession = new SimpleSession();
         simpleSession.setStartTimestamp(new Date(System.currentTimeMillis() - 5000));
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.tag.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -88,7 +89,11 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
 
     @Override
     public List<TagModelDao> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
-        throw new UnsupportedOperationException();
+        final List<TagModelDao> result = new ArrayList<TagModelDao>();
+        for (final UUID objectId : tagStore.keySet()) {
+            result.addAll(getTagsForObject(objectId, objectType, includedDeleted, internalTenantContext));
+        }
+        return result;
     }
 
     @Override
@@ -96,6 +101,11 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<TagModelDao> getTagsForAccountRecordIds(final ObjectType objectType, final Collection<Long> accountRecordIds, final InternalTenantContext internalTenantContext) {
+        throw new UnsupportedOperationException();
+    }
+
     public void clear() {
         tagStore.clear();
     }